@@ -1,22 +1,27 @@
 package com.mpagliaro98.mysubscriptions.model;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 /**
- * The class that computes analytics given a model full of subscriptions.
+ * The class that computes analytics given a model full of subscriptions. The analytics are
+ * calculated in full once, then kept as running totals: when the model adds, changes, or
+ * removes a subscription, only that subscription's share of each total is added or taken
+ * away. A full recalculation is only needed when the date considered today changes.
  */
 public class AnalyticsManager {
 
     // The model that contains all subscription data
     private SharedViewModel model;
 
-    // A base calendar that each method will clone from to get the time
+    // A base calendar set to the date the analytics were calculated for
     private ZeroTimeCalendar baseZTC;
 
     // The analytics values we want to keep track of
@@ -24,10 +29,56 @@ public class AnalyticsManager {
     private double restDueThisMonth;
     private double totalDueNextMonth;
     private double totalDueYearly;
-    private double costMostExpensive;
-    private String nameMostExpensive;
-    private int mostCommonRecharge;
-    private HashMap<Category, Double> breakdown;
+    // Each recharge frequency that exists and how many subscriptions have it
+    private HashMap<Integer, Integer> frequencyCounts = new HashMap<>();
+    // Each category's total over the breakdown period
+    private HashMap<Category, CategoryTotal> breakdown = new HashMap<>();
+    // The number of months the breakdown covers, starting with this month
+    private int breakdownMonths = 1;
+
+    // The month index of today
+    private int currentMonthIndex;
+    // What each subscription added to the totals, so the same amount can be taken away later
+    private IdentityHashMap<Subscription, Contribution> contributions = new IdentityHashMap<>();
+    // Every contribution with the highest yearly cost first. Removed contributions are left
+    // in the queue and skipped once they reach the top
+    private PriorityQueue<Contribution> yearlyCostQueue = new PriorityQueue<>(11, YEARLY_COST_ORDER);
+    // The number of removed contributions still in the queue
+    private int numRemovedInQueue = 0;
+
+    // Orders contributions with the highest yearly cost first
+    private static final Comparator<Contribution> YEARLY_COST_ORDER = new Comparator<Contribution>() {
+        @Override
+        public int compare(Contribution o1, Contribution o2) {
+            return Double.compare(o2.yearlyCost, o1.yearlyCost);
+        }
+    };
+
+    /**
+     * The values a single subscription added to the analytics.
+     */
+    private static class Contribution {
+        Subscription subscription;
+        String name;
+        Category category;
+        double cost;
+        int frequency;
+        int startMonthIndex;
+        double dueThisMonth;
+        double restDueThisMonth;
+        double dueNextMonth;
+        double yearlyCost;
+        double breakdownCost;
+        boolean removed = false;
+    }
+
+    /**
+     * A category's total in the breakdown, and how many subscriptions make it up.
+     */
+    private static class CategoryTotal {
+        double cost;
+        int numSubs;
+    }
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
@@ -42,7 +93,6 @@ public class AnalyticsManager {
         this.model = model;
         this.baseZTC = new ZeroTimeCalendar();
         calculateAnalytics();
-        createMonthlyBreakdown(1);
     }
 
     /**
@@ -56,56 +106,94 @@ public class AnalyticsManager {
         this.model = model;
         this.baseZTC = zeroTimeCalendar;
         calculateAnalytics();
-        createMonthlyBreakdown(1);
     }
 
     /**
-     * Run the suite of analytics again and update the internal values.
+     * Run the suite of analytics again from scratch and update the internal values.
      */
     public void regenerateAnalytics() {
         calculateAnalytics();
     }
 
     /**
-     * Create the category breakdown HashMap, and fill it with the values it needs pertaining
-     * to the length of the period passed in. This will calculate how much is owed for each
-     * category over a period of several months, starting from the current month.
-     * @param months the amount of months (starting with this month) to look at into the future
+     * Run the suite of analytics again from scratch, treating a new date as today.
+     * @param zeroTimeCalendar a zero time calendar set to the date that should be considered
+     *                         today's date
      */
-    public void createMonthlyBreakdown(int months) {
-        this.breakdown = new HashMap<>();
-        ZeroTimeCalendar calendarToday;
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            calendarToday = baseZTC.copyCalendar();
-            Date subStartDate = sub.getStartDate();
-            ZeroTimeCalendar calendarSub = baseZTC.copyCalendar();
-            calendarSub.setTimeToDate(subStartDate);
-            calendarToday.setTime(calendarToday.getYear(), calendarToday.getMonth(), 1);
-            calendarSub.setTime(calendarSub.getYear(), calendarSub.getMonth(), 1);
-
-            // Calculate the first potential payment date within the given period
-            while (calendarSub.getCurrentDate().before(calendarToday.getCurrentDate())) {
-                calendarSub.addMonths(sub.getRechargeFrequency());
-            }
+    void regenerateAnalytics(ZeroTimeCalendar zeroTimeCalendar) {
+        this.baseZTC = zeroTimeCalendar.copyCalendar();
+        calculateAnalytics();
+    }
+
+    /**
+     * Check if the analytics were calculated with the given day as today.
+     * @param today the epoch day of today's date
+     * @return true if the analytics are for that day, false if they need to be recalculated
+     */
+    boolean isCalculatedFor(int today) {
+        return baseZTC.getEpochDay() == today;
+    }
 
-            // Set this date to the end date of the period
-            calendarToday.addMonths(months);
+    /**
+     * Add a subscription's share to each running total. This is called by the model when
+     * a subscription is added to it. If the subscription was already counted, its old share
+     * is taken away first.
+     * @param subscription the subscription that was added
+     */
+    void subscriptionAdded(Subscription subscription) {
+        addContribution(subscription);
+    }
 
-            // Count how many times the subscription gets charged in this period
-            double subPeriodCost = 0.0;
-            while (calendarSub.getCurrentDate().before(calendarToday.getCurrentDate())) {
-                calendarSub.addMonths(sub.getRechargeFrequency());
-                subPeriodCost += sub.getCost();
-            }
+    /**
+     * Take a subscription's share away from each running total, using the values it had
+     * when it was added, so it doesn't matter if the object was changed since then. This is
+     * called by the model when a subscription is removed from it or replaced.
+     * @param subscription the subscription that was removed
+     */
+    void subscriptionRemoved(Subscription subscription) {
+        Contribution contribution = contributions.remove(subscription);
+        if (contribution == null) {
+            return;
+        }
+        totalDueThisMonth -= contribution.dueThisMonth;
+        restDueThisMonth -= contribution.restDueThisMonth;
+        totalDueNextMonth -= contribution.dueNextMonth;
+        totalDueYearly -= contribution.yearlyCost;
+        int frequencyCount = frequencyCounts.get(contribution.frequency) - 1;
+        if (frequencyCount == 0) {
+            frequencyCounts.remove(contribution.frequency);
+        } else {
+            frequencyCounts.put(contribution.frequency, frequencyCount);
+        }
+        removeFromBreakdown(contribution);
 
-            // Put that calculated cost into the map
-            if (subPeriodCost > 0) {
-                if (breakdown.containsKey(sub.getCategory())) {
-                    breakdown.put(sub.getCategory(), breakdown.get(sub.getCategory()) + subPeriodCost);
-                } else {
-                    breakdown.put(sub.getCategory(), subPeriodCost);
-                }
-            }
+        // Leave it in the queue to be skipped later, unless most of the queue is now removed
+        contribution.removed = true;
+        numRemovedInQueue++;
+        if (numRemovedInQueue > contributions.size()) {
+            rebuildYearlyCostQueue();
+        }
+
+        // Don't let rounding errors build up once nothing is left
+        if (contributions.isEmpty()) {
+            totalDueThisMonth = 0;
+            restDueThisMonth = 0;
+            totalDueNextMonth = 0;
+            totalDueYearly = 0;
+        }
+    }
+
+    /**
+     * Create the category breakdown, filling it with how much is owed for each category over
+     * a period of several months, starting from the current month. The breakdown is then
+     * kept up to date for that period as subscriptions change.
+     * @param months the amount of months (starting with this month) to look at into the future
+     */
+    public void createMonthlyBreakdown(int months) {
+        this.breakdownMonths = months;
+        this.breakdown = new HashMap<>();
+        for (Contribution contribution : contributions.values()) {
+            addToBreakdown(contribution);
         }
     }
 
@@ -146,7 +234,8 @@ public class AnalyticsManager {
      * @return the most expensive yearly cost as a double
      */
     public double getCostMostExpensive() {
-        return costMostExpensive;
+        Contribution mostExpensive = findMostExpensive();
+        return mostExpensive == null ? 0 : mostExpensive.yearlyCost;
     }
 
     /**
@@ -154,7 +243,8 @@ public class AnalyticsManager {
      * @return the name of the most expensive yearly subscription as a string
      */
     public String getNameMostExpensive() {
-        return nameMostExpensive;
+        Contribution mostExpensive = findMostExpensive();
+        return mostExpensive == null ? "" : mostExpensive.name;
     }
 
     /**
@@ -164,7 +254,7 @@ public class AnalyticsManager {
      * @return the most common number of months between charges as an integer
      */
     public int getMostCommonRecharge() {
-        return mostCommonRecharge;
+        return findMostCommonRecharge(frequencyCounts);
     }
 
     /**
@@ -175,7 +265,10 @@ public class AnalyticsManager {
      * @return a sorted list of key-value pairs of categories and doubles
      */
     public List<Map.Entry<Category, Double>> getBreakdownList() {
-        List<Map.Entry<Category, Double>> breakdownList = new ArrayList<>(breakdown.entrySet());
+        List<Map.Entry<Category, Double>> breakdownList = new ArrayList<>(breakdown.size());
+        for (Map.Entry<Category, CategoryTotal> entry : breakdown.entrySet()) {
+            breakdownList.add(new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().cost));
+        }
         Collections.sort(breakdownList, new Comparator<Map.Entry<Category, Double>>() {
             @Override
             public int compare(Map.Entry<Category, Double> o1, Map.Entry<Category, Double> o2) {
@@ -193,137 +286,189 @@ public class AnalyticsManager {
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Run the whole suite of analytics, where each method called will save a computed value
-     * to a field of this class.
+     * Run the whole suite of analytics from scratch, adding each subscription's share to
+     * empty totals. Dates are converted to month indices with integer math, so no calendars
+     * are created for each subscription.
      */
     private void calculateAnalytics() {
-        calculateTotalThisMonth();
-        calculateRestDueThisMonth();
-        calculateTotalDueNextMonth();
-        calculateTotalDueYearly();
-        calculateMostExpensive();
-        calculateMostCommonRecharge();
+        currentMonthIndex = CivilDate.toMonthIndex(baseZTC.getYear(), baseZTC.getMonth());
+        totalDueThisMonth = 0;
+        restDueThisMonth = 0;
+        totalDueNextMonth = 0;
+        totalDueYearly = 0;
+        frequencyCounts = new HashMap<>();
+        breakdown = new HashMap<>();
+        contributions = new IdentityHashMap<>();
+        rebuildYearlyCostQueue();
+
+        for (Subscription sub : model.getFullSubscriptionList()) {
+            addContribution(sub);
+        }
     }
 
     /**
-     * Calculates the analytic for total amount due in the current month.
+     * Work out a subscription's share of each total, then add it to the totals and save it
+     * so it can be taken away again later.
+     * @param sub the subscription to add
      */
-    private void calculateTotalThisMonth() {
-        double totalDueThisMonth = 0;
-        ZeroTimeCalendar calendarToday = baseZTC.copyCalendar();
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            Date subStartDate = sub.getStartDate();
-            ZeroTimeCalendar calendarSub = baseZTC.copyCalendar();
-            calendarSub.setTimeToDate(subStartDate);
-            calendarToday.setTime(calendarToday.getYear(), calendarToday.getMonth(), 1);
-            calendarSub.setTime(calendarSub.getYear(), calendarSub.getMonth(), 1);
-
-            // Calculate the first potential payment date on or after this month
-            while (calendarSub.getCurrentDate().before(calendarToday.getCurrentDate())) {
-                calendarSub.addMonths(sub.getRechargeFrequency());
-            }
+    private void addContribution(Subscription sub) {
+        if (contributions.containsKey(sub)) {
+            subscriptionRemoved(sub);
+        }
+        Contribution contribution = new Contribution();
+        contribution.subscription = sub;
+        contribution.name = sub.getName();
+        contribution.category = sub.getCategory();
+        contribution.cost = sub.getCost();
+        contribution.frequency = sub.getRechargeFrequency();
+        contribution.startMonthIndex = CivilDate.epochDayToMonthIndex(sub.getStartDay());
+        int nextPaymentMonthIndex = CivilDate.epochDayToMonthIndex(sub.getNextPaymentDay());
+
+        // If this sub had or will have a payment due this month, add its cost to the total
+        if (firstPaymentMonthFrom(contribution.startMonthIndex, contribution.frequency,
+                currentMonthIndex) == currentMonthIndex) {
+            contribution.dueThisMonth = contribution.cost;
+        }
 
-            // If this sub had or will have a payment due this month, add its cost to the total
-            if (calendarSub.getMonth() == calendarToday.getMonth() &&
-                    calendarSub.getYear() == calendarToday.getYear()) {
-                totalDueThisMonth += sub.getCost();
-            }
+        // Only count the rest of this month if the next payment date hasn't passed yet
+        if (nextPaymentMonthIndex == currentMonthIndex) {
+            contribution.restDueThisMonth = contribution.cost;
         }
-        this.totalDueThisMonth = totalDueThisMonth;
+
+        // Due next month if the next payment is then, or it's monthly and due this month
+        if (nextPaymentMonthIndex == currentMonthIndex + 1 ||
+                (nextPaymentMonthIndex == currentMonthIndex && contribution.frequency == 1)) {
+            contribution.dueNextMonth = contribution.cost;
+        }
+
+        // Find the yearly total for subscriptions that aren't explicitly yearly
+        contribution.yearlyCost = contribution.cost * (12 / contribution.frequency);
+
+        // Add this share to each running total
+        contributions.put(sub, contribution);
+        totalDueThisMonth += contribution.dueThisMonth;
+        restDueThisMonth += contribution.restDueThisMonth;
+        totalDueNextMonth += contribution.dueNextMonth;
+        totalDueYearly += contribution.yearlyCost;
+        Integer frequencyCount = frequencyCounts.get(contribution.frequency);
+        frequencyCounts.put(contribution.frequency, frequencyCount == null ? 1 : frequencyCount + 1);
+        addToBreakdown(contribution);
+        yearlyCostQueue.add(contribution);
     }
 
     /**
-     * Calculates the analytic for the total amount due during the rest of the current month.
-     * If subscriptions were due earlier this month, but their date already passed, they are
-     * ignored here, this just counts ones with next payment dates still during the current
-     * month.
+     * Add a contribution's cost over the breakdown period to its category's total.
+     * @param contribution the contribution to add
      */
-    private void calculateRestDueThisMonth() {
-        double restDueThisMonth = 0;
-        ZeroTimeCalendar calendarToday = baseZTC.copyCalendar();
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            Date nextPaymentDate = sub.getNextPaymentDate();
-            ZeroTimeCalendar calendarSub = baseZTC.copyCalendar();
-            calendarSub.setTimeToDate(nextPaymentDate);
-            if (calendarToday.getMonth() == calendarSub.getMonth() &&
-                    calendarToday.getYear() == calendarSub.getYear()) {
-                restDueThisMonth += sub.getCost();
+    private void addToBreakdown(Contribution contribution) {
+        // Count how many times the subscription gets charged in this period
+        int endMonthIndex = currentMonthIndex + breakdownMonths;
+        int firstMonthIndex = firstPaymentMonthFrom(contribution.startMonthIndex,
+                contribution.frequency, currentMonthIndex);
+        contribution.breakdownCost = 0;
+        if (firstMonthIndex < endMonthIndex) {
+            int numPayments = (endMonthIndex - 1 - firstMonthIndex) / contribution.frequency + 1;
+            contribution.breakdownCost = contribution.cost * numPayments;
+        }
+
+        // Put that calculated cost into the map
+        if (contribution.breakdownCost > 0) {
+            CategoryTotal categoryTotal = breakdown.get(contribution.category);
+            if (categoryTotal == null) {
+                categoryTotal = new CategoryTotal();
+                breakdown.put(contribution.category, categoryTotal);
             }
+            categoryTotal.cost += contribution.breakdownCost;
+            categoryTotal.numSubs++;
         }
-        this.restDueThisMonth = restDueThisMonth;
     }
 
     /**
-     * Calculates the analytic for the total amount due next month.
+     * Take a contribution's cost over the breakdown period away from its category's total,
+     * removing the category once no subscriptions are left in it.
+     * @param contribution the contribution to remove
      */
-    private void calculateTotalDueNextMonth() {
-        double totalDueNextMonth = 0;
-        ZeroTimeCalendar calendarToday = baseZTC.copyCalendar();
-        ZeroTimeCalendar calendarNextMonth = baseZTC.copyCalendar();
-        calendarNextMonth.addMonths(1);
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            Date nextPaymentDate = sub.getNextPaymentDate();
-            ZeroTimeCalendar calendarSub = baseZTC.copyCalendar();
-            calendarSub.setTimeToDate(nextPaymentDate);
-            if ((calendarNextMonth.getMonth() == calendarSub.getMonth() &&
-                  calendarNextMonth.getYear() == calendarSub.getYear()) ||
-                    (calendarToday.getMonth() == calendarSub.getMonth() &&
-                      calendarToday.getYear() == calendarSub.getYear() &&
-                   sub.getRechargeFrequency() == 1)) {
-                totalDueNextMonth += sub.getCost();
-            }
+    private void removeFromBreakdown(Contribution contribution) {
+        if (contribution.breakdownCost <= 0) {
+            return;
+        }
+        CategoryTotal categoryTotal = breakdown.get(contribution.category);
+        categoryTotal.cost -= contribution.breakdownCost;
+        categoryTotal.numSubs--;
+        if (categoryTotal.numSubs == 0) {
+            breakdown.remove(contribution.category);
         }
-        this.totalDueNextMonth = totalDueNextMonth;
     }
 
     /**
-     * Calculates the analytic for total amount due per year, which also finds the yearly
-     * total for subscriptions that aren't explicitly yearly.
+     * Find the subscription with the highest yearly cost. If several are tied for the highest
+     * cost, the one first in the model's list is used. There is no most expensive subscription
+     * if the highest cost is zero.
+     * @return the contribution of the most expensive subscription, or null if there is none
      */
-    private void calculateTotalDueYearly() {
-        double totalDueYearly = 0;
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            int multiplier = 12 / sub.getRechargeFrequency();
-            totalDueYearly += sub.getCost() * multiplier;
+    private Contribution findMostExpensive() {
+        // Throw away removed contributions that have reached the top
+        while (!yearlyCostQueue.isEmpty() && yearlyCostQueue.peek().removed) {
+            yearlyCostQueue.poll();
+            numRemovedInQueue--;
+        }
+        if (yearlyCostQueue.isEmpty() || yearlyCostQueue.peek().yearlyCost <= 0) {
+            return null;
+        }
+
+        // Take out everything tied for the top, keep the lowest ID, then put the rest back
+        double highestCost = yearlyCostQueue.peek().yearlyCost;
+        List<Contribution> tied = new ArrayList<>();
+        while (!yearlyCostQueue.isEmpty() && yearlyCostQueue.peek().yearlyCost == highestCost) {
+            Contribution contribution = yearlyCostQueue.poll();
+            if (contribution.removed) {
+                numRemovedInQueue--;
+            } else {
+                tied.add(contribution);
+            }
+        }
+        Contribution mostExpensive = tied.get(0);
+        for (Contribution contribution : tied) {
+            if (contribution.subscription.getId() < mostExpensive.subscription.getId()) {
+                mostExpensive = contribution;
+            }
         }
-        this.totalDueYearly = totalDueYearly;
+        yearlyCostQueue.addAll(tied);
+        return mostExpensive;
     }
 
     /**
-     * Calculates the most expensive subscription per year, and saves the name of that
-     * subscription along with the yearly cost of it.
+     * Rebuild the yearly cost queue with only the contributions that haven't been removed.
      */
-    private void calculateMostExpensive() {
-        double costMostExpensive = 0;
-        String nameMostExpensive = "";
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            int multiplier = 12 / sub.getRechargeFrequency();
-            double totalDueYearly = sub.getCost() * multiplier;
-            if (totalDueYearly > costMostExpensive) {
-                costMostExpensive = totalDueYearly;
-                nameMostExpensive = sub.getName();
-            }
-        }
-        this.costMostExpensive = costMostExpensive;
-        this.nameMostExpensive = nameMostExpensive;
+    private void rebuildYearlyCostQueue() {
+        yearlyCostQueue = new PriorityQueue<>(Math.max(11, contributions.size()), YEARLY_COST_ORDER);
+        yearlyCostQueue.addAll(contributions.values());
+        numRemovedInQueue = 0;
     }
 
     /**
-     * Calculates the most common recharge frequency amongst all the subscriptions, and
-     * saves the number of months that is most commonly found. It will be 0 if there are
-     * no subscriptions or no one rate is the maximum.
+     * Find the month index of the first payment on or after a given month, for a subscription
+     * that started in startMonthIndex and is paid every frequency months.
+     * @param startMonthIndex the month index of the first payment
+     * @param frequency the number of months between payments
+     * @param fromMonthIndex the month index to find the first payment from
+     * @return the month index of the first payment in or after that month
      */
-    private void calculateMostCommonRecharge() {
-        // Record each frequency that exists and how many times it appears
-        HashMap<Integer, Integer> frequencyMap = new HashMap<>();
-        for (Subscription sub : model.getFullSubscriptionList()) {
-            if (frequencyMap.containsKey(sub.getRechargeFrequency())) {
-                frequencyMap.put(sub.getRechargeFrequency(), frequencyMap.get(sub.getRechargeFrequency()) + 1);
-            } else {
-                frequencyMap.put(sub.getRechargeFrequency(), 1);
-            }
+    private int firstPaymentMonthFrom(int startMonthIndex, int frequency, int fromMonthIndex) {
+        if (startMonthIndex >= fromMonthIndex) {
+            return startMonthIndex;
         }
+        int periods = (fromMonthIndex - startMonthIndex + frequency - 1) / frequency;
+        return startMonthIndex + periods * frequency;
+    }
 
+    /**
+     * Finds the most common recharge frequency amongst all the subscriptions. It will be 0
+     * if there are no subscriptions or no one rate is the maximum.
+     * @param frequencyMap each frequency that exists and how many subscriptions have it
+     * @return the most common number of months between charges
+     */
+    private int findMostCommonRecharge(Map<Integer, Integer> frequencyMap) {
         // Initialize values needed when analyzing the data
         boolean tieExists = false;
         int highestFrequency = 0;
@@ -340,11 +485,11 @@ public class AnalyticsManager {
             }
         }
 
-        // Save zero if no frequencies or a tie exists, and save the maximum otherwise
+        // Return zero if no frequencies or a tie exists, and the maximum otherwise
         if (frequencyMap.isEmpty() || tieExists) {
-            this.mostCommonRecharge = 0;
+            return 0;
         } else {
-            this.mostCommonRecharge = highestFrequency;
+            return highestFrequency;
         }
     }
 }
@@ -0,0 +1,87 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Helpers for replacing a file without ever leaving it half written. The new contents are
+ * written to a temporary file next to it, synced to disk, then renamed over the original.
+ * On Android a rename within the same directory replaces the original in one step, so after
+ * a crash the file holds either everything from the old save or everything from the new one.
+ */
+final class AtomicFileWrite {
+
+    // Added to the name of a file to get the name of its temporary file
+    static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * This class only holds static methods and should not be created.
+     */
+    private AtomicFileWrite() {}
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Get the temporary file new contents of a file should be written to.
+     * @param file the file being replaced
+     * @return the temporary file in the same directory
+     */
+    static File tempFileFor(File file) {
+        return new File(file.getPath() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Open the temporary file of a file for writing, replacing anything left in it.
+     * @param file the file being replaced
+     * @return a stream that writes to the temporary file
+     * @throws IOException thrown if the temporary file can't be created
+     */
+    static FileOutputStream startWrite(File file) throws IOException {
+        return new FileOutputStream(tempFileFor(file), false);
+    }
+
+    /**
+     * Finish writing the temporary file, make sure it's on disk, then move it over the file
+     * it replaces. The stream is closed by this.
+     * @param file the file being replaced
+     * @param fos the stream from startWrite that the new contents were written to
+     * @throws IOException thrown if the contents can't be synced or the file can't be replaced
+     */
+    static void finishWrite(File file, FileOutputStream fos) throws IOException {
+        try {
+            fos.flush();
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        File tempFile = tempFileFor(file);
+        if (!tempFile.renameTo(file)) {
+            // Some file systems won't rename over an existing file, so remove it first
+            if (!file.delete() || !tempFile.renameTo(file)) {
+                throw new IOException("Could not replace " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Abandon a write started with startWrite, leaving the original file as it was. The
+     * stream is closed by this.
+     * @param file the file that was being replaced
+     * @param fos the stream from startWrite
+     */
+    static void abortWrite(File file, FileOutputStream fos) {
+        try {
+            fos.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // A leftover temporary file is harmless, it's replaced by the next write
+        File tempFile = tempFileFor(file);
+        if (tempFile.exists()) {
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import android.content.OperationApplicationException;
+import android.os.RemoteException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A record of every event the last calendar sync left on the system calendar, so the next
+ * sync only has to change the events that are different rather than deleting the calendar
+ * and adding everything again. For each subscription it keeps a hash of what its events hold
+ * other than their dates, the start of each event, and the ID the calendar gave each event.
+ * A subscription either has one event for each of its next payment dates, or a single
+ * repeating event that starts on its start date and has a recurrence rule.
+ *
+ * A sync goes through every subscription with syncSubscription, which compares the events the
+ * subscription should have with the ones it had and sends only the differences to an
+ * EventWriter: new dates are inserted, dates that are gone are deleted, and dates kept are
+ * only updated if the hash changed. A subscription that didn't change sends nothing, so a sync
+ * after one edit only touches the events of the subscription that was edited. The same
+ * comparison can be run first with countChanges, which only counts the differences, so a sync
+ * knows how many changes it will send before it sends any.
+ *
+ * The ledger is kept in a file in internal storage. The file is deleted before a sync makes
+ * its first change and only written again once it has finished, so a sync that fails partway
+ * leaves no ledger and the next one starts over with a new calendar rather than trusting a
+ * stale record. A sync that finds nothing to change doesn't touch the file at all.
+ */
+class CalendarSyncLedger {
+
+    // The name of the file the ledger is kept in
+    static final String LEDGER_FILENAME = "calendar_sync.ledger";
+    // The first four bytes of the ledger file, "MSCL" in ASCII
+    private static final int MAGIC = 0x4D53434C;
+    // The version of the file format, increased whenever the layout changes
+    private static final int VERSION = 1;
+    // Used to start and step the 64-bit FNV-1a hash of an event's contents
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Sends the changes found by the ledger to the calendar.
+     */
+    interface EventWriter {
+
+        /**
+         * Add an event to the calendar. The ID the calendar gives it must be stored in
+         * eventIds[index] before the ledger is written, which can wait until a batch of
+         * events is sent.
+         * @param title the title of the event
+         * @param timeZone the time zone of the event
+         * @param startMillis the start of the event in milliseconds since the epoch
+         * @param recurrenceRule the rule the event repeats by, or null if it happens once
+         * @param eventIds the array to store the new event's ID in
+         * @param index where in the array to store it
+         * @throws RemoteException thrown if the calendar can't be reached
+         * @throws OperationApplicationException thrown if the calendar can't add the event
+         */
+        void insertEvent(String title, String timeZone, long startMillis, String recurrenceRule,
+                         long[] eventIds, int index)
+                throws RemoteException, OperationApplicationException;
+
+        /**
+         * Change everything but the start of an event already on the calendar.
+         * @param eventId the calendar's ID for the event
+         * @param title the new title
+         * @param timeZone the new time zone
+         * @param startMillis the start of the event, which hasn't changed
+         * @param recurrenceRule the rule the event now repeats by, or null if it happens once
+         * @throws RemoteException thrown if the calendar can't be reached
+         * @throws OperationApplicationException thrown if the calendar can't update the event
+         */
+        void updateEvent(long eventId, String title, String timeZone, long startMillis,
+                         String recurrenceRule)
+                throws RemoteException, OperationApplicationException;
+
+        /**
+         * Remove an event from the calendar.
+         * @param eventId the calendar's ID for the event
+         * @throws RemoteException thrown if the calendar can't be reached
+         * @throws OperationApplicationException thrown if the calendar can't delete the event
+         */
+        void deleteEvent(long eventId) throws RemoteException, OperationApplicationException;
+    }
+
+    /**
+     * The events one subscription has on the calendar.
+     */
+    private static class Entry {
+        // The hash of everything the subscription's events hold other than their dates
+        long contentHash;
+        // The start of each event in milliseconds, in increasing order
+        long[] startMillis;
+        // The calendar's ID for each event, in the same order
+        long[] eventIds;
+        // The sync that last went through this subscription
+        int generation;
+
+        /**
+         * Create an entry for a subscription's events.
+         * @param contentHash the hash of the events' contents
+         * @param startMillis the start of each event, in increasing order
+         * @param eventIds the calendar's ID for each event
+         */
+        Entry(long contentHash, long[] startMillis, long[] eventIds) {
+            this.contentHash = contentHash;
+            this.startMillis = startMillis;
+            this.eventIds = eventIds;
+        }
+    }
+
+    // The ID of the calendar the events are on
+    private final long calendarId;
+    // The events of each subscription, by subscription ID
+    private final Map<Integer, Entry> entries;
+    // Counts syncs, so entries not gone through by the current one can be found
+    private int generation = 0;
+    // Reused to collect the payment dates of each subscription
+    private long[] startBuffer = new long[64];
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create an empty ledger for a calendar that has no events yet.
+     * @param calendarId the ID of the calendar
+     */
+    CalendarSyncLedger(long calendarId) {
+        this(calendarId, new HashMap<Integer, Entry>());
+    }
+
+    /**
+     * Get the ID of the calendar this ledger's events are on.
+     * @return the calendar ID
+     */
+    long getCalendarId() {
+        return calendarId;
+    }
+
+    /**
+     * Get the number of subscriptions with events in the ledger.
+     * @return the number of subscriptions
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the IDs of the events a subscription has on the calendar.
+     * @param subscriptionId the ID of the subscription
+     * @return a copy of the event IDs in date order, or null if the subscription has none
+     */
+    long[] getEventIds(int subscriptionId) {
+        Entry entry = entries.get(subscriptionId);
+        return entry == null ? null : Arrays.copyOf(entry.eventIds, entry.eventIds.length);
+    }
+
+    /**
+     * Start a new sync. Every subscription that is still wanted on the calendar should then
+     * be passed to syncSubscription, followed by a call to finishSync.
+     */
+    void startSync() {
+        generation++;
+    }
+
+    /**
+     * Count the changes syncSubscription would send for one subscription, without sending
+     * them or changing the ledger. Counting every subscription before syncing them lets the
+     * progress of a sync be reported against the number of changes it will make in total.
+     * Counted subscriptions are marked as gone through, so countRemovedEvents should be called
+     * after counting every subscription that is still wanted.
+     * @param subscription the subscription, whose ID identifies its events
+     * @param title the title every event of the subscription should have
+     * @param timeZone the time zone every event of the subscription should have
+     * @param recurring true if the subscription should have one repeating event, false if it
+     *                  should have one event for each of its next payment dates
+     * @return the number of events that would be added, updated, or deleted
+     */
+    int countChanges(Subscription subscription, String title, String timeZone, boolean recurring) {
+        String recurrenceRule = recurring ? subscription.getRecurrenceRule() : null;
+        int numStarts = collectStarts(subscription, recurring);
+        Entry entry = entries.get(subscription.getId());
+        if (entry != null) {
+            entry.generation = generation;
+        }
+        try {
+            return mergeStarts(entry, contentHash(title, timeZone, recurrenceRule), numStarts, title,
+                    timeZone, recurrenceRule, null, null);
+        } catch (RemoteException | OperationApplicationException e) {
+            // Nothing is sent while counting
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Count the events finishSync would delete, those of every subscription not gone through
+     * or counted since startSync.
+     * @return the number of events that would be deleted
+     */
+    int countRemovedEvents() {
+        int numEvents = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.generation != generation) {
+                numEvents += entry.eventIds.length;
+            }
+        }
+        return numEvents;
+    }
+
+    /**
+     * Bring the events of one subscription on the calendar up to date, sending only the
+     * changes to the writer.
+     * @param subscription the subscription, whose ID identifies its events
+     * @param title the title every event of the subscription should have
+     * @param timeZone the time zone every event of the subscription should have
+     * @param recurring true if the subscription should have one repeating event, false if it
+     *                  should have one event for each of its next payment dates
+     * @param writer sends the changes to the calendar
+     * @return the number of events added, updated, or deleted
+     * @throws RemoteException thrown if the calendar can't be reached
+     * @throws OperationApplicationException thrown if the calendar can't make a change
+     */
+    int syncSubscription(Subscription subscription, String title, String timeZone, boolean recurring,
+                         EventWriter writer) throws RemoteException, OperationApplicationException {
+        String recurrenceRule = recurring ? subscription.getRecurrenceRule() : null;
+        int numStarts = collectStarts(subscription, recurring);
+        long contentHash = contentHash(title, timeZone, recurrenceRule);
+        Entry entry = entries.get(subscription.getId());
+
+        // Nothing to do if the contents and every date are the same as last time
+        if (entry != null && entry.contentHash == contentHash && entry.startMillis.length == numStarts
+                && rangeEquals(entry.startMillis, startBuffer, numStarts)) {
+            entry.generation = generation;
+            return 0;
+        }
+
+        long[] newStarts = Arrays.copyOf(startBuffer, numStarts);
+        long[] newIds = new long[numStarts];
+        int numChanges = mergeStarts(entry, contentHash, numStarts, title, timeZone, recurrenceRule,
+                newIds, writer);
+
+        if (entry == null) {
+            entry = new Entry(contentHash, newStarts, newIds);
+            entries.put(subscription.getId(), entry);
+        } else {
+            entry.contentHash = contentHash;
+            entry.startMillis = newStarts;
+            entry.eventIds = newIds;
+        }
+        entry.generation = generation;
+        return numChanges;
+    }
+
+    /**
+     * Finish a sync by deleting the events of every subscription that wasn't gone through
+     * since startSync, as those subscriptions were deleted.
+     * @param writer sends the deletes to the calendar
+     * @throws RemoteException thrown if the calendar can't be reached
+     * @throws OperationApplicationException thrown if the calendar can't delete an event
+     */
+    void finishSync(EventWriter writer) throws RemoteException, OperationApplicationException {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.generation != generation) {
+                for (long eventId : entry.eventIds) {
+                    writer.deleteEvent(eventId);
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Write the ledger to its file in a directory, replacing the file in one step once it is
+     * fully written.
+     * @param directory the directory to keep the file in, usually internal storage
+     * @throws IOException thrown if something goes wrong writing the file
+     */
+    void write(File directory) throws IOException {
+        File file = new File(directory, LEDGER_FILENAME);
+        FileOutputStream fos = AtomicFileWrite.startWrite(file);
+        boolean written = false;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(calendarId);
+            out.writeInt(entries.size());
+            for (Map.Entry<Integer, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                out.writeInt(mapEntry.getKey());
+                out.writeLong(entry.contentHash);
+                out.writeInt(entry.startMillis.length);
+                for (int i = 0; i < entry.startMillis.length; i++) {
+                    out.writeLong(entry.startMillis[i]);
+                    out.writeLong(entry.eventIds[i]);
+                }
+            }
+            out.flush();
+            written = true;
+        } finally {
+            if (!written) {
+                AtomicFileWrite.abortWrite(file, fos);
+            }
+        }
+        AtomicFileWrite.finishWrite(file, fos);
+    }
+
+    /**
+     * Read the ledger kept in a directory.
+     * @param directory the directory the file is kept in, usually internal storage
+     * @return the ledger, or null if there is no ledger file or it can't be read, in which
+     *         case the calendar should be created again from scratch
+     */
+    static CalendarSyncLedger read(File directory) {
+        File file = new File(directory, LEDGER_FILENAME);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return null;
+                }
+                long calendarId = in.readLong();
+                int numEntries = in.readInt();
+                if (numEntries < 0) {
+                    return null;
+                }
+                Map<Integer, Entry> entries = new HashMap<>(Math.max(16, numEntries * 4 / 3 + 1));
+                for (int e = 0; e < numEntries; e++) {
+                    int subscriptionId = in.readInt();
+                    long contentHash = in.readLong();
+                    int numEvents = in.readInt();
+                    if (numEvents < 0) {
+                        return null;
+                    }
+                    long[] startMillis = new long[numEvents];
+                    long[] eventIds = new long[numEvents];
+                    for (int i = 0; i < numEvents; i++) {
+                        startMillis[i] = in.readLong();
+                        eventIds[i] = in.readLong();
+                    }
+                    entries.put(subscriptionId, new Entry(contentHash, startMillis, eventIds));
+                }
+                return new CalendarSyncLedger(calendarId, entries);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Delete the ledger file kept in a directory, if there is one.
+     * @param directory the directory the file is kept in, usually internal storage
+     * @return true if there is no ledger file anymore, false if it couldn't be deleted
+     */
+    static boolean delete(File directory) {
+        File file = new File(directory, LEDGER_FILENAME);
+        return !file.exists() || file.delete();
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create a ledger holding entries that were already made.
+     * @param calendarId the ID of the calendar the events are on
+     * @param entries the events of each subscription, by subscription ID
+     */
+    private CalendarSyncLedger(long calendarId, Map<Integer, Entry> entries) {
+        this.calendarId = calendarId;
+        this.entries = entries;
+    }
+
+    /**
+     * Put the start of each event a subscription should have in the start buffer, growing it
+     * if needed. A repeating event starts on the subscription's start date, otherwise there is
+     * one event for each of its next payment dates.
+     * @param subscription the subscription
+     * @param recurring true if the subscription should have one repeating event
+     * @return the number of starts put in the buffer
+     */
+    private int collectStarts(Subscription subscription, boolean recurring) {
+        if (recurring) {
+            startBuffer[0] = subscription.getStartDate().getTime();
+            return 1;
+        }
+        int numStarts = 0;
+        Iterator<Date> paymentDates = subscription.paymentIterator();
+        while (paymentDates.hasNext()) {
+            if (numStarts == startBuffer.length) {
+                startBuffer = Arrays.copyOf(startBuffer, numStarts * 2);
+            }
+            startBuffer[numStarts++] = paymentDates.next().getTime();
+        }
+        return numStarts;
+    }
+
+    /**
+     * Walk a subscription's old event starts and the new ones in the start buffer together,
+     * both in increasing order, sending a delete for each old start that's gone, an insert
+     * for each new start, and an update for each start kept if the contents changed. Without
+     * a writer the changes are only counted.
+     * @param entry the subscription's old events, or null if it had none
+     * @param contentHash the hash of what the new events hold other than their dates
+     * @param numStarts the number of new starts in the start buffer
+     * @param title the title of the new events
+     * @param timeZone the time zone of the new events
+     * @param recurrenceRule the rule the new events repeat by, or null if they happen once
+     * @param newIds where to put the ID of each new event, null if only counting
+     * @param writer sends the changes to the calendar, null if only counting
+     * @return the number of events added, updated, or deleted
+     * @throws RemoteException thrown if the calendar can't be reached
+     * @throws OperationApplicationException thrown if the calendar can't make a change
+     */
+    private int mergeStarts(Entry entry, long contentHash, int numStarts, String title, String timeZone,
+                            String recurrenceRule, long[] newIds, EventWriter writer)
+            throws RemoteException, OperationApplicationException {
+        long[] oldStarts = entry == null ? new long[0] : entry.startMillis;
+        long[] oldIds = entry == null ? new long[0] : entry.eventIds;
+        boolean contentChanged = entry == null || entry.contentHash != contentHash;
+        int numChanges = 0;
+        int i = 0;
+        int j = 0;
+        while (i < oldStarts.length || j < numStarts) {
+            if (j >= numStarts || (i < oldStarts.length && oldStarts[i] < startBuffer[j])) {
+                if (writer != null) {
+                    writer.deleteEvent(oldIds[i]);
+                }
+                i++;
+                numChanges++;
+            } else if (i >= oldStarts.length || startBuffer[j] < oldStarts[i]) {
+                if (writer != null) {
+                    writer.insertEvent(title, timeZone, startBuffer[j], recurrenceRule, newIds, j);
+                }
+                j++;
+                numChanges++;
+            } else {
+                if (writer != null) {
+                    newIds[j] = oldIds[i];
+                    if (contentChanged) {
+                        writer.updateEvent(oldIds[i], title, timeZone, startBuffer[j], recurrenceRule);
+                    }
+                }
+                if (contentChanged) {
+                    numChanges++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return numChanges;
+    }
+
+    /**
+     * Check whether the first values of two arrays are the same.
+     * @param first the first array, at least length long
+     * @param second the second array, at least length long
+     * @param length the number of values to compare
+     * @return true if they're the same, false otherwise
+     */
+    private static boolean rangeEquals(long[] first, long[] second, int length) {
+        for (int i = 0; i < length; i++) {
+            if (first[i] != second[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hash everything an event holds other than its date with 64-bit FNV-1a.
+     * @param title the title of the event
+     * @param timeZone the time zone of the event
+     * @param recurrenceRule the rule the event repeats by, or null if it happens once
+     * @return the hash
+     */
+    private static long contentHash(String title, String timeZone, String recurrenceRule) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hashString(hash, title);
+        hash = hashString(hash, timeZone);
+        return recurrenceRule == null ? hash : hashString(hash, recurrenceRule);
+    }
+
+    /**
+     * Add a string to an FNV-1a hash, starting with its length so neighbouring strings can't
+     * run together.
+     * @param hash the hash so far
+     * @param string the string to add
+     * @return the new hash
+     */
+    private static long hashString(long hash, String string) {
+        hash = hashChar(hash, (char)(string.length() >>> 16));
+        hash = hashChar(hash, (char)string.length());
+        for (int i = 0; i < string.length(); i++) {
+            hash = hashChar(hash, string.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Add the two bytes of a character to an FNV-1a hash.
+     * @param hash the hash so far
+     * @param c the character to add
+     * @return the new hash
+     */
+    private static long hashChar(long hash, char c) {
+        hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+        return (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+}
@@ -1,26 +1,60 @@
 package com.mpagliaro98.mysubscriptions.model;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.provider.CalendarContract;
 import com.mpagliaro98.mysubscriptions.R;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSyncCalendarListener;
-import java.util.Date;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * A thread class that runs the code to sync this app's model data with the calendar of the
- * device this is running on.
+ * A task that syncs this app's model data with the calendar of the device this is running on.
+ * Syncs are started with startSync, which runs them one at a time on a background thread
+ * shared by every sync. The task works from a copy of the subscriptions taken when it's
+ * created, so the model can keep changing on the main thread while it runs. A sync can be
+ * cancelled, which stops it between subscriptions, and starting a sync cancels the one
+ * already running so the newest request replaces it.
+ *
+ * Events are sent to the calendar provider in batches rather than one at a time, since every
+ * call to the provider is a separate binder transaction and a separate database transaction
+ * in the provider. Batches are kept small enough to stay well under the size limit of a binder
+ * transaction. The changes are counted before any are sent, and after each batch the caller is
+ * told how many have been sent out of that total. A ledger of the events
+ * left by the last sync is kept in internal storage, so only the events that changed since
+ * then are sent rather than deleting the calendar and adding every event again.
+ *
+ * Each subscription can either be given one event for every payment in the next few years, or
+ * a single event that repeats by a recurrence rule from its start date. Repeating events keep
+ * the calendar to one event per subscription and never run out of future payments.
  */
-public class CalendarSyncRunnable extends Thread {
+public class CalendarSyncRunnable implements Runnable {
 
-    // Context, model, and calling class needed to sync the calendar
+    // Context, subscriptions, and calling class needed to sync the calendar
     private Context context;
-    private SharedViewModel model;
+    private List<Subscription> subscriptions;
     private OnSyncCalendarListener caller;
+    // True if each subscription gets one repeating event rather than one per payment date
+    private final boolean recurringEvents;
+    // Set from another thread to stop the sync before its next subscription
+    private volatile boolean cancelled = false;
+
+    // Runs the calendar syncs in the background, one at a time
+    private static final ExecutorService SYNC_EXECUTOR = Executors.newSingleThreadExecutor();
+    // The sync most recently started, or null once it has finished
+    private static CalendarSyncRunnable currentSync = null;
 
     // The account type used to create the sync calendar
     static final String CALENDAR_ACCOUNT_TYPE = "com.mpagliaro98";
@@ -33,72 +67,223 @@ public class CalendarSyncRunnable extends Thread {
     };
     // The indices for the projection array above
     private static final int PROJECTION_ID_INDEX = 0;
+    // The most changes sent to the calendar provider in one batch, each is a few hundred bytes
+    static final int BATCH_SIZE = 200;
+    // How long each time a repeating event repeats lasts, in the RFC 5545 duration format
+    private static final String ONE_DAY_DURATION = "P1D";
+    // Found in place of a calendar ID when the calendar doesn't exist
+    private static final long NO_CALENDAR = -1;
+
+    /**
+     * Where the ID of an event that's waiting to be inserted should be stored.
+     */
+    private static class InsertTarget {
+        // The array and index to store the ID at
+        final long[] eventIds;
+        final int index;
+
+        /**
+         * Create the target for an event's ID.
+         * @param eventIds the array to store the ID in
+         * @param index where in the array to store it
+         */
+        InsertTarget(long[] eventIds, int index) {
+            this.eventIds = eventIds;
+            this.index = index;
+        }
+    }
+
+    // The ID of the calendar the events are on
+    private long calendarId = NO_CALENDAR;
+    // True once this sync has started changing the calendar
+    private boolean changing = false;
+    // The changes waiting to be sent in the next batch
+    private ArrayList<ContentProviderOperation> batch = new ArrayList<>(BATCH_SIZE);
+    // For each change in the batch, where to store the ID of the event it inserts, or null
+    private ArrayList<InsertTarget> batchTargets = new ArrayList<>(BATCH_SIZE);
+    // Turns the changes the ledger finds into operations in the batch
+    private final CalendarSyncLedger.EventWriter eventWriter = new CalendarSyncLedger.EventWriter() {
+        @Override
+        public void insertEvent(String title, String timeZone, long startMillis, String recurrenceRule,
+                                long[] eventIds, int index)
+                throws RemoteException, OperationApplicationException {
+            ContentValues cv = eventValues(title, timeZone, startMillis, recurrenceRule);
+            cv.put(CalendarContract.Events.CALENDAR_ID, calendarId);
+            queue(context, ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                    .withValues(cv).build(), new InsertTarget(eventIds, index));
+        }
+
+        @Override
+        public void updateEvent(long eventId, String title, String timeZone, long startMillis,
+                                String recurrenceRule)
+                throws RemoteException, OperationApplicationException {
+            ContentValues cv = eventValues(title, timeZone, startMillis, recurrenceRule);
+            queue(context, ContentProviderOperation.newUpdate(eventUri(eventId)).withValues(cv).build(), null);
+        }
+
+        @Override
+        public void deleteEvent(long eventId) throws RemoteException, OperationApplicationException {
+            queue(context, ContentProviderOperation.newDelete(eventUri(eventId)).build(), null);
+        }
+    };
+    // The number of events added, updated, or deleted so far, and the number the sync will change
+    private int numWritten = 0;
+    private int numEvents = 0;
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Create the thread class. This will save the application context and model so that
-     * they can be used while the thread is running.
+     * Create the sync task. This will save the application context and a copy of the model's
+     * subscriptions so that they can be used while the task is running. This should be called
+     * on the thread that changes the model, usually the main thread.
      * @param context the current application context
      * @param model the model containing all subscription data
+     * @param caller the listener told about the sync's progress and result
+     * @param recurringEvents true to give each subscription one repeating event, false to
+     *                        give it one event for each of its next payment dates
      */
-    public CalendarSyncRunnable(Context context, SharedViewModel model, OnSyncCalendarListener caller) {
+    public CalendarSyncRunnable(Context context, SharedViewModel model, OnSyncCalendarListener caller,
+                                boolean recurringEvents) {
         this.context = context;
-        this.model = model;
+        this.subscriptions = model.snapshotSubscriptions();
         this.caller = caller;
+        this.recurringEvents = recurringEvents;
+    }
+
+    /**
+     * Start syncing the calendar in the background, cancelling any sync that was started
+     * before. The cancelled sync stops before its next subscription, and this one runs once
+     * it has. This should be called on the thread that changes the model.
+     * @param context the current application context
+     * @param model the model containing all subscription data
+     * @param caller the listener told about the sync's progress and result
+     * @param recurringEvents true to give each subscription one repeating event, false to
+     *                        give it one event for each of its next payment dates
+     * @return the sync that was started, which can be cancelled
+     */
+    public static synchronized CalendarSyncRunnable startSync(Context context, SharedViewModel model,
+                                                              OnSyncCalendarListener caller,
+                                                              boolean recurringEvents) {
+        if (currentSync != null) {
+            currentSync.cancel();
+        }
+        currentSync = new CalendarSyncRunnable(context, model, caller, recurringEvents);
+        SYNC_EXECUTOR.execute(currentSync);
+        return currentSync;
+    }
+
+    /**
+     * Stop this sync before the next subscription it goes through. The changes already found
+     * are still sent, so the calendar and the ledger agree, and the caller is then sent
+     * SYNC_THREAD_CANCELLED. Cancelling a sync that hasn't started yet stops it from doing
+     * anything, and cancelling one that already finished does nothing.
+     */
+    public void cancel() {
+        cancelled = true;
     }
 
     /**
-     * The code to run when the thread is running. This will delete the calendar if one was
-     * created during a previous sync, then create a new calendar, then add all of the events
-     * to it. Calendar API permissions must have been requested and accepted prior to this
-     * thread being run.
+     * The code to run when the task is running. If the ledger from the last sync is there
+     * and the calendar it was for still exists, only the events that changed since then are
+     * added, updated, or deleted. Otherwise the calendar is deleted and created again, and
+     * every event is added to it. Changes are sent in batches. Calendar API permissions must
+     * have been requested and accepted prior to this task being run.
      */
     @Override
     public void run() {
-        // Delete the existing version of this calendar on the system and recreate it
-        deleteSyncCalendar(context);
-        createSyncCalendar(context, context.getString(R.string.calendar_sync_name));
+        try {
+            sync();
+        } finally {
+            syncFinished(this);
+        }
+    }
 
-        // Create the query to find the created calendar and its ID
-        ContentResolver cr = context.getContentResolver();
-        Uri uri = CalendarContract.Calendars.CONTENT_URI;
-        String selection = "((" + CalendarContract.Calendars.ACCOUNT_NAME + " = ?) AND ("
-                + CalendarContract.Calendars.ACCOUNT_TYPE + " = ?) AND ("
-                + CalendarContract.Calendars.OWNER_ACCOUNT + " = ?))";
-        String[] selectionArgs = new String[] {context.getString(R.string.app_name), CALENDAR_ACCOUNT_TYPE,
-                context.getString(R.string.app_name)};
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Sync the calendar and send the result to the caller.
+     */
+    private void sync() {
+        if (cancelled) {
+            caller.handleSyncResult(OnSyncCalendarListener.SYNC_THREAD_CANCELLED);
+            return;
+        }
+        CalendarSyncLedger ledger = CalendarSyncLedger.read(context.getFilesDir());
         try {
-            // Submit the query and get a Cursor object back
-            Cursor cur = cr.query(uri, EVENT_PROJECTION, selection, selectionArgs, null);
-
-            // Use the cursor to step through the returned records (should just be the one calendar)
-            assert cur != null;
-            while (cur.moveToNext()) {
-                // Get the calendar ID
-                int calID = (int)cur.getLong(PROJECTION_ID_INDEX);
-
-                // Loop through each subscription and create events for each of their payment dates
-                for (Subscription sub : model.getFullSubscriptionList()) {
-                    createSyncCalendarEvents(context, calID, sub);
+            // Without a record of what's on the calendar, start over with a new one
+            calendarId = ledger == null ? NO_CALENDAR : findSyncCalendar(context);
+            if (ledger == null || calendarId != ledger.getCalendarId()) {
+                startChanging();
+                deleteSyncCalendar(context);
+                createSyncCalendar(context, context.getString(R.string.calendar_sync_name));
+                calendarId = findSyncCalendar(context);
+                ledger = new CalendarSyncLedger(calendarId);
+            }
+
+            boolean stopped = false;
+            if (calendarId != NO_CALENDAR) {
+                // Count every change first, so progress can be shown out of the total
+                String suffix = context.getString(R.string.calendar_sync_name_suffix);
+                String timeZone = TimeZone.getDefault().toString();
+                ledger.startSync();
+                numEvents = 0;
+                for (Subscription sub : subscriptions) {
+                    numEvents += ledger.countChanges(sub, sub.getName() + " " + suffix, timeZone, recurringEvents);
+                }
+                numEvents += ledger.countRemovedEvents();
+                numWritten = 0;
+
+                // Bring each subscription's events up to date, then remove those of deleted subscriptions
+                for (Subscription sub : subscriptions) {
+                    if (cancelled) {
+                        stopped = true;
+                        break;
+                    }
+                    ledger.syncSubscription(sub, sub.getName() + " " + suffix, timeZone, recurringEvents, eventWriter);
+                }
+                if (!stopped) {
+                    ledger.finishSync(eventWriter);
+                }
+
+                // Stopping early still leaves the ledger matching the calendar once the batch is sent
+                applyBatch(context);
+
+                // If the ledger can't be saved, the next sync will just start over
+                if (changing) {
+                    try {
+                        ledger.write(context.getFilesDir());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
                 }
             }
-            cur.close();
 
-            // Send the success code to the caller's handler
-            caller.handleSyncResult(OnSyncCalendarListener.SYNC_THREAD_SUCCESS);
+            // Send the success code, or the cancelled code if it stopped early, to the caller's handler
+            caller.handleSyncResult(stopped ? OnSyncCalendarListener.SYNC_THREAD_CANCELLED
+                    : OnSyncCalendarListener.SYNC_THREAD_SUCCESS);
         } catch (SecurityException e) {
             // If a security exception occurs, send the error code to the caller's handler
             caller.handleSyncResult(OnSyncCalendarListener.SYNC_THREAD_SECURITY_EXCEPTION);
+        } catch (RemoteException | OperationApplicationException e) {
+            // The calendar provider failed or went away partway through
+            e.printStackTrace();
+            caller.handleSyncResult(OnSyncCalendarListener.SYNC_THREAD_PROVIDER_ERROR);
         }
     }
 
-    //////////////////////////////////////////////////////////////////////////////////////////
-    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
-    //////////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Forget a sync once it has finished, so it isn't kept around until the next one starts.
+     * @param sync the sync that finished
+     */
+    private static synchronized void syncFinished(CalendarSyncRunnable sync) {
+        if (currentSync == sync) {
+            currentSync = null;
+        }
+    }
 
     /**
      * Create a calendar on the system calendar that this app can add events to.
@@ -144,26 +329,126 @@ public class CalendarSyncRunnable extends Thread {
     }
 
     /**
-     * Add a set of events to the system calendar. This will loop through the next payment dates
-     * for the given subscription and add an event to the calendar for each one.
+     * Find the system calendar that was created by this app.
      * @param context the current application context
-     * @param calID the ID of the calendar the events will be added to
-     * @param subscription the subscription to get next payment dates from
-     * @throws SecurityException thrown if the app doesn't have permission to create events
+     * @return the ID of the calendar, or NO_CALENDAR if it doesn't exist
+     * @throws SecurityException thrown if the app doesn't have permission to read calendars
+     */
+    private long findSyncCalendar(Context context) throws SecurityException {
+        // Create the query to find the created calendar and its ID
+        ContentResolver cr = context.getContentResolver();
+        Uri uri = CalendarContract.Calendars.CONTENT_URI;
+        String selection = "((" + CalendarContract.Calendars.ACCOUNT_NAME + " = ?) AND ("
+                + CalendarContract.Calendars.ACCOUNT_TYPE + " = ?) AND ("
+                + CalendarContract.Calendars.OWNER_ACCOUNT + " = ?))";
+        String[] selectionArgs = new String[] {context.getString(R.string.app_name), CALENDAR_ACCOUNT_TYPE,
+                context.getString(R.string.app_name)};
+
+        // Submit the query, there should just be the one calendar
+        Cursor cur = cr.query(uri, EVENT_PROJECTION, selection, selectionArgs, null);
+        assert cur != null;
+        long calID = NO_CALENDAR;
+        if (cur.moveToNext()) {
+            calID = cur.getLong(PROJECTION_ID_INDEX);
+        }
+        cur.close();
+        return calID;
+    }
+
+    /**
+     * Take the ledger out of storage before the first change is made to the calendar, so a
+     * sync that fails partway can't leave a ledger that no longer matches the calendar. It's
+     * written again once the sync finishes.
      */
-    private void createSyncCalendarEvents(Context context, int calID, Subscription subscription) throws SecurityException {
-        for (Date paymentDate : subscription.getNextPaymentList()) {
-            // Fill the content values with all the info needed for this event
-            ContentValues cv = new ContentValues();
-            cv.put(CalendarContract.Events.TITLE, subscription.getName() + " " + context.getString(R.string.calendar_sync_name_suffix));
-            cv.put(CalendarContract.Events.DTSTART, paymentDate.getTime());
-            cv.put(CalendarContract.Events.DTEND, paymentDate.getTime());
-            cv.put(CalendarContract.Events.CALENDAR_ID, calID);
-            cv.put(CalendarContract.Events.EVENT_TIMEZONE, TimeZone.getDefault().toString());
-            cv.put(CalendarContract.Events.ALL_DAY, true);
-
-            // Create the event
-            context.getContentResolver().insert(CalendarContract.Events.CONTENT_URI, cv);
+    private void startChanging() {
+        if (!changing) {
+            CalendarSyncLedger.delete(context.getFilesDir());
+            changing = true;
         }
     }
+
+    /**
+     * Add an operation to the batch, sending the batch once it's full.
+     * @param context the current application context
+     * @param operation the operation to add
+     * @param target where to store the ID of the event the operation inserts, or null if it
+     *               doesn't insert one
+     * @throws SecurityException thrown if the app doesn't have permission to change events
+     * @throws RemoteException thrown if the calendar provider can't be reached
+     * @throws OperationApplicationException thrown if the calendar provider can't make a change
+     */
+    private void queue(Context context, ContentProviderOperation operation, InsertTarget target)
+            throws SecurityException, RemoteException, OperationApplicationException {
+        startChanging();
+        batch.add(operation);
+        batchTargets.add(target);
+        if (batch.size() >= BATCH_SIZE) {
+            applyBatch(context);
+        }
+    }
+
+    /**
+     * Send every change waiting in the batch to the calendar provider in one transaction, if
+     * there are any, and store the IDs of the events it inserted. Then report how many
+     * events have been sent so far, unless the sync was cancelled.
+     * @param context the current application context
+     * @throws SecurityException thrown if the app doesn't have permission to change events
+     * @throws RemoteException thrown if the calendar provider can't be reached
+     * @throws OperationApplicationException thrown if the calendar provider can't make a change
+     */
+    private void applyBatch(Context context)
+            throws SecurityException, RemoteException, OperationApplicationException {
+        if (!batch.isEmpty()) {
+            ContentProviderResult[] results = context.getContentResolver().applyBatch(CalendarContract.AUTHORITY, batch);
+            for (int i = 0; i < results.length; i++) {
+                InsertTarget target = batchTargets.get(i);
+                if (target != null) {
+                    target.eventIds[target.index] = ContentUris.parseId(results[i].uri);
+                }
+            }
+            numWritten += batch.size();
+            batch = new ArrayList<>(BATCH_SIZE);
+            batchTargets = new ArrayList<>(BATCH_SIZE);
+        }
+        if (!cancelled) {
+            caller.handleSyncProgress(numWritten, numEvents);
+        }
+    }
+
+    /**
+     * Fill content values with everything an event holds other than its calendar. A repeating
+     * event lasts a day from each time it repeats rather than having an end.
+     * @param title the title of the event
+     * @param timeZone the time zone of the event
+     * @param startMillis the start of the event in milliseconds since the epoch
+     * @param recurrenceRule the rule the event repeats by, or null if it happens once
+     * @return the content values for the event
+     */
+    private static ContentValues eventValues(String title, String timeZone, long startMillis,
+                                             String recurrenceRule) {
+        ContentValues cv = new ContentValues();
+        cv.put(CalendarContract.Events.TITLE, title);
+        cv.put(CalendarContract.Events.DTSTART, startMillis);
+        if (recurrenceRule == null) {
+            cv.put(CalendarContract.Events.DTEND, startMillis);
+            cv.putNull(CalendarContract.Events.RRULE);
+            cv.putNull(CalendarContract.Events.DURATION);
+        } else {
+            cv.putNull(CalendarContract.Events.DTEND);
+            cv.put(CalendarContract.Events.RRULE, recurrenceRule);
+            cv.put(CalendarContract.Events.DURATION, ONE_DAY_DURATION);
+        }
+        cv.put(CalendarContract.Events.EVENT_TIMEZONE, timeZone);
+        cv.put(CalendarContract.Events.ALL_DAY, true);
+        return cv;
+    }
+
+    /**
+     * Get the URI of an event on the system calendar.
+     * @param eventId the calendar's ID for the event
+     * @return the event's URI
+     */
+    private static Uri eventUri(long eventId) {
+        return ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId);
+    }
 }
@@ -0,0 +1,240 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Plain integer calendar arithmetic used to find payment dates without stepping a Calendar
+ * forward one period at a time. Months are numbered the same way as java.util.Calendar,
+ * from 0 (January) to 11 (December). A month index counts months from year 0, so any two
+ * dates can be compared or offset by months with simple addition.
+ *
+ * The model keeps its dates as epoch days, the number of days since January 1st 1970, so
+ * comparing two dates is a plain int comparison. Dates are only converted to and from Date
+ * objects, in the device's time zone, where they are shown or handed to Android.
+ *
+ * Payments are anchored to the day of the month a subscription started on. In months that
+ * are too short for that day, the payment falls on the last day of the month instead, and
+ * the following payment goes back to the original day (so a subscription started January
+ * 31st is paid February 28th, then March 31st).
+ */
+final class CivilDate {
+
+    // The number of milliseconds in a day
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // Days in each month of a non-leap year
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    // The fewest days any month has
+    static final int MIN_DAYS_IN_MONTH = 28;
+
+    /**
+     * This class only holds static methods and should not be created.
+     */
+    private CivilDate() {}
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Check if a year is a leap year in the Gregorian calendar.
+     * @param year the year to check
+     * @return true if the year has a February 29th, false otherwise
+     */
+    static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Get the number of days in a month.
+     * @param year the year the month is in
+     * @param month the month, from 0 to 11
+     * @return the number of days in that month
+     */
+    static int daysInMonth(int year, int month) {
+        if (month == 1 && isLeapYear(year)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month];
+    }
+
+    /**
+     * Convert a year and month into a single month index.
+     * @param year the year
+     * @param month the month, from 0 to 11
+     * @return the number of months since the start of year 0
+     */
+    static int toMonthIndex(int year, int month) {
+        return year * 12 + month;
+    }
+
+    /**
+     * Get the year a month index falls in.
+     * @param monthIndex the month index
+     * @return the year
+     */
+    static int yearOf(int monthIndex) {
+        return monthIndex / 12;
+    }
+
+    /**
+     * Get the month of the year a month index falls in.
+     * @param monthIndex the month index
+     * @return the month, from 0 to 11
+     */
+    static int monthOf(int monthIndex) {
+        return monthIndex % 12;
+    }
+
+    /**
+     * Get the day a payment anchored to the given day falls on in a month, which is the
+     * anchor day or the last day of the month, whichever is earlier.
+     * @param anchorDay the day of the month the subscription started on
+     * @param monthIndex the month index of the payment
+     * @return the day of the month the payment falls on
+     */
+    static int paymentDay(int anchorDay, int monthIndex) {
+        return Math.min(anchorDay, daysInMonth(yearOf(monthIndex), monthOf(monthIndex)));
+    }
+
+    /**
+     * Get the number of days between January 1st 1970 and the day a moment in time falls on
+     * in the given time zone.
+     * @param millis the moment in milliseconds since the epoch, as held by a Date
+     * @param timeZone the time zone to find the day in
+     * @return the epoch day, negative for days before 1970
+     */
+    static int toEpochDay(long millis, TimeZone timeZone) {
+        long localMillis = millis + timeZone.getOffset(millis);
+        long epochDay = localMillis / MILLIS_PER_DAY;
+        if (localMillis % MILLIS_PER_DAY < 0) {
+            epochDay--;
+        }
+        return (int)epochDay;
+    }
+
+    /**
+     * Get the month index of the month an epoch day falls in. This uses the days-to-civil
+     * conversion from Howard Hinnant's date algorithms, so no Calendar is needed.
+     * @param epochDay the number of days since January 1st 1970
+     * @return the month index of that day
+     */
+    static int epochDayToMonthIndex(int epochDay) {
+        // Shift the era to start on March 1st of year 0, so leap days come at the end
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10;
+        int year = yearOfEra + era * 400 + (month <= 1 ? 1 : 0);
+        return toMonthIndex(year, month);
+    }
+
+    /**
+     * Get the number of days between January 1st 1970 and a given day. This is the inverse
+     * of epochDayToMonthIndex, using the days-from-civil conversion from the same algorithms.
+     * @param year the year
+     * @param month the month, from 0 to 11
+     * @param dayOfMonth the day of the month
+     * @return the epoch day, negative for days before 1970
+     */
+    static int toEpochDay(int year, int month, int dayOfMonth) {
+        // Count years from March 1st, so leap days come at the end of the year
+        int y = month <= 1 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int shiftedMonth = (month + 10) % 12;
+        int dayOfYear = (153 * shiftedMonth + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Get the day of the month an epoch day falls on.
+     * @param epochDay the number of days since January 1st 1970
+     * @return the day of the month, from 1 to 31
+     */
+    static int epochDayToDayOfMonth(int epochDay) {
+        int monthIndex = epochDayToMonthIndex(epochDay);
+        return epochDay - toEpochDay(yearOf(monthIndex), monthOf(monthIndex), 1) + 1;
+    }
+
+    /**
+     * Get the epoch day a date falls on in the device's time zone.
+     * @param date the date
+     * @return the number of days between January 1st 1970 and that date
+     */
+    static int toEpochDay(Date date) {
+        return toEpochDay(date.getTime(), TimeZone.getDefault());
+    }
+
+    /**
+     * Get a date set to the start of an epoch day in the device's time zone. This creates a
+     * new Date, so it should only be used where a date is shown or handed to Android.
+     * @param epochDay the number of days since January 1st 1970
+     * @return a date at 0:00:00 on that day
+     */
+    static Date toDate(int epochDay) {
+        int monthIndex = epochDayToMonthIndex(epochDay);
+        return new GregorianCalendar(yearOf(monthIndex), monthOf(monthIndex),
+                epochDayToDayOfMonth(epochDay)).getTime();
+    }
+
+    /**
+     * Find how many periods after the start the first payment on or after a target date is.
+     * Payment number k falls in the month startMonthIndex + k * frequency.
+     * @param startMonthIndex the month index of the first payment
+     * @param anchorDay the day of the month of the first payment
+     * @param frequency the number of months between payments, at least 1
+     * @param targetMonthIndex the month index of the target date
+     * @param targetDay the day of the month of the target date
+     * @return the number of the first payment on or after the target date, 0 if the target
+     *         is on or before the first payment
+     */
+    static int firstPaymentOnOrAfter(int startMonthIndex, int anchorDay, int frequency,
+                                     int targetMonthIndex, int targetDay) {
+        int monthsBetween = targetMonthIndex - startMonthIndex;
+        if (monthsBetween < 0 || (monthsBetween == 0 && anchorDay >= targetDay)) {
+            return 0;
+        }
+
+        // The last payment in or before the target month, then check if it's early in the month
+        int period = monthsBetween / frequency;
+        int paymentMonthIndex = startMonthIndex + period * frequency;
+        if (paymentMonthIndex < targetMonthIndex
+                || paymentDay(anchorDay, paymentMonthIndex) < targetDay) {
+            period++;
+        }
+        return period;
+    }
+
+    /**
+     * Find the epoch day of the first payment on or after a given day, for a subscription
+     * that started on startDay and is paid every frequency months. This is done in constant
+     * time no matter how long ago the subscription started.
+     * @param startDay the epoch day of the first payment
+     * @param frequency the number of months between payments, at least 1
+     * @param day the epoch day to find the next payment from
+     * @return the epoch day of the first payment on or after the given day
+     */
+    static int paymentOnOrAfter(int startDay, int frequency, int day) {
+        int startMonthIndex = epochDayToMonthIndex(startDay);
+        int anchorDay = epochDayToDayOfMonth(startDay);
+        int period = firstPaymentOnOrAfter(startMonthIndex, anchorDay, frequency,
+                epochDayToMonthIndex(day), epochDayToDayOfMonth(day));
+        return paymentEpochDay(anchorDay, startMonthIndex + period * frequency);
+    }
+
+    /**
+     * Get the epoch day of a payment anchored to the given day in a month.
+     * @param anchorDay the day of the month the subscription started on
+     * @param monthIndex the month index of the payment
+     * @return the epoch day the payment falls on
+     */
+    static int paymentEpochDay(int anchorDay, int monthIndex) {
+        return toEpochDay(yearOf(monthIndex), monthOf(monthIndex), paymentDay(anchorDay, monthIndex));
+    }
+}
@@ -0,0 +1,264 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only list of every subscription in ID order, where each subscription keeps the ID
+ * it was given when it was added for as long as it exists. IDs are handed out in increasing
+ * order and never reused, even after the subscription holding one is deleted, so anything
+ * outside the list can safely refer to a subscription by its ID.
+ *
+ * Each subscription has a slot in an array, and a hash map from ID to slot finds any
+ * subscription in constant time. Deleting a subscription only empties its slot rather than
+ * moving every later one, and once empty slots outnumber full ones they are all removed at
+ * once, so deleting takes constant time on average. Iterating skips empty slots, and getting
+ * a subscription by position is only constant time when there are no empty slots.
+ */
+class IdOrderedSubscriptionList extends AbstractList<Subscription> {
+
+    // Every subscription in ID order, with null in the slots of deleted ones
+    private final ArrayList<Subscription> slots;
+    // The slot each subscription in the list is in, by ID
+    private final Map<Integer, Integer> slotById;
+    // The ID the next subscription added will be given
+    private int nextId;
+    // The number of slots that were emptied by a delete
+    private int numEmptySlots = 0;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create an empty list, giving out IDs from 0.
+     */
+    IdOrderedSubscriptionList() {
+        this(new ArrayList<Subscription>(), 0);
+    }
+
+    /**
+     * Create a list holding subscriptions that already have IDs, such as ones just loaded.
+     * @param subscriptions the subscriptions, in increasing ID order
+     * @param nextId the ID to give the next subscription added, greater than any ID in use
+     * @throws IllegalArgumentException thrown if the IDs aren't in increasing order or the
+     *                                  next ID is already in use
+     */
+    IdOrderedSubscriptionList(List<Subscription> subscriptions, int nextId) {
+        slots = new ArrayList<>(subscriptions);
+        slotById = new HashMap<>(Math.max(16, subscriptions.size() * 4 / 3 + 1));
+        int lastId = -1;
+        for (int slot = 0; slot < slots.size(); slot++) {
+            int id = slots.get(slot).getId();
+            if (id <= lastId) {
+                throw new IllegalArgumentException("Subscription IDs out of order: " + id);
+            }
+            slotById.put(id, slot);
+            lastId = id;
+        }
+        if (nextId <= lastId) {
+            throw new IllegalArgumentException("Next ID " + nextId + " is already in use");
+        }
+        this.nextId = nextId;
+    }
+
+    /**
+     * Add a subscription to the end of the list, giving it the next unused ID.
+     * @param subscription the subscription to add
+     * @return the ID it was given
+     */
+    int insert(Subscription subscription) {
+        int id = nextId;
+        subscription.setId(id);
+        addSlot(id, subscription);
+        return id;
+    }
+
+    /**
+     * Add a subscription to the end of the list that already has an ID, as when replaying
+     * an add that was saved before.
+     * @param subscription the subscription to add, whose ID must not have been used yet
+     * @throws IllegalArgumentException thrown if the subscription's ID was already given out
+     */
+    void put(Subscription subscription) {
+        int id = subscription.getId();
+        if (id < nextId) {
+            throw new IllegalArgumentException("Subscription ID " + id + " was already used");
+        }
+        addSlot(id, subscription);
+    }
+
+    /**
+     * Replace the subscription with a given ID by another, which takes its ID and place.
+     * @param id the ID of the subscription to replace
+     * @param subscription the subscription to put in its place
+     * @return the subscription that was replaced
+     * @throws IllegalArgumentException thrown if no subscription has that ID
+     */
+    Subscription replace(int id, Subscription subscription) {
+        int slot = slotOf(id);
+        subscription.setId(id);
+        return slots.set(slot, subscription);
+    }
+
+    /**
+     * Delete the subscription with a given ID. Its ID is never given out again.
+     * @param id the ID of the subscription to delete
+     * @return the subscription that was deleted
+     * @throws IllegalArgumentException thrown if no subscription has that ID
+     */
+    Subscription delete(int id) {
+        int slot = slotOf(id);
+        slotById.remove(id);
+        Subscription subscription = slots.set(slot, null);
+        numEmptySlots++;
+        if (numEmptySlots > slotById.size()) {
+            removeEmptySlots();
+        }
+        return subscription;
+    }
+
+    /**
+     * Get the subscription with a given ID.
+     * @param id the ID of the subscription
+     * @return the subscription, or null if no subscription in the list has that ID
+     */
+    Subscription getById(int id) {
+        Integer slot = slotById.get(id);
+        return slot == null ? null : slots.get(slot);
+    }
+
+    /**
+     * Get the ID the next subscription added will be given, which is greater than every ID
+     * that has been used so far.
+     * @return the next ID
+     */
+    int getNextId() {
+        return nextId;
+    }
+
+    @Override
+    public Subscription get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        if (numEmptySlots == 0) {
+            return slots.get(index);
+        }
+        for (Subscription subscription : slots) {
+            if (subscription != null && index-- == 0) {
+                return subscription;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public int size() {
+        return slotById.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Subscription)) {
+            return false;
+        }
+        Subscription subscription = (Subscription)o;
+        return getById(subscription.getId()) == subscription;
+    }
+
+    @Override
+    public Iterator<Subscription> iterator() {
+        return new Iterator<Subscription>() {
+            // The slot of the subscription given next, or the number of slots if there are no more
+            private int nextSlot = findFullSlot(0);
+
+            @Override
+            public boolean hasNext() {
+                return nextSlot < slots.size();
+            }
+
+            @Override
+            public Subscription next() {
+                if (nextSlot >= slots.size()) {
+                    throw new NoSuchElementException();
+                }
+                Subscription subscription = slots.get(nextSlot);
+                nextSlot = findFullSlot(nextSlot + 1);
+                return subscription;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Put a subscription in a new slot at the end of the list.
+     * @param id the subscription's ID, at least the next ID
+     * @param subscription the subscription
+     */
+    private void addSlot(int id, Subscription subscription) {
+        slotById.put(id, slots.size());
+        slots.add(subscription);
+        nextId = id + 1;
+    }
+
+    /**
+     * Get the slot of the subscription with a given ID.
+     * @param id the ID of the subscription
+     * @return the slot it's in
+     * @throws IllegalArgumentException thrown if no subscription has that ID
+     */
+    private int slotOf(int id) {
+        Integer slot = slotById.get(id);
+        if (slot == null) {
+            throw new IllegalArgumentException("No subscription with ID " + id);
+        }
+        return slot;
+    }
+
+    /**
+     * Find the first slot at or after a given one that holds a subscription.
+     * @param slot the slot to start looking from
+     * @return the full slot, or the number of slots if there isn't one
+     */
+    private int findFullSlot(int slot) {
+        while (slot < slots.size() && slots.get(slot) == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * Move every subscription down into the slots left empty by deletes, keeping them in
+     * ID order, and update the slot of each one that moved.
+     */
+    private void removeEmptySlots() {
+        int[] newSlots = new int[slots.size()];
+        int target = 0;
+        for (int slot = 0; slot < slots.size(); slot++) {
+            Subscription subscription = slots.get(slot);
+            if (subscription != null) {
+                slots.set(target, subscription);
+                newSlots[slot] = target++;
+            }
+        }
+        slots.subList(target, slots.size()).clear();
+        for (Map.Entry<Integer, Integer> entry : slotById.entrySet()) {
+            entry.setValue(newSlots[entry.getValue()]);
+        }
+        numEmptySlots = 0;
+    }
+}
@@ -0,0 +1,401 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A small file kept next to the data file that lists, for each day a notification is due,
+ * the subscriptions due that day. It's written whenever the data is saved, so the
+ * notification alarm can read just the subscriptions due today rather than loading and
+ * scanning every subscription.
+ *
+ * The file starts with a header holding a marker, the format version, the last day the index
+ * can be trusted for, the next few days any notification is due (for setting the alarm), and
+ * how many notification days it has records for. A table of those days follows in
+ * increasing order, giving the number of subscriptions due that day and where their records
+ * are, then the records themselves grouped by day. A record holds everything needed to show
+ * the subscription in a notification and open it from there.
+ *
+ * Notification dates only move once a subscription's next payment date has passed and its
+ * dates are worked out again, which needs every subscription loaded and saved. So the index
+ * is only trusted up to the earliest next payment date of any subscription, and after that
+ * the data file has to be loaded as before, which writes a new index when it's saved. Only
+ * notifications due by that day are kept, which keeps the index small enough to write again
+ * with every save.
+ */
+class NotificationIndex {
+
+    // The name of the file the index is kept in
+    static final String INDEX_FILENAME = "notifications.idx";
+    // The first four bytes of the index file, "MSNI" in ASCII
+    private static final int MAGIC = 0x4D534E49;
+    // The version of the file format, increased whenever the layout changes
+    private static final int VERSION = 2;
+    // The number of bytes in the header before the notification days, and in each day of the table
+    private static final int HEADER_SIZE = 16;
+    private static final int TABLE_ENTRY_SIZE = 16;
+    // Written in place of the length of a string that is null
+    private static final int NULL_STRING = -1;
+    // Every string is stored as UTF-8
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Every subscription with a notification due while the index is trusted, by day then ID
+    private final List<Subscription> subscriptions;
+    // The last day the index can be trusted for, before any subscription's dates change
+    private final int validThroughDay;
+    // The next days any notification is due, which can be later than validThroughDay
+    private final int[] reminderDays;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create the index of a list of subscriptions. Each subscription with a notification due
+     * while the index is trusted is copied, so the list can keep changing after this and the
+     * index can be written on another thread.
+     * @param subscriptions every subscription in the model
+     */
+    NotificationIndex(List<Subscription> subscriptions) {
+        this(subscriptions, new ZeroTimeCalendar().getEpochDay());
+    }
+
+    /**
+     * Create the index of a list of subscriptions, finding the days notifications are due
+     * starting from a given day.
+     * @param subscriptions every subscription in the model
+     * @param today today as an epoch day
+     */
+    NotificationIndex(List<Subscription> subscriptions, int today) {
+        int validThroughDay = Integer.MAX_VALUE;
+        for (Subscription sub : subscriptions) {
+            validThroughDay = Math.min(validThroughDay, sub.getNextPaymentDay());
+        }
+        this.validThroughDay = validThroughDay;
+        this.reminderDays = ReminderScheduler.upcomingReminderDays(subscriptions, today);
+        this.subscriptions = new ArrayList<>();
+        for (Subscription sub : subscriptions) {
+            if (sub.getNextNotifDay() != Subscription.NO_DATE && sub.getNextNotifDay() <= validThroughDay) {
+                this.subscriptions.add(sub.copy());
+            }
+        }
+        Collections.sort(this.subscriptions, new Comparator<Subscription>() {
+            @Override
+            public int compare(Subscription o1, Subscription o2) {
+                if (o1.getNextNotifDay() != o2.getNextNotifDay()) {
+                    return o1.getNextNotifDay() < o2.getNextNotifDay() ? -1 : 1;
+                }
+                return o1.getId() < o2.getId() ? -1 : (o1.getId() == o2.getId() ? 0 : 1);
+            }
+        });
+    }
+
+    /**
+     * Get the next days any notification is due, which the alarm is set from.
+     * @return up to ReminderScheduler.MAX_REMINDER_DAYS epoch days in increasing order
+     */
+    int[] getReminderDays() {
+        return reminderDays;
+    }
+
+    /**
+     * Write the index to its file in a directory, replacing the file in one step once it is
+     * fully written.
+     * @param directory the directory to keep the file in, usually internal storage
+     * @throws IOException thrown if something goes wrong writing the file
+     */
+    void write(File directory) throws IOException {
+        // Lay out the records first, so the table can say where each day's records are
+        ByteBuffer records = ByteBuffer.allocate(256 + subscriptions.size() * 64);
+        int tableStart = HEADER_SIZE + reminderDays.length * 4 + 4;
+        ByteBuffer table = ByteBuffer.allocate(tableStart + subscriptions.size() * TABLE_ENTRY_SIZE);
+        table.position(tableStart);
+        int numDays = 0;
+        for (int i = 0; i < subscriptions.size(); ) {
+            int day = subscriptions.get(i).getNextNotifDay();
+            int offset = records.position();
+            int start = i;
+            while (i < subscriptions.size() && subscriptions.get(i).getNextNotifDay() == day) {
+                records = putRecord(records, subscriptions.get(i++));
+            }
+            table.putInt(day);
+            table.putInt(i - start);
+            table.putInt(offset);
+            table.putInt(records.position() - offset);
+            numDays++;
+        }
+        table.putInt(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, validThroughDay);
+        table.putInt(12, reminderDays.length);
+        for (int i = 0; i < reminderDays.length; i++) {
+            table.putInt(HEADER_SIZE + i * 4, reminderDays[i]);
+        }
+        table.putInt(tableStart - 4, numDays);
+        table.flip();
+        records.flip();
+
+        File file = new File(directory, INDEX_FILENAME);
+        FileOutputStream fos = AtomicFileWrite.startWrite(file);
+        boolean written = false;
+        try {
+            FileChannel channel = fos.getChannel();
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                AtomicFileWrite.abortWrite(file, fos);
+            }
+        }
+        AtomicFileWrite.finishWrite(file, fos);
+    }
+
+    /**
+     * Read the subscriptions whose notifications are due on a day from the index kept in a
+     * directory. Only the header, the table of days, and that day's records are read.
+     * @param directory the directory the file is kept in, usually internal storage
+     * @param epochDay the day to read, as the number of days since January 1st 1970
+     * @return the subscriptions due that day in ID order, or null if there is no index file,
+     *         it can't be read, or it can't be trusted for that day, in which case every
+     *         subscription has to be loaded instead
+     */
+    static List<Subscription> readDay(File directory, int epochDay) {
+        File file = new File(directory, INDEX_FILENAME);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || epochDay > in.readInt()) {
+                    return null;
+                }
+                int numReminderDays = in.readInt();
+                if (numReminderDays < 0 || numReminderDays > ReminderScheduler.MAX_REMINDER_DAYS) {
+                    return null;
+                }
+                long tableStart = HEADER_SIZE + numReminderDays * 4 + 4;
+                in.seek(tableStart - 4);
+                int numDays = in.readInt();
+                if (numDays < 0 || (long)numDays * TABLE_ENTRY_SIZE > in.length() - tableStart) {
+                    return null;
+                }
+                byte[] tableBytes = new byte[numDays * TABLE_ENTRY_SIZE];
+                in.readFully(tableBytes);
+                ByteBuffer table = ByteBuffer.wrap(tableBytes);
+
+                // The days are in increasing order, so search the table for this one
+                int low = 0;
+                int high = numDays - 1;
+                while (low <= high) {
+                    int mid = (low + high) >>> 1;
+                    int day = table.getInt(mid * TABLE_ENTRY_SIZE);
+                    if (day < epochDay) {
+                        low = mid + 1;
+                    } else if (day > epochDay) {
+                        high = mid - 1;
+                    } else {
+                        int count = table.getInt(mid * TABLE_ENTRY_SIZE + 4);
+                        int offset = table.getInt(mid * TABLE_ENTRY_SIZE + 8);
+                        int length = table.getInt(mid * TABLE_ENTRY_SIZE + 12);
+                        if (count < 0 || offset < 0 || length < 0) {
+                            return null;
+                        }
+                        in.seek(tableStart + tableBytes.length + offset);
+                        byte[] recordBytes = new byte[length];
+                        in.readFully(recordBytes);
+                        ByteBuffer records = ByteBuffer.wrap(recordBytes);
+                        List<Subscription> due = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            due.add(getRecord(records));
+                        }
+                        return due;
+                    }
+                }
+                return new ArrayList<>();
+            } finally {
+                in.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged file can run a record past the end of its bytes
+            return null;
+        }
+    }
+
+    /**
+     * Read the next days any notification is due from the header of the index kept in a
+     * directory. Unlike readDay, these can be read after the index is out of date, since
+     * they come from each subscription's schedule rather than its next payment date.
+     * @param directory the directory the file is kept in, usually internal storage
+     * @return the epoch days in increasing order, or null if there is no index file or it
+     *         can't be read
+     */
+    static int[] readReminderDays(File directory) {
+        File file = new File(directory, INDEX_FILENAME);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return null;
+                }
+                in.readInt();
+                int numReminderDays = in.readInt();
+                if (numReminderDays < 0 || numReminderDays > ReminderScheduler.MAX_REMINDER_DAYS) {
+                    return null;
+                }
+                int[] reminderDays = new int[numReminderDays];
+                for (int i = 0; i < numReminderDays; i++) {
+                    reminderDays[i] = in.readInt();
+                }
+                return reminderDays;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check whether there is an index file kept in a directory.
+     * @param directory the directory the file is kept in, usually internal storage
+     * @return true if the file exists, false otherwise
+     */
+    static boolean exists(File directory) {
+        return new File(directory, INDEX_FILENAME).exists();
+    }
+
+    /**
+     * Delete the index file kept in a directory, if there is one.
+     * @param directory the directory the file is kept in, usually internal storage
+     * @return true if there is no index file anymore, false if it couldn't be deleted
+     */
+    static boolean delete(File directory) {
+        File file = new File(directory, INDEX_FILENAME);
+        return !file.exists() || file.delete();
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Put every field of a subscription in the buffer as one record, growing the buffer if
+     * it's full.
+     * @param buffer the buffer the records are laid out in
+     * @param sub the subscription
+     * @return the buffer to keep putting records in
+     */
+    private static ByteBuffer putRecord(ByteBuffer buffer, Subscription sub) {
+        buffer = ensureRoom(buffer, 4);
+        buffer.putInt(sub.getId());
+        buffer = putString(buffer, sub.getName());
+        buffer = ensureRoom(buffer, 12);
+        buffer.putDouble(sub.getCost());
+        buffer.putInt(sub.getStartDay());
+        buffer = putString(buffer, sub.getNote());
+        buffer = ensureRoom(buffer, 8);
+        buffer.putInt(sub.getRechargeFrequency());
+        buffer.putInt(sub.getCategory().getColor());
+        buffer = putString(buffer, sub.getCategory().getName());
+        buffer = ensureRoom(buffer, 12);
+        buffer.putInt(sub.getNotifDays());
+        buffer.putInt(sub.getNextPaymentDay());
+        buffer.putInt(sub.getNextNotifDay());
+        return buffer;
+    }
+
+    /**
+     * Read a record put in a buffer by putRecord.
+     * @param buffer the buffer holding the records
+     * @return the subscription the record holds
+     * @throws IOException thrown if a string in the record is damaged
+     */
+    private static Subscription getRecord(ByteBuffer buffer) throws IOException {
+        int id = buffer.getInt();
+        String name = getString(buffer);
+        double cost = buffer.getDouble();
+        int startDay = buffer.getInt();
+        String note = getString(buffer);
+        int rechargeFrequency = buffer.getInt();
+        int color = buffer.getInt();
+        Category category = new Category(color, getString(buffer));
+        int notifDays = buffer.getInt();
+        int nextPaymentDay = buffer.getInt();
+        int nextNotifDay = buffer.getInt();
+        return new Subscription(id, name, cost, startDay, note, rechargeFrequency, category,
+                notifDays, nextPaymentDay, nextNotifDay);
+    }
+
+    /**
+     * Make sure a buffer has room for the given number of bytes, copying it into one twice
+     * as large if it doesn't.
+     * @param buffer the buffer
+     * @param numBytes the number of bytes about to be put in it
+     * @return the buffer to keep putting bytes in
+     */
+    private static ByteBuffer ensureRoom(ByteBuffer buffer, int numBytes) {
+        if (buffer.remaining() >= numBytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + numBytes));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Put a string in a buffer as its UTF-8 length followed by its bytes.
+     * @param buffer the buffer
+     * @param string the string, which may be null
+     * @return the buffer to keep putting bytes in
+     */
+    private static ByteBuffer putString(ByteBuffer buffer, String string) {
+        if (string == null) {
+            buffer = ensureRoom(buffer, 4);
+            buffer.putInt(NULL_STRING);
+            return buffer;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        buffer = ensureRoom(buffer, 4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return buffer;
+    }
+
+    /**
+     * Read a string put in a buffer by putString.
+     * @param buffer the buffer
+     * @return the string, or null if a null string was put
+     * @throws IOException thrown if the length of the string is invalid
+     */
+    private static String getString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt string in notification index");
+        }
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
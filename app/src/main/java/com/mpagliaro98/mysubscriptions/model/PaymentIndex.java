@@ -0,0 +1,191 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index from payment days to the subscriptions due on them, kept up to date by the model
+ * as subscriptions are added, updated, and removed.
+ *
+ * A subscription paid every f months that started in month index s on day a is paid in
+ * every month index i where i % f == s % f, on day a (or the last day of the month, if the
+ * month is too short). So subscriptions are grouped by frequency, then by that month
+ * residue and anchor day. To find who is due on a day, only one bucket per frequency needs
+ * to be looked at (plus the buckets for later anchor days on the last day of a month),
+ * instead of every payment date of every subscription. Each candidate is then checked
+ * against its own schedule so payments before its next payment date or past its future
+ * limit aren't included.
+ */
+class PaymentIndex {
+
+    // The largest day of the month an anchor can be
+    private static final int MAX_DAY = 31;
+
+    // For each frequency, a map of (residue * 32 + anchor day) to the subscriptions with it
+    private Map<Integer, Map<Integer, List<Subscription>>> frequencyGroups = new HashMap<>();
+
+    // Sorts results back into the order of the full subscription list
+    private static final Comparator<Subscription> ID_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            return o1.getId() < o2.getId() ? -1 : (o1.getId() == o2.getId() ? 0 : 1);
+        }
+    };
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Add a subscription to the index. Subscriptions without a positive recharge frequency
+     * have no schedule and are not added.
+     * @param subscription the subscription to add
+     */
+    void add(Subscription subscription) {
+        int frequency = subscription.getRechargeFrequency();
+        if (frequency < 1) {
+            return;
+        }
+        Map<Integer, List<Subscription>> buckets = frequencyGroups.get(frequency);
+        if (buckets == null) {
+            buckets = new HashMap<>();
+            frequencyGroups.put(frequency, buckets);
+        }
+        int key = bucketKey(subscription.getStartMonthIndex() % frequency, subscription.getAnchorDay());
+        List<Subscription> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.put(key, bucket);
+        }
+        bucket.add(subscription);
+    }
+
+    /**
+     * Remove a subscription from the index. Nothing happens if it isn't in the index.
+     * @param subscription the subscription to remove
+     */
+    void remove(Subscription subscription) {
+        int frequency = subscription.getRechargeFrequency();
+        Map<Integer, List<Subscription>> buckets = frequencyGroups.get(frequency);
+        if (buckets == null) {
+            return;
+        }
+        int key = bucketKey(subscription.getStartMonthIndex() % frequency, subscription.getAnchorDay());
+        List<Subscription> bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == subscription) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+            if (buckets.isEmpty()) {
+                frequencyGroups.remove(frequency);
+            }
+        }
+    }
+
+    /**
+     * Remove every subscription from the index, then add each one in the given list.
+     * @param subscriptions the subscriptions to index
+     */
+    void rebuild(List<Subscription> subscriptions) {
+        frequencyGroups = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            add(subscription);
+        }
+    }
+
+    /**
+     * Get every subscription with a payment due on the given day.
+     * @param year the year of the day
+     * @param month the month of the day, from 0 to 11
+     * @param dayOfMonth the day of the month
+     * @return a list of the subscriptions due on that day, in ID order
+     */
+    List<Subscription> subsDueOnDay(int year, int month, int dayOfMonth) {
+        List<Subscription> subsDue = new ArrayList<>();
+        collectDueOnDay(year, month, dayOfMonth, subsDue);
+        Collections.sort(subsDue, ID_ORDER);
+        return subsDue;
+    }
+
+    /**
+     * Count the subscriptions with a payment due on the given day.
+     * @param year the year of the day
+     * @param month the month of the day, from 0 to 11
+     * @param dayOfMonth the day of the month
+     * @return the number of subscriptions due on that day
+     */
+    int numDueOnDay(int year, int month, int dayOfMonth) {
+        return collectDueOnDay(year, month, dayOfMonth, null);
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Find every subscription due on the given day by looking in the buckets its payments
+     * could be in, and add each one to a list if one is given.
+     * @param year the year of the day
+     * @param month the month of the day, from 0 to 11
+     * @param dayOfMonth the day of the month
+     * @param subsDue the list to add to, or null to only count them
+     * @return the number of subscriptions due on that day
+     */
+    private int collectDueOnDay(int year, int month, int dayOfMonth, List<Subscription> subsDue) {
+        int monthIndex = CivilDate.toMonthIndex(year, month);
+        int lastAnchor = lastAnchorForDay(year, month, dayOfMonth);
+        int numDue = 0;
+        for (Map.Entry<Integer, Map<Integer, List<Subscription>>> group : frequencyGroups.entrySet()) {
+            int residue = monthIndex % group.getKey();
+            for (int anchor = dayOfMonth; anchor <= lastAnchor; anchor++) {
+                List<Subscription> bucket = group.getValue().get(bucketKey(residue, anchor));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Subscription subscription : bucket) {
+                    if (subscription.hasPaymentOn(year, month, dayOfMonth)) {
+                        numDue++;
+                        if (subsDue != null) {
+                            subsDue.add(subscription);
+                        }
+                    }
+                }
+            }
+        }
+        return numDue;
+    }
+
+    /**
+     * Get the largest anchor day whose payments can land on the given day. Usually this is
+     * just the day itself, but on the last day of a month, payments anchored to any later
+     * day land there too.
+     * @param year the year of the day
+     * @param month the month of the day, from 0 to 11
+     * @param dayOfMonth the day of the month
+     * @return the largest anchor day to look up
+     */
+    private int lastAnchorForDay(int year, int month, int dayOfMonth) {
+        return dayOfMonth == CivilDate.daysInMonth(year, month) ? MAX_DAY : dayOfMonth;
+    }
+
+    /**
+     * Combine a month residue and anchor day into one bucket key.
+     * @param residue the month index modulo the frequency
+     * @param anchorDay the anchor day of the month
+     * @return the key of the bucket
+     */
+    private int bucketKey(int residue, int anchorDay) {
+        return residue * (MAX_DAY + 1) + anchorDay;
+    }
+}
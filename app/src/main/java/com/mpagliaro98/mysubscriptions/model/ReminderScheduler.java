@@ -0,0 +1,283 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import android.content.Context;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+/**
+ * Keeps a single alarm set for the next day any subscription has a notification due, rather
+ * than waking the device every day to check. The days notifications are due are worked out
+ * whenever the notification index is written and kept in it, so the alarm can be set again
+ * after it goes off or the device restarts by reading only the start of that file.
+ *
+ * The alarm itself is set through an AlarmScheduler, which the app installs when it starts.
+ * Until one is installed no alarm is set, so the model can be used without Android's alarm
+ * service, as the tests and benchmarks do.
+ */
+public final class ReminderScheduler {
+
+    /**
+     * Sets and cancels the one alarm that goes off when notifications are due.
+     */
+    public interface AlarmScheduler {
+        /**
+         * Set the alarm to go off at an exact time, replacing any alarm already set.
+         * @param triggerAtMillis the time to go off, in milliseconds since the epoch
+         */
+        void setAlarm(long triggerAtMillis);
+
+        /**
+         * Cancel the alarm, if one is set.
+         */
+        void cancelAlarm();
+    }
+
+    // The most notification days kept in the index, so the alarm can be set again that many
+    // times before every subscription has to be loaded to find more
+    static final int MAX_REMINDER_DAYS = 32;
+    // The time of day notifications go off if the settings can't be read
+    private static final int DEFAULT_HOUR = 6;
+    private static final int DEFAULT_MINUTE = 0;
+
+    // The scheduler installed by the app, or null if alarms aren't set
+    private static volatile AlarmScheduler alarmScheduler;
+
+    /**
+     * A subscription in the heap of notifications, ordered by the day of its next one.
+     */
+    private static class Reminder implements Comparable<Reminder> {
+        // The day this subscription's next notification is due
+        int day;
+        // The subscription
+        final Subscription sub;
+
+        /**
+         * Create a reminder for a subscription.
+         * @param day the day its next notification is due
+         * @param sub the subscription
+         */
+        Reminder(int day, Subscription sub) {
+            this.day = day;
+            this.sub = sub;
+        }
+
+        @Override
+        public int compareTo(Reminder other) {
+            return day < other.day ? -1 : (day == other.day ? 0 : 1);
+        }
+    }
+
+    /**
+     * This class only holds static methods and should not be created.
+     */
+    private ReminderScheduler() {}
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Install the scheduler used to set the notification alarm from now on.
+     * @param scheduler the scheduler, or null to stop setting alarms
+     */
+    public static void install(AlarmScheduler scheduler) {
+        alarmScheduler = scheduler;
+    }
+
+    /**
+     * Set the alarm for the next notification after now, using the notification days kept in
+     * the index. If the index is missing or every day in it has passed, the alarm is set for
+     * the next time notifications go off, and every subscription is loaded on the I/O thread
+     * to write a new index. This should be called when the app starts, when the alarm goes
+     * off, when the device restarts, and when the notification settings change.
+     * @param context the current context of the application
+     */
+    public static void rearm(Context context) {
+        if (!armFromSettings(context, NotificationIndex.readReminderDays(context.getFilesDir()))) {
+            final Context appContext = context.getApplicationContext();
+            SubscriptionRepository.IO_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refreshIndex(appContext);
+                }
+            });
+        }
+    }
+
+    /**
+     * Set the alarm for the next notification after now from notification days that were
+     * just worked out, as happens whenever the notification index is written.
+     * @param context the current context of the application
+     * @param reminderDays the upcoming days a notification is due in increasing order, or
+     *                     null if they aren't known
+     */
+    static void rearm(Context context, int[] reminderDays) {
+        armFromSettings(context, reminderDays);
+    }
+
+    /**
+     * Find the next days, starting today, that any subscription has a notification due. The
+     * subscriptions are kept in a heap keyed by the day of their next notification, so only
+     * the subscriptions whose notifications come soonest are ever stepped forward, taking
+     * each one's next notification from its schedule once one has been counted.
+     * @param subscriptions every subscription in the model
+     * @param today today as an epoch day
+     * @return up to MAX_REMINDER_DAYS different days in increasing order, fewer if there
+     *         aren't that many notifications coming
+     */
+    static int[] upcomingReminderDays(List<Subscription> subscriptions, int today) {
+        List<Reminder> reminders = new ArrayList<>();
+        for (Subscription sub : subscriptions) {
+            int day = sub.getNextNotifDay();
+            if (day == Subscription.NO_DATE || day < today) {
+                day = sub.notifDayAfter(today - 1);
+            }
+            if (day != Subscription.NO_DATE) {
+                reminders.add(new Reminder(day, sub));
+            }
+        }
+
+        // Building the heap from the whole list at once takes linear time
+        PriorityQueue<Reminder> heap = new PriorityQueue<>(reminders);
+        int[] days = new int[MAX_REMINDER_DAYS];
+        int numDays = 0;
+        while (numDays < MAX_REMINDER_DAYS && !heap.isEmpty()) {
+            Reminder next = heap.poll();
+            if (numDays == 0 || days[numDays - 1] != next.day) {
+                days[numDays++] = next.day;
+            }
+            int following = next.sub.notifDayAfter(next.day);
+            if (following != Subscription.NO_DATE) {
+                next.day = following;
+                heap.add(next);
+            }
+        }
+        return Arrays.copyOf(days, numDays);
+    }
+
+    /**
+     * Set the alarm for the first notification day that is still to come. If notifications
+     * are off, or none are due at all, the alarm is cancelled. If the days aren't known or
+     * have all passed, the alarm is set for the next time notifications go off instead, so
+     * they're checked then as they used to be each day.
+     * @param scheduler the scheduler to set the alarm with
+     * @param reminderDays the upcoming days a notification is due in increasing order, or
+     *                     null if they aren't known
+     * @param notificationsOn whether the settings have notifications on
+     * @param hourOfDay the hour notifications go off, from 0 to 23
+     * @param minute the minute notifications go off
+     * @param nowMillis the current time, in milliseconds since the epoch
+     * @param timeZone the time zone the days and time of day are in
+     * @return false if the alarm was set for the next time notifications go off because the
+     *         days weren't known or had passed, true otherwise
+     */
+    static boolean schedule(AlarmScheduler scheduler, int[] reminderDays, boolean notificationsOn,
+                            int hourOfDay, int minute, long nowMillis, TimeZone timeZone) {
+        if (!notificationsOn || (reminderDays != null && reminderDays.length == 0)) {
+            scheduler.cancelAlarm();
+            return true;
+        }
+        if (reminderDays != null) {
+            for (int day : reminderDays) {
+                long triggerAtMillis = reminderMillis(day, hourOfDay, minute, timeZone);
+                if (triggerAtMillis > nowMillis) {
+                    scheduler.setAlarm(triggerAtMillis);
+                    return true;
+                }
+            }
+        }
+        int today = CivilDate.toEpochDay(nowMillis, timeZone);
+        long triggerAtMillis = reminderMillis(today, hourOfDay, minute, timeZone);
+        if (triggerAtMillis <= nowMillis) {
+            triggerAtMillis = reminderMillis(today + 1, hourOfDay, minute, timeZone);
+        }
+        scheduler.setAlarm(triggerAtMillis);
+        return false;
+    }
+
+    /**
+     * Get the moment notifications go off on a day.
+     * @param epochDay the day, as the number of days since January 1st 1970
+     * @param hourOfDay the hour notifications go off, from 0 to 23
+     * @param minute the minute notifications go off
+     * @param timeZone the time zone the day and time of day are in
+     * @return that moment in milliseconds since the epoch
+     */
+    static long reminderMillis(int epochDay, int hourOfDay, int minute, TimeZone timeZone) {
+        int monthIndex = CivilDate.epochDayToMonthIndex(epochDay);
+        GregorianCalendar calendar = new GregorianCalendar(timeZone);
+        calendar.clear();
+        calendar.set(CivilDate.yearOf(monthIndex), CivilDate.monthOf(monthIndex),
+                CivilDate.epochDayToDayOfMonth(epochDay), hourOfDay, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Set the alarm with the installed scheduler for the notification time in the settings,
+     * defaulting to notifications on at 6am if the settings can't be read.
+     * @param context the current context of the application
+     * @param reminderDays the upcoming days a notification is due in increasing order, or
+     *                     null if they aren't known
+     * @return the result of schedule, or true if no scheduler is installed
+     */
+    private static boolean armFromSettings(Context context, int[] reminderDays) {
+        AlarmScheduler scheduler = alarmScheduler;
+        if (scheduler == null) {
+            return true;
+        }
+        boolean notificationsOn = true;
+        int hourOfDay = DEFAULT_HOUR;
+        int minute = DEFAULT_MINUTE;
+        try {
+            SettingsManager settingsManager = SettingsManager.getInstance(context);
+            notificationsOn = settingsManager.getNotificationsOn();
+            Calendar notificationTime = Calendar.getInstance();
+            notificationTime.setTime(settingsManager.getNotificationTime());
+            hourOfDay = notificationTime.get(Calendar.HOUR_OF_DAY);
+            minute = notificationTime.get(Calendar.MINUTE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return schedule(scheduler, reminderDays, notificationsOn, hourOfDay, minute,
+                System.currentTimeMillis(), TimeZone.getDefault());
+    }
+
+    /**
+     * Load every subscription, update their dates, and write a new notification index from
+     * them, which sets the alarm again with the days it finds. This must only be run on the
+     * I/O thread, like every other read and write of the data files. Nothing is loaded if a
+     * load or save queued before this has already written an index with days to come. If the
+     * data file can't be read the alarm stays set for the next time notifications go off, when
+     * this is tried again.
+     * @param context the application context
+     */
+    private static void refreshIndex(Context context) {
+        if (armFromSettings(context, NotificationIndex.readReminderDays(context.getFilesDir()))) {
+            return;
+        }
+        SharedViewModel model = new SharedViewModel();
+        try {
+            model.loadFromFile(context);
+            model.updateSubscriptionDates();
+            if (model.hasUnsavedChanges() || model.needsFormatUpgrade()) {
+                // A full save writes the index along with the data
+                model.saveToFile(context);
+                return;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        SharedViewModel.writeNotificationIndex(context, new NotificationIndex(model.getFullSubscriptionList()));
+    }
+}
@@ -7,18 +7,23 @@ import android.net.Uri;
 import android.provider.CalendarContract;
 import com.google.gson.Gson;
 import com.mpagliaro98.mysubscriptions.R;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSettingsChangedListener;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 
 /**
- * A class to hold application-wide settings. Simply creating a new instance of this class
- * will load the settings from the file and be able to be accessed.
+ * A class to hold application-wide settings. The settings are loaded from the file the first
+ * time getInstance is called, and that same instance is kept in memory and shared by the
+ * rest of the app, so reading a setting never touches the disk. Changes are written to the
+ * file as they're made, and any listeners are told about them.
  */
 public class SettingsManager {
 
@@ -27,8 +32,13 @@ public class SettingsManager {
     private Date notificationTime;
     private String currencySymbol;
     private String dateFormat;
+    private boolean recurringCalendarEvents;
     // The name of the file the settings are stored in
     private static final String filename = "settings.dat";
+    // The instance shared by the whole app, null until first requested
+    private static SettingsManager instance = null;
+    // Everything that should be told when the settings change
+    private final List<OnSettingsChangedListener> listeners = new ArrayList<>();
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
@@ -37,6 +47,8 @@ public class SettingsManager {
     /**
      * Creates this class. This will load the settings from the file. If no file exists yet,
      * the default settings will be instantiated and a file containing them will be created.
+     * This always reads the file, so getInstance should be used instead everywhere except
+     * where a fresh copy of the saved settings is needed.
      * @param context the current application context
      * @throws IOException thrown if there is an error reading or writing to the file
      */
@@ -45,6 +57,24 @@ public class SettingsManager {
         loadSettingsFile(context);
     }
 
+    /**
+     * Register a listener to be told whenever these settings are changed and saved.
+     * @param listener the listener to add
+     */
+    public synchronized void addOnSettingsChangedListener(OnSettingsChangedListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Stop telling a listener about changes to these settings.
+     * @param listener the listener to remove
+     */
+    public synchronized void removeOnSettingsChangedListener(OnSettingsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Get whether notifications should go off or not.
      * @return the notification setting as a boolean
@@ -78,53 +108,80 @@ public class SettingsManager {
     }
 
     /**
-     * Set the settings to the values that are passed in, then save them all to the file. This
+     * Get whether the calendar sync should give each subscription one repeating event, rather
+     * than one event for each of its next payment dates.
+     * @return the recurring calendar events setting as a boolean
+     */
+    public boolean getRecurringCalendarEvents() {
+        return recurringCalendarEvents;
+    }
+
+    /**
+     * Set the settings to the values that are passed in, save them all to the file, then tell
+     * any listeners about the change. This
      * should ideally be called when a "save" button is pressed in the settings activity, where
      * all the settings can be gathered from their respective UI elements.
      * @param notificationsOn the notification setting as a boolean
      * @param notificationTime the time of day for notifications as a Date object
      * @param currencySymbol the currency symbol as a string
      * @param dateFormat the date format as a string
+     * @param recurringCalendarEvents the recurring calendar events setting as a boolean
      * @param context the current application context
      * @throws IOException thrown if there is an error reading or writing to the file
      */
     public void setSettings(boolean notificationsOn, Date notificationTime, String currencySymbol,
-                            String dateFormat, Context context) throws IOException {
-        this.notificationsOn = notificationsOn;
-        this.notificationTime = notificationTime;
-        this.currencySymbol = currencySymbol;
-        this.dateFormat = dateFormat;
-        saveSettingsFile(context);
+                            String dateFormat, boolean recurringCalendarEvents, Context context)
+            throws IOException {
+        synchronized (this) {
+            this.notificationsOn = notificationsOn;
+            this.notificationTime = notificationTime;
+            this.currencySymbol = currencySymbol;
+            this.dateFormat = dateFormat;
+            this.recurringCalendarEvents = recurringCalendarEvents;
+            saveSettingsFile(context);
+        }
+        notifyListeners();
     }
 
     /**
      * Resets all the settings to their default values, then overwrites the settings
-     * file to save the changes.
+     * file to save the changes and tells any listeners about them.
      * @param context the current application context
      * @throws IOException thrown if there's an error writing to the file
      */
     public void resetToDefaults(Context context) throws IOException {
-        setDefaults(context);
-        saveSettingsFile(context);
+        synchronized (this) {
+            setDefaults(context);
+            saveSettingsFile(context);
+        }
+        notifyListeners();
     }
 
     /**
      * Deletes all subscription data from the application. To do this, this method simply
-     * deletes the file containing all subscription data.
+     * deletes the files containing all subscription data and any unsaved changes to it, along
+     * with the notification index kept next to them, then cancels the notification alarm
+     * since nothing is left to notify about.
      * @param context the current application context
      * @return true if the delete was successful, false if something went wrong
      */
     public boolean deleteSubscriptionData(Context context) {
+        // The index goes first, so its notifications can't outlive the data they came from
+        if (!NotificationIndex.delete(context.getFilesDir())
+                || !SubscriptionJournal.deleteJournal(context.getFilesDir())) {
+            return false;
+        }
         File file = new File(context.getFilesDir(), SharedViewModel.SUBSCRIPTIONS_FILENAME);
-        if (file.exists()) {
-            return file.delete();
+        if (file.exists() && !file.delete()) {
+            return false;
         }
+        ReminderScheduler.rearm(context, new int[0]);
         return true;
     }
 
     /**
      * Checks that synced calendar data exists on the user's system calendar, and if it does,
-     * deletes the calendar.
+     * deletes the calendar. The record of what the last sync added is deleted too.
      * @param context the current application context
      */
     public void deleteSyncedCalendar(Context context) {
@@ -135,6 +192,7 @@ public class SettingsManager {
                     .appendQueryParameter(CalendarContract.Calendars.ACCOUNT_TYPE, CalendarSyncRunnable.CALENDAR_ACCOUNT_TYPE).build();
             context.getContentResolver().delete(uri, null, null);
         }
+        CalendarSyncLedger.delete(context.getFilesDir());
     }
 
     /**
@@ -165,10 +223,49 @@ public class SettingsManager {
         }
     }
 
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // STATIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Get the settings manager shared by the whole app. The settings are read from the file
+     * the first time this is called, and kept in memory after that.
+     * @param context the current application context
+     * @return the shared settings manager
+     * @throws IOException thrown if there is an error reading the file the first time
+     */
+    public static synchronized SettingsManager getInstance(Context context) throws IOException {
+        if (instance == null) {
+            instance = new SettingsManager(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Forget the shared settings manager, so the next call to getInstance reads the file
+     * again. This is primarily used for testing.
+     */
+    static synchronized void clearInstance() {
+        instance = null;
+    }
+
     //////////////////////////////////////////////////////////////////////////////////////////
     // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Tell every listener that the settings have changed.
+     */
+    private void notifyListeners() {
+        List<OnSettingsChangedListener> listenersCopy;
+        synchronized (this) {
+            listenersCopy = new ArrayList<>(listeners);
+        }
+        for (OnSettingsChangedListener listener : listenersCopy) {
+            listener.onSettingsChanged(this);
+        }
+    }
+
     /**
      * Reset the settings to their default values. This does not save over the file.
      * @param context the current application context
@@ -183,6 +280,7 @@ public class SettingsManager {
         notificationTime = calendar.getTime();
         currencySymbol = context.getString(R.string.currency_default);
         dateFormat = context.getString(R.string.date_format_default);
+        recurringCalendarEvents = false;
     }
 
     /**
@@ -213,38 +311,44 @@ public class SettingsManager {
         currencySymbol = gson.fromJson(line, String.class);
         line = reader.readLine();
         dateFormat = gson.fromJson(line, String.class);
+        // Files saved before this setting existed end here, so it keeps its default
+        line = reader.readLine();
+        if (line != null) {
+            recurringCalendarEvents = gson.fromJson(line, Boolean.class);
+        }
         reader.close();
     }
 
     /**
-     * Save the settings to the file. This will delete the file and recreate it if it
-     * already exists, then write the settings to it.
+     * Save the settings to the file. The settings are written to a temporary file that then
+     * replaces the old one, so a crash while saving never loses the saved settings.
      * @param context the current application context
      * @throws IOException thrown if there's an error writing the file
      */
     private void saveSettingsFile(Context context) throws IOException {
-        // Refresh the file so we write to it from scratch
+        // Write to a temporary file first, so the old settings are kept until this is done
         Gson gson = new Gson();
         File file = new File(context.getFilesDir(), filename);
-        if (file.exists()) {
-            if (!file.delete()) {
-                throw new IOException();
+        FileOutputStream fos = AtomicFileWrite.startWrite(file);
+        boolean written = false;
+        try {
+            // Convert each field to json, then add it to the file line by line
+            String line = gson.toJson(notificationsOn) + "\n";
+            fos.write(line.getBytes());
+            line = gson.toJson(notificationTime) + "\n";
+            fos.write(line.getBytes());
+            line = gson.toJson(currencySymbol) + "\n";
+            fos.write(line.getBytes());
+            line = gson.toJson(dateFormat) + "\n";
+            fos.write(line.getBytes());
+            line = gson.toJson(recurringCalendarEvents) + "\n";
+            fos.write(line.getBytes());
+            written = true;
+        } finally {
+            if (!written) {
+                AtomicFileWrite.abortWrite(file, fos);
             }
         }
-        if (!file.createNewFile()) {
-            throw new IOException();
-        }
-
-        // Convert each field to json, then add it to the file line by line
-        FileOutputStream fos = context.openFileOutput(filename, Context.MODE_PRIVATE);
-        String line = gson.toJson(notificationsOn) + "\n";
-        fos.write(line.getBytes());
-        line = gson.toJson(notificationTime) + "\n";
-        fos.write(line.getBytes());
-        line = gson.toJson(currencySymbol) + "\n";
-        fos.write(line.getBytes());
-        line = gson.toJson(dateFormat) + "\n";
-        fos.write(line.getBytes());
-        fos.close();
+        AtomicFileWrite.finishWrite(file, fos);
     }
 }
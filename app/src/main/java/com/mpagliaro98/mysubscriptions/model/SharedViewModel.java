@@ -10,10 +10,10 @@ import com.mpagliaro98.mysubscriptions.R;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -25,21 +25,110 @@ import java.util.List;
  */
 public class SharedViewModel extends ViewModel {
 
+    // The orders the list of subscriptions can be sorted in
+    public static final int SORT_BY_ID = 0;
+    public static final int SORT_BY_NAME = 1;
+    public static final int SORT_BY_COST = 2;
+    public static final int SORT_BY_NEXT_PAYMENT = 3;
+    public static final int SORT_BY_CATEGORY = 4;
+
+    // Sorts by name
+    private static final Comparator<Subscription> NAME_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            return o1.getName().compareToIgnoreCase(o2.getName());
+        }
+    };
+
+    // Sorts by cost, if cost is equal then sorts by name
+    private static final Comparator<Subscription> COST_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            if (o1.getCost() == o2.getCost()) {
+                return o1.getName().compareToIgnoreCase(o2.getName());
+            } else {
+                return o1.getCost() < o2.getCost() ? -1 : 1;
+            }
+        }
+    };
+
+    // Sorts by next payment date, if equal then sorts by name
+    private static final Comparator<Subscription> NEXT_PAYMENT_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            if (o1.getNextPaymentDay() == o2.getNextPaymentDay()) {
+                return o1.getName().compareToIgnoreCase(o2.getName());
+            } else {
+                return o1.getNextPaymentDay() < o2.getNextPaymentDay() ? -1 : 1;
+            }
+        }
+    };
+
+    // Sorts by category name, then subscription name
+    private static final Comparator<Subscription> CATEGORY_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            if (o1.getCategory().getName().equals(o2.getCategory().getName())) {
+                return o1.getName().compareToIgnoreCase(o2.getName());
+            } else {
+                return o1.getCategory().getName().compareToIgnoreCase(o2.getCategory().getName());
+            }
+        }
+    };
+
+    // The order for each SORT_BY_... code, sorting by ID uses the full list so has none
+    private static final List<Comparator<Subscription>> SORT_ORDERS = Arrays.asList(
+            null, NAME_ORDER, COST_ORDER, NEXT_PAYMENT_ORDER, CATEGORY_ORDER);
+
     // An underlying hierarchy of lists is kept to handle the subscription list
-    // The full list has all subscriptions in it, always ordered by ID
-    private ArrayList<Subscription> fullSubscriptionList = new ArrayList<>();
-    // Re-orderable list always has all the elements the full list has, but can be re-ordered
+    // The full list has all subscriptions in it, always ordered by ID, and finds any by its ID
+    private IdOrderedSubscriptionList fullSubscriptionList = new IdOrderedSubscriptionList();
+    // Re-orderable list always has all the elements the full list has, in the current sort order
     // The viewable list takes what re-orderable list has and filters it before displaying
-    private ArrayList<Subscription> reorderableFullSubscriptionList = fullSubscriptionList;
+    private List<Subscription> reorderableFullSubscriptionList = fullSubscriptionList;
     // The viewable list is the top level list, its contents are shown in the UI
-    private ArrayList<Subscription> viewableSubscriptionList = fullSubscriptionList;
+    private List<Subscription> viewableSubscriptionList = fullSubscriptionList;
+    // For each sort order other than by ID, the subscriptions kept sorted in that order as the
+    // list changes, or null if that order hasn't been used since the list was loaded
+    private SortedSubscriptionList[] sortedLists = new SortedSubscriptionList[SORT_ORDERS.size()];
     // The filename the data is kept in
     static final String SUBSCRIPTIONS_FILENAME = "subscriptions.dat";
+    // The first line of a json data file marks which journal records it already includes
+    private static final String LEGACY_HEADER_PREFIX = "#journal:";
+    // Held while reading or writing the data or journal files, which may happen on a background thread
+    static final Object FILE_LOCK = new Object();
+    // Every change made to the list since the last full save
+    private SubscriptionJournal journal = new SubscriptionJournal();
+    // Finds which subscriptions are due on a given day without checking every one
+    private PaymentIndex paymentIndex = new PaymentIndex();
+    // Finds which subscriptions have names containing the search text, in re-orderable order
+    private SubscriptionSearch search = new SubscriptionSearch();
+    // True if the loaded file was written in the older json format and should be saved again
+    private boolean formatUpgradeNeeded = false;
+    // True if the list has changed since it was last loaded or saved
+    private boolean dirty = false;
+    // Analytics kept up to date as the list changes, created the first time they're needed
+    private AnalyticsManager analyticsManager = null;
+    // Loads and saves this model's data off the main thread, created the first time it's needed
+    private SubscriptionRepository repository = null;
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Get the repository that loads and saves this model's data on a background thread.
+     * The fragments should go through this rather than the file methods on the model, so
+     * reading and writing the files never holds up the UI.
+     * @return the repository for this model
+     */
+    public SubscriptionRepository getRepository() {
+        if (repository == null) {
+            repository = new SubscriptionRepository(this);
+        }
+        return repository;
+    }
+
     /**
      * Get a subscription object from the list. This will fetch from the list of
      * subscriptions currently viewable (if the list is filtered by search or sort).
@@ -50,41 +139,105 @@ public class SharedViewModel extends ViewModel {
         return viewableSubscriptionList.get(index);
     }
 
+    /**
+     * Get the subscriptions currently viewable on the page, in the order they're shown.
+     * @return a read-only list of the viewable subscriptions
+     */
+    public List<Subscription> getVisibleSubscriptionList() {
+        return Collections.unmodifiableList(viewableSubscriptionList);
+    }
+
     /**
      * Get the entire subscription list regardless of sorting or filtering.
-     * @return a list of every subscription in ID order
+     * @return a read-only list of every subscription in ID order
      */
     public List<Subscription> getFullSubscriptionList() {
         return fullSubscriptionList;
     }
 
+    /**
+     * Get the subscription with the given ID. A subscription keeps the same ID for as long
+     * as it exists, and IDs are never reused.
+     * @param id the ID of the subscription to get
+     * @return the subscription, or null if there is no subscription with that ID
+     */
+    public Subscription getSubscriptionById(int id) {
+        return fullSubscriptionList.getById(id);
+    }
+
     /**
      * Add a subscription to the end of the list.
      * @param subscription a subscription object to add to the list
      */
     public void addSubscription(Subscription subscription) {
-        // For each new sub, set its ID to the next available ID.
-        subscription.setId(fullSubscriptionList.size());
-        fullSubscriptionList.add(subscription);
+        // For each new sub, set its ID to the next ID that has never been used
+        int id = fullSubscriptionList.insert(subscription);
+        paymentIndex.add(subscription);
+        search.add(subscription);
+        for (SortedSubscriptionList sortedList : sortedLists) {
+            if (sortedList != null) {
+                sortedList.insert(subscription);
+            }
+        }
+        // A sorted view can put the new subscription anywhere, not at the end
+        if (reorderableFullSubscriptionList != fullSubscriptionList) {
+            search.reorder();
+        }
+        if (analyticsManager != null) {
+            analyticsManager.subscriptionAdded(subscription);
+        }
+        journal.recordAdd(id, subscription);
+        dirty = true;
     }
 
     /**
-     * Update a subscription at a given index by replacing it with a new instance.
+     * Update a subscription by replacing it with a new instance, which takes its ID.
      * @param subscription the new subscription to put in the list
-     * @param index the index of the subscription to replace
+     * @param id the ID of the subscription to replace
+     * @throws IllegalArgumentException thrown if there is no subscription with that ID
      */
-    public void updateSubscription(Subscription subscription, int index) {
-        subscription.setId(index);
-        fullSubscriptionList.set(index, subscription);
+    public void updateSubscription(Subscription subscription, int id) {
+        Subscription oldSubscription = fullSubscriptionList.replace(id, subscription);
+        paymentIndex.remove(oldSubscription);
+        paymentIndex.add(subscription);
+        search.replace(oldSubscription, subscription);
+        for (SortedSubscriptionList sortedList : sortedLists) {
+            if (sortedList != null) {
+                sortedList.delete(oldSubscription);
+                sortedList.insert(subscription);
+            }
+        }
+        // A sorted view can move the new subscription away from the old one's place
+        if (reorderableFullSubscriptionList != fullSubscriptionList) {
+            search.reorder();
+        }
+        if (analyticsManager != null) {
+            analyticsManager.subscriptionRemoved(oldSubscription);
+            analyticsManager.subscriptionAdded(subscription);
+        }
+        journal.recordUpdate(id, subscription);
+        dirty = true;
     }
 
     /**
-     * Remove a subscription from the list at a given index.
-     * @param index the index of the subscription to remove
+     * Remove a subscription from the list. The IDs of the other subscriptions don't change.
+     * @param id the ID of the subscription to remove
+     * @throws IllegalArgumentException thrown if there is no subscription with that ID
      */
-    public void deleteSubscription(int index) {
-        fullSubscriptionList.remove(index);
-        updateAllSubIds();
+    public void deleteSubscription(int id) {
+        Subscription oldSubscription = fullSubscriptionList.delete(id);
+        paymentIndex.remove(oldSubscription);
+        search.remove(oldSubscription);
+        for (SortedSubscriptionList sortedList : sortedLists) {
+            if (sortedList != null) {
+                sortedList.delete(oldSubscription);
+            }
+        }
+        if (analyticsManager != null) {
+            analyticsManager.subscriptionRemoved(oldSubscription);
+        }
+        journal.recordDelete(id);
+        dirty = true;
     }
 
     /**
@@ -106,29 +259,32 @@ public class SharedViewModel extends ViewModel {
     /**
      * Filter the viewable list of subscriptions based on some string input. The given
      * string will filter the list to include only subscriptions that contain that
-     * string in their name.
+     * string in their name. When the text only adds to the last search, such as when
+     * another letter is typed, only the subscriptions that matched last time are checked.
      * @param searchText What text should be included in each subscription's name
      */
     public void filterList(CharSequence searchText) {
-        String search = searchText.toString();
-        ArrayList<Subscription> filteredList = new ArrayList<>();
-        for (Subscription sub : reorderableFullSubscriptionList) {
-            if (sub.getName().toLowerCase().contains(search.toLowerCase())) {
-                filteredList.add(sub);
-            }
-        }
-        viewableSubscriptionList = filteredList;
+        viewableSubscriptionList = search.search(searchText, reorderableFullSubscriptionList);
     }
 
     /**
      * Sort the underlying re-orderable list. This also requires the search text to be passed
-     * in so we can update the viewable list with any search conditions as well.
-     * @param comparator A comparator function that takes two subscriptions and returns -1 if
-     *                   sub1 < sub2, 1 if sub1 > sub2, or 0 if they are equal
+     * in so we can update the viewable list with any search conditions as well. Each order
+     * is sorted in full the first time it's used, then kept sorted as subscriptions change,
+     * so switching back to it later doesn't sort anything.
+     * @param sortOrder the order to sort in, one of the SORT_BY_... codes
      * @param searchText The next in the search box
      */
-    public void sortList(Comparator<Subscription> comparator, CharSequence searchText) {
-        Collections.sort(reorderableFullSubscriptionList, comparator);
+    public void sortList(int sortOrder, CharSequence searchText) {
+        if (sortOrder == SORT_BY_ID) {
+            reorderableFullSubscriptionList = fullSubscriptionList;
+        } else {
+            if (sortedLists[sortOrder] == null) {
+                sortedLists[sortOrder] = new SortedSubscriptionList(SORT_ORDERS.get(sortOrder), fullSubscriptionList);
+            }
+            reorderableFullSubscriptionList = sortedLists[sortOrder];
+        }
+        search.reorder();
         filterList(searchText);
     }
 
@@ -140,18 +296,47 @@ public class SharedViewModel extends ViewModel {
      * @return a list of subscription objects due on the given date
      */
     public List<Subscription> getSubsDueOnDate(Date date) {
-        List<Subscription> subsDueList = new ArrayList<>();
-        for (Subscription sub : fullSubscriptionList) {
-            if (sub.getNextPaymentList() != null) {
-                for (Date paymentDate : sub.getNextPaymentList()) {
-                    if (paymentDate.equals(date)) {
-                        subsDueList.add(sub);
-                        break;
-                    }
-                }
-            }
+        int epochDay = CivilDate.toEpochDay(date);
+        int monthIndex = CivilDate.epochDayToMonthIndex(epochDay);
+        return paymentIndex.subsDueOnDay(CivilDate.yearOf(monthIndex), CivilDate.monthOf(monthIndex),
+                CivilDate.epochDayToDayOfMonth(epochDay));
+    }
+
+    /**
+     * Count the subscriptions with a payment due on the given day. Like getSubsDueOnDate,
+     * this checks any number of payment dates in the future.
+     * @param year the year of the day to check
+     * @param month the month of the day to check, from 0 to 11
+     * @param dayOfMonth the day of the month to check
+     * @return the number of subscriptions due on that day
+     */
+    public int numPaymentsOnDay(int year, int month, int dayOfMonth) {
+        return paymentIndex.numDueOnDay(year, month, dayOfMonth);
+    }
+
+    /**
+     * Get the analytics for every subscription in the model. They are calculated in full the
+     * first time this is called, then kept up to date as subscriptions are added, updated,
+     * and deleted. A new ZeroTimeCalendar instance is created and used for this method.
+     * @return the analytics manager for this model
+     */
+    public AnalyticsManager getAnalyticsManager() {
+        return getAnalyticsManager(new ZeroTimeCalendar());
+    }
+
+    /**
+     * Get the analytics for every subscription in the model, calculating them in full if
+     * they haven't been yet or were calculated on a different day.
+     * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
+     * @return the analytics manager for this model
+     */
+    AnalyticsManager getAnalyticsManager(ZeroTimeCalendar zeroTimeCalendar) {
+        if (analyticsManager == null) {
+            analyticsManager = new AnalyticsManager(this, zeroTimeCalendar.copyCalendar());
+        } else if (!analyticsManager.isCalculatedFor(zeroTimeCalendar.getEpochDay())) {
+            analyticsManager.regenerateAnalytics(zeroTimeCalendar);
         }
-        return subsDueList;
+        return analyticsManager;
     }
 
     /**
@@ -166,23 +351,41 @@ public class SharedViewModel extends ViewModel {
 
     /**
      * Iterate through every subscription in the model and regenerate the relevant date info
-     * for those whose next payment dates have passed.
+     * for those whose next payment dates have passed. The dates are changed in place and
+     * aren't recorded in the journal, since they can always be worked out again, so if any
+     * changed the model is only marked as needing a full save.
      * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
      * @return the number of subscriptions updated
      */
     int updateSubscriptionDates(ZeroTimeCalendar zeroTimeCalendar) {
-        // Get today's date at 0:00:00 (so it matches with dates in subscriptions)
-        Date today = zeroTimeCalendar.getCurrentDate();
+        // Get today as an epoch day, so it can be compared with dates in subscriptions
+        int today = zeroTimeCalendar.getEpochDay();
 
-        // Iterate through every subscription and update ones whose payment dates have passed
+        // Iterate through every subscription and update ones whose payment dates have passed.
+        // Only the list sorted by next payment depends on the dates, the payment index and
+        // search don't need to change
+        SortedSubscriptionList byNextPayment = sortedLists[SORT_BY_NEXT_PAYMENT];
         int numUpdated = 0;
         for (Subscription sub : fullSubscriptionList) {
-            if (today.after(sub.getNextPaymentDate())) {
-                sub.regenerateSubInfo(zeroTimeCalendar);
-                updateSubscription(sub, sub.getId());
+            if (today > sub.getNextPaymentDay() && sub.regenerateSubInfo(zeroTimeCalendar)) {
+                if (byNextPayment != null) {
+                    byNextPayment.delete(sub);
+                    byNextPayment.insert(sub);
+                }
                 numUpdated++;
             }
         }
+        if (numUpdated > 0) {
+            dirty = true;
+            if (reorderableFullSubscriptionList == byNextPayment) {
+                search.reorder();
+            }
+        }
+
+        // A new day can move every total, so the analytics are calculated again in full
+        if (analyticsManager != null && (numUpdated > 0 || !analyticsManager.isCalculatedFor(today))) {
+            analyticsManager.regenerateAnalytics(zeroTimeCalendar);
+        }
 
         // Return how many subscriptions were updated
         return numUpdated;
@@ -194,66 +397,99 @@ public class SharedViewModel extends ViewModel {
      * @throws IOException thrown if something goes wrong in reading the file
      */
     public void loadFromFile(Context context) throws IOException {
-        // Don't do anything if the internal file doesn't exist
+        // Replace the subscriptions with the ones in the file, upgrading older json files. If
+        // nothing has been saved in full yet, every change is still in the journal
         File file = new File(context.getFilesDir(), SUBSCRIPTIONS_FILENAME);
+        long snapshotSequence;
         if (!file.exists()) {
-            return;
+            snapshotSequence = 0;
+            fullSubscriptionList = new IdOrderedSubscriptionList();
+            formatUpgradeNeeded = false;
+        } else if (SubscriptionSnapshot.isSnapshotFile(file)) {
+            SubscriptionSnapshot snapshot = SubscriptionSnapshot.read(file);
+            snapshotSequence = snapshot.getJournalSequence();
+            fullSubscriptionList = new IdOrderedSubscriptionList(snapshot.getSubscriptions(),
+                    snapshot.getNextId());
+            formatUpgradeNeeded = false;
+        } else {
+            List<Subscription> subscriptions = new ArrayList<>();
+            snapshotSequence = readLegacySnapshot(context, subscriptions);
+            fullSubscriptionList = new IdOrderedSubscriptionList(subscriptions, subscriptions.size());
+            formatUpgradeNeeded = true;
         }
 
-        // Clear the subscriptions so we can populate the list, then make the reader
-        fullSubscriptionList.clear();
-        Gson gson = new Gson();
-        FileInputStream fis = context.openFileInput(SUBSCRIPTIONS_FILENAME);
-        InputStreamReader inputStreamReader = new InputStreamReader(fis);
-        BufferedReader reader = new BufferedReader(inputStreamReader);
-
-        // Read each line, convert it to a subscription object from json, then put it in the list
-        String line = reader.readLine();
-        int id = 0;
-        while (line != null) {
-            Subscription subscription = gson.fromJson(line, Subscription.class);
-            subscription.setId(id);
-            fullSubscriptionList.add(subscription);
-            line = reader.readLine();
-            id++;
-        }
-        reader.close();
+        // Apply any changes made since this file was written
+        journal.replay(context.getFilesDir(), snapshotSequence, fullSubscriptionList);
+        paymentIndex.rebuild(fullSubscriptionList);
+        search.rebuild(fullSubscriptionList);
+        sortedLists = new SortedSubscriptionList[SORT_ORDERS.size()];
+        analyticsManager = null;
         viewableSubscriptionList = fullSubscriptionList;
         reorderableFullSubscriptionList = fullSubscriptionList;
+        dirty = false;
     }
 
     /**
-     * Save every subscription currently in the list to a file in internal storage.
+     * Save every subscription currently in the list to a file in internal storage. Since
+     * this writes every subscription, any changes in the journal are no longer needed after
+     * this and the journal is cleared. Nothing is written if the list hasn't changed since it
+     * was last loaded or saved, unless the file needs to be upgraded to the current format.
      * @param context the current context of the application
      * @throws IOException thrown if something goes wrong writing to the file, or if not enough
      *                     memory is available to write the file
      */
     public void saveToFile(Context context) throws IOException {
-        // Estimate how much storage we will need, throw an error if there's not enough
-        if (getAvailableMemory() <= estimateNeededStorage()) {
-            throw new IOException(context.getResources().getString(R.string.no_memory_exception));
-        }
-
-        // Refresh the file so we write to it from scratch
-        Gson gson = new Gson();
-        File file = new File(context.getFilesDir(), SUBSCRIPTIONS_FILENAME);
-        if (file.exists()) {
-            if (!file.delete()) {
-                throw new IOException();
+        if (!dirty && !formatUpgradeNeeded) {
+            // Data saved before the notification index existed won't have one yet
+            if (!NotificationIndex.exists(context.getFilesDir())) {
+                writeNotificationIndex(context, new NotificationIndex(fullSubscriptionList));
             }
+            return;
         }
-        if (!file.createNewFile()) {
-            throw new IOException();
-        }
+        checkAvailableStorage(context, fullSubscriptionList.size());
 
-        // Convert each subscription to json, then add it to the file line by line
-        FileOutputStream fos = context.openFileOutput(SUBSCRIPTIONS_FILENAME, Context.MODE_PRIVATE);
-        for (int i = 0; i < fullSubscriptionList.size(); i++) {
-            Subscription subscription = fullSubscriptionList.get(i);
-            String line = gson.toJson(subscription) + "\n";
-            fos.write(line.getBytes());
+        long snapshotSequence = journal.getLastSequence();
+        journal.discardPending();
+        writeSnapshot(context, fullSubscriptionList, snapshotSequence, fullSubscriptionList.getNextId());
+        journal.truncate(context.getFilesDir(), snapshotSequence);
+        formatUpgradeNeeded = false;
+        dirty = false;
+    }
+
+    /**
+     * Check whether the list has changed since it was last loaded or saved.
+     * @return true if there are changes that haven't been saved, false otherwise
+     */
+    public boolean hasUnsavedChanges() {
+        return dirty;
+    }
+
+    /**
+     * Check whether the last file loaded was saved by an older version of the app, which
+     * stored each subscription as a line of json. Saving the full list again will write it
+     * in the smaller binary format and make every later load faster.
+     * @return true if the data should be saved in the current format, false otherwise
+     */
+    public boolean needsFormatUpgrade() {
+        return formatUpgradeNeeded;
+    }
+
+    /**
+     * Save only the changes made since the last save by appending them to the journal, which
+     * is much cheaper than saving every subscription. If the journal has grown large enough,
+     * a full save of the current list is started on a background thread to compact it.
+     * @param context the current context of the application
+     * @throws IOException thrown if something goes wrong writing to the journal, or if not
+     *                     enough memory is available to write it
+     */
+    public void saveChangesToFile(Context context) throws IOException {
+        checkAvailableStorage(context, journal.numPendingRecords());
+
+        journal.flush(context.getFilesDir());
+        dirty = false;
+        if (journal.needsCompaction()) {
+            compactInBackground(context.getApplicationContext());
         }
-        fos.close();
     }
 
     /**
@@ -263,10 +499,175 @@ public class SharedViewModel extends ViewModel {
      * @throws IOException thrown if something goes wrong accessing the save file
      */
     public void deleteData(Context context) throws IOException {
-        fullSubscriptionList = new ArrayList<>();
+        clearSubscriptions();
+        saveToFile(context);
+    }
+
+    /**
+     * Get the ID the next subscription added will be given. This is saved with the list so
+     * IDs are never reused, even for subscriptions that were deleted.
+     * @return the next ID
+     */
+    int getNextSubscriptionId() {
+        return fullSubscriptionList.getNextId();
+    }
+
+    /**
+     * Take a copy of every subscription in ID order, which can be read on another thread
+     * while this model keeps changing on the main thread.
+     * @return a read-only list of copies of the subscriptions
+     */
+    List<Subscription> snapshotSubscriptions() {
+        List<Subscription> snapshot = new ArrayList<>(fullSubscriptionList.size());
+        for (Subscription sub : fullSubscriptionList) {
+            snapshot.add(sub.copy());
+        }
+        return Collections.unmodifiableList(snapshot);
+    }
+
+    /**
+     * Get the journal of changes made to this model since its last full save.
+     * @return the journal for this model
+     */
+    SubscriptionJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Replace everything in this model with the data another model loaded. This lets the
+     * files be read into a separate model on a background thread, then swapped in on the
+     * main thread all at once.
+     * @param loadedModel the model the data was loaded into, which shouldn't be used after this
+     */
+    void adoptLoadedData(SharedViewModel loadedModel) {
+        fullSubscriptionList = loadedModel.fullSubscriptionList;
         reorderableFullSubscriptionList = fullSubscriptionList;
         viewableSubscriptionList = fullSubscriptionList;
-        saveToFile(context);
+        journal = loadedModel.journal;
+        paymentIndex = loadedModel.paymentIndex;
+        search = loadedModel.search;
+        sortedLists = loadedModel.sortedLists;
+        formatUpgradeNeeded = loadedModel.formatUpgradeNeeded;
+        dirty = loadedModel.dirty;
+        analyticsManager = null;
+    }
+
+    /**
+     * Mark every change made so far as saved. This should be called once the changes have
+     * been handed off to be written to the files.
+     */
+    void markChangesSaved() {
+        dirty = false;
+    }
+
+    /**
+     * Remove every subscription from this model without saving anything. IDs keep counting
+     * up from where they were, so none are reused.
+     */
+    void clearSubscriptions() {
+        fullSubscriptionList = new IdOrderedSubscriptionList(new ArrayList<Subscription>(),
+                fullSubscriptionList.getNextId());
+        paymentIndex.rebuild(fullSubscriptionList);
+        search.rebuild(fullSubscriptionList);
+        sortedLists = new SortedSubscriptionList[SORT_ORDERS.size()];
+        analyticsManager = null;
+        reorderableFullSubscriptionList = fullSubscriptionList;
+        viewableSubscriptionList = fullSubscriptionList;
+        dirty = true;
+    }
+
+    /**
+     * Make sure there's enough free storage to write the given number of subscriptions or
+     * journal records.
+     * @param context the current context of the application
+     * @param numSubscriptions the number of subscriptions or records that will be written
+     * @throws IOException thrown if there isn't enough memory available
+     */
+    void checkAvailableStorage(Context context, int numSubscriptions) throws IOException {
+        // Estimate how much storage we will need, throw an error if there's not enough
+        if (getAvailableMemory() <= estimateNeededStorage(numSubscriptions)) {
+            throw new IOException(context.getResources().getString(R.string.no_memory_exception));
+        }
+    }
+
+    /**
+     * Read the subscriptions whose notifications are due on a day from the notification index
+     * saved with the data, without loading every subscription. The index can't be used once
+     * any subscription's next payment date has passed, since its dates have to be worked out
+     * again, and then loadFromFile has to be used instead.
+     * @param context the current context of the application
+     * @param epochDay the day, as the number of days since January 1st 1970
+     * @return the subscriptions with a notification due that day, or null if the index is
+     *         missing, damaged, or out of date
+     */
+    public static List<Subscription> loadNotificationsDue(Context context, int epochDay) {
+        return NotificationIndex.readDay(context.getFilesDir(), epochDay);
+    }
+
+    /**
+     * Write a full copy of the given list to the data file, marked with the sequence number
+     * of the last journal record it includes, along with the notification index of the list.
+     * This will delete the file and recreate it if it already exists.
+     * @param context the current context of the application
+     * @param subscriptions the subscriptions to write, in ID order
+     * @param snapshotSequence the sequence number of the last journal record in this list
+     * @param nextId the ID the next subscription added will be given
+     * @throws IOException thrown if something goes wrong writing to the file
+     */
+    static void writeSnapshot(Context context, List<Subscription> subscriptions,
+                              long snapshotSequence, int nextId) throws IOException {
+        synchronized (FILE_LOCK) {
+            SubscriptionSnapshot.write(new File(context.getFilesDir(), SUBSCRIPTIONS_FILENAME),
+                    subscriptions, snapshotSequence, nextId);
+        }
+        writeNotificationIndex(context, new NotificationIndex(subscriptions));
+    }
+
+    /**
+     * Write the notification index kept next to the data file, then set the notification
+     * alarm for the days it found. If it can't be written, the old one is deleted so it can't
+     * be read with the wrong subscriptions in it, and the notification alarm loads the data
+     * file instead until the next save.
+     * @param context the current context of the application
+     * @param index the index to write
+     */
+    static void writeNotificationIndex(Context context, NotificationIndex index) {
+        synchronized (FILE_LOCK) {
+            try {
+                index.write(context.getFilesDir());
+            } catch (IOException e) {
+                e.printStackTrace();
+                NotificationIndex.delete(context.getFilesDir());
+            }
+        }
+        ReminderScheduler.rearm(context, index.getReminderDays());
+    }
+
+    /**
+     * Write a full copy of the list as it is right now on the background I/O thread, then
+     * remove the journal records that copy includes. Each subscription is copied here on the
+     * main thread, so dates changed in place or edits made while it's being written can't
+     * end up in a snapshot stamped with an older journal sequence number. Those changes are
+     * still appended to the journal as normal and kept.
+     * @param context the application context
+     */
+    void compactInBackground(final Context context) {
+        final List<Subscription> snapshot = snapshotSubscriptions();
+        final long snapshotSequence = journal.getLastSequence();
+        final int nextId = fullSubscriptionList.getNextId();
+        final SubscriptionJournal journal = this.journal;
+        SubscriptionRepository.IO_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeSnapshot(context, snapshot, snapshotSequence, nextId);
+                    journal.truncate(context.getFilesDir(), snapshotSequence);
+                } catch (IOException e) {
+                    // The journal still has every change, so compaction can be tried again later
+                    e.printStackTrace();
+                }
+            }
+        });
     }
 
     //////////////////////////////////////////////////////////////////////////////////////////
@@ -274,15 +675,39 @@ public class SharedViewModel extends ViewModel {
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Re-distribute IDs for every subscription, sequentially from 0 in the order of
-     * the full subscription list. This should be done if a subscription is removed,
-     * leaving a gap in the subscription IDs.
+     * Read a data file written by an older version of the app into a list. These files have
+     * one json subscription per line, after an optional header line with the sequence number
+     * of the last journal record the file includes. Subscriptions are given IDs in the order
+     * of the lines, as the app did back then.
+     * @param context the current context of the application
+     * @param subscriptions the list to add the subscriptions to
+     * @return the journal sequence number in the header, or 0 if there is no header
+     * @throws IOException thrown if something goes wrong reading the file
      */
-    private void updateAllSubIds() {
-        for (int i = 0; i < numSubscriptionsTotal(); i++) {
-            Subscription sub = fullSubscriptionList.get(i);
-            sub.setId(i);
+    private long readLegacySnapshot(Context context, List<Subscription> subscriptions)
+            throws IOException {
+        Gson gson = new Gson();
+        FileInputStream fis = context.openFileInput(SUBSCRIPTIONS_FILENAME);
+        InputStreamReader inputStreamReader = new InputStreamReader(fis);
+        BufferedReader reader = new BufferedReader(inputStreamReader);
+
+        // Read each line, convert it to a subscription object from json, then put it in the list
+        String line = reader.readLine();
+        long snapshotSequence = 0;
+        if (line != null && line.startsWith(LEGACY_HEADER_PREFIX)) {
+            snapshotSequence = Long.parseLong(line.substring(LEGACY_HEADER_PREFIX.length()));
+            line = reader.readLine();
         }
+        int id = 0;
+        while (line != null) {
+            Subscription subscription = gson.fromJson(line, Subscription.class);
+            subscription.setId(id);
+            subscriptions.add(subscription);
+            line = reader.readLine();
+            id++;
+        }
+        reader.close();
+        return snapshotSequence;
     }
 
     /**
@@ -305,18 +730,19 @@ public class SharedViewModel extends ViewModel {
 
     /**
      * Estimates how much storage in bytes the system will need to be able to save
-     * the subscriptions file. This estimate uses 500 times the number of subscriptions,
+     * the given number of subscriptions. This estimate uses 500 times the number of subscriptions,
      * so if there are 8 subscriptions saved, it'll estimate 4000 bytes, or about 4 megabytes.
      * In practice, the actual space needed will be around half of that, but this is
      * made to be a large enough estimation to account for lots of extra data, like long
      * notes on each subscription. If there's no subscriptions, it defaults to 10 bytes.
+     * @param numSubscriptions the number of subscriptions that will be written
      * @return the estimate of how much space is needed in bytes
      */
-    private long estimateNeededStorage() {
-        if (fullSubscriptionList.size() == 0){
+    private long estimateNeededStorage(int numSubscriptions) {
+        if (numSubscriptions == 0){
             return 10;
         } else {
-            return fullSubscriptionList.size() * 500;
+            return numSubscriptions * 500;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,306 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A read-only list of subscriptions kept sorted in one order as subscriptions are inserted
+ * and deleted, so the home tab can switch between sort orders without sorting everything
+ * again each time.
+ *
+ * The subscriptions are kept in a randomized binary search tree where every node knows how
+ * many nodes are below it, so inserting, deleting, and getting a subscription by position
+ * all take O(log n) time on average, and iterating over the list takes O(n). Each node is
+ * also kept in a map by subscription, so a subscription can be deleted even if the fields it
+ * is sorted by were changed in place after it was inserted, as regenerating its payment
+ * dates does. Subscriptions the order says are equal are put in ID order.
+ */
+class SortedSubscriptionList extends AbstractList<Subscription> {
+
+    // Fixed so the shape of the tree is the same every run
+    private static final long SEED = 0x5EED;
+
+    /**
+     * A node in the tree, holding one subscription.
+     */
+    private static class Node {
+        // The subscription at this node
+        final Subscription subscription;
+        // The nodes before and after this one, and the node above it
+        Node left = null;
+        Node right = null;
+        Node parent = null;
+        // The number of nodes in the tree starting at this one, including itself
+        int size = 1;
+
+        /**
+         * Create a node for a subscription.
+         * @param subscription the subscription
+         */
+        Node(Subscription subscription) {
+            this.subscription = subscription;
+        }
+    }
+
+    // The order subscriptions are sorted in, with ties put in ID order
+    private final Comparator<Subscription> order;
+    // The node holding each subscription in the list
+    private final Map<Subscription, Node> nodes = new IdentityHashMap<>();
+    // Decides which tree becomes the top when two are merged, keeping the tree balanced
+    private final Random random = new Random(SEED);
+    // The top of the tree, or null if the list is empty
+    private Node root = null;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create a list sorted in a given order, holding the given subscriptions.
+     * @param order the order to keep subscriptions in
+     * @param subscriptions the subscriptions to start with
+     */
+    SortedSubscriptionList(final Comparator<Subscription> order, List<Subscription> subscriptions) {
+        this.order = new Comparator<Subscription>() {
+            @Override
+            public int compare(Subscription o1, Subscription o2) {
+                int result = order.compare(o1, o2);
+                if (result != 0) {
+                    return result;
+                }
+                return o1.getId() < o2.getId() ? -1 : (o1.getId() == o2.getId() ? 0 : 1);
+            }
+        };
+        Subscription[] sorted = subscriptions.toArray(new Subscription[subscriptions.size()]);
+        Arrays.sort(sorted, this.order);
+        root = build(sorted, 0, sorted.length);
+    }
+
+    /**
+     * Insert a subscription into the list at its place in the order.
+     * @param subscription the subscription to insert
+     */
+    void insert(Subscription subscription) {
+        Node node = new Node(subscription);
+        nodes.put(subscription, node);
+        Node[] halves = new Node[2];
+        split(root, subscription, halves);
+        root = merge(merge(halves[0], node), halves[1]);
+        root.parent = null;
+    }
+
+    /**
+     * Delete a subscription from the list. Nothing happens if it isn't in the list.
+     * @param subscription the subscription to delete
+     */
+    void delete(Subscription subscription) {
+        Node node = nodes.remove(subscription);
+        if (node == null) {
+            return;
+        }
+        Node parent = node.parent;
+        Node replacement = merge(node.left, node.right);
+        if (replacement != null) {
+            replacement.parent = parent;
+        }
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == node) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+        for (Node above = parent; above != null; above = above.parent) {
+            above.size--;
+        }
+    }
+
+    @Override
+    public Subscription get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.subscription;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return sizeOf(root);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return nodes.containsKey(o);
+    }
+
+    @Override
+    public Iterator<Subscription> iterator() {
+        return new Iterator<Subscription>() {
+            // The node whose subscription is given next
+            private Node next = leftmost(root);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Subscription next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Node node = next;
+                next = successor(node);
+                return node.subscription;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Build a balanced tree from part of a sorted array.
+     * @param sorted the sorted subscriptions
+     * @param from the first index to include
+     * @param to the index after the last one to include
+     * @return the top of the tree, or null if the range is empty
+     */
+    private Node build(Subscription[] sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node node = new Node(sorted[middle]);
+        nodes.put(sorted[middle], node);
+        node.left = build(sorted, from, middle);
+        node.right = build(sorted, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Split a tree into the nodes that come before a subscription and the ones that don't.
+     * @param node the top of the tree to split
+     * @param subscription the subscription to split at
+     * @param halves set to the tops of the two new trees, before then after
+     */
+    private void split(Node node, Subscription subscription, Node[] halves) {
+        if (node == null) {
+            halves[0] = null;
+            halves[1] = null;
+        } else if (order.compare(node.subscription, subscription) < 0) {
+            split(node.right, subscription, halves);
+            node.right = halves[0];
+            update(node);
+            halves[0] = node;
+        } else {
+            split(node.left, subscription, halves);
+            node.left = halves[1];
+            update(node);
+            halves[1] = node;
+        }
+    }
+
+    /**
+     * Merge two trees into one, where every node in the first comes before every node in the
+     * second. Which top stays on top is picked at random, weighted by the size of each tree.
+     * @param first the top of the first tree, may be null
+     * @param second the top of the second tree, may be null
+     * @return the top of the merged tree
+     */
+    private Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (random.nextInt(first.size + second.size) < first.size) {
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            update(second);
+            return second;
+        }
+    }
+
+    /**
+     * Recalculate a node's size and point its children back at it after they've changed.
+     * @param node the node to update
+     */
+    private static void update(Node node) {
+        node.size = 1 + sizeOf(node.left) + sizeOf(node.right);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+    }
+
+    /**
+     * Get the size of a tree.
+     * @param node the top of the tree, may be null
+     * @return the number of nodes in it
+     */
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Get the first node of a tree in sorted order.
+     * @param node the top of the tree, may be null
+     * @return the first node, or null if the tree is empty
+     */
+    private static Node leftmost(Node node) {
+        if (node == null) {
+            return null;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    /**
+     * Get the node after a given one in sorted order.
+     * @param node the node
+     * @return the node after it, or null if it's the last
+     */
+    private static Node successor(Node node) {
+        if (node.right != null) {
+            return leftmost(node.right);
+        }
+        while (node.parent != null && node.parent.right == node) {
+            node = node.parent;
+        }
+        return node.parent;
+    }
+}
@@ -1,33 +1,57 @@
 package com.mpagliaro98.mysubscriptions.model;
 
 import android.content.Context;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.mpagliaro98.mysubscriptions.R;
 import java.io.IOException;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 
 /**
- * Subscription value object to store data on an individual subscription.
+ * Subscription value object to store data on an individual subscription. Dates are kept as
+ * epoch days (see CivilDate), and only turned into Date objects by the getters the screens
+ * use to show them.
  */
+@JsonAdapter(Subscription.JsonFormat.class)
 public class Subscription implements Serializable {
 
     // The number of years ahead next payment dates will be generated for
     private static final int MAX_YEARS_AHEAD = 5;
+    // The epoch day stored when there is no date, such as when notifications are off
+    static final int NO_DATE = Integer.MIN_VALUE;
 
     private int id;
     private String name;
     private double cost;
-    private Date startDate;
+    private int startDay;
     private String note;
     private int rechargeFrequency;
-    private Date nextPaymentDate;
-    private ArrayList<Date> nextPaymentList;
+    private int nextPaymentDay;
+    // The payment schedule, derived from the dates above so it isn't saved. Payment number k
+    // falls in month startMonthIndex + k * rechargeFrequency, and the schedule runs from
+    // payment firstPeriod (the next payment) to lastPeriod (MAX_YEARS_AHEAD years later)
+    private transient boolean scheduleReady;
+    private transient int startMonthIndex;
+    private transient int anchorDay;
+    private transient int firstPeriod;
+    private transient int lastPeriod;
     private Category category;
     private int notifDays;
-    private Date nextNotifDate;
+    private int nextNotifDay;
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
@@ -49,11 +73,10 @@ public class Subscription implements Serializable {
         this.id = id;
         this.name = name;
         this.cost = cost;
-        this.startDate = startDate;
+        this.startDay = CivilDate.toEpochDay(startDate);
         this.note = note;
         this.rechargeFrequency = rechargeFrequency;
-        this.nextPaymentDate = startDate;
-        this.nextPaymentList = new ArrayList<>();
+        this.nextPaymentDay = startDay;
         this.category = category;
         this.notifDays = notifDays;
         regenerateSubInfo();
@@ -78,16 +101,45 @@ public class Subscription implements Serializable {
         this.id = id;
         this.name = name;
         this.cost = cost;
-        this.startDate = startDate;
+        this.startDay = CivilDate.toEpochDay(startDate);
         this.note = note;
         this.rechargeFrequency = rechargeFrequency;
-        this.nextPaymentDate = startDate;
-        this.nextPaymentList = new ArrayList<>();
+        this.nextPaymentDay = startDay;
         this.category = category;
         this.notifDays = notifDays;
         regenerateSubInfo(zeroTimeCalendar);
     }
 
+    /**
+     * Create a subscription from values that were saved earlier, including the dates that
+     * are normally generated, so nothing is calculated when loading saved data.
+     * @param id the unique id of this subscription
+     * @param name the name of the subscription
+     * @param cost how much it costs
+     * @param startDay the epoch day the subscription first started
+     * @param note any miscellaneous notes
+     * @param rechargeFrequency the frequency at which this subscription is paid for
+     * @param category the category this subscription falls into
+     * @param notifDays the number of days before the next payment date a notification will happen
+     * @param nextPaymentDay the saved epoch day of the next payment
+     * @param nextNotifDay the saved epoch day of the next notification, NO_DATE if
+     *                     notifications are off
+     */
+    Subscription(int id, String name, double cost, int startDay, String note,
+                 int rechargeFrequency, Category category, int notifDays,
+                 int nextPaymentDay, int nextNotifDay) {
+        this.id = id;
+        this.name = name;
+        this.cost = cost;
+        this.startDay = startDay;
+        this.note = note;
+        this.rechargeFrequency = rechargeFrequency;
+        this.nextPaymentDay = nextPaymentDay;
+        this.category = category;
+        this.notifDays = notifDays;
+        this.nextNotifDay = nextNotifDay;
+    }
+
     /**
      * Regenerate each subscription field that isn't directly specified on creation, or needs
      * to be updated after a certain amount of time passes.
@@ -101,10 +153,24 @@ public class Subscription implements Serializable {
      * Regenerate each subscription field that isn't directly specified on creation, or needs
      * to be updated after a certain amount of time passes.
      * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
+     * @return true if the next payment or notification date changed, false otherwise
      */
-    void regenerateSubInfo(ZeroTimeCalendar zeroTimeCalendar) {
+    boolean regenerateSubInfo(ZeroTimeCalendar zeroTimeCalendar) {
+        int oldPaymentDay = nextPaymentDay;
+        int oldNotifDay = nextNotifDay;
         generateNextPaymentDate(zeroTimeCalendar);
-        generateNextNotifDate(zeroTimeCalendar);
+        generateNextNotifDate();
+        return nextPaymentDay != oldPaymentDay || nextNotifDay != oldNotifDay;
+    }
+
+    /**
+     * Make a copy of this subscription with the same ID and dates, which later changes to
+     * this one won't affect.
+     * @return the copy
+     */
+    Subscription copy() {
+        return new Subscription(id, name, cost, startDay, note, rechargeFrequency, category,
+                notifDays, nextPaymentDay, nextNotifDay);
     }
 
     /**
@@ -149,7 +215,7 @@ public class Subscription implements Serializable {
     public String getCostString(Context context) {
         String currencySymbol;
         try {
-            SettingsManager settingsManager = new SettingsManager(context);
+            SettingsManager settingsManager = SettingsManager.getInstance(context);
             currencySymbol = settingsManager.getCurrencySymbol();
         } catch (IOException e) {
             currencySymbol = context.getResources().getString(R.string.currency_default);
@@ -160,10 +226,18 @@ public class Subscription implements Serializable {
 
     /**
      * Get the start date of the subscription.
-     * @return the start date as a Date object
+     * @return the start date as a new Date object
      */
     public Date getStartDate() {
-        return startDate;
+        return CivilDate.toDate(startDay);
+    }
+
+    /**
+     * Get the start date of the subscription as an epoch day.
+     * @return the number of days between January 1st 1970 and the start date
+     */
+    public int getStartDay() {
+        return startDay;
     }
 
     /**
@@ -173,10 +247,10 @@ public class Subscription implements Serializable {
      */
     public String getStartDateString(Context context) {
         try {
-            SettingsManager settingsManager = new SettingsManager(context);
-            return new SimpleDateFormat(settingsManager.getDateFormat(), Locale.US).format(startDate);
+            SettingsManager settingsManager = SettingsManager.getInstance(context);
+            return new SimpleDateFormat(settingsManager.getDateFormat(), Locale.US).format(getStartDate());
         } catch (IOException e) {
-            return new SimpleDateFormat(context.getResources().getString(R.string.date_format_default), Locale.US).format(startDate);
+            return new SimpleDateFormat(context.getResources().getString(R.string.date_format_default), Locale.US).format(getStartDate());
         }
     }
 
@@ -198,10 +272,18 @@ public class Subscription implements Serializable {
 
     /**
      * Get the next immediate date this Subscription will be charged.
-     * @return the next payment date
+     * @return the next payment date as a new Date object
      */
     public Date getNextPaymentDate() {
-        return nextPaymentDate;
+        return CivilDate.toDate(nextPaymentDay);
+    }
+
+    /**
+     * Get the next immediate date this Subscription will be charged as an epoch day.
+     * @return the number of days between January 1st 1970 and the next payment date
+     */
+    public int getNextPaymentDay() {
+        return nextPaymentDay;
     }
 
     /**
@@ -211,20 +293,177 @@ public class Subscription implements Serializable {
      */
     public String getNextPaymentDateString(Context context) {
         try {
-            SettingsManager settingsManager = new SettingsManager(context);
-            return new SimpleDateFormat(settingsManager.getDateFormat(), Locale.US).format(nextPaymentDate);
+            SettingsManager settingsManager = SettingsManager.getInstance(context);
+            return new SimpleDateFormat(settingsManager.getDateFormat(), Locale.US).format(getNextPaymentDate());
         } catch (IOException e) {
-            return new SimpleDateFormat(context.getResources().getString(R.string.date_format_default), Locale.US).format(nextPaymentDate);
+            return new SimpleDateFormat(context.getResources().getString(R.string.date_format_default), Locale.US).format(getNextPaymentDate());
         }
     }
 
     /**
      * Get a list of the future payment dates for this subscription for the next X amount
-     * of years, as defined by MAX_YEARS_AHEAD in this class.
+     * of years, as defined by MAX_YEARS_AHEAD in this class. The list is created new on
+     * every call, so when only some of the dates are needed, paymentIterator, paymentsBetween,
+     * or hasPaymentOn should be used instead.
      * @return a list of next payment dates
      */
     public ArrayList<Date> getNextPaymentList() {
-        return nextPaymentList;
+        ArrayList<Date> paymentList = new ArrayList<>();
+        Iterator<Date> iterator = paymentIterator();
+        while (iterator.hasNext()) {
+            paymentList.add(iterator.next());
+        }
+        return paymentList;
+    }
+
+    /**
+     * Get an iterator over the future payment dates for this subscription for the next X
+     * amount of years, as defined by MAX_YEARS_AHEAD in this class. Each date is only
+     * calculated when the iterator reaches it.
+     * @return an iterator over the next payment dates, in order
+     */
+    public Iterator<Date> paymentIterator() {
+        ensureSchedule();
+        return new Iterator<Date>() {
+            private int period = firstPeriod;
+
+            @Override
+            public boolean hasNext() {
+                return period <= lastPeriod;
+            }
+
+            @Override
+            public Date next() {
+                if (period > lastPeriod) {
+                    throw new NoSuchElementException();
+                }
+                return CivilDate.toDate(dayOfPeriod(period++));
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Get the future payment dates for this subscription that fall between two dates,
+     * including both ends. Only dates within the next MAX_YEARS_AHEAD years are returned.
+     * @param from the earliest date to include
+     * @param to the latest date to include
+     * @return a list of the payment dates in that range, in order
+     */
+    public List<Date> paymentsBetween(Date from, Date to) {
+        ensureSchedule();
+        List<Date> payments = new ArrayList<>();
+        int fromDay = CivilDate.toEpochDay(from);
+        int toDay = CivilDate.toEpochDay(to);
+        int period = Math.max(firstPeriod, CivilDate.firstPaymentOnOrAfter(startMonthIndex,
+                anchorDay, rechargeFrequency, CivilDate.epochDayToMonthIndex(fromDay),
+                CivilDate.epochDayToDayOfMonth(fromDay)));
+        for (; period <= lastPeriod; period++) {
+            int paymentDay = dayOfPeriod(period);
+            if (paymentDay > toDay) {
+                break;
+            }
+            payments.add(CivilDate.toDate(paymentDay));
+        }
+        return payments;
+    }
+
+    /**
+     * Get the first day after a given one that a notification is due for this subscription,
+     * including the notifications of payments after the next one, so the answer doesn't
+     * depend on the dates having been updated since. Only payments within the next
+     * MAX_YEARS_AHEAD years are counted.
+     * @param epochDay the day to look after, as an epoch day
+     * @return the epoch day of the notification, or NO_DATE if notifications are off for this
+     *         subscription or there is no such notification
+     */
+    int notifDayAfter(int epochDay) {
+        if (notifDays == -1) {
+            return NO_DATE;
+        }
+        ensureSchedule();
+        int paymentDay = epochDay + 1 + notifDays;
+        int period = Math.max(firstPeriod, CivilDate.firstPaymentOnOrAfter(startMonthIndex,
+                anchorDay, rechargeFrequency, CivilDate.epochDayToMonthIndex(paymentDay),
+                CivilDate.epochDayToDayOfMonth(paymentDay)));
+        return period <= lastPeriod ? dayOfPeriod(period) - notifDays : NO_DATE;
+    }
+
+    /**
+     * Check if one of this subscription's future payments, within the next MAX_YEARS_AHEAD
+     * years, falls on the given date.
+     * @param date the date to check
+     * @return true if a payment is due on that date, false otherwise
+     */
+    public boolean hasPaymentOn(Date date) {
+        int epochDay = CivilDate.toEpochDay(date);
+        int monthIndex = CivilDate.epochDayToMonthIndex(epochDay);
+        return hasPaymentOn(CivilDate.yearOf(monthIndex), CivilDate.monthOf(monthIndex),
+                CivilDate.epochDayToDayOfMonth(epochDay));
+    }
+
+    /**
+     * Check if one of this subscription's future payments, within the next MAX_YEARS_AHEAD
+     * years, falls on the given day. This doesn't create any objects, so it is cheap to call
+     * for many days or subscriptions.
+     * @param year the year of the day to check
+     * @param month the month of the day to check, from 0 to 11
+     * @param dayOfMonth the day of the month to check
+     * @return true if a payment is due on that day, false otherwise
+     */
+    public boolean hasPaymentOn(int year, int month, int dayOfMonth) {
+        ensureSchedule();
+        int monthIndex = CivilDate.toMonthIndex(year, month);
+        int monthsFromStart = monthIndex - startMonthIndex;
+        if (monthsFromStart < 0 || monthsFromStart % rechargeFrequency != 0) {
+            return false;
+        }
+        int period = monthsFromStart / rechargeFrequency;
+        return period >= firstPeriod && period <= lastPeriod
+                && CivilDate.paymentDay(anchorDay, monthIndex) == dayOfMonth;
+    }
+
+    /**
+     * Get the rule for a repeating calendar event, in the iCalendar RRULE format, that falls on
+     * every payment date of this subscription when it starts on the start date. Unlike
+     * paymentIterator, the rule has no end, so it never runs out of future payments. Payments
+     * anchored to the 29th or later move to the last day of shorter months, which the rule
+     * does by picking the last of the days from the 28th to the anchor day that the month has.
+     * @return the recurrence rule
+     */
+    public String getRecurrenceRule() {
+        ensureSchedule();
+        StringBuilder rule = new StringBuilder("FREQ=MONTHLY;INTERVAL=").append(rechargeFrequency);
+        if (anchorDay > CivilDate.MIN_DAYS_IN_MONTH) {
+            rule.append(";BYMONTHDAY=").append(CivilDate.MIN_DAYS_IN_MONTH);
+            for (int day = CivilDate.MIN_DAYS_IN_MONTH + 1; day <= anchorDay; day++) {
+                rule.append(',').append(day);
+            }
+            rule.append(";BYSETPOS=-1");
+        }
+        return rule.toString();
+    }
+
+    /**
+     * Get the month index of the start date, as used by CivilDate.
+     * @return the month index the first payment was in
+     */
+    int getStartMonthIndex() {
+        ensureSchedule();
+        return startMonthIndex;
+    }
+
+    /**
+     * Get the day of the month payments are anchored to, which is the day of the start date.
+     * @return the anchor day of the month
+     */
+    int getAnchorDay() {
+        ensureSchedule();
+        return anchorDay;
     }
 
     /**
@@ -245,10 +484,20 @@ public class Subscription implements Serializable {
 
     /**
      * Get the next date this subscription should be notified.
-     * @return the next notification date as a Date object
+     * @return the next notification date as a new Date object, or null if notifications
+     *         are off
      */
     public Date getNextNotifDate() {
-        return nextNotifDate;
+        return nextNotifDay == NO_DATE ? null : CivilDate.toDate(nextNotifDay);
+    }
+
+    /**
+     * Get the next date this subscription should be notified as an epoch day.
+     * @return the number of days between January 1st 1970 and the next notification date,
+     *         or NO_DATE if notifications are off
+     */
+    public int getNextNotifDay() {
+        return nextNotifDay;
     }
 
     //////////////////////////////////////////////////////////////////////////////////////////
@@ -256,67 +505,128 @@ public class Subscription implements Serializable {
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Calculate when the next soonest payment date will be from today, as well as a list
-     * of payment dates after that for the next MAX_YEARS_AHEAD years.
+     * Calculate when the next soonest payment date will be from today. The list of payment
+     * dates after that is cleared, to be generated again when it is next needed.
      */
     private void generateNextPaymentDate() {
         generateNextPaymentDate(new ZeroTimeCalendar());
     }
 
     /**
-     * Calculate when the next soonest payment date will be from today, as well as a list
-     * of payment dates after that for the next MAX_YEARS_AHEAD years.
+     * Calculate when the next soonest payment date will be from today. The list of payment
+     * dates after that is cleared, to be generated again when it is next needed.
      * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
      */
     private void generateNextPaymentDate(ZeroTimeCalendar zeroTimeCalendar) {
-        nextPaymentList = new ArrayList<>();
-        Date today = zeroTimeCalendar.getCurrentDate();
-        Date nextPaymentDate = startDate;
-        zeroTimeCalendar.setTimeToDate(startDate);
-
-        // Loop forward until we find the first next payment date
-        while (!nextPaymentDate.after(today) && !nextPaymentDate.equals(today)) {
-            zeroTimeCalendar.addMonths(rechargeFrequency);
-            nextPaymentDate = zeroTimeCalendar.getCurrentDate();
-        }
+        this.nextPaymentDay = CivilDate.paymentOnOrAfter(startDay, rechargeFrequency,
+                zeroTimeCalendar.getEpochDay());
+        this.scheduleReady = false;
+    }
 
-        // Start the list with this payment date
-        nextPaymentList.add(nextPaymentDate);
-        zeroTimeCalendar.addYears(MAX_YEARS_AHEAD);
-        Date futureLimit = zeroTimeCalendar.getCurrentDate();
-        zeroTimeCalendar.setTimeToDate(nextPaymentDate);
-
-        // Find each payment date between now and the future limit
-        while (nextPaymentDate.before(futureLimit)) {
-            zeroTimeCalendar.addMonths(rechargeFrequency);
-            nextPaymentDate = zeroTimeCalendar.getCurrentDate();
-            nextPaymentList.add(nextPaymentDate);
+    /**
+     * Calculate the payment schedule fields from the start date and next payment date if
+     * they haven't been calculated since either last changed.
+     */
+    private void ensureSchedule() {
+        if (scheduleReady) {
+            return;
         }
-        this.nextPaymentDate = nextPaymentList.get(0);
+        startMonthIndex = CivilDate.epochDayToMonthIndex(startDay);
+        anchorDay = CivilDate.epochDayToDayOfMonth(startDay);
+
+        // The schedule starts at the next payment date
+        int nextMonthIndex = CivilDate.epochDayToMonthIndex(nextPaymentDay);
+        int nextDayOfMonth = CivilDate.epochDayToDayOfMonth(nextPaymentDay);
+        firstPeriod = CivilDate.firstPaymentOnOrAfter(startMonthIndex, anchorDay, rechargeFrequency,
+                nextMonthIndex, nextDayOfMonth);
+
+        // And ends at the first payment on or after the same day MAX_YEARS_AHEAD years later,
+        // which moves back to February 28th if the next payment is on February 29th
+        int limitMonthIndex = nextMonthIndex + MAX_YEARS_AHEAD * 12;
+        lastPeriod = CivilDate.firstPaymentOnOrAfter(startMonthIndex, anchorDay, rechargeFrequency,
+                limitMonthIndex, CivilDate.paymentDay(nextDayOfMonth, limitMonthIndex));
+        scheduleReady = true;
     }
 
     /**
-     * Generate the next date a notification should occur for this subscription. This should
-     * be run after the next payment date is generated. If notifications are set to off for
-     * this subscription, the next notification date will be set to null.
+     * Get the epoch day of a numbered payment in the schedule.
+     * @param period the number of the payment, counting the start date as payment 0
+     * @return the epoch day of that payment
      */
-    private void generateNextNotifDate() {
-        generateNextNotifDate(new ZeroTimeCalendar());
+    private int dayOfPeriod(int period) {
+        return CivilDate.paymentEpochDay(anchorDay, startMonthIndex + period * rechargeFrequency);
     }
 
     /**
      * Generate the next date a notification should occur for this subscription. This should
      * be run after the next payment date is generated. If notifications are set to off for
-     * this subscription, the next notification date will be set to null.
-     * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
+     * this subscription, the next notification date will be set to NO_DATE.
      */
-    private void generateNextNotifDate(ZeroTimeCalendar zeroTimeCalendar) {
-        zeroTimeCalendar.setTimeToDate(nextPaymentDate);
+    private void generateNextNotifDate() {
         if (notifDays == -1) {
-            nextNotifDate = null;
+            nextNotifDay = NO_DATE;
         } else {
-            zeroTimeCalendar.addDays(notifDays * -1);
-            nextNotifDate = zeroTimeCalendar.getCurrentDate();
+            nextNotifDay = nextPaymentDay - notifDays;
+        }
+    }
+
+    /**
+     * Reads and writes subscriptions as json for the journal and older data files. Dates
+     * are written as epoch days, and subscriptions saved by older versions, which stored
+     * Date objects under different names, are converted when they're read.
+     */
+    static class JsonFormat implements TypeAdapterFactory {
+
+        // The names older versions saved each date under, and the names they have now
+        private static final String[][] LEGACY_DATE_FIELDS = {{"startDate", "startDay"},
+                {"nextPaymentDate", "nextPaymentDay"}, {"nextNotifDate", "nextNotifDay"}};
+
+        /**
+         * Create the adapter Gson uses for subscriptions.
+         * @param gson the Gson instance the adapter is for
+         * @param type the type an adapter is needed for
+         * @return the subscription adapter
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            final TypeAdapter<Subscription> delegate =
+                    gson.getDelegateAdapter(this, TypeToken.get(Subscription.class));
+            final TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+            final TypeAdapter<Date> dateAdapter = gson.getAdapter(Date.class);
+            return (TypeAdapter<T>)new TypeAdapter<Subscription>() {
+                @Override
+                public void write(JsonWriter out, Subscription subscription) throws IOException {
+                    delegate.write(out, subscription);
+                }
+
+                @Override
+                public Subscription read(JsonReader in) throws IOException {
+                    JsonElement element = elementAdapter.read(in);
+                    if (element.isJsonObject()) {
+                        convertLegacyDates(element.getAsJsonObject(), dateAdapter);
+                    }
+                    return delegate.fromJsonTree(element);
+                }
+            };
+        }
+
+        /**
+         * Replace any dates saved by an older version with epoch days, and mark notifications
+         * as off if no notification date was saved.
+         * @param json the json of a single subscription, modified in place
+         * @param dateAdapter the adapter older versions wrote dates with
+         */
+        private static void convertLegacyDates(JsonObject json, TypeAdapter<Date> dateAdapter) {
+            for (String[] names : LEGACY_DATE_FIELDS) {
+                JsonElement legacyDate = json.remove(names[0]);
+                if (legacyDate != null && !legacyDate.isJsonNull()) {
+                    json.addProperty(names[1], CivilDate.toEpochDay(dateAdapter.fromJsonTree(legacyDate)));
+                }
+            }
+            if (!json.has("nextNotifDay")) {
+                json.addProperty("nextNotifDay", NO_DATE);
+            }
         }
     }
 }
@@ -0,0 +1,401 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An append-only log of every add, update, and delete made to the subscription list since
+ * the last full save. Saving a single change only appends one small record to the end of the
+ * journal file instead of rewriting every subscription, and loading replays the journal on
+ * top of the last saved snapshot. Once enough records build up, the model writes a new
+ * snapshot and the journal is compacted.
+ *
+ * Each record is given a sequence number, and the snapshot stores the sequence number of the
+ * last record it includes. That way, if the app is killed after a new snapshot is written but
+ * before the journal is compacted, records already in the snapshot are skipped on replay.
+ */
+class SubscriptionJournal {
+
+    // The filename the journal is kept in, next to the subscriptions snapshot
+    static final String JOURNAL_FILENAME = "subscriptions.journal";
+    // Once the journal file holds this many records, it should be folded into a new snapshot
+    static final int COMPACTION_THRESHOLD = 64;
+
+    // The type of change a record describes
+    enum Operation {ADD, UPDATE, DELETE}
+
+    /**
+     * A single change to the subscription list. ID is the ID of the subscription the change
+     * applies to, and subscription is the new subscription data (null for deletes).
+     */
+    static class Record {
+        long sequence;
+        Operation operation;
+        int id;
+        Subscription subscription;
+
+        Record(long sequence, Operation operation, int id, Subscription subscription) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.id = id;
+            this.subscription = subscription;
+        }
+    }
+
+    /**
+     * A group of records taken out of the journal to be written to the file, already
+     * converted to the lines that will be appended. The records are converted on the thread
+     * that made them, so the file can be written on a different thread.
+     */
+    static class PendingWrite {
+        final List<Record> records;
+        final String lines;
+
+        PendingWrite(List<Record> records, String lines) {
+            this.records = records;
+            this.lines = lines;
+        }
+    }
+
+    // Records made since the last flush that still need to be written to the file
+    private List<Record> pendingRecords = new ArrayList<>();
+    // The sequence number of the most recent record created
+    private long lastSequence = 0;
+    // The number of records currently in the journal file, updated by whichever thread writes it
+    private volatile int recordsOnDisk = 0;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Record that a subscription was added to the end of the list.
+     * @param id the ID the subscription was given
+     * @param subscription the subscription that was added
+     */
+    void recordAdd(int id, Subscription subscription) {
+        pendingRecords.add(new Record(++lastSequence, Operation.ADD, id, subscription));
+    }
+
+    /**
+     * Record that the subscription with a given ID was replaced.
+     * @param id the ID of the subscription that was replaced
+     * @param subscription the new subscription with that ID
+     */
+    void recordUpdate(int id, Subscription subscription) {
+        pendingRecords.add(new Record(++lastSequence, Operation.UPDATE, id, subscription));
+    }
+
+    /**
+     * Record that the subscription with a given ID was removed.
+     * @param id the ID of the subscription that was removed
+     */
+    void recordDelete(int id) {
+        pendingRecords.add(new Record(++lastSequence, Operation.DELETE, id, null));
+    }
+
+    /**
+     * Get the number of records that have been made but not yet written to the file.
+     * @return the number of pending records
+     */
+    int numPendingRecords() {
+        return pendingRecords.size();
+    }
+
+    /**
+     * Get the sequence number of the most recent record, which is what a snapshot of the
+     * current list should be stamped with.
+     * @return the last sequence number handed out
+     */
+    long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Check whether the journal file has grown large enough that it should be compacted
+     * into a new snapshot.
+     * @return true if the journal should be compacted, false otherwise
+     */
+    boolean needsCompaction() {
+        return recordsOnDisk >= COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * Write every pending record to the end of the journal file, one json record per line.
+     * If the write fails, the records are kept so they can be written again later.
+     * @param directory the directory the journal file is kept in
+     * @throws IOException thrown if something goes wrong writing to the file
+     */
+    void flush(File directory) throws IOException {
+        PendingWrite pendingWrite = takePending();
+        if (pendingWrite == null) {
+            return;
+        }
+        try {
+            append(directory, pendingWrite);
+        } catch (IOException e) {
+            pendingRecords.addAll(0, pendingWrite.records);
+            throw e;
+        }
+    }
+
+    /**
+     * Take every pending record out of the journal and convert them to the lines that will
+     * be written to the file. This should be called on the thread that makes changes to the
+     * list, and the result can then be written with append on any thread.
+     * @return the records to write, or null if there are no pending records
+     */
+    PendingWrite takePending() {
+        if (pendingRecords.isEmpty()) {
+            return null;
+        }
+        Gson gson = new Gson();
+        StringBuilder lines = new StringBuilder();
+        for (Record record : pendingRecords) {
+            lines.append(gson.toJson(record)).append('\n');
+        }
+        PendingWrite pendingWrite = new PendingWrite(pendingRecords, lines.toString());
+        pendingRecords = new ArrayList<>();
+        return pendingWrite;
+    }
+
+    /**
+     * Append records taken from this journal to the end of the journal file. Writes must be
+     * appended in the order they were taken, or the later ones will be skipped on replay.
+     * @param directory the directory the journal file is kept in
+     * @param pendingWrite the records to append, from takePending
+     * @throws IOException thrown if something goes wrong writing to the file
+     */
+    void append(File directory, PendingWrite pendingWrite) throws IOException {
+        synchronized (SharedViewModel.FILE_LOCK) {
+            File file = new File(directory, JOURNAL_FILENAME);
+            long length = file.length();
+            FileOutputStream fos = new FileOutputStream(file, true);
+            try {
+                fos.write(pendingWrite.lines.getBytes());
+            } catch (IOException e) {
+                // Cut off whatever part of the records was written, so they can be appended
+                // again later without following a partial line
+                setFileLength(file, length);
+                throw e;
+            } finally {
+                fos.close();
+            }
+            recordsOnDisk += pendingWrite.records.size();
+        }
+    }
+
+    /**
+     * Drop any pending records without writing them. This should be used when a full
+     * snapshot that already contains these changes has been written.
+     */
+    void discardPending() {
+        pendingRecords = new ArrayList<>();
+    }
+
+    /**
+     * Read the journal file and apply every record newer than the given snapshot to the list.
+     * If the last record in the file was only partially written, it and anything after it
+     * is cut off the end of the file, so the next record appended starts on a line of its own.
+     * @param directory the directory the journal file is kept in
+     * @param snapshotSequence the sequence number of the last record the snapshot includes
+     * @param subscriptionList the list loaded from the snapshot, modified in place
+     * @throws IOException thrown if something goes wrong reading or cutting off the file
+     */
+    void replay(File directory, long snapshotSequence, IdOrderedSubscriptionList subscriptionList)
+            throws IOException {
+        pendingRecords = new ArrayList<>();
+        lastSequence = snapshotSequence;
+        recordsOnDisk = 0;
+        synchronized (SharedViewModel.FILE_LOCK) {
+            File file = new File(directory, JOURNAL_FILENAME);
+            if (!file.exists()) {
+                return;
+            }
+            byte[] contents = readFile(file);
+
+            // Only records ending in a newline were written in full
+            Gson gson = new Gson();
+            int lineStart = 0;
+            for (int i = 0; i < contents.length; i++) {
+                if (contents[i] != '\n') {
+                    continue;
+                }
+                Record record = parseRecord(gson, new String(contents, lineStart, i - lineStart));
+                if (record == null) {
+                    break;
+                }
+                recordsOnDisk++;
+                if (record.sequence > lastSequence) {
+                    applyRecord(record, subscriptionList);
+                    lastSequence = record.sequence;
+                }
+                lineStart = i + 1;
+            }
+            if (lineStart < contents.length) {
+                setFileLength(file, lineStart);
+            }
+        }
+    }
+
+    /**
+     * Remove every record up to and including the given sequence number from the journal
+     * file, keeping any that were appended after it. This should be called after a snapshot
+     * stamped with that sequence number has been written.
+     * @param directory the directory the journal file is kept in
+     * @param snapshotSequence the sequence number of the last record the snapshot includes
+     * @throws IOException thrown if something goes wrong rewriting the file
+     */
+    void truncate(File directory, long snapshotSequence) throws IOException {
+        synchronized (SharedViewModel.FILE_LOCK) {
+            File file = new File(directory, JOURNAL_FILENAME);
+            if (!file.exists()) {
+                recordsOnDisk = 0;
+                return;
+            }
+
+            // Keep the lines of any records newer than the snapshot
+            Gson gson = new Gson();
+            StringBuilder keptLines = new StringBuilder();
+            int keptRecords = 0;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+            try {
+                String line = reader.readLine();
+                while (line != null) {
+                    Record record = parseRecord(gson, line);
+                    if (record == null) {
+                        break;
+                    }
+                    if (record.sequence > snapshotSequence) {
+                        keptLines.append(line).append('\n');
+                        keptRecords++;
+                    }
+                    line = reader.readLine();
+                }
+            } finally {
+                reader.close();
+            }
+
+            // Rewrite the file with only those records, or remove it if there are none
+            if (keptRecords == 0) {
+                if (!file.delete()) {
+                    throw new IOException();
+                }
+            } else {
+                FileOutputStream fos = AtomicFileWrite.startWrite(file);
+                boolean written = false;
+                try {
+                    fos.write(keptLines.toString().getBytes());
+                    written = true;
+                } finally {
+                    if (!written) {
+                        AtomicFileWrite.abortWrite(file, fos);
+                    }
+                }
+                AtomicFileWrite.finishWrite(file, fos);
+            }
+            recordsOnDisk = keptRecords;
+        }
+    }
+
+    /**
+     * Delete the journal file entirely.
+     * @param directory the directory the journal file is kept in
+     * @return true if the delete was successful or there was no file, false otherwise
+     */
+    static boolean deleteJournal(File directory) {
+        File file = new File(directory, JOURNAL_FILENAME);
+        if (file.exists()) {
+            return file.delete();
+        }
+        return true;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Read a line of the journal file as a record.
+     * @param gson the json parser to use
+     * @param line the line, without its newline
+     * @return the record, or null if the line isn't a complete record
+     */
+    private static Record parseRecord(Gson gson, String line) {
+        Record record;
+        try {
+            record = gson.fromJson(line, Record.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+        if (record == null || record.operation == null) {
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Read the whole contents of a file.
+     * @param file the file to read
+     * @return every byte in the file
+     * @throws IOException thrown if something goes wrong reading the file
+     */
+    private static byte[] readFile(File file) throws IOException {
+        byte[] contents = new byte[(int)file.length()];
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            int numRead = 0;
+            while (numRead < contents.length) {
+                int count = fis.read(contents, numRead, contents.length - numRead);
+                if (count < 0) {
+                    return Arrays.copyOf(contents, numRead);
+                }
+                numRead += count;
+            }
+        } finally {
+            fis.close();
+        }
+        return contents;
+    }
+
+    /**
+     * Cut a file off at the given length, dropping everything after it.
+     * @param file the file to cut off
+     * @param length the number of bytes to keep
+     * @throws IOException thrown if the file can't be changed
+     */
+    private static void setFileLength(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Apply a single record to the list in the same way the model made the original change.
+     * @param record the record to apply
+     * @param subscriptionList the list to modify in place
+     */
+    private void applyRecord(Record record, IdOrderedSubscriptionList subscriptionList) {
+        if (record.operation == Operation.ADD) {
+            record.subscription.setId(record.id);
+            subscriptionList.put(record.subscription);
+        } else if (record.operation == Operation.UPDATE) {
+            subscriptionList.replace(record.id, record.subscription);
+        } else if (record.operation == Operation.DELETE) {
+            subscriptionList.delete(record.id);
+        }
+    }
+}
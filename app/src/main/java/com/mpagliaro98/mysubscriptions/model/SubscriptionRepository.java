@@ -0,0 +1,348 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import com.mpagliaro98.mysubscriptions.R;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads and saves the data of a SharedViewModel on a background thread, so the tabs can draw
+ * right away and fill themselves in once the data arrives. Every read and write of the data
+ * files goes through a single I/O thread, so they always happen in the order they were asked
+ * for, and a load started by a new screen never misses a save made by the one before it.
+ *
+ * The model itself is only ever changed on the main thread. A load reads the files into a
+ * separate model on the I/O thread, then swaps that data into the real model on the main
+ * thread. Saves take the pending journal records on the main thread and only write them on
+ * the I/O thread. Any number of saves asked for while handling the same event are combined
+ * into one write.
+ */
+public class SubscriptionRepository {
+
+    // The states loading can be in, the load state is null before loading has started
+    public static final int LOAD_STATE_LOADING = 0;
+    public static final int LOAD_STATE_LOADED = 1;
+    public static final int LOAD_STATE_IO_ERROR = 2;
+    public static final int LOAD_STATE_NO_MEMORY_ERROR = 3;
+    public static final int LOAD_STATE_CORRUPT = 4;
+
+    // The one thread every read and write of the subscription files is done on
+    static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // The model this repository loads into and saves from
+    private final SharedViewModel model;
+    // Used to get results from the I/O thread back onto the main thread
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // The current load state, one of the LOAD_STATE_... codes
+    private final MutableLiveData<Integer> loadState = new MutableLiveData<>();
+    // The message of the last save that failed, or null once it has been shown
+    private final MutableLiveData<String> saveError = new MutableLiveData<>();
+    // True once loaded data has been put in the model, even if saving it afterwards failed
+    private boolean dataReady = false;
+    // Work waiting for the data to be loaded before it can run
+    private List<Runnable> waitingForLoad = new ArrayList<>();
+    // True if a save has been asked for and is waiting to be started on the main thread
+    private boolean saveScheduled = false;
+    // The context to save with, kept as the application context
+    private Context saveContext;
+    // Journal writes that failed, only used on the I/O thread, retried before the next write
+    private final List<SubscriptionJournal.PendingWrite> failedWrites = new ArrayList<>();
+
+    // Starts a single write of every change made since the last one
+    private final Runnable saveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            saveScheduled = false;
+            writeChanges(saveContext);
+        }
+    };
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create a repository for the given model. This should only be done on the main thread.
+     * @param model the model to load data into and save data from
+     */
+    SubscriptionRepository(SharedViewModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Get the state of loading the model's data, which is null if loading hasn't been
+     * started, or one of the LOAD_STATE_... codes otherwise.
+     * @return live data holding the load state
+     */
+    public LiveData<Integer> getLoadState() {
+        return loadState;
+    }
+
+    /**
+     * Get the message of the last save that failed. This is null if no save has failed
+     * since the last error was cleared.
+     * @return live data holding the save error message
+     */
+    public LiveData<String> getSaveError() {
+        return saveError;
+    }
+
+    /**
+     * Clear the last save error once it has been shown to the user.
+     */
+    public void clearSaveError() {
+        saveError.setValue(null);
+    }
+
+    /**
+     * Check whether the data has been loaded into the model.
+     * @return true if the model holds the loaded data, false otherwise
+     */
+    public boolean isDataReady() {
+        return dataReady;
+    }
+
+    /**
+     * Start loading the model's data from its files on the I/O thread. Payment dates that
+     * have passed are updated, and the data is saved again if anything changed, before the
+     * data is put in the model. Nothing happens if loading was already started.
+     * @param context the current context of the application
+     */
+    public void load(Context context) {
+        if (loadState.getValue() != null) {
+            return;
+        }
+        loadState.setValue(LOAD_STATE_LOADING);
+        final Context appContext = context.getApplicationContext();
+        IO_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SharedViewModel loadedModel = new SharedViewModel();
+                boolean loaded = false;
+                int result;
+                try {
+                    loadedModel.loadFromFile(appContext);
+                    loaded = true;
+                    // This only writes the file if any dates changed or it's in an old format
+                    loadedModel.updateSubscriptionDates();
+                    loadedModel.saveToFile(appContext);
+                    result = LOAD_STATE_LOADED;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    result = isNoMemoryError(appContext, e) ? LOAD_STATE_NO_MEMORY_ERROR : LOAD_STATE_IO_ERROR;
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    loaded = false;
+                    result = LOAD_STATE_CORRUPT;
+                }
+                final boolean finalLoaded = loaded;
+                final int finalResult = result;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishLoad(finalLoaded ? loadedModel : null, finalResult);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Run some work on the model once its data has been loaded. If it already has been, the
+     * work is run right away. If the files were corrupt, the work waits until deleteData
+     * resets the data. If they couldn't be read at all, the data will never be ready, so the
+     * work is dropped. This should only be called on the main thread.
+     * @param runnable the work to run
+     * @return false if the work was dropped because the data couldn't be loaded, true otherwise
+     */
+    public boolean runWhenLoaded(Runnable runnable) {
+        if (dataReady) {
+            runnable.run();
+        } else if (isLoadFailed()) {
+            return false;
+        } else {
+            waitingForLoad.add(runnable);
+        }
+        return true;
+    }
+
+    /**
+     * Drop any work that was waiting for the data, once loading has failed and the data will
+     * never be ready. This should only be called on the main thread.
+     * @return true if any work was dropped, so the user can be told their change was lost
+     */
+    public boolean discardWaitingWork() {
+        boolean anyWaiting = !waitingForLoad.isEmpty();
+        waitingForLoad = new ArrayList<>();
+        return anyWaiting;
+    }
+
+    /**
+     * Save every change made to the model since the last save on the I/O thread. Saves asked
+     * for while the main thread is handling the same event are combined into one write, which
+     * is started once that event is done. Any error is reported through getSaveError.
+     * @param context the current context of the application
+     */
+    public void saveChanges(Context context) {
+        saveContext = context.getApplicationContext();
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        mainHandler.post(saveRunnable);
+    }
+
+    /**
+     * Reset this application's data by clearing the model's list right away, then
+     * overwriting the saved files on the I/O thread. Any work that was waiting for the data,
+     * such as a change that came in while the corrupt files were being loaded, is run on the
+     * empty list afterwards. Any error is reported through getSaveError.
+     * @param context the current context of the application
+     */
+    public void deleteData(Context context) {
+        final Context appContext = context.getApplicationContext();
+        final SubscriptionJournal journal = model.getJournal();
+        model.clearSubscriptions();
+        model.markChangesSaved();
+        journal.discardPending();
+        final long snapshotSequence = journal.getLastSequence();
+        final int nextId = model.getNextSubscriptionId();
+        dataReady = true;
+        IO_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    failedWrites.clear();
+                    model.checkAvailableStorage(appContext, 0);
+                    SharedViewModel.writeSnapshot(appContext, new ArrayList<Subscription>(),
+                            snapshotSequence, nextId);
+                    journal.truncate(appContext.getFilesDir(), snapshotSequence);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    postSaveError(appContext, e);
+                }
+            }
+        });
+        runWaitingWork();
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Put loaded data in the model, run any work that was waiting for it, then publish the
+     * new load state. The waiting work runs first so the tabs only draw the data once. If
+     * nothing was loaded, the waiting work is kept, in case deleteData makes the data ready.
+     * @param loadedModel the model the data was loaded into, or null if nothing was loaded
+     * @param result the LOAD_STATE_... code loading finished with
+     */
+    private void finishLoad(SharedViewModel loadedModel, int result) {
+        if (loadedModel != null) {
+            model.adoptLoadedData(loadedModel);
+            dataReady = true;
+            runWaitingWork();
+        }
+        loadState.setValue(result);
+    }
+
+    /**
+     * Run every piece of work that was waiting for the data, in the order it was asked for.
+     */
+    private void runWaitingWork() {
+        List<Runnable> waiting = waitingForLoad;
+        waitingForLoad = new ArrayList<>();
+        for (Runnable runnable : waiting) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Check whether loading failed because the files couldn't be read, so the data will
+     * never be ready. Corrupt files don't count, since deleteData can still reset them.
+     * @return true if loading failed with an I/O or storage error, false otherwise
+     */
+    private boolean isLoadFailed() {
+        Integer state = loadState.getValue();
+        return state != null && (state == LOAD_STATE_IO_ERROR || state == LOAD_STATE_NO_MEMORY_ERROR);
+    }
+
+    /**
+     * Take every change made since the last save out of the journal, then append them to
+     * the journal file on the I/O thread, followed by the notification index of the model as
+     * it is now. If the journal has grown large enough, it's compacted into a new snapshot
+     * afterwards.
+     * @param context the application context
+     */
+    private void writeChanges(final Context context) {
+        final SubscriptionJournal journal = model.getJournal();
+        final SubscriptionJournal.PendingWrite pendingWrite = journal.takePending();
+        if (pendingWrite == null) {
+            return;
+        }
+        model.markChangesSaved();
+        final NotificationIndex notificationIndex = new NotificationIndex(model.getFullSubscriptionList());
+        IO_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // The old index no longer matches once the changes are in the journal
+                NotificationIndex.delete(context.getFilesDir());
+                failedWrites.add(pendingWrite);
+                try {
+                    int numRecords = 0;
+                    for (SubscriptionJournal.PendingWrite write : failedWrites) {
+                        numRecords += write.records.size();
+                    }
+                    model.checkAvailableStorage(context, numRecords);
+                    while (!failedWrites.isEmpty()) {
+                        journal.append(context.getFilesDir(), failedWrites.get(0));
+                        failedWrites.remove(0);
+                    }
+                } catch (IOException e) {
+                    // Keep the writes that failed, so they're tried again before the next one
+                    e.printStackTrace();
+                    postSaveError(context, e);
+                    return;
+                }
+                SharedViewModel.writeNotificationIndex(context, notificationIndex);
+                if (journal.needsCompaction()) {
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (journal == model.getJournal()) {
+                                model.compactInBackground(context);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Report a failed save to anything observing the save error, from any thread.
+     * @param context the application context
+     * @param e the exception the save failed with
+     */
+    private void postSaveError(Context context, IOException e) {
+        saveError.postValue(isNoMemoryError(context, e) ? context.getString(R.string.no_memory_exception)
+                : context.getString(R.string.home_snackbar_ioexception));
+    }
+
+    /**
+     * Check if an exception was thrown because there isn't enough storage to save.
+     * @param context the application context
+     * @param e the exception to check
+     * @return true if the exception is a low storage error, false otherwise
+     */
+    private static boolean isNoMemoryError(Context context, IOException e) {
+        return e.getMessage() != null && e.getMessage().equals(context.getString(R.string.no_memory_exception));
+    }
+}
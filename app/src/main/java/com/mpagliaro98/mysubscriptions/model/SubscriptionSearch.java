@@ -0,0 +1,313 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the subscriptions whose names contain some search text, kept up to date by the model
+ * as subscriptions are added, updated, removed, and reordered.
+ *
+ * Every name is lower-cased once when its subscription is added, rather than on every search.
+ * When the search text is extended, as it is with each key typed, only the subscriptions that
+ * matched the last search are checked again, since nothing else can match the longer text.
+ * For larger lists, an index from every three-letter piece of a name (a trigram) to the
+ * subscriptions with it is built the first time it's needed. Any name containing the search
+ * text has every trigram of it, so only the subscriptions under its rarest trigram have to
+ * be checked. Results are always given in the order of the list being searched.
+ */
+class SubscriptionSearch {
+
+    // The length of the pieces of names the index is made of
+    private static final int GRAM_LENGTH = 3;
+    // Lists smaller than this are just checked in full, as building the index wouldn't pay off
+    private static final int INDEX_MIN_SIZE = 256;
+
+    // Sorts results into the order of the list being searched
+    private static final Comparator<Entry> LIST_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            return o1.position < o2.position ? -1 : (o1.position == o2.position ? 0 : 1);
+        }
+    };
+
+    /**
+     * A subscription in the list, with its name already lower-cased.
+     */
+    private static class Entry {
+        // The subscription this is for
+        final Subscription subscription;
+        // The subscription's name in lower case
+        final String searchName;
+        // Where the subscription is in the list, only correct while positionsValid is true
+        int position;
+        // True once the subscription has left the list, entries still in the index are skipped
+        boolean removed = false;
+
+        /**
+         * Create the entry for a subscription.
+         * @param subscription the subscription
+         * @param position where it is in the list
+         */
+        Entry(Subscription subscription, int position) {
+            this.subscription = subscription;
+            this.searchName = normalize(subscription.getName());
+            this.position = position;
+        }
+    }
+
+    // The entry for every subscription in the list
+    private Map<Subscription, Entry> entries = new IdentityHashMap<>();
+    // For each trigram, every entry whose name has it, or null if the index isn't built yet
+    private Map<Long, List<Entry>> index = null;
+    // The number of removed entries still in the index
+    private int numRemovedInIndex = 0;
+    // False if the list has been reordered or shortened since positions were last set
+    private boolean positionsValid = true;
+    // The text of the last search, or null if the list has changed since then
+    private String lastSearch = null;
+    // The subscriptions that matched the last search, in list order
+    private List<Subscription> lastResult = null;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Clear everything and start again from the given list.
+     * @param subscriptions every subscription, in list order
+     */
+    void rebuild(List<Subscription> subscriptions) {
+        entries = new IdentityHashMap<>();
+        int position = 0;
+        for (Subscription subscription : subscriptions) {
+            entries.put(subscription, new Entry(subscription, position++));
+        }
+        index = null;
+        numRemovedInIndex = 0;
+        positionsValid = true;
+        forgetLastSearch();
+    }
+
+    /**
+     * Add a subscription to the end of the list.
+     * @param subscription the subscription that was added
+     */
+    void add(Subscription subscription) {
+        Entry entry = new Entry(subscription, entries.size());
+        entries.put(subscription, entry);
+        addToIndex(entry);
+        forgetLastSearch();
+    }
+
+    /**
+     * Replace a subscription in the list with another, which takes its place in the order.
+     * @param oldSubscription the subscription that was replaced
+     * @param newSubscription the subscription that replaced it
+     */
+    void replace(Subscription oldSubscription, Subscription newSubscription) {
+        Entry oldEntry = entries.get(oldSubscription);
+        if (oldSubscription == newSubscription && oldEntry != null
+                && oldEntry.searchName.equals(normalize(newSubscription.getName()))) {
+            return;
+        }
+        int position = oldEntry == null ? entries.size() : oldEntry.position;
+        removeEntry(oldSubscription);
+        Entry entry = new Entry(newSubscription, position);
+        entries.put(newSubscription, entry);
+        addToIndex(entry);
+        forgetLastSearch();
+    }
+
+    /**
+     * Remove a subscription from the list.
+     * @param subscription the subscription that was removed
+     */
+    void remove(Subscription subscription) {
+        removeEntry(subscription);
+        positionsValid = false;
+        forgetLastSearch();
+    }
+
+    /**
+     * Note that the list was reordered, so results are given in the new order.
+     */
+    void reorder() {
+        positionsValid = false;
+        forgetLastSearch();
+    }
+
+    /**
+     * Find every subscription in the list whose name contains the given text, ignoring case.
+     * @param searchText the text to search for
+     * @param subscriptions the list being searched, the same list this has been kept up to
+     *                      date with
+     * @return the matching subscriptions in list order, which is the searched list itself if
+     *         the search text is empty, or a new list otherwise
+     */
+    List<Subscription> search(CharSequence searchText, List<Subscription> subscriptions) {
+        String search = normalize(searchText.toString());
+        List<Subscription> result;
+        if (search.isEmpty()) {
+            result = subscriptions;
+        } else {
+            // Any name containing the new text also contains the last one
+            List<Subscription> candidates = subscriptions;
+            if (lastSearch != null && search.contains(lastSearch)) {
+                candidates = lastResult;
+            }
+            List<Entry> indexCandidates = null;
+            if (search.length() >= GRAM_LENGTH && subscriptions.size() >= INDEX_MIN_SIZE) {
+                indexCandidates = rarestGramEntries(search);
+            }
+            if (indexCandidates != null && indexCandidates.size() < candidates.size()) {
+                result = searchEntries(search, indexCandidates, subscriptions);
+            } else {
+                ArrayList<Subscription> matches = new ArrayList<>();
+                for (Subscription sub : candidates) {
+                    Entry entry = entries.get(sub);
+                    if (entry != null && entry.searchName.contains(search)) {
+                        matches.add(sub);
+                    }
+                }
+                result = matches;
+            }
+        }
+        lastSearch = search;
+        lastResult = result;
+        return result;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Check the given entries for names containing the search text, and put the matches in
+     * list order.
+     * @param search the lower-cased search text
+     * @param candidates the entries to check, in any order
+     * @param subscriptions the list being searched
+     * @return a new list of the matching subscriptions, in list order
+     */
+    private ArrayList<Subscription> searchEntries(String search, List<Entry> candidates,
+                                                  List<Subscription> subscriptions) {
+        if (!positionsValid) {
+            int position = 0;
+            for (Subscription subscription : subscriptions) {
+                entries.get(subscription).position = position++;
+            }
+            positionsValid = true;
+        }
+        List<Entry> matches = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (!entry.removed && entry.searchName.contains(search)) {
+                matches.add(entry);
+            }
+        }
+        Collections.sort(matches, LIST_ORDER);
+        ArrayList<Subscription> result = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            result.add(entry.subscription);
+        }
+        return result;
+    }
+
+    /**
+     * Get the entries under the trigram of the search text that the fewest names have,
+     * building the index first if needed.
+     * @param search the lower-cased search text, at least three characters long
+     * @return the entries to check, which may include removed ones
+     */
+    private List<Entry> rarestGramEntries(String search) {
+        if (index == null) {
+            index = new HashMap<>();
+            for (Entry entry : entries.values()) {
+                addToIndex(entry);
+            }
+        }
+        List<Entry> rarest = null;
+        for (int i = 0; i + GRAM_LENGTH <= search.length(); i++) {
+            List<Entry> gramEntries = index.get(gramKey(search, i));
+            if (gramEntries == null) {
+                return Collections.emptyList();
+            }
+            if (rarest == null || gramEntries.size() < rarest.size()) {
+                rarest = gramEntries;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * Add an entry under every trigram of its name, if the index has been built.
+     * @param entry the entry to add
+     */
+    private void addToIndex(Entry entry) {
+        if (index == null) {
+            return;
+        }
+        String name = entry.searchName;
+        for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+            Long key = gramKey(name, i);
+            List<Entry> gramEntries = index.get(key);
+            if (gramEntries == null) {
+                gramEntries = new ArrayList<>();
+                index.put(key, gramEntries);
+            }
+            // A trigram that appears twice in one name was just added for this entry
+            if (gramEntries.isEmpty() || gramEntries.get(gramEntries.size() - 1) != entry) {
+                gramEntries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Take a subscription's entry out of the list. Its place in the index is left until
+     * there are more removed entries in the index than ones still in the list, when the
+     * index is dropped to be built again.
+     * @param subscription the subscription that left the list
+     */
+    private void removeEntry(Subscription subscription) {
+        Entry entry = entries.remove(subscription);
+        if (entry == null) {
+            return;
+        }
+        entry.removed = true;
+        if (index != null && ++numRemovedInIndex > entries.size()) {
+            index = null;
+            numRemovedInIndex = 0;
+        }
+    }
+
+    /**
+     * Forget the last search, so the next one checks the whole list.
+     */
+    private void forgetLastSearch() {
+        lastSearch = null;
+        lastResult = null;
+    }
+
+    /**
+     * Get the key of the trigram starting at a position in some text.
+     * @param text the text
+     * @param start where the trigram starts
+     * @return the three characters packed into one number
+     */
+    private static Long gramKey(String text, int start) {
+        return ((long)text.charAt(start) << 32) | ((long)text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Put a name in the form used for searching, so searches ignore case.
+     * @param name the name, which may be null
+     * @return the name in lower case, or an empty string if it was null
+     */
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase();
+    }
+}
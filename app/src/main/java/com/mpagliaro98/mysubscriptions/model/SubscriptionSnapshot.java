@@ -0,0 +1,340 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the binary snapshot of every subscription kept in the data file. The file
+ * starts with a header holding a marker, the format version, the sequence number of the last
+ * journal record the snapshot includes, the ID the next new subscription will be given, and
+ * how many categories and subscriptions follow. Each distinct category is written once in a
+ * dictionary, and subscriptions refer to it by index. Each subscription is written with its
+ * ID, since IDs are kept for good and don't follow the order of the file. Dates are written
+ * as the number of days since January 1st 1970, and strings as their length in UTF-8 bytes
+ * followed by the bytes, with a length of -1 for null.
+ *
+ * Files written by older versions of the app hold one json subscription per line instead,
+ * which can be told apart by the marker at the start of the file.
+ */
+final class SubscriptionSnapshot {
+
+    // The first four bytes of every binary snapshot, "MSUB" in ASCII
+    static final int MAGIC = 0x4D535542;
+    // The version of the format written by this class, increased whenever the layout changes
+    static final int VERSION = 2;
+    // The number of bytes in the header
+    private static final int HEADER_SIZE = 28;
+    // Written in place of the length of a string that is null
+    private static final int NULL_STRING = -1;
+    // The size of the buffer used while writing the file
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    // Every string is stored as UTF-8
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // The sequence number of the last journal record this snapshot includes
+    private final long journalSequence;
+    // The ID the next new subscription will be given
+    private final int nextId;
+    // Every subscription in the snapshot, in ID order
+    private final ArrayList<Subscription> subscriptions;
+
+    /**
+     * Create a snapshot holding data read from a file.
+     * @param journalSequence the sequence number of the last journal record it includes
+     * @param nextId the ID the next new subscription will be given
+     * @param subscriptions every subscription in the snapshot, in ID order
+     */
+    private SubscriptionSnapshot(long journalSequence, int nextId, ArrayList<Subscription> subscriptions) {
+        this.journalSequence = journalSequence;
+        this.nextId = nextId;
+        this.subscriptions = subscriptions;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Get the sequence number of the last journal record this snapshot includes.
+     * @return the journal sequence number
+     */
+    long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * Get the ID the next new subscription will be given, which is greater than the ID of
+     * every subscription that was ever saved.
+     * @return the next ID
+     */
+    int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Get every subscription in this snapshot, in ID order.
+     * @return the list of subscriptions
+     */
+    ArrayList<Subscription> getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * Check whether a file is a binary snapshot, rather than one written in the older json
+     * format, by looking at the marker at its start.
+     * @param file the data file
+     * @return true if the file starts with the binary snapshot marker, false otherwise
+     * @throws IOException thrown if something goes wrong reading the file
+     */
+    static boolean isSnapshotFile(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            buffer.flip();
+            return buffer.getInt() == MAGIC;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read a binary snapshot from a file. The whole file is read into one buffer with a
+     * single channel, then decoded from there.
+     * @param file the data file
+     * @return the snapshot read from the file
+     * @throws IOException thrown if something goes wrong reading the file, if it isn't a
+     *                     binary snapshot, or if it was written by a newer version of the app
+     */
+    static SubscriptionSnapshot read(File file) throws IOException {
+        ByteBuffer buffer;
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            buffer = ByteBuffer.allocate((int)channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+        } finally {
+            channel.close();
+        }
+        buffer.flip();
+
+        // Check the header before reading anything else
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a subscription snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long journalSequence = buffer.getLong();
+        int nextId = buffer.getInt();
+        int numCategories = buffer.getInt();
+        int numSubscriptions = buffer.getInt();
+        if (numCategories < 0 || numSubscriptions < 0) {
+            throw new IOException("Corrupt snapshot header");
+        }
+
+        // Every subscription in a category shares the same category object
+        Category[] categories = new Category[numCategories];
+        for (int i = 0; i < numCategories; i++) {
+            int color = buffer.getInt();
+            categories[i] = new Category(color, getString(buffer));
+        }
+
+        ArrayList<Subscription> subscriptions = new ArrayList<>(numSubscriptions);
+        int lastId = -1;
+        for (int i = 0; i < numSubscriptions; i++) {
+            int id = buffer.getInt();
+            if (id <= lastId) {
+                throw new IOException("Corrupt subscription ID in snapshot");
+            }
+            lastId = id;
+            String name = getString(buffer);
+            double cost = buffer.getDouble();
+            int startDay = buffer.getInt();
+            String note = getString(buffer);
+            int rechargeFrequency = buffer.getInt();
+            int nextPaymentDay = buffer.getInt();
+            Category category = categories[buffer.getInt()];
+            int notifDays = buffer.getInt();
+            int nextNotifDay = buffer.getInt();
+            subscriptions.add(new Subscription(id, name, cost, startDay, note, rechargeFrequency,
+                    category, notifDays, nextPaymentDay, nextNotifDay));
+        }
+        if (nextId <= lastId) {
+            throw new IOException("Corrupt snapshot header");
+        }
+        return new SubscriptionSnapshot(journalSequence, nextId, subscriptions);
+    }
+
+    /**
+     * Write a binary snapshot of the given subscriptions to a file, replacing anything
+     * already in it. The file is replaced in one step once the new snapshot is fully written,
+     * so it never holds a partial snapshot.
+     * @param file the data file
+     * @param subscriptions the subscriptions to write, in ID order
+     * @param journalSequence the sequence number of the last journal record in this list
+     * @param nextId the ID the next new subscription will be given
+     * @throws IOException thrown if something goes wrong writing to the file
+     */
+    static void write(File file, List<Subscription> subscriptions, long journalSequence, int nextId)
+            throws IOException {
+        // Give each distinct category an index in the dictionary
+        List<Category> categories = new ArrayList<>();
+        Map<String, Integer> categoryIndexes = new HashMap<>();
+        int[] subCategoryIndexes = new int[subscriptions.size()];
+        int i = 0;
+        for (Subscription subscription : subscriptions) {
+            Category category = subscription.getCategory();
+            String key = category.getColor() + ":" + category.getName();
+            Integer index = categoryIndexes.get(key);
+            if (index == null) {
+                index = categories.size();
+                categoryIndexes.put(key, index);
+                categories.add(category);
+            }
+            subCategoryIndexes[i++] = index;
+        }
+
+        // Write to a temporary file first, so the old snapshot is kept until this one is done
+        FileOutputStream fos = AtomicFileWrite.startWrite(file);
+        boolean written = false;
+        try {
+            FileChannel channel = fos.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(journalSequence);
+            buffer.putInt(nextId);
+            buffer.putInt(categories.size());
+            buffer.putInt(subscriptions.size());
+            for (Category category : categories) {
+                buffer = ensureRoom(channel, buffer, 4);
+                buffer.putInt(category.getColor());
+                buffer = putString(channel, buffer, category.getName());
+            }
+
+            i = 0;
+            for (Subscription subscription : subscriptions) {
+                buffer = ensureRoom(channel, buffer, 4);
+                buffer.putInt(subscription.getId());
+                buffer = putString(channel, buffer, subscription.getName());
+                buffer = ensureRoom(channel, buffer, 12);
+                buffer.putDouble(subscription.getCost());
+                buffer.putInt(subscription.getStartDay());
+                buffer = putString(channel, buffer, subscription.getNote());
+                buffer = ensureRoom(channel, buffer, 20);
+                buffer.putInt(subscription.getRechargeFrequency());
+                buffer.putInt(subscription.getNextPaymentDay());
+                buffer.putInt(subCategoryIndexes[i++]);
+                buffer.putInt(subscription.getNotifDays());
+                buffer.putInt(subscription.getNextNotifDay());
+            }
+            writeBuffer(channel, buffer);
+            written = true;
+        } finally {
+            if (!written) {
+                AtomicFileWrite.abortWrite(file, fos);
+            }
+        }
+        AtomicFileWrite.finishWrite(file, fos);
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Make sure the write buffer has room for the given number of bytes, writing what's in
+     * it to the channel first if it doesn't.
+     * @param channel the channel being written to
+     * @param buffer the write buffer
+     * @param numBytes the number of bytes about to be put in the buffer
+     * @return the buffer to keep writing to, which is larger than usual if numBytes is more
+     *         than the usual size
+     * @throws IOException thrown if something goes wrong writing to the channel
+     */
+    private static ByteBuffer ensureRoom(FileChannel channel, ByteBuffer buffer, int numBytes)
+            throws IOException {
+        if (buffer.remaining() >= numBytes) {
+            return buffer;
+        }
+        writeBuffer(channel, buffer);
+        if (buffer.capacity() < numBytes) {
+            return ByteBuffer.allocate(numBytes);
+        }
+        return buffer;
+    }
+
+    /**
+     * Write everything put in the buffer to the channel, then clear it.
+     * @param channel the channel being written to
+     * @param buffer the write buffer
+     * @throws IOException thrown if something goes wrong writing to the channel
+     */
+    private static void writeBuffer(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Put a string in the write buffer as its UTF-8 length followed by its bytes.
+     * @param channel the channel being written to
+     * @param buffer the write buffer
+     * @param string the string to write, which may be null
+     * @return the buffer to keep writing to
+     * @throws IOException thrown if something goes wrong writing to the channel
+     */
+    private static ByteBuffer putString(FileChannel channel, ByteBuffer buffer, String string)
+            throws IOException {
+        if (string == null) {
+            buffer = ensureRoom(channel, buffer, 4);
+            buffer.putInt(NULL_STRING);
+            return buffer;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        buffer = ensureRoom(channel, buffer, 4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return buffer;
+    }
+
+    /**
+     * Read a string written by putString.
+     * @param buffer the buffer holding the file
+     * @return the string, or null if a null string was written
+     * @throws IOException thrown if the length of the string is invalid
+     */
+    private static String getString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt string in snapshot");
+        }
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
@@ -35,6 +35,15 @@ public class ZeroTimeCalendar {
         return calendar.getTime();
     }
 
+    /**
+     * Get the day this calendar is set to as an epoch day, the form dates are kept in by
+     * the model. This doesn't create a Date object.
+     * @return the number of days between January 1st 1970 and this calendar's date
+     */
+    public int getEpochDay() {
+        return CivilDate.toEpochDay(getYear(), getMonth(), getDayOfMonth());
+    }
+
     /**
      * Get the day of the week this calendar is set to
      * @return the day of the week as an int
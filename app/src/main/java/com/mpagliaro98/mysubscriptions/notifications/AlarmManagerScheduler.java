@@ -0,0 +1,93 @@
+package com.mpagliaro98.mysubscriptions.notifications;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+import com.mpagliaro98.mysubscriptions.model.ReminderScheduler;
+import java.util.Date;
+
+/**
+ * Sets the notification alarm with the AlarmManager, as an exact alarm that wakes the device
+ * so notifications go off at the time set in settings on the day they're due. The alarm
+ * sends its broadcast to AlarmReceiver, which creates the notifications and sets the alarm
+ * again for the next day any are due.
+ */
+public class AlarmManagerScheduler implements ReminderScheduler.AlarmScheduler {
+
+    private static final String TAG = "AlarmManagerScheduler";
+
+    // The application context the alarm is set with
+    private final Context context;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create a scheduler that sets alarms with the given context.
+     * @param context the current context, whose application context is kept
+     */
+    public AlarmManagerScheduler(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Install a scheduler for the application as the one the model sets alarms with, then
+     * set the alarm for the next day notifications are due.
+     * @param context the current context of the application
+     */
+    public static void rearm(Context context) {
+        ReminderScheduler.install(new AlarmManagerScheduler(context));
+        ReminderScheduler.rearm(context);
+    }
+
+    /**
+     * Set the alarm to go off at an exact time, replacing any alarm already set. Alarms are
+     * let go off while the device is idle where that's possible, since there's only one a day
+     * at most.
+     * @param triggerAtMillis the time to go off, in milliseconds since the epoch
+     */
+    @Override
+    public void setAlarm(long triggerAtMillis) {
+        AlarmManager alarmManager = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
+        assert alarmManager != null;
+        PendingIntent pendingIntent = buildPendingIntent();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        } else {
+            alarmManager.set(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
+        }
+        Log.i(TAG, "Alarm set for " + new Date(triggerAtMillis).toString());
+    }
+
+    /**
+     * Cancel the alarm, if one is set.
+     */
+    @Override
+    public void cancelAlarm() {
+        AlarmManager alarmManager = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
+        assert alarmManager != null;
+        alarmManager.cancel(buildPendingIntent());
+        Log.i(TAG, "Alarm cancelled, no notifications are due");
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Build the pending intent the alarm sends to AlarmReceiver. Every alarm is set with an
+     * equal intent, so setting one replaces any set before it.
+     * @return the pending intent
+     */
+    private PendingIntent buildPendingIntent() {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.setAction(AlarmReceiver.intentAction);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
@@ -4,11 +4,10 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
-import com.mpagliaro98.mysubscriptions.ui.MainActivity;
 
 /**
- * This class receives a broadcast that will be made from the AlarmManager each day,
- * and this will pass on control to the notification service.
+ * This class receives a broadcast that will be made from the AlarmManager on each day a
+ * notification is due, and this will pass on control to the notification service.
  */
 public class AlarmReceiver extends BroadcastReceiver {
 
@@ -20,12 +19,12 @@ public class AlarmReceiver extends BroadcastReceiver {
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Called at the time specified in setRecurringAlarm in MainActivity, when once a day
-     * this will use NotificationService to create notifications and update subscriptions.
-     * This is also called when the device is turned on, which will reset the alarm so
-     * notifications continue to run at the proper time.
+     * Called at the time set by AlarmManagerScheduler, when on each day a notification is
+     * due this will use NotificationService to create notifications and update subscriptions,
+     * then set the alarm for the next day one is due. This is also called when the device is
+     * turned on, which will reset the alarm so notifications continue to run at the proper time.
      * @param context The phone's current context (can be called when the app is closed)
-     * @param intent The pending intent (either from MainActivity or when boot completes)
+     * @param intent The pending intent (either from AlarmManagerScheduler or when boot completes)
      */
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -36,11 +35,12 @@ public class AlarmReceiver extends BroadcastReceiver {
                 Log.i(TAG, "Standard application intent, running notifications");
                 NotificationService notificationService = new NotificationService(context);
                 notificationService.processBackgroundTasks();
+                AlarmManagerScheduler.rearm(context);
             }
             // If the intent signals the phone was turned on, re-activate the notification alarm
             else if (intent.getAction().equals(Intent.ACTION_BOOT_COMPLETED)) {
                 Log.i(TAG, "Boot received, setting alarm");
-                MainActivity.setRecurringAlarm(context);
+                AlarmManagerScheduler.rearm(context);
             }
             else {
                 Log.w(TAG, "The intent sent to AlarmReceiver was not recognized");
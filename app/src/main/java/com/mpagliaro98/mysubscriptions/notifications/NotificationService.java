@@ -19,13 +19,16 @@ import com.mpagliaro98.mysubscriptions.ui.MainActivity;
 import com.mpagliaro98.mysubscriptions.ui.ViewSubscriptionActivity;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 /**
  * The notification service checks each subscription in the model, then sends a notification
  * out if today is the user-specified number of days before the next payment date of any
  * given subscription. Future subscription payment dates are also updated here.
+ *
+ * Usually only the notification index saved with the data is read, which holds the
+ * subscriptions due each day. The full data file is only loaded once a payment date has
+ * passed and dates need to be updated, or if the index is missing.
  */
 public class NotificationService {
 
@@ -78,7 +81,7 @@ public class NotificationService {
 
         // If the settings say notifications are off, stop here
         try {
-            SettingsManager settingsManager = new SettingsManager(context);
+            SettingsManager settingsManager = SettingsManager.getInstance(context);
             if (!settingsManager.getNotificationsOn()) {
                 return;
             }
@@ -87,44 +90,65 @@ public class NotificationService {
             return;
         }
 
+        // Get today as an epoch day, so it can be compared with dates in subscriptions
+        int today = zeroTimeCalendar.getEpochDay();
+
+        // Read today's subscriptions from the index, unless the full file has to be loaded
+        List<Subscription> subsWithNotifications = SharedViewModel.loadNotificationsDue(context, today);
+        if (subsWithNotifications != null) {
+            Log.i(TAG, "Subscriptions due today read from the notification index");
+        } else {
+            subsWithNotifications = loadNotificationsFromFile(today);
+            if (subsWithNotifications == null) {
+                sendIOExceptionNotif(notificationManager);
+                return;
+            }
+        }
+
+        // If there's subscriptions in the notify list, create a notification for them
+        if (!subsWithNotifications.isEmpty()) {
+            createSubNotification(notificationManager, subsWithNotifications);
+        }
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Load every subscription from the file, update any dates as necessary and save them,
+     * which also writes a new notification index, then find the subscriptions whose
+     * notification date is today.
+     * @param today today as an epoch day
+     * @return the subscriptions with a notification due today, or null if the file couldn't
+     *         be read or written
+     */
+    private List<Subscription> loadNotificationsFromFile(int today) {
         // Get the subscriptions from the file and update any dates as necessary
         SharedViewModel model = new SharedViewModel();
         try {
             model.loadFromFile(context);
-            int numUpdated = model.updateSubscriptionDates();
-            if (numUpdated > 0) {
-                model.saveToFile(context);
-            }
+            // This only writes the file if any dates changed or it's in an old format
+            model.updateSubscriptionDates();
+            model.saveToFile(context);
         } catch (IOException e) {
-            sendIOExceptionNotif(notificationManager);
-            return;
+            return null;
         }
         Log.i(TAG, "Subscriptions successfully loaded from file");
 
-        // Get today's date at 0:00:00 (so it matches with dates in subscriptions)
-        Date today = zeroTimeCalendar.getCurrentDate();
-
         // Loop through each subscription
         List<Subscription> subList = model.getFullSubscriptionList();
         List<Subscription> subsWithNotifications = new ArrayList<>();
         for (Subscription sub : subList) {
             // If this subscription's notification date is today, add it to the list
-            if (today.equals(sub.getNextNotifDate())) {
+            if (sub.getNextNotifDay() == today) {
                 Log.i(TAG, sub.getName() + " will be added to the notification");
                 subsWithNotifications.add(sub);
             }
         }
-
-        // If there's subscriptions in the notify list, create a notification for them
-        if (!subsWithNotifications.isEmpty()) {
-            createSubNotification(notificationManager, subsWithNotifications);
-        }
+        return subsWithNotifications;
     }
 
-    //////////////////////////////////////////////////////////////////////////////////////////
-    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
-    //////////////////////////////////////////////////////////////////////////////////////////
-
     /**
      * Helper method to create the notification channel needed to post notifications
      * on API level >= 26.
@@ -43,7 +43,7 @@ public class CreateSubscriptionActivity extends SubscriptionActivityAbstract {
         // Auto-fill the date field with the current date
         String dateFormat;
         try {
-            SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             dateFormat = settingsManager.getDateFormat();
         } catch (IOException e) {
             dateFormat = getString(R.string.date_format_default);
@@ -107,7 +107,7 @@ public class EditSubscriptionActivity extends SubscriptionActivityAbstract {
 
         // Put the object and its index in the intent and send it to the tab activity
         Intent intent = MainActivity.buildGeneralMainIntent(this,
-                MainActivity.INCOMING_TYPE.EDIT, subscription, subIndex, savedState);
+                MainActivity.INCOMING_TYPE.EDIT, subscription, subId, savedState);
         startActivity(intent);
     }
 
@@ -119,7 +119,7 @@ public class EditSubscriptionActivity extends SubscriptionActivityAbstract {
     @Override
     public void backButton() {
         Intent intent = ViewSubscriptionActivity.buildGeneralViewIntent(this, sub,
-                subIndex, savedState);
+                subId, savedState);
         startActivity(intent);
     }
 
@@ -133,15 +133,15 @@ public class EditSubscriptionActivity extends SubscriptionActivityAbstract {
      * method.
      * @param context the current application context
      * @param subscription the subscription object that will be visible in the UI fields
-     * @param subIndex the ID of the subscription
+     * @param subId the ID of the subscription
      * @param savedState any saved state to be passed back eventually to the calling activity
      * @return a valid intent for accessing this activity
      */
     public static Intent buildGeneralEditIntent(Context context, Subscription subscription,
-                                                int subIndex, Bundle savedState) {
+                                                int subId, Bundle savedState) {
         Intent intent = new Intent(context, EditSubscriptionActivity.class);
         intent.putExtra(VIEW_SUB_MESSAGE, subscription);
-        intent.putExtra(SUB_ID_MESSAGE, subIndex);
+        intent.putExtra(SUB_ID_MESSAGE, subId);
         intent.putExtra(MainActivity.SAVED_STATE_BUNDLE_MESSAGE, savedState);
         return intent;
     }
@@ -1,7 +1,5 @@
 package com.mpagliaro98.mysubscriptions.ui;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
@@ -12,24 +10,18 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.viewpager.widget.ViewPager;
 import androidx.appcompat.app.AppCompatActivity;
-import android.os.SystemClock;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import androidx.appcompat.widget.Toolbar;
 import com.mpagliaro98.mysubscriptions.R;
-import com.mpagliaro98.mysubscriptions.model.SettingsManager;
 import com.mpagliaro98.mysubscriptions.model.Subscription;
-import com.mpagliaro98.mysubscriptions.notifications.AlarmReceiver;
+import com.mpagliaro98.mysubscriptions.notifications.AlarmManagerScheduler;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.OnDataListenerReceived;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSyncCalendarListener;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.SavedStateCompatible;
 import com.mpagliaro98.mysubscriptions.ui.tabs.FragmentCalendar;
 import com.mpagliaro98.mysubscriptions.ui.tabs.SectionsPagerAdapter;
-import java.io.IOException;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -39,8 +31,8 @@ import java.util.List;
  * Data can be passed in here through intents in order to modify data in the underlying
  * model. If a change in data is occurring, any changes require that an INCOMING_TYPE be passed
  * in. If it's CREATE, a Subscription object should also be sent. If it's EDIT, a Subscription
- * object containing changes and the index of that subscription should be sent. If it's DELETE,
- * just the subscription's index should be sent. A saved state bundle is optional in all these
+ * object containing changes and the ID of that subscription should be sent. If it's DELETE,
+ * just the subscription's ID should be sent. A saved state bundle is optional in all these
  * cases, but often times it is passed around.
  */
 public class MainActivity extends AppCompatActivity implements ActivityCompat.OnRequestPermissionsResultCallback {
@@ -48,20 +40,18 @@ public class MainActivity extends AppCompatActivity implements ActivityCompat.On
     // Keys for information that new Subscription objects will have
     public static final String SUBSCRIPTION_MESSAGE = "com.mpagliaro98.mysubscriptions.SUBSCRIPTION";
     public static final String INCOMING_TYPE_MESSAGE = "com.mpagliaro98.mysubscriptions.INCOMING_TYPE";
-    public static final String INCOMING_INDEX_MESSAGE = "com.mpagliaro98.mysubscriptions.INCOMING_INDEX";
+    public static final String INCOMING_ID_MESSAGE = "com.mpagliaro98.mysubscriptions.INCOMING_ID";
     // Key for a saved state bundle when returning to a tab
     public static final String SAVED_STATE_BUNDLE_MESSAGE = "com.mpagliaro98.mysubscriptions.SAVED_STATE";
     public static final String SAVED_STATE_TAB_MESSAGE = "com.mpagliaro98.mysubscriptions.SAVED_STATE_TAB";
 
-    private static final String TAG = "MainActivity";
-
     // The type of action we want to do with the incoming data
     public enum INCOMING_TYPE {CREATE, EDIT, DELETE}
 
     // Incoming data for handling new or updated Subscription objects
     private Subscription incomingData;
     private INCOMING_TYPE incomingType;
-    private Integer incomingIndex;
+    private Integer incomingId;
 
     // The class that will be called to handle when the sync calendar button is pressed
     private OnSyncCalendarListener syncCalendarListener;
@@ -104,10 +94,10 @@ public class MainActivity extends AppCompatActivity implements ActivityCompat.On
         // Check if any data was passed here, and save it to private fields
         incomingData = (Subscription)intent.getSerializableExtra(SUBSCRIPTION_MESSAGE);
         incomingType = (INCOMING_TYPE)intent.getSerializableExtra(INCOMING_TYPE_MESSAGE);
-        incomingIndex = intent.getIntExtra(INCOMING_INDEX_MESSAGE, -1);
+        incomingId = intent.getIntExtra(INCOMING_ID_MESSAGE, -1);
 
-        // Set the time notifications will be checked
-        setRecurringAlarm(getApplicationContext());
+        // Set the alarm for the next day notifications are due
+        AlarmManagerScheduler.rearm(getApplicationContext());
     }
 
     /**
@@ -169,7 +159,7 @@ public class MainActivity extends AppCompatActivity implements ActivityCompat.On
      */
     public void checkIncomingData(OnDataListenerReceived listener) {
         if (incomingType != null) {
-            listener.onDataReceived(incomingData, incomingType, incomingIndex);
+            listener.onDataReceived(incomingData, incomingType, incomingId);
         }
     }
 
@@ -287,53 +277,6 @@ public class MainActivity extends AppCompatActivity implements ActivityCompat.On
     // STATIC METHODS ////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
-    /**
-     * Set up the alarm, which at a certain time each day will create notifications.
-     * @param context the context to create the intent with
-     */
-    public static void setRecurringAlarm(Context context) {
-        // Get how long it will be from now until the time notifications will go off
-        // Since "now" needs to have the current time, we won't use a zero time calendar here
-        Calendar alarmTime = Calendar.getInstance();
-        Date now = alarmTime.getTime();
-
-        // Set the alarm time to the value in settings - if it fails, default to 6am
-        try {
-            SettingsManager settingsManager = new SettingsManager(context);
-            Date alarmDate = settingsManager.getNotificationTime();
-            Calendar tempCalendar = Calendar.getInstance();
-            tempCalendar.setTime(alarmDate);
-            alarmTime.set(Calendar.HOUR_OF_DAY, tempCalendar.get(Calendar.HOUR_OF_DAY));
-            alarmTime.set(Calendar.MINUTE, tempCalendar.get(Calendar.MINUTE));
-            alarmTime.set(Calendar.SECOND, 0);
-            alarmTime.set(Calendar.MILLISECOND, 0);
-        } catch (IOException e){
-            alarmTime.set(Calendar.HOUR_OF_DAY, 6);
-            alarmTime.set(Calendar.MINUTE, 0);
-            alarmTime.set(Calendar.SECOND, 0);
-            alarmTime.set(Calendar.MILLISECOND, 0);
-        }
-        if (now.after(alarmTime.getTime())) {
-            alarmTime.add(Calendar.DATE, 1);
-        }
-        long timeUntilAlarm = alarmTime.getTime().getTime() - now.getTime();
-        Log.i(TAG, "Alarm time set to " + alarmTime.getTime().toString() + ", " +
-                timeUntilAlarm + " milliseconds from now");
-
-        // Build the pending intent and set the alarm
-        Intent intent = new Intent(context, AlarmReceiver.class);
-        intent.setAction(AlarmReceiver.intentAction);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context,
-                0, intent, PendingIntent.FLAG_CANCEL_CURRENT);
-        AlarmManager alarmManager = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
-        assert alarmManager != null;
-        alarmManager.cancel(pendingIntent);
-        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
-                SystemClock.elapsedRealtime() + timeUntilAlarm,
-                AlarmManager.INTERVAL_DAY, pendingIntent);
-        Log.i(TAG, "Repeating alarm set (currently elapsed time = " + SystemClock.elapsedRealtime() + ")");
-    }
-
     /**
      * Create a valid intent that can be used to access this activity. To access this activity,
      * several pieces of information need to be provided, which are specified by this
@@ -342,16 +285,16 @@ public class MainActivity extends AppCompatActivity implements ActivityCompat.On
      * @param incomingType the incoming type determines how the incoming data will be handled,
      *                     it is either CREATE, EDIT, or DELETE, or null if nothing should change
      * @param subscription incoming subscription data
-     * @param subIndex the ID of the incoming subscription, or -1 if it is new
+     * @param subId the ID of the incoming subscription, or -1 if it is new
      * @param savedState any saved state from this activity that will be reapplied later
      * @return a valid intent for accessing this activity
      */
     public static Intent buildGeneralMainIntent(Context context, MainActivity.INCOMING_TYPE incomingType,
-                                                Subscription subscription, int subIndex, Bundle savedState) {
+                                                Subscription subscription, int subId, Bundle savedState) {
         Intent intent = new Intent(context, MainActivity.class);
         intent.putExtra(MainActivity.SUBSCRIPTION_MESSAGE, subscription);
         intent.putExtra(MainActivity.INCOMING_TYPE_MESSAGE, incomingType);
-        intent.putExtra(MainActivity.INCOMING_INDEX_MESSAGE, subIndex);
+        intent.putExtra(MainActivity.INCOMING_ID_MESSAGE, subId);
         intent.putExtra(MainActivity.SAVED_STATE_BUNDLE_MESSAGE, savedState);
         return intent;
     }
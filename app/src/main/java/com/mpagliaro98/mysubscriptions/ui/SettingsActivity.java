@@ -26,6 +26,7 @@ import androidx.core.app.ActivityCompat;
 import com.google.android.material.snackbar.Snackbar;
 import com.mpagliaro98.mysubscriptions.R;
 import com.mpagliaro98.mysubscriptions.model.SettingsManager;
+import com.mpagliaro98.mysubscriptions.notifications.AlarmManagerScheduler;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -68,7 +69,7 @@ public class SettingsActivity extends AppCompatActivity {
 
         // Set the UI elements to their starting values based on existing settings
         try {
-            SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             initializeUI(settingsManager);
         } catch (IOException e) {
             showErrorSnackbar(findViewById(android.R.id.content), getString(R.string.settings_snackbar_ioexception));
@@ -109,11 +110,12 @@ public class SettingsActivity extends AppCompatActivity {
     public void saveSettings(View view) {
         try {
             // Get the settings manager and the UI elements holding the settings
-            SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             Switch notifSwitch = findViewById(R.id.settings_notifications);
             TextView time = findViewById(R.id.settings_result_notiftime);
             Spinner currencyDropdown = findViewById(R.id.settings_currency_dropdown);
             Spinner dateFormatDropdown = findViewById(R.id.settings_date_format_dropdown);
+            Switch recurringSwitch = findViewById(R.id.settings_recurring_events);
 
             // Get the values from the UI
             boolean notificationsOn = notifSwitch.isChecked();
@@ -130,11 +132,12 @@ public class SettingsActivity extends AppCompatActivity {
             }
             String currencySymbol = (String)currencyDropdown.getSelectedItem();
             String dateFormat = (String)dateFormatDropdown.getSelectedItem();
+            boolean recurringCalendarEvents = recurringSwitch.isChecked();
 
             // Save the settings and display a success message if it works
             settingsManager.setSettings(notificationsOn, notifTime, currencySymbol,
-                    dateFormat, getApplicationContext());
-            MainActivity.setRecurringAlarm(getApplicationContext());
+                    dateFormat, recurringCalendarEvents, getApplicationContext());
+            AlarmManagerScheduler.rearm(getApplicationContext());
             Snackbar successBar = Snackbar.make(findViewById(android.R.id.content),
                     R.string.settings_snackbar_success, Snackbar.LENGTH_LONG);
             successBar.show();
@@ -150,7 +153,7 @@ public class SettingsActivity extends AppCompatActivity {
      */
     public void resetDefaults(View view) {
         try {
-            final SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            final SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             new AlertDialog.Builder(this)
                     .setTitle(getString(R.string.settings_reset_button))
                     .setMessage(getString(R.string.settings_reset_message))
@@ -160,7 +163,7 @@ public class SettingsActivity extends AppCompatActivity {
                             try {
                                 settingsManager.resetToDefaults(getApplicationContext());
                                 initializeUI(settingsManager);
-                                MainActivity.setRecurringAlarm(getApplicationContext());
+                                AlarmManagerScheduler.rearm(getApplicationContext());
                                 Snackbar.make(findViewById(android.R.id.content),
                                         R.string.settings_reset_success, Snackbar.LENGTH_LONG).show();
                             } catch (IOException e) {
@@ -181,7 +184,7 @@ public class SettingsActivity extends AppCompatActivity {
      */
     public void deleteData(View view) {
         try {
-            final SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            final SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             new AlertDialog.Builder(this)
                     .setTitle(getString(R.string.settings_delete_button))
                     .setMessage(getString(R.string.settings_delete_message))
@@ -210,7 +213,7 @@ public class SettingsActivity extends AppCompatActivity {
      */
     public void deleteSyncedCalendar(View view) {
         try {
-            final SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            final SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             new AlertDialog.Builder(this)
                     .setTitle(getString(R.string.settings_deletesync_button))
                     .setMessage(getString(R.string.settings_deletesync_message))
@@ -281,6 +284,7 @@ public class SettingsActivity extends AppCompatActivity {
         final TextView time = findViewById(R.id.settings_result_notiftime);
         Spinner currencyDropdown = findViewById(R.id.settings_currency_dropdown);
         Spinner dateFormatDropdown = findViewById(R.id.settings_date_format_dropdown);
+        Switch recurringSwitch = findViewById(R.id.settings_recurring_events);
 
         // Set notifications to be on or off
         notifSwitch.setChecked(settingsManager.getNotificationsOn());
@@ -338,6 +342,9 @@ public class SettingsActivity extends AppCompatActivity {
             }
         }
 
+        // Set calendar syncs to use repeating events or not
+        recurringSwitch.setChecked(settingsManager.getRecurringCalendarEvents());
+
         // If calendar permissions aren't granted or a sync calendar doesn't exist, remove the delete sync calendar button
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.READ_CALENDAR)
                 != PackageManager.PERMISSION_GRANTED || ActivityCompat.checkSelfPermission(
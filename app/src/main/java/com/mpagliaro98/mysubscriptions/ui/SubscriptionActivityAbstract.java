@@ -47,8 +47,8 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
 
     // The subscription object being used by this page
     protected Subscription sub;
-    // The index of the subscription we are currently looking at
-    protected int subIndex;
+    // The ID of the subscription we are currently looking at
+    protected int subId;
     // The saved state bundle from the previous activity
     protected Bundle savedState;
 
@@ -81,7 +81,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
         String currencySymbol;
         String dateFormat;
         try {
-            SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             currencySymbol = settingsManager.getCurrencySymbol();
             dateFormat = settingsManager.getDateFormat();
         } catch (IOException e) {
@@ -104,8 +104,8 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
         Intent intent = getIntent();
         // This incoming subscription will be null when page type is CREATE
         sub = (Subscription)intent.getSerializableExtra(VIEW_SUB_MESSAGE);
-        // Save the index of this subscription, if it's null it isn't needed and will be set to -1
-        subIndex = intent.getIntExtra(SUB_ID_MESSAGE, -1);
+        // Save the ID of this subscription, if it's null it isn't needed and will be set to -1
+        subId = intent.getIntExtra(SUB_ID_MESSAGE, -1);
         // Saved the state from the previous activity so we can send it back when we return
         savedState = intent.getBundleExtra(MainActivity.SAVED_STATE_BUNDLE_MESSAGE);
 
@@ -140,7 +140,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
         // When the edit button is pressed, reload this page in edit mode
         if (id == R.id.create_edit_button) {
             Intent intent = EditSubscriptionActivity.buildGeneralEditIntent(this,
-                    parseInputFields(null), subIndex, savedState);
+                    parseInputFields(null), subId, savedState);
             startActivity(intent);
         }
         // When the delete button is pressed, display a yes/no dialog
@@ -153,7 +153,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
                         @Override
                         public void onClick(DialogInterface dialog, int which) {
                             Intent intent = MainActivity.buildGeneralMainIntent(packageContext,
-                                    MainActivity.INCOMING_TYPE.DELETE, null, subIndex, savedState);
+                                    MainActivity.INCOMING_TYPE.DELETE, null, subId, savedState);
                             startActivity(intent);
                         }
                     })
@@ -237,7 +237,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
         Date date;
         String dateFormat;
         try {
-            SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             dateFormat = settingsManager.getDateFormat();
         } catch (IOException e) {
             dateFormat = getString(R.string.date_format_default);
@@ -258,7 +258,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
         String costTemp = costText.getText().toString();
         String currencySymbol;
         try {
-            SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
             currencySymbol = settingsManager.getCurrencySymbol();
         } catch (IOException e) {
             currencySymbol = getString(R.string.currency_default);
@@ -472,7 +472,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
                 final ZeroTimeCalendar zeroTimeCalendar = new ZeroTimeCalendar();
                 String dateFormat;
                 try {
-                    SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+                    SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
                     dateFormat = settingsManager.getDateFormat();
                 } catch (IOException e) {
                     dateFormat = getString(R.string.date_format_default);
@@ -498,7 +498,7 @@ public abstract class SubscriptionActivityAbstract extends AppCompatActivity {
                                 Date enteredDate = zeroTimeCalendar.getCurrentDate();
                                 String dateFormat;
                                 try {
-                                    SettingsManager settingsManager = new SettingsManager(getApplicationContext());
+                                    SettingsManager settingsManager = SettingsManager.getInstance(getApplicationContext());
                                     dateFormat = settingsManager.getDateFormat();
                                 } catch (IOException e) {
                                     dateFormat = getString(R.string.date_format_default);
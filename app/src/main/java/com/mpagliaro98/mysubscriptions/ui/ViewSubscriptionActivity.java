@@ -117,15 +117,15 @@ public class ViewSubscriptionActivity extends SubscriptionActivityAbstract {
      * method.
      * @param context the current application context
      * @param subscription the subscription object that will be visible in the UI fields
-     * @param subIndex the ID of the subscription
+     * @param subId the ID of the subscription
      * @param savedState any saved state to be passed back eventually to the calling activity
      * @return a valid intent for accessing this activity
      */
     public static Intent buildGeneralViewIntent(Context context, Subscription subscription,
-                                                  int subIndex, Bundle savedState) {
+                                                  int subId, Bundle savedState) {
         Intent intent = new Intent(context, ViewSubscriptionActivity.class);
         intent.putExtra(VIEW_SUB_MESSAGE, subscription);
-        intent.putExtra(SUB_ID_MESSAGE, subIndex);
+        intent.putExtra(SUB_ID_MESSAGE, subId);
         intent.putExtra(MainActivity.SAVED_STATE_BUNDLE_MESSAGE, savedState);
         return intent;
     }
@@ -3,6 +3,7 @@ package com.mpagliaro98.mysubscriptions.ui.components;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.util.DisplayMetrics;
@@ -13,10 +14,8 @@ import android.widget.ArrayAdapter;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import com.mpagliaro98.mysubscriptions.R;
-import com.mpagliaro98.mysubscriptions.model.ZeroTimeCalendar;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashSet;
 
 /**
  * Component class for the calendar UI element used in the calendar tab.
@@ -24,37 +23,53 @@ import java.util.HashSet;
  */
 public class CalendarAdapter extends ArrayAdapter<Date> {
 
-    // Set of days with events that should be highlighted
-    private HashSet<Date> eventDays;
+    // What each cell shows, worked out when the calendar changed months
+    private CalendarMonthEvents monthEvents;
 
     // The view inflater
     private LayoutInflater inflater;
 
-    // The month and year the calendar is currently showing
-    private int showingMonth;
-    private int showingYear;
+    // The minimum height of each cell in pixels
+    private int cellMinHeight;
+
+    // The colors used to style cells, loaded once instead of for every cell
+    private int colorEvent;
+    private int colorEventNotCurrent;
+    private int colorNotCurrent;
+    private int colorToday;
+    private int colorTodayNotCurrent;
+
+    // The text shown for each day of the month, so cells don't need to make new strings
+    private static final String[] DAY_LABELS = new String[32];
+    static {
+        for (int day = 0; day < DAY_LABELS.length; day++) {
+            DAY_LABELS[day] = String.valueOf(day);
+        }
+    }
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Create this adapter and initialize the set of events and the inflater that will
-     * be used later when the view of the given day is needed.
+     * Create this adapter and initialize the cell contents, colors, and cell height that
+     * will be used later when the view of the given day is needed.
      * @param context the current application context
      * @param days a list of days that make up the current month (and parts of the previous
      *             and next months) that is visible in the calendar
-     * @param eventDays a set of days that contain events and should be highlighted
-     * @param showingMonth the month currently being displayed by the calendar
-     * @param showingYear the year currently being displayed by the calendar
+     * @param monthEvents what each cell shows, including which cells have events
      */
-    public CalendarAdapter(Context context, ArrayList<Date> days, HashSet<Date> eventDays,
-                           int showingMonth, int showingYear) {
+    CalendarAdapter(Context context, ArrayList<Date> days, CalendarMonthEvents monthEvents) {
         super(context, R.layout.component_subscriptioncalendar_day, days);
-        this.eventDays = eventDays;
+        this.monthEvents = monthEvents;
         this.inflater = LayoutInflater.from(context);
-        this.showingMonth = showingMonth;
-        this.showingYear = showingYear;
+        this.cellMinHeight = calculateCellMinHeight(context);
+        Resources resources = context.getResources();
+        this.colorEvent = resources.getColor(R.color.colorCalendarEvent);
+        this.colorEventNotCurrent = resources.getColor(R.color.colorCalendarEventNotCurrent);
+        this.colorNotCurrent = resources.getColor(R.color.colorLightGreyBG);
+        this.colorToday = resources.getColor(R.color.colorCalendarToday);
+        this.colorTodayNotCurrent = resources.getColor(R.color.colorCalendarTodayNotCurrent);
     }
 
     /**
@@ -70,81 +85,56 @@ public class CalendarAdapter extends ArrayAdapter<Date> {
     @Override
     @NonNull
     public View getView(int position, View view, @NonNull ViewGroup parent) {
-        // Get the date at this position
-        Date date = getItem(position);
-        assert date != null;
-        ZeroTimeCalendar calendar = new ZeroTimeCalendar();
-        calendar.setTimeToDate(date);
-        int day = calendar.getDayOfMonth();
-        int month = calendar.getMonth();
-        int year = calendar.getYear();
-
-        // Get today
-        ZeroTimeCalendar today = new ZeroTimeCalendar();
-
         // Inflate the item if it does not exist yet
-        if (view == null)
+        if (view == null) {
             view = inflater.inflate(R.layout.component_subscriptioncalendar_day, parent, false);
-
-        // Put a minimum height of 35dp on each cell if the phone is in portrait orientation
-        if (getContext().getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT) {
-            float pxHeight = 35 * ((float) getContext().getResources().getDisplayMetrics().densityDpi / DisplayMetrics.DENSITY_DEFAULT);
-            view.setMinimumHeight((int)Math.ceil(pxHeight));
-        }
-        // Otherwise, use the screen height to estimate a proper min height in dp
-        else {
-            DisplayMetrics displayMetrics = new DisplayMetrics();
-            ((Activity)getContext()).getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
-            int screenHeightPx = displayMetrics.heightPixels;
-            float screenHeightDp = screenHeightPx / ((float) getContext().getResources().getDisplayMetrics().densityDpi /
-                    DisplayMetrics.DENSITY_DEFAULT);
-            double gridSizeEstimate = (screenHeightDp * 0.66) - 90;
-            int cellHeight = (int)Math.floor(gridSizeEstimate / 6);
-            float pxHeight = cellHeight * ((float) getContext().getResources().getDisplayMetrics().densityDpi / DisplayMetrics.DENSITY_DEFAULT);
-            view.setMinimumHeight((int)Math.ceil(pxHeight));
+            view.setMinimumHeight(cellMinHeight);
         }
+        TextView textView = (TextView)view;
+        boolean inShowingMonth = monthEvents.isInShowingMonth(position);
 
         // If this day has an event, specify event image
-        view.setBackgroundResource(0);
-        if (eventDays != null) {
-            for (Date eventDate : eventDays) {
-                ZeroTimeCalendar eventDateCalendar = new ZeroTimeCalendar();
-                eventDateCalendar.setTimeToDate(eventDate);
-                if (eventDateCalendar.getDayOfMonth() == day &&
-                        eventDateCalendar.getMonth() == month &&
-                        eventDateCalendar.getYear() == year) {
-                    // Mark this day for event
-                    if (month != showingMonth || year != showingYear) {
-                        view.setBackgroundColor(getContext().getResources().getColor(R.color.colorCalendarEventNotCurrent));
-                    } else {
-                        view.setBackgroundColor(getContext().getResources().getColor(R.color.colorCalendarEvent));
-                    }
-                    break;
-                }
-            }
+        if (monthEvents.hasEvent(position)) {
+            view.setBackgroundColor(inShowingMonth ? colorEvent : colorEventNotCurrent);
+        } else {
+            view.setBackgroundResource(0);
         }
 
-        // Clear the styling done on this grid space
-        ((TextView)view).setTypeface(null, Typeface.NORMAL);
-        ((TextView)view).setTextColor(Color.BLACK);
-
-        // If this date is outside the current month, grey it out
-        if (month != showingMonth || year != showingYear) {
-            ((TextView)view).setTextColor(getContext().getResources().getColor(R.color.colorLightGreyBG));
-        }
-        // If this date is today, set it to the primary color and bold
-        if (day == today.getDayOfMonth() && month == today.getMonth() &&
-                year == today.getYear()) {
-            ((TextView)view).setTypeface(null, Typeface.BOLD);
-            if (month != showingMonth || year != showingYear) {
-                ((TextView) view).setTextColor(getContext().getResources().getColor(R.color.colorCalendarTodayNotCurrent));
-            } else {
-                ((TextView) view).setTextColor(getContext().getResources().getColor(R.color.colorCalendarToday));
-            }
+        // Style the text for today, days outside the current month, and other days
+        if (monthEvents.isToday(position)) {
+            textView.setTypeface(null, Typeface.BOLD);
+            textView.setTextColor(inShowingMonth ? colorToday : colorTodayNotCurrent);
+        } else {
+            textView.setTypeface(null, Typeface.NORMAL);
+            textView.setTextColor(inShowingMonth ? Color.BLACK : colorNotCurrent);
         }
 
         // Set the number of this date
-        ((TextView)view).setText(String.valueOf(calendar.getDayOfMonth()));
+        textView.setText(DAY_LABELS[monthEvents.dayOfMonth(position)]);
         return view;
     }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Work out the minimum height of each cell. This is 35dp if the phone is in portrait
+     * orientation, otherwise the screen height is used to estimate a height that fits.
+     * @param context the current application context
+     * @return the minimum height of a cell in pixels
+     */
+    private int calculateCellMinHeight(Context context) {
+        Resources resources = context.getResources();
+        float density = (float)resources.getDisplayMetrics().densityDpi / DisplayMetrics.DENSITY_DEFAULT;
+        if (resources.getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT) {
+            return (int)Math.ceil(35 * density);
+        }
+        DisplayMetrics displayMetrics = new DisplayMetrics();
+        ((Activity)context).getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
+        float screenHeightDp = displayMetrics.heightPixels / density;
+        double gridSizeEstimate = (screenHeightDp * 0.66) - 90;
+        int cellHeight = (int)Math.floor(gridSizeEstimate / 6);
+        return (int)Math.ceil(cellHeight * density);
+    }
 }
@@ -0,0 +1,110 @@
+package com.mpagliaro98.mysubscriptions.ui.components;
+
+import com.mpagliaro98.mysubscriptions.model.ZeroTimeCalendar;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.CalendarEventSource;
+
+/**
+ * Everything the calendar grid needs to draw its cells for one visible month, worked out
+ * once when the calendar changes months. Which cells have events is kept as one bit per
+ * cell, along with how many events each cell has, so drawing a cell is only a lookup.
+ */
+class CalendarMonthEvents {
+
+    // The number of cells in the calendar grid
+    static final int NUM_CELLS = 42;
+
+    // Bit i is set if cell i has at least one event
+    private long eventMask = 0;
+    // The number of events in each cell
+    private byte[] eventCounts = new byte[NUM_CELLS];
+    // The day of the month shown in each cell
+    private byte[] cellDays = new byte[NUM_CELLS];
+    // Bit i is set if cell i is in the month being shown, rather than the month before or after
+    private long showingMonthMask = 0;
+    // The cell that is today, or -1 if today isn't visible
+    private int todayCell = -1;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Work out the contents of every cell in the grid.
+     * @param firstCell a calendar set to the date of the first cell in the grid, this will be
+     *                  left set to the day after the last cell
+     * @param showingMonth the month the calendar is showing
+     * @param showingYear the year the calendar is showing
+     * @param today a calendar set to today's date
+     * @param events the source of which days have events, or null if there are none
+     */
+    CalendarMonthEvents(ZeroTimeCalendar firstCell, int showingMonth, int showingYear,
+                        ZeroTimeCalendar today, CalendarEventSource events) {
+        int todayOffset = today.getEpochDay() - firstCell.getEpochDay();
+        if (todayOffset >= 0 && todayOffset < NUM_CELLS) {
+            todayCell = todayOffset;
+        }
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            int year = firstCell.getYear();
+            int month = firstCell.getMonth();
+            int day = firstCell.getDayOfMonth();
+            cellDays[cell] = (byte)day;
+            if (month == showingMonth && year == showingYear) {
+                showingMonthMask |= 1L << cell;
+            }
+            if (events != null) {
+                int numEvents = Math.min(events.numEventsOn(year, month, day), Byte.MAX_VALUE);
+                eventCounts[cell] = (byte)numEvents;
+                if (numEvents > 0) {
+                    eventMask |= 1L << cell;
+                }
+            }
+            firstCell.addDays(1);
+        }
+    }
+
+    /**
+     * Check if a cell has any events on it.
+     * @param cell the position of the cell in the grid
+     * @return true if the cell has at least one event, false otherwise
+     */
+    boolean hasEvent(int cell) {
+        return (eventMask & (1L << cell)) != 0;
+    }
+
+    /**
+     * Get the number of events on a cell.
+     * @param cell the position of the cell in the grid
+     * @return the number of events, capped at 127
+     */
+    int numEvents(int cell) {
+        return eventCounts[cell];
+    }
+
+    /**
+     * Get the day of the month shown in a cell.
+     * @param cell the position of the cell in the grid
+     * @return the day of the month
+     */
+    int dayOfMonth(int cell) {
+        return cellDays[cell];
+    }
+
+    /**
+     * Check if a cell is in the month being shown.
+     * @param cell the position of the cell in the grid
+     * @return true if the cell is in the month being shown, false if it's in the month
+     *         before or after
+     */
+    boolean isInShowingMonth(int cell) {
+        return (showingMonthMask & (1L << cell)) != 0;
+    }
+
+    /**
+     * Check if a cell is today.
+     * @param cell the position of the cell in the grid
+     * @return true if the cell is today's date, false otherwise
+     */
+    boolean isToday(int cell) {
+        return cell == todayCell;
+    }
+}
@@ -13,10 +13,10 @@ import android.widget.TextView;
 import com.mpagliaro98.mysubscriptions.R;
 import com.mpagliaro98.mysubscriptions.model.ZeroTimeCalendar;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.CalendarEventHandler;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.CalendarEventSource;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.Locale;
 
 /**
@@ -29,11 +29,11 @@ public class SubscriptionCalendar extends LinearLayout {
     private ImageView btnNext;
     private TextView txtDate;
     private GridView grid;
-    private static final int DAYS_COUNT = 42;
+    private static final int DAYS_COUNT = CalendarMonthEvents.NUM_CELLS;
     private ZeroTimeCalendar currentDate = new ZeroTimeCalendar();
     private String dateFormat;
     private CalendarEventHandler calendarEventHandler = null;
-    private HashSet<Date> events = null;
+    private CalendarEventSource events = null;
     private Date selectedDate = currentDate.getCurrentDate();
 
     //////////////////////////////////////////////////////////////////////////////////////////
@@ -79,17 +79,16 @@ public class SubscriptionCalendar extends LinearLayout {
     }
 
     /**
-     * Give the calendar a set of events to highlight, that it will be able to hold onto
+     * Give the calendar a source of events to highlight, that it will be able to hold onto
      * between calendar updates.
-     * @param events a set of dates that represent days that should be highlighted in
-     *               the calendar
+     * @param events an object that tells which days should be highlighted in the calendar
      */
-    public void setEvents(HashSet<Date> events) {
+    public void setEvents(CalendarEventSource events) {
         this.events = events;
     }
 
     /**
-     * Clear the set of events.
+     * Clear the source of events.
      */
     public void clearEvents() {
         this.events = null;
@@ -100,7 +99,7 @@ public class SubscriptionCalendar extends LinearLayout {
      */
     public void updateCalendar() {
         // Initialize a list of dates for every cell in the calendar
-        ArrayList<Date> cells = new ArrayList<>();
+        ArrayList<Date> cells = new ArrayList<>(DAYS_COUNT);
         ZeroTimeCalendar calendar = currentDate.copyCalendar();
 
         // Determine the cell for current month's beginning
@@ -109,6 +108,7 @@ public class SubscriptionCalendar extends LinearLayout {
 
         // Move calendar backwards to the beginning of the week
         calendar.addDays(-monthBeginningCell);
+        ZeroTimeCalendar firstCell = calendar.copyCalendar();
 
         // Fill the cells with the dates they will contain
         while (cells.size() < DAYS_COUNT) {
@@ -116,9 +116,12 @@ public class SubscriptionCalendar extends LinearLayout {
             calendar.addDays(1);
         }
 
+        // Work out which cells have events once, so drawing each cell is just a lookup
+        CalendarMonthEvents monthEvents = new CalendarMonthEvents(firstCell,
+                currentDate.getMonth(), currentDate.getYear(), new ZeroTimeCalendar(), events);
+
         // Update the grid to display their proper views
-        grid.setAdapter(new CalendarAdapter(getContext(), cells, events,
-                currentDate.getMonth(), currentDate.getYear()));
+        grid.setAdapter(new CalendarAdapter(getContext(), cells, monthEvents));
 
         // Update the title to the current month and year
         SimpleDateFormat sdf = new SimpleDateFormat(dateFormat, Locale.US);
@@ -0,0 +1,192 @@
+package com.mpagliaro98.mysubscriptions.ui.components;
+
+import android.view.View;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+import com.mpagliaro98.mysubscriptions.model.Subscription;
+import com.mpagliaro98.mysubscriptions.model.ZeroTimeCalendar;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSubscriptionClickListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An adapter that displays a list of subscriptions in a RecyclerView. Only enough
+ * SubscriptionViews to fill the screen are created, and they are bound to different
+ * subscriptions as the list scrolls. When a new list is given to the adapter, the
+ * difference from the old list is worked out, so only rows that moved, appeared,
+ * disappeared, or changed are updated.
+ */
+public class SubscriptionListAdapter extends RecyclerView.Adapter<SubscriptionListAdapter.ViewHolder> {
+
+    // The subscriptions currently displayed, in order
+    private List<Subscription> subscriptions = new ArrayList<>();
+    // What each displayed row showed when it was last given to the adapter
+    private List<RowContents> rowContents = new ArrayList<>();
+    // Called when a row in the list is pressed
+    private OnSubscriptionClickListener clickListener;
+    // A calendar of today's date with the time set to 0:00:00, as of the last time the list
+    // was given to the adapter
+    private ZeroTimeCalendar zeroTimeCalendar;
+
+    /**
+     * Holds a SubscriptionView that is reused for different rows of the list.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+
+        // The view this holder displays subscriptions in
+        final SubscriptionView subscriptionView;
+
+        /**
+         * Create a holder for a subscription view.
+         * @param subscriptionView the view to display subscriptions in
+         */
+        ViewHolder(SubscriptionView subscriptionView) {
+            super(subscriptionView);
+            this.subscriptionView = subscriptionView;
+        }
+    }
+
+    /**
+     * The values a subscription row displays, used to tell if a row needs to be bound again.
+     * The subscription objects themselves can't be compared, since they may be changed in
+     * place while the adapter is holding them.
+     */
+    private static class RowContents {
+
+        // Each value displayed on a row
+        final String name;
+        final double cost;
+        final int rechargeFrequency;
+        final int nextPaymentDay;
+        final int categoryColor;
+
+        /**
+         * Save the values a subscription's row displays.
+         * @param subscription the subscription to save the values of
+         */
+        RowContents(Subscription subscription) {
+            name = subscription.getName();
+            cost = subscription.getCost();
+            rechargeFrequency = subscription.getRechargeFrequency();
+            nextPaymentDay = subscription.getNextPaymentDay();
+            categoryColor = subscription.getCategory().getColor();
+        }
+
+        /**
+         * Check if this row would display the same values as another.
+         * @param other the other row's values
+         * @return true if both rows display the same values, false otherwise
+         */
+        boolean sameAs(RowContents other) {
+            return name.equals(other.name) && cost == other.cost &&
+                    rechargeFrequency == other.rechargeFrequency &&
+                    nextPaymentDay == other.nextPaymentDay &&
+                    categoryColor == other.categoryColor;
+        }
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create the adapter with an empty list.
+     * @param clickListener called when a subscription in the list is pressed
+     */
+    public SubscriptionListAdapter(OnSubscriptionClickListener clickListener) {
+        this.clickListener = clickListener;
+        this.zeroTimeCalendar = new ZeroTimeCalendar();
+    }
+
+    /**
+     * Display a new list of subscriptions. The list is copied, so later changes to it won't
+     * affect the adapter until it's given to this method again. Rows are moved, inserted,
+     * removed, and re-bound based on how the new list differs from the current one. If the
+     * day has changed since the list was last given, every row is re-bound, since rows
+     * highlight payments that are due today.
+     * @param newSubscriptions the subscriptions to display, in order
+     */
+    public void setSubscriptions(List<Subscription> newSubscriptions) {
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        final boolean dayChanged = today.getEpochDay() != zeroTimeCalendar.getEpochDay();
+        zeroTimeCalendar = today;
+        final List<Subscription> oldSubscriptions = subscriptions;
+        final List<RowContents> oldRowContents = rowContents;
+        final List<Subscription> newList = new ArrayList<>(newSubscriptions);
+        final List<RowContents> newRowContents = new ArrayList<>(newList.size());
+        for (Subscription subscription : newList) {
+            newRowContents.add(new RowContents(subscription));
+        }
+
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldSubscriptions.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldSubscriptions.get(oldItemPosition) == newList.get(newItemPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return !dayChanged && oldRowContents.get(oldItemPosition).sameAs(newRowContents.get(newItemPosition));
+            }
+        });
+        subscriptions = newList;
+        rowContents = newRowContents;
+        diffResult.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Create a new row view, which will be bound to subscriptions as needed.
+     * @param parent the RecyclerView the row will be added to
+     * @param viewType the type of view, unused since every row is the same
+     * @return a holder for the new row view
+     */
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        SubscriptionView subscriptionView = new SubscriptionView(parent.getContext());
+        subscriptionView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        final ViewHolder holder = new ViewHolder(subscriptionView);
+        subscriptionView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    clickListener.onSubscriptionClick(subscriptions.get(position));
+                }
+            }
+        });
+        return holder;
+    }
+
+    /**
+     * Display the subscription at a position of the list on a row view.
+     * @param holder the holder of the row view
+     * @param position the position in the list of the subscription to display
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.subscriptionView.bind(subscriptions.get(position), zeroTimeCalendar);
+    }
+
+    /**
+     * Get the number of subscriptions in the list.
+     * @return the number of rows as an int
+     */
+    @Override
+    public int getItemCount() {
+        return subscriptions.size();
+    }
+}
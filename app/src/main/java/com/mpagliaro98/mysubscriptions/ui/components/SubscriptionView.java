@@ -1,6 +1,7 @@
 package com.mpagliaro98.mysubscriptions.ui.components;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.graphics.PorterDuff;
 import android.view.LayoutInflater;
 import android.widget.ImageView;
@@ -17,6 +18,14 @@ public class SubscriptionView extends LinearLayout {
 
     private Subscription subscription;
 
+    // The views that make up this component, found once so the view can be bound again
+    private TextView textName;
+    private TextView textCost;
+    private TextView textNextDate;
+    private ImageView imageColor;
+    // The color the next payment date is normally shown in
+    private ColorStateList defaultNextDateColors;
+
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
@@ -29,8 +38,8 @@ public class SubscriptionView extends LinearLayout {
      */
     public SubscriptionView(Context context, Subscription subscription) {
         super(context);
-        this.subscription = subscription;
-        initSubView(context, new ZeroTimeCalendar());
+        initSubView(context);
+        bind(subscription, new ZeroTimeCalendar());
     }
 
     /**
@@ -42,29 +51,29 @@ public class SubscriptionView extends LinearLayout {
      */
     public SubscriptionView(Context context, Subscription subscription, ZeroTimeCalendar zeroTimeCalendar) {
         super(context);
-        this.subscription = subscription;
-        initSubView(context, zeroTimeCalendar);
+        initSubView(context);
+        bind(subscription, zeroTimeCalendar);
     }
 
-    //////////////////////////////////////////////////////////////////////////////////////////
-    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
-    //////////////////////////////////////////////////////////////////////////////////////////
-
     /**
-     * Initialize the various values of this component.
+     * Build this view without any subscription on it yet. This is used by list adapters,
+     * which create a few views and then bind different subscriptions to them as the list
+     * is scrolled.
      * @param context the current application context
-     * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
      */
-    private void initSubView(Context context, ZeroTimeCalendar zeroTimeCalendar) {
-        LayoutInflater inflater = (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        assert inflater != null;
-        inflater.inflate(R.layout.component_subscriptionview, this);
+    public SubscriptionView(Context context) {
+        super(context);
+        initSubView(context);
+    }
 
-        // Get the TextViews that make up this component
-        TextView textName = findViewById(R.id.subview_name);
-        TextView textCost = findViewById(R.id.subview_cost);
-        TextView textNextDate = findViewById(R.id.subview_startdate);
-        ImageView imageColor = findViewById(R.id.subview_color);
+    /**
+     * Display a subscription on this component, replacing whatever was displayed before.
+     * @param subscription the Subscription object to display on this component
+     * @param zeroTimeCalendar a calendar of today's date with the time set to 0:00:00
+     */
+    public void bind(Subscription subscription, ZeroTimeCalendar zeroTimeCalendar) {
+        this.subscription = subscription;
+        Context context = getContext();
 
         // Set the text of the subscription name
         textName.setText(subscription.getName());
@@ -78,8 +87,10 @@ public class SubscriptionView extends LinearLayout {
         String nextDateStr = context.getString(R.string.subview_next_date) + " " +
                 subscription.getNextPaymentDateString(context);
         textNextDate.setText(nextDateStr);
-        if (subscription.getNextPaymentDate().equals(zeroTimeCalendar.getCurrentDate())) {
+        if (subscription.getNextPaymentDay() == zeroTimeCalendar.getEpochDay()) {
             textNextDate.setTextColor(context.getResources().getColor(R.color.colorPaymentToday));
+        } else {
+            textNextDate.setTextColor(defaultNextDateColors);
         }
 
         // Set the category color
@@ -87,6 +98,35 @@ public class SubscriptionView extends LinearLayout {
                 PorterDuff.Mode.SRC_IN);
     }
 
+    /**
+     * Get the subscription currently displayed on this component.
+     * @return the Subscription object, or null if none has been bound yet
+     */
+    public Subscription getSubscription() {
+        return subscription;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Inflate the layout of this component and find the views that make it up.
+     * @param context the current application context
+     */
+    private void initSubView(Context context) {
+        LayoutInflater inflater = (LayoutInflater)context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        assert inflater != null;
+        inflater.inflate(R.layout.component_subscriptionview, this);
+
+        // Get the TextViews that make up this component
+        textName = findViewById(R.id.subview_name);
+        textCost = findViewById(R.id.subview_cost);
+        textNextDate = findViewById(R.id.subview_startdate);
+        imageColor = findViewById(R.id.subview_color);
+        defaultNextDateColors = textNextDate.getTextColors();
+    }
+
     /**
      * Convert a recharge frequency integer value into its corresponding string.
      * @param rechargeFrequency the recharge frequency in months as an integer
@@ -0,0 +1,18 @@
+package com.mpagliaro98.mysubscriptions.ui.interfaces;
+
+/**
+ * Interface to implement for classes that tell the subscription calendar which days have
+ * events on them. The calendar asks about each visible day once when it changes months,
+ * so no set of every event date needs to be built ahead of time.
+ */
+public interface CalendarEventSource {
+
+    /**
+     * Called when the calendar is updated to find how many events are on a visible day.
+     * @param year the year of the day
+     * @param month the month of the day, from 0 to 11
+     * @param dayOfMonth the day of the month
+     * @return the number of events on that day, 0 if it shouldn't be highlighted
+     */
+    int numEventsOn(int year, int month, int dayOfMonth);
+}
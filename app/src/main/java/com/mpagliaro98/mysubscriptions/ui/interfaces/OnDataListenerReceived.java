@@ -18,7 +18,7 @@ public interface OnDataListenerReceived {
      * action should be taken.
      * @param subscription the new subscription object
      * @param type the action to take on the incoming data, either CREATE, EDIT, or DELETE
-     * @param subIndex if required, the index in the list of the item to modify
+     * @param subId if required, the ID of the subscription to modify
      */
-    void onDataReceived(Subscription subscription, MainActivity.INCOMING_TYPE type, Integer subIndex);
+    void onDataReceived(Subscription subscription, MainActivity.INCOMING_TYPE type, Integer subId);
 }
@@ -0,0 +1,17 @@
+package com.mpagliaro98.mysubscriptions.ui.interfaces;
+
+import com.mpagliaro98.mysubscriptions.model.SettingsManager;
+
+/**
+ * Interface to implement for classes that display values depending on the settings, such
+ * as currency symbols or date formats. A listener added to the shared SettingsManager will
+ * have its method called whenever new settings are saved.
+ */
+public interface OnSettingsChangedListener {
+
+    /**
+     * Called after the settings are changed and saved to the file.
+     * @param settingsManager the settings manager holding the new settings
+     */
+    void onSettingsChanged(SettingsManager settingsManager);
+}
@@ -0,0 +1,16 @@
+package com.mpagliaro98.mysubscriptions.ui.interfaces;
+
+import com.mpagliaro98.mysubscriptions.model.Subscription;
+
+/**
+ * Interface to implement for classes that respond to a subscription being pressed in a
+ * list of subscriptions.
+ */
+public interface OnSubscriptionClickListener {
+
+    /**
+     * Called when a subscription in the list is pressed.
+     * @param subscription the subscription that was pressed
+     */
+    void onSubscriptionClick(Subscription subscription);
+}
@@ -12,6 +12,8 @@ public interface OnSyncCalendarListener {
     // Possible end codes for the calendar sync, should be send to handleSyncResult
     int SYNC_THREAD_SUCCESS = 0;
     int SYNC_THREAD_SECURITY_EXCEPTION = 1;
+    int SYNC_THREAD_PROVIDER_ERROR = 2;
+    int SYNC_THREAD_CANCELLED = 3;
 
     /**
      * Called when the button to sync the calendar is pressed. This will assert that the app
@@ -37,4 +39,12 @@ public interface OnSyncCalendarListener {
      * @param result a sync thread code denoting how the process finished
      */
     void handleSyncResult(int result);
+
+    /**
+     * Handles progress from the calendar sync thread. The thread sends events to the calendar
+     * in batches, and calls this on its own thread after each batch is sent.
+     * @param numWritten the number of events added, updated, or deleted so far
+     * @param numEvents the total number of events the sync will add, update, or delete
+     */
+    void handleSyncProgress(int numWritten, int numEvents);
 }
@@ -2,6 +2,7 @@ package com.mpagliaro98.mysubscriptions.ui.tabs;
 
 import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.constraintlayout.widget.ConstraintSet;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import android.content.Context;
 import android.content.res.Resources;
@@ -76,6 +77,9 @@ public class FragmentAnalytics extends Fragment implements SavedStateCompatible
         MainActivity mainActivity = (MainActivity)getActivity();
         assert mainActivity != null;
         model = new ViewModelProvider(mainActivity).get(SharedViewModel.class);
+
+        // Start loading the data if another tab hasn't already
+        model.getRepository().load(mainActivity);
     }
 
     /**
@@ -89,18 +93,17 @@ public class FragmentAnalytics extends Fragment implements SavedStateCompatible
     public View onCreateView(
             @NonNull LayoutInflater inflater, ViewGroup container,
             Bundle savedInstanceState) {
-        View root = inflater.inflate(R.layout.fragment_analytics_tab, container, false);
-        AnalyticsManager analyticsManager = new AnalyticsManager(model);
-        calculateAnalytics(root, analyticsManager);
-
-        Spinner breakdownDropdown = root.findViewById(R.id.analytics_breakdown_dropdown);
-        addBreakdownDropdownListener(breakdownDropdown, root, analyticsManager);
-        updatePieChart(root, analyticsManager);
+        final View root = inflater.inflate(R.layout.fragment_analytics_tab, container, false);
 
-        // Apply the values from the saved state to the page
-        if (savedState != null) {
-            applySavedState(savedState, root);
-        }
+        // The analytics are calculated once the data has been loaded
+        model.getRepository().getLoadState().observe(getViewLifecycleOwner(), new Observer<Integer>() {
+            @Override
+            public void onChanged(Integer loadState) {
+                if (model.getRepository().isDataReady()) {
+                    onDataLoaded(root);
+                }
+            }
+        });
         return root;
     }
 
@@ -145,6 +148,25 @@ public class FragmentAnalytics extends Fragment implements SavedStateCompatible
     // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Called once the model's data has been loaded. This fills in every analytic and the
+     * breakdown chart, then applies any saved state.
+     * @param root the root view of this tab
+     */
+    private void onDataLoaded(View root) {
+        AnalyticsManager analyticsManager = model.getAnalyticsManager();
+        calculateAnalytics(root, analyticsManager);
+
+        Spinner breakdownDropdown = root.findViewById(R.id.analytics_breakdown_dropdown);
+        addBreakdownDropdownListener(breakdownDropdown, root, analyticsManager);
+        updatePieChart(root, analyticsManager);
+
+        // Apply the values from the saved state to the page
+        if (savedState != null) {
+            applySavedState(savedState, root);
+        }
+    }
+
     /**
      * Calculate the set of analytics that get displayed in the main layout on the
      * analytics tab. This calculates each analytic, then adds it to its respective
@@ -156,7 +178,7 @@ public class FragmentAnalytics extends Fragment implements SavedStateCompatible
         // Get the currency symbol from settings
         String currencySymbol;
         try {
-            SettingsManager settingsManager = new SettingsManager(getContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getContext());
             currencySymbol = settingsManager.getCurrencySymbol();
         } catch (IOException e) {
             Context context = getContext();
@@ -292,7 +314,7 @@ public class FragmentAnalytics extends Fragment implements SavedStateCompatible
         // Get the currency symbol from settings
         String tempCurrencySymbol;
         try {
-            SettingsManager settingsManager = new SettingsManager(getContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getContext());
             tempCurrencySymbol = settingsManager.getCurrencySymbol();
         } catch (IOException e) {
             Context context = getContext();
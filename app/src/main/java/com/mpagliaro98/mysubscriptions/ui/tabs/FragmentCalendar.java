@@ -20,6 +20,7 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
 import com.google.android.material.snackbar.Snackbar;
 import com.mpagliaro98.mysubscriptions.R;
@@ -33,13 +34,13 @@ import com.mpagliaro98.mysubscriptions.ui.ViewSubscriptionActivity;
 import com.mpagliaro98.mysubscriptions.ui.components.SubscriptionCalendar;
 import com.mpagliaro98.mysubscriptions.ui.components.SubscriptionView;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.CalendarEventHandler;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.CalendarEventSource;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSyncCalendarListener;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.SavedStateCompatible;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 
@@ -63,6 +64,12 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
 
     // The sync thread handler receives a message when the thread finishes and displays a message
     private Handler syncThreadHandler;
+    // The message code the sync thread handler gets after each batch of events is added
+    private static final int SYNC_PROGRESS_MESSAGE = -1;
+    // Shows how far along the sync is, or null if no sync is running
+    private Snackbar syncProgressSnackbar;
+    // The sync started from this tab, cancelled if the tab's view goes away before it's done
+    private CalendarSyncRunnable runningSync;
 
     //////////////////////////////////////////////////////////////////////////////////////////
     // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
@@ -93,6 +100,9 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
         assert mainActivity != null;
         model = new ViewModelProvider(mainActivity).get(SharedViewModel.class);
 
+        // Start loading the data if another tab hasn't already
+        model.getRepository().load(mainActivity);
+
         // Set this fragment as the listener for the sync calendar button
         mainActivity.setSyncCalendarListener(this);
     }
@@ -110,18 +120,14 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
             Bundle savedInstanceState) {
         final View root = inflater.inflate(R.layout.fragment_calendar_tab, container, false);
 
-        // Gather up all next payment dates for all subscriptions
-        List<Subscription> subList = model.getFullSubscriptionList();
-        HashSet<Date> nextPaymentDates = new HashSet<>();
-        for (Subscription sub : subList) {
-            if (sub.getNextPaymentList() != null) {
-                nextPaymentDates.addAll(sub.getNextPaymentList());
-            }
-        }
-
-        // Update the calendar using the set of next payment dates as the events
+        // Update the calendar using the subscriptions' payment dates as the events
         SubscriptionCalendar subCalendar = root.findViewById(R.id.subscription_calendar);
-        subCalendar.setEvents(nextPaymentDates);
+        subCalendar.setEvents(new CalendarEventSource() {
+            @Override
+            public int numEventsOn(int year, int month, int dayOfMonth) {
+                return model.numPaymentsOnDay(year, month, dayOfMonth);
+            }
+        });
         subCalendar.updateCalendar();
 
         // Set a listener for the calendar
@@ -139,13 +145,35 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
         updateCalendarTabOnDayPress(currentDate, root);
         subCalendar.setSelectedDate(currentDate);
 
-        // Apply the values from the saved state to the page
-        if (savedState != null) {
-            applySavedState(savedState, root);
-        }
+        // The calendar is shown without events until the data has been loaded
+        model.getRepository().getLoadState().observe(getViewLifecycleOwner(), new Observer<Integer>() {
+            @Override
+            public void onChanged(Integer loadState) {
+                if (model.getRepository().isDataReady()) {
+                    onDataLoaded(root);
+                }
+            }
+        });
         return root;
     }
 
+    /**
+     * Cancel any sync started from this tab once its view is gone, since its progress and
+     * result can't be shown anymore, and drop any messages from it that haven't been handled.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (runningSync != null) {
+            runningSync.cancel();
+            runningSync = null;
+        }
+        if (syncThreadHandler != null) {
+            syncThreadHandler.removeCallbacksAndMessages(null);
+        }
+        syncProgressSnackbar = null;
+    }
+
     /**
      * Populate a given bundle with values pertaining to how this fragment is set.
      * @param bundle the bundle to place the saved items in
@@ -232,6 +260,30 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
                         @Override
                         public void handleMessage(@NonNull Message inputMessage) {
                             int threadCode = inputMessage.what;
+                            if (!isAdded() || getView() != parentView) {
+                                // The view this sync was started from is gone
+                                return;
+                            }
+                            if (threadCode == SYNC_THREAD_CANCELLED) {
+                                // A sync cancelled by a newer one leaves the message to that one
+                                return;
+                            }
+                            if (threadCode == SYNC_PROGRESS_MESSAGE) {
+                                // Keep one message up to date rather than showing one per batch
+                                String progress = parentView.getResources().getString(R.string.calendar_sync_progress,
+                                        inputMessage.arg1, inputMessage.arg2);
+                                if (syncProgressSnackbar == null) {
+                                    syncProgressSnackbar = Snackbar.make(parentView, progress, Snackbar.LENGTH_INDEFINITE);
+                                    syncProgressSnackbar.show();
+                                } else {
+                                    syncProgressSnackbar.setText(progress);
+                                }
+                                return;
+                            }
+                            if (syncProgressSnackbar != null) {
+                                syncProgressSnackbar.dismiss();
+                                syncProgressSnackbar = null;
+                            }
                             if (threadCode == SYNC_THREAD_SUCCESS) {
                                 Snackbar.make(parentView, R.string.calendar_sync_success, Snackbar.LENGTH_LONG).show();
                             } else if (threadCode == SYNC_THREAD_SECURITY_EXCEPTION) {
@@ -242,9 +294,16 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
                         }
                     };
 
-                    // Run the calendar sync on a separate thread so the app doesn't freeze
-                    CalendarSyncRunnable calendarSyncRunnable = new CalendarSyncRunnable(context, model, caller);
-                    calendarSyncRunnable.start();
+                    // Run the calendar sync in the background so the app doesn't freeze, replacing
+                    // any sync that's still running
+                    boolean recurringEvents;
+                    try {
+                        recurringEvents = SettingsManager.getInstance(context).getRecurringCalendarEvents();
+                    } catch (IOException e) {
+                        recurringEvents = false;
+                    }
+                    runningSync = CalendarSyncRunnable.startSync(context.getApplicationContext(), model,
+                            caller, recurringEvents);
                 }
             }).show();
     }
@@ -284,10 +343,40 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
         message.sendToTarget();
     }
 
+    /**
+     * Handles progress from the calendar sync thread, which is called on that thread after
+     * each batch of events is sent. This implementation will send the progress to this
+     * class' sync thread handler on the UI thread.
+     * @param numWritten the number of events added, updated, or deleted so far
+     * @param numEvents the total number of events the sync will add, update, or delete
+     */
+    @Override
+    public void handleSyncProgress(int numWritten, int numEvents) {
+        Message message = syncThreadHandler.obtainMessage(SYNC_PROGRESS_MESSAGE, numWritten, numEvents);
+        message.sendToTarget();
+    }
+
     //////////////////////////////////////////////////////////////////////////////////////////
     // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
     //////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Called once the model's data has been loaded. This redraws the calendar with each
+     * subscription's payment dates, fills in the list for the selected day, then applies any
+     * saved state.
+     * @param root the root view of this tab
+     */
+    private void onDataLoaded(View root) {
+        SubscriptionCalendar subCalendar = root.findViewById(R.id.subscription_calendar);
+        subCalendar.updateCalendar();
+        updateCalendarTabOnDayPress(subCalendar.getSelectedDate(), root);
+
+        // Apply the values from the saved state to the page
+        if (savedState != null) {
+            applySavedState(savedState, root);
+        }
+    }
+
     /**
      * Update the UI component that displays a list of subscriptions depending on what day
      * on the calendar is pressed.
@@ -358,7 +447,7 @@ public class FragmentCalendar extends Fragment implements SavedStateCompatible,
         TextView dateText = root.findViewById(R.id.calendar_date_text_view);
         String dateFormat;
         try {
-            SettingsManager settingsManager = new SettingsManager(getContext());
+            SettingsManager settingsManager = SettingsManager.getInstance(getContext());
             dateFormat = settingsManager.getDateFormat();
         } catch (IOException e) {
             dateFormat = getString(R.string.date_format_default);
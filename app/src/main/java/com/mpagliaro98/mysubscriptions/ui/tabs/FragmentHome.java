@@ -10,26 +10,30 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
-import android.widget.LinearLayout;
-import android.widget.ScrollView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.snackbar.Snackbar;
 import com.mpagliaro98.mysubscriptions.R;
+import com.mpagliaro98.mysubscriptions.model.SettingsManager;
 import com.mpagliaro98.mysubscriptions.model.SharedViewModel;
 import com.mpagliaro98.mysubscriptions.model.Subscription;
+import com.mpagliaro98.mysubscriptions.model.SubscriptionRepository;
 import com.mpagliaro98.mysubscriptions.ui.MainActivity;
 import com.mpagliaro98.mysubscriptions.ui.ViewSubscriptionActivity;
-import com.mpagliaro98.mysubscriptions.ui.components.SubscriptionView;
+import com.mpagliaro98.mysubscriptions.ui.components.SubscriptionListAdapter;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.OnDataListenerReceived;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSettingsChangedListener;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSubscriptionClickListener;
 import com.mpagliaro98.mysubscriptions.ui.interfaces.SavedStateCompatible;
 import java.io.IOException;
-import java.util.Comparator;
 
 /**
  * A fragment containing the view for the home tab. Implements the OnDataListenerReceived
@@ -42,12 +46,25 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
     private SharedViewModel model;
     // Any saved state from previously in the application to apply when loading the view
     private Bundle savedState;
-    // Flags to tell the view to display an error message if something went wrong early on
-    private boolean errorFlag = false;
-    private boolean noMemoryError = false;
+    // Loads and saves the model's data in the background
+    private SubscriptionRepository repository;
+    // True once an error from loading the data has been shown, so it's only shown once
+    private boolean loadErrorShown = false;
+    // The adapter that displays the visible subscriptions in the list
+    private SubscriptionListAdapter subListAdapter;
+    // Redraws the list when the currency symbol or date format changes
+    private OnSettingsChangedListener settingsListener = new OnSettingsChangedListener() {
+        @Override
+        public void onSettingsChanged(SettingsManager settingsManager) {
+            if (subListAdapter != null) {
+                subListAdapter.notifyDataSetChanged();
+            }
+        }
+    };
 
     // Keys for the saved state of the home fragment when returning
     public static final String SAVED_STATE_SCROLL_MESSAGE = "com.mpagliaro98.mysubscriptions.H_SAVED_SCROLL";
+    public static final String SAVED_STATE_SCROLL_OFFSET_MESSAGE = "com.mpagliaro98.mysubscriptions.H_SAVED_SCROLL_OFFSET";
     public static final String SAVED_STATE_SEARCH_MESSAGE = "com.mpagliaro98.mysubscriptions.H_SAVED_SEARCH";
     public static final String SAVED_STATE_SORT_MESSAGE = "com.mpagliaro98.mysubscriptions.H_SAVED_SORT";
 
@@ -80,30 +97,19 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
         assert mainActivity != null;
         model = new ViewModelProvider(mainActivity).get(SharedViewModel.class);
 
-        // Populate the model by loading subscriptions from the file
-        try {
-            Context context = getContext();
-            assert context != null;
-            model.loadFromFile(context);
-            int numUpdated = model.updateSubscriptionDates();
-            if (numUpdated > 0) {
-                model.saveToFile(getContext());
-            }
-        } catch(IOException e) {
-            e.printStackTrace();
-            errorFlag = true;
-            if (e.getMessage() != null && e.getMessage().equals(getString(R.string.no_memory_exception)))
-                noMemoryError = true;
-        } catch(Exception e) {
-            deleteDataDialog();
-        }
+        // Start populating the model from the file, the list is filled in once it's done
+        repository = model.getRepository();
+        Context context = getContext();
+        assert context != null;
+        repository.load(context);
 
         // Set this fragment as the data listener for the tab activity
         mainActivity.checkIncomingData(this);
     }
 
     /**
-     * Creates the root view for this fragment.
+     * Creates the root view for this fragment. Until the model's data has been loaded, a
+     * placeholder is shown in place of the list.
      * @param inflater inflater to instantiate the xml view into an object
      * @param container the group that will serve as the base for the view
      * @param savedInstanceState any saved state needed
@@ -113,33 +119,48 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         final View root = inflater.inflate(R.layout.fragment_home_tab, container, false);
-        if (errorFlag) {
-            FragmentActivity activity = getActivity();
-            assert activity != null;
-            if (noMemoryError)
-                showErrorSnackbar(activity.findViewById(android.R.id.content), getString(R.string.no_memory_exception));
-            else
-                showErrorSnackbar(activity.findViewById(android.R.id.content), getString(R.string.home_snackbar_ioexception));
-            errorFlag = false;
-            noMemoryError = false;
-            return root;
-        }
-        updateSubList(root);
-
-        // Add a listener to the search bar that will filter the list each time it's used
-        addSearchBarListener((TextView)root.findViewById(R.id.home_search), root);
+        initSubList(root);
 
-        // Add a listener to the sort list to sort the list when each item is selected
-        addSortDropdownListener((Spinner)root.findViewById(R.id.home_sort_list), root);
+        // Fill in the list once the data has been loaded
+        repository.getLoadState().observe(getViewLifecycleOwner(), new Observer<Integer>() {
+            @Override
+            public void onChanged(Integer loadState) {
+                if (loadState != null && loadState != SubscriptionRepository.LOAD_STATE_LOADING) {
+                    onDataLoaded(root, loadState);
+                }
+            }
+        });
 
-        // Apply the values from the saved state to the page
-        if (savedState != null) {
-            applySavedState(savedState, root);
-        }
+        // Show a message if saving any changes fails
+        repository.getSaveError().observe(getViewLifecycleOwner(), new Observer<String>() {
+            @Override
+            public void onChanged(String errorMessage) {
+                if (errorMessage != null) {
+                    FragmentActivity activity = getActivity();
+                    assert activity != null;
+                    showErrorSnackbar(activity.findViewById(android.R.id.content), errorMessage);
+                    repository.clearSaveError();
+                }
+            }
+        });
 
         return root;
     }
 
+    /**
+     * Stop listening for settings changes once the view of this fragment is gone.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        try {
+            SettingsManager.getInstance(getContext()).removeOnSettingsChangedListener(settingsListener);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        subListAdapter = null;
+    }
+
     /**
      * Receive data from another activity, passed to here through this fragment's
      * parent activity. In this case, the data is a subscription object modified in
@@ -147,42 +168,58 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
      * action should be taken.
      * @param subscription the new subscription object
      * @param type the action to take on the incoming data, either CREATE, EDIT, or DELETE
-     * @param subIndex if required, the index in the list of the item to modify
+     * @param subId if required, the ID of the subscription to modify
      */
     @Override
-    public void onDataReceived(Subscription subscription, MainActivity.INCOMING_TYPE type,
-                               Integer subIndex) {
-        if (type == MainActivity.INCOMING_TYPE.CREATE) {
-            model.addSubscription(subscription);
-        } else if (type == MainActivity.INCOMING_TYPE.EDIT) {
-            model.updateSubscription(subscription, subIndex);
-        } else if (type == MainActivity.INCOMING_TYPE.DELETE) {
-            model.deleteSubscription(subIndex);
-        }
-        try {
-            Context context = getContext();
-            assert context != null;
-            model.saveToFile(context);
-        } catch (IOException e) {
-            errorFlag = true;
-            if (e.getMessage() != null && e.getMessage().equals(getString(R.string.no_memory_exception)))
-                noMemoryError = true;
+    public void onDataReceived(final Subscription subscription, final MainActivity.INCOMING_TYPE type,
+                               final Integer subId) {
+        final Context context = getContext();
+        assert context != null;
+        // The change can only be made once the rest of the data has been loaded
+        boolean accepted = repository.runWhenLoaded(new Runnable() {
+            @Override
+            public void run() {
+                if (type == MainActivity.INCOMING_TYPE.CREATE) {
+                    model.addSubscription(subscription);
+                } else if (model.getSubscriptionById(subId) == null) {
+                    // The subscription was already deleted, such as from an old notification
+                    return;
+                } else if (type == MainActivity.INCOMING_TYPE.EDIT) {
+                    model.updateSubscription(subscription, subId);
+                } else if (type == MainActivity.INCOMING_TYPE.DELETE) {
+                    model.deleteSubscription(subId);
+                }
+                repository.saveChanges(context);
+            }
+        });
+        if (!accepted) {
+            FragmentActivity activity = getActivity();
+            assert activity != null;
+            showErrorSnackbar(activity.findViewById(android.R.id.content), getString(R.string.home_snackbar_change_lost));
         }
     }
 
     /**
      * Populate a given bundle with values pertaining to how this fragment is set. For
-     * FragmentHome, the scroll amount, search bar text, and sort dropdown selections are
+     * FragmentHome, the scroll position, search bar text, and sort dropdown selections are
      * saved, so they can be reset to the saved values when returning to this fragment.
-     * The public keys at the top of this fragment are used to index the saved values.
+     * The scroll position is saved as the first visible row and how far its top is from the
+     * top of the list. The public keys at the top of this fragment are used to index the
+     * saved values.
      * @param bundle the bundle to place the saved items in
      */
     @Override
     public void fillBundleWithSavedState(Bundle bundle) {
         View view = getView();
         assert view != null;
-        ScrollView scrollView = view.findViewById(R.id.home_scroll_view);
-        bundle.putInt(SAVED_STATE_SCROLL_MESSAGE, scrollView.getScrollY());
+        RecyclerView recyclerView = view.findViewById(R.id.home_recycler_view);
+        LinearLayoutManager layoutManager = (LinearLayoutManager)recyclerView.getLayoutManager();
+        assert layoutManager != null;
+        int firstPosition = layoutManager.findFirstVisibleItemPosition();
+        View firstView = layoutManager.findViewByPosition(firstPosition);
+        bundle.putInt(SAVED_STATE_SCROLL_MESSAGE, firstPosition);
+        bundle.putInt(SAVED_STATE_SCROLL_OFFSET_MESSAGE,
+                firstView == null ? 0 : firstView.getTop() - recyclerView.getPaddingTop());
         TextView searchBar = view.findViewById(R.id.home_search);
         bundle.putString(SAVED_STATE_SEARCH_MESSAGE, searchBar.getText().toString());
         Spinner sortDropdown = view.findViewById(R.id.home_sort_list);
@@ -192,7 +229,7 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
     /**
      * Given a bundle of saved state, extract the values that were saved to it previously
      * and re-apply them to this view. For this tab, it will re-apply the search bar text,
-     * the sort dropdown selection, and the Y scroll distance.
+     * the sort dropdown selection, and the scroll position.
      * @param savedState bundle of saved state, must not be null
      * @param root the root view of this tab
      */
@@ -207,11 +244,16 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
             searchBar.setText(savedState.getString(SAVED_STATE_SEARCH_MESSAGE));
         }
         if (savedState.containsKey(SAVED_STATE_SCROLL_MESSAGE)) {
-            final ScrollView scrollView = root.findViewById(R.id.home_scroll_view);
-            scrollView.post(new Runnable() {
+            final RecyclerView recyclerView = root.findViewById(R.id.home_recycler_view);
+            recyclerView.post(new Runnable() {
                 @Override
                 public void run() {
-                    scrollView.scrollTo(0, savedState.getInt(SAVED_STATE_SCROLL_MESSAGE));
+                    LinearLayoutManager layoutManager = (LinearLayoutManager)recyclerView.getLayoutManager();
+                    int position = savedState.getInt(SAVED_STATE_SCROLL_MESSAGE);
+                    if (layoutManager != null && position != RecyclerView.NO_POSITION) {
+                        layoutManager.scrollToPositionWithOffset(position,
+                                savedState.getInt(SAVED_STATE_SCROLL_OFFSET_MESSAGE));
+                    }
                 }
             });
         }
@@ -222,30 +264,85 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
     //////////////////////////////////////////////////////////////////////////////////////////
 
     /**
-     * Update the UI component that displays a list of every subscription.
+     * Called once loading the model's data has finished. This hides the placeholder, then
+     * either fills in the list and sets up the search bar and sort dropdown, or shows what
+     * went wrong.
+     * @param root the root view of this tab
+     * @param loadState the SubscriptionRepository.LOAD_STATE_... code loading finished with
+     */
+    private void onDataLoaded(View root, int loadState) {
+        root.findViewById(R.id.home_loading).setVisibility(View.GONE);
+        if (loadState == SubscriptionRepository.LOAD_STATE_CORRUPT) {
+            if (!loadErrorShown) {
+                loadErrorShown = true;
+                deleteDataDialog();
+            }
+            return;
+        }
+        if (loadState != SubscriptionRepository.LOAD_STATE_LOADED) {
+            if (!loadErrorShown) {
+                loadErrorShown = true;
+                FragmentActivity activity = getActivity();
+                assert activity != null;
+                // A change that came in while loading can't be made without the data
+                if (repository.discardWaitingWork())
+                    showErrorSnackbar(activity.findViewById(android.R.id.content), getString(R.string.home_snackbar_change_lost));
+                else if (loadState == SubscriptionRepository.LOAD_STATE_NO_MEMORY_ERROR)
+                    showErrorSnackbar(activity.findViewById(android.R.id.content), getString(R.string.no_memory_exception));
+                else
+                    showErrorSnackbar(activity.findViewById(android.R.id.content), getString(R.string.home_snackbar_ioexception));
+            }
+            return;
+        }
+        updateSubList();
+
+        // Add a listener to the search bar that will filter the list each time it's used
+        addSearchBarListener((TextView)root.findViewById(R.id.home_search));
+
+        // Add a listener to the sort list to sort the list when each item is selected
+        addSortDropdownListener((Spinner)root.findViewById(R.id.home_sort_list), root);
+
+        // Apply the values from the saved state to the page
+        if (savedState != null) {
+            applySavedState(savedState, root);
+        }
+    }
+
+    /**
+     * Set up the UI component that displays a list of every subscription. Pressing a
+     * subscription opens it in the view activity.
      * @param view the current view to display to
      */
-    private void updateSubList(View view) {
-        LinearLayout linearLayout = view.findViewById(R.id.home_linear_layout);
-        linearLayout.removeAllViewsInLayout();
-        for (int i = 0; i < model.numSubscriptionsVisible(); i++) {
-            final Subscription sub = model.getSubscription(i);
-            final SubscriptionView subView = new SubscriptionView(getContext(), sub);
-            subView.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View view) {
-                    Bundle savedState = null;
-                    if (getActivity() != null)
-                        savedState = ((MainActivity)getActivity()).gatherSavedState();
-                    Intent intent = ViewSubscriptionActivity.buildGeneralViewIntent(getContext(),
-                            sub, sub.getId(), savedState);
-                    startActivity(intent);
-                }
-            });
-            linearLayout.addView(subView);
+    private void initSubList(View view) {
+        RecyclerView recyclerView = view.findViewById(R.id.home_recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        subListAdapter = new SubscriptionListAdapter(new OnSubscriptionClickListener() {
+            @Override
+            public void onSubscriptionClick(Subscription sub) {
+                Bundle savedState = null;
+                if (getActivity() != null)
+                    savedState = ((MainActivity)getActivity()).gatherSavedState();
+                Intent intent = ViewSubscriptionActivity.buildGeneralViewIntent(getContext(),
+                        sub, sub.getId(), savedState);
+                startActivity(intent);
+            }
+        });
+        recyclerView.setAdapter(subListAdapter);
+        try {
+            SettingsManager.getInstance(getContext()).addOnSettingsChangedListener(settingsListener);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
+    /**
+     * Update the UI component that displays a list of every subscription. Only the rows that
+     * changed since the last update are changed on screen.
+     */
+    private void updateSubList() {
+        subListAdapter.setSubscriptions(model.getVisibleSubscriptionList());
+    }
+
     /**
      * Display a dialog box informing the user their data is corrupt and saying that
      * it needs to be reset, which when agreed to resets the application data.
@@ -259,14 +356,10 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
                 .setPositiveButton(R.string.ok, new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
-                        try {
-                            model.deleteData(context);
-                        } catch (IOException e) {
-                            if (e.getMessage() != null && e.getMessage().equals(getString(R.string.no_memory_exception)))
-                                showErrorSnackbar(getView(), getString(R.string.no_memory_exception));
-                            else
-                                showErrorSnackbar(getView(), getString(R.string.home_snackbar_ioexception));
-                        }
+                        repository.deleteData(context);
+                        View root = getView();
+                        if (root != null)
+                            onDataLoaded(root, SubscriptionRepository.LOAD_STATE_LOADED);
                     }
                 }).show();
     }
@@ -275,9 +368,8 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
      * Add a listener to the search bar of this tab, which will filter the list of
      * subscriptions whenever the text entered into it changes.
      * @param searchBar the search bar view
-     * @param root the root view of this tab
      */
-    private void addSearchBarListener(TextView searchBar, final View root) {
+    private void addSearchBarListener(TextView searchBar) {
         searchBar.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -285,7 +377,7 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 model.filterList(s);
-                updateSubList(root);
+                updateSubList();
             }
 
             @Override
@@ -306,67 +398,22 @@ public class FragmentHome extends Fragment implements OnDataListenerReceived, Sa
                 String sortOption = (String)parent.getSelectedItem();
                 TextView searchBar = root.findViewById(R.id.home_search);
                 String searchText = searchBar.getText().toString();
-                // For the default option, just sort by ID
-                if (sortOption.equals(getString(R.string.array_sort_default))) {
-                    model.sortList(new Comparator<Subscription>() {
-                        @Override
-                        public int compare(Subscription o1, Subscription o2) {
-                            if (o1.getId() == o2.getId())
-                                return 0;
-                            else
-                                return o1.getId() < o2.getId() ? -1 : 1;
-                        }
-                    }, searchText);
-                }
-                // Sort by names
-                else if (sortOption.equals(getString(R.string.array_sort_name))) {
-                    model.sortList(new Comparator<Subscription>() {
-                        @Override
-                        public int compare(Subscription o1, Subscription o2) {
-                            return o1.getName().compareToIgnoreCase(o2.getName());
-                        }
-                    }, searchText);
-                }
-                // Sort by cost, if cost is equal then sort by name
-                else if (sortOption.equals(getString(R.string.array_sort_cost))) {
-                    model.sortList(new Comparator<Subscription>() {
-                        @Override
-                        public int compare(Subscription o1, Subscription o2) {
-                            if (o1.getCost() == o2.getCost()) {
-                                return o1.getName().compareToIgnoreCase(o2.getName());
-                            } else {
-                                return o1.getCost() < o2.getCost() ? -1 : 1;
-                            }
-                        }
-                    }, searchText);
-                }
-                // Sort by next payment date, if equal then sort by name
-                else if (sortOption.equals(getString(R.string.array_sort_next))) {
-                    model.sortList(new Comparator<Subscription>() {
-                        @Override
-                        public int compare(Subscription o1, Subscription o2) {
-                            if (o1.getNextPaymentDate().equals(o2.getNextPaymentDate())) {
-                                return o1.getName().compareToIgnoreCase(o2.getName());
-                            } else {
-                                return o1.getNextPaymentDate().compareTo(o2.getNextPaymentDate());
-                            }
-                        }
-                    }, searchText);
-                }
-                // Sort by category, which sorts by category name, then subscription name
-                else if (sortOption.equals(getString(R.string.array_sort_category))) {
-                    model.sortList(new Comparator<Subscription>() {
-                        @Override
-                        public int compare(Subscription o1, Subscription o2) {
-                            if (o1.getCategory().getName().equals(o2.getCategory().getName())) {
-                                return o1.getName().compareToIgnoreCase(o2.getName());
-                            } else {
-                                return o1.getCategory().getName().compareToIgnoreCase(o2.getCategory().getName());
-                            }
-                        }
-                    }, searchText);
+                // Sort by names, cost, next payment date, or category, each of which fall back
+                // to sorting by name when equal, or just sort by ID for the default option
+                int sortOrder;
+                if (sortOption.equals(getString(R.string.array_sort_name))) {
+                    sortOrder = SharedViewModel.SORT_BY_NAME;
+                } else if (sortOption.equals(getString(R.string.array_sort_cost))) {
+                    sortOrder = SharedViewModel.SORT_BY_COST;
+                } else if (sortOption.equals(getString(R.string.array_sort_next))) {
+                    sortOrder = SharedViewModel.SORT_BY_NEXT_PAYMENT;
+                } else if (sortOption.equals(getString(R.string.array_sort_category))) {
+                    sortOrder = SharedViewModel.SORT_BY_CATEGORY;
+                } else {
+                    sortOrder = SharedViewModel.SORT_BY_ID;
                 }
-                updateSubList(root);
+                model.sortList(sortOrder, searchText);
+                updateSubList();
             }
 
             @Override
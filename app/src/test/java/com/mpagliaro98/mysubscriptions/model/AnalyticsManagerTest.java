@@ -5,6 +5,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -77,8 +78,8 @@ public class AnalyticsManagerTest {
         when(sub1.getCategory()).thenReturn(catVideoStreaming);
         when(sub1.getCost()).thenReturn(3.99);
         when(sub1.getRechargeFrequency()).thenReturn(2);
-        when(sub1.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub2 = mock(Subscription.class);
         when(sub2.getName()).thenReturn("sub2");
@@ -86,8 +87,8 @@ public class AnalyticsManagerTest {
         when(sub2.getCost()).thenReturn(5.99);
         when(sub2.getRechargeFrequency()).thenReturn(3);
         baseZTC.setTime(2020, 3, 2);
-        when(sub2.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         List<Subscription> list = new ArrayList<>();
         list.add(sub1);
@@ -119,8 +120,8 @@ public class AnalyticsManagerTest {
         when(sub1.getCategory()).thenReturn(catVideoStreaming);
         when(sub1.getCost()).thenReturn(3.99);
         when(sub1.getRechargeFrequency()).thenReturn(2);
-        when(sub1.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub2 = mock(Subscription.class);
         when(sub2.getName()).thenReturn("sub2");
@@ -128,8 +129,8 @@ public class AnalyticsManagerTest {
         when(sub2.getCost()).thenReturn(5.99);
         when(sub2.getRechargeFrequency()).thenReturn(2);
         baseZTC.setTime(2020, 3, 2);
-        when(sub2.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub3 = mock(Subscription.class);
         when(sub3.getName()).thenReturn("sub3");
@@ -137,8 +138,8 @@ public class AnalyticsManagerTest {
         when(sub3.getCost()).thenReturn(7.99);
         when(sub3.getRechargeFrequency()).thenReturn(2);
         baseZTC.setTime(2020, 3, 3);
-        when(sub3.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub3.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub3.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub3.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         List<Subscription> list = new ArrayList<>();
         list.add(sub1);
@@ -173,9 +174,9 @@ public class AnalyticsManagerTest {
         when(sub1.getCategory()).thenReturn(catVideoStreaming);
         when(sub1.getCost()).thenReturn(3.99);
         when(sub1.getRechargeFrequency()).thenReturn(2);
-        when(sub1.getStartDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getStartDay()).thenReturn(baseZTC.getEpochDay());
         baseZTC.addMonths(2);
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub2 = mock(Subscription.class);
         when(sub2.getName()).thenReturn("sub2");
@@ -183,9 +184,9 @@ public class AnalyticsManagerTest {
         when(sub2.getCost()).thenReturn(5.99);
         when(sub2.getRechargeFrequency()).thenReturn(3);
         baseZTC.setTime(2020, 3, 2);
-        when(sub2.getStartDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getStartDay()).thenReturn(baseZTC.getEpochDay());
         baseZTC.addMonths(3);
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub3 = mock(Subscription.class);
         when(sub3.getName()).thenReturn("sub3");
@@ -193,8 +194,8 @@ public class AnalyticsManagerTest {
         when(sub3.getCost()).thenReturn(7.99);
         when(sub3.getRechargeFrequency()).thenReturn(4);
         baseZTC.setTime(2020, 3, 3);
-        when(sub3.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub3.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub3.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub3.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         List<Subscription> list = new ArrayList<>();
         list.add(sub1);
@@ -228,8 +229,8 @@ public class AnalyticsManagerTest {
         when(sub1.getCategory()).thenReturn(catVideoStreaming);
         when(sub1.getCost()).thenReturn(3.99);
         when(sub1.getRechargeFrequency()).thenReturn(1);
-        when(sub1.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub2 = mock(Subscription.class);
         when(sub2.getName()).thenReturn("sub2");
@@ -237,8 +238,8 @@ public class AnalyticsManagerTest {
         when(sub2.getCost()).thenReturn(5.99);
         when(sub2.getRechargeFrequency()).thenReturn(1);
         baseZTC.setTime(2020, 3, 2);
-        when(sub2.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         List<Subscription> list = new ArrayList<>();
         list.add(sub1);
@@ -256,7 +257,7 @@ public class AnalyticsManagerTest {
         assertEquals(1, CuT.getMostCommonRecharge());
 
         baseZTC.setTime(2020, 4, 1);
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
         baseZTC.setTime(2020, 3, 2);
         CuT = new AnalyticsManager(model, baseZTC);
 
@@ -269,7 +270,7 @@ public class AnalyticsManagerTest {
         assertEquals(1, CuT.getMostCommonRecharge());
 
         baseZTC.setTime(2020, 4, 2);
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
         baseZTC.setTime(2020, 3, 3);
         CuT = new AnalyticsManager(model, baseZTC);
 
@@ -297,8 +298,8 @@ public class AnalyticsManagerTest {
         when(sub1.getCategory()).thenReturn(catVideoStreaming);
         when(sub1.getCost()).thenReturn(1.0);
         when(sub1.getRechargeFrequency()).thenReturn(1);
-        when(sub1.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub2 = mock(Subscription.class);
         when(sub2.getName()).thenReturn("sub2");
@@ -306,8 +307,8 @@ public class AnalyticsManagerTest {
         when(sub2.getCost()).thenReturn(11.99);
         when(sub2.getRechargeFrequency()).thenReturn(12);
         baseZTC.setTime(2020, 3, 2);
-        when(sub2.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         List<Subscription> list = new ArrayList<>();
         list.add(sub1);
@@ -340,8 +341,8 @@ public class AnalyticsManagerTest {
         when(sub1.getCategory()).thenReturn(catVideoStreaming);
         when(sub1.getCost()).thenReturn(1.0);
         when(sub1.getRechargeFrequency()).thenReturn(2);
-        when(sub1.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub1.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub1.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub1.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub2 = mock(Subscription.class);
         when(sub2.getName()).thenReturn("sub2");
@@ -349,8 +350,8 @@ public class AnalyticsManagerTest {
         when(sub2.getCost()).thenReturn(2.0);
         when(sub2.getRechargeFrequency()).thenReturn(1);
         baseZTC.setTime(2020, 3, 2);
-        when(sub2.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub2.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub2.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub2.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub3 = mock(Subscription.class);
         when(sub3.getName()).thenReturn("sub3");
@@ -358,8 +359,8 @@ public class AnalyticsManagerTest {
         when(sub3.getCost()).thenReturn(3.0);
         when(sub3.getRechargeFrequency()).thenReturn(3);
         baseZTC.setTime(2020, 5, 5);
-        when(sub3.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub3.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub3.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub3.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub4 = mock(Subscription.class);
         when(sub4.getName()).thenReturn("sub4");
@@ -367,8 +368,8 @@ public class AnalyticsManagerTest {
         when(sub4.getCost()).thenReturn(5.0);
         when(sub4.getRechargeFrequency()).thenReturn(6);
         baseZTC.setTime(2020, 8, 13);
-        when(sub4.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub4.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub4.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub4.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         Subscription sub5 = mock(Subscription.class);
         when(sub5.getName()).thenReturn("sub5");
@@ -376,8 +377,8 @@ public class AnalyticsManagerTest {
         when(sub5.getCost()).thenReturn(9.0);
         when(sub5.getRechargeFrequency()).thenReturn(1);
         baseZTC.setTime(2021, 2, 7);
-        when(sub5.getStartDate()).thenReturn(baseZTC.getCurrentDate());
-        when(sub5.getNextPaymentDate()).thenReturn(baseZTC.getCurrentDate());
+        when(sub5.getStartDay()).thenReturn(baseZTC.getEpochDay());
+        when(sub5.getNextPaymentDay()).thenReturn(baseZTC.getEpochDay());
 
         List<Subscription> list = new ArrayList<>();
         list.add(sub1);
@@ -431,4 +432,104 @@ public class AnalyticsManagerTest {
         assertEquals(catShopping, breakdown.get(3).getKey());
         assertEquals(9.0, breakdown.get(3).getValue(), 0.01);
     }
+
+    /**
+     * Tests that analytics kept up to date by the model as subscriptions are added, updated,
+     * and deleted match analytics calculated from scratch after every change.
+     */
+    @Test
+    public void test_incremental_matches_recalculation() {
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        SharedViewModel realModel = new SharedViewModel();
+        Category[] categories = {new Category(0, "Video Streaming"), new Category(1, "Gaming"),
+                new Category(2, "Online Shopping")};
+        Random random = new Random(7);
+        AnalyticsManager incremental = realModel.getAnalyticsManager(today);
+        incremental.createMonthlyBreakdown(3);
+
+        for (int i = 0; i < 400; i++) {
+            int action = realModel.numSubscriptionsTotal() < 5 ? 0 : random.nextInt(3);
+            if (action == 0) {
+                realModel.addSubscription(randomSubscription(random, categories, today));
+            } else {
+                int index = random.nextInt(realModel.numSubscriptionsTotal());
+                int id = realModel.getFullSubscriptionList().get(index).getId();
+                if (action == 1) {
+                    realModel.updateSubscription(randomSubscription(random, categories, today), id);
+                } else {
+                    realModel.deleteSubscription(id);
+                }
+            }
+
+            AnalyticsManager expected = new AnalyticsManager(realModel, today);
+            expected.createMonthlyBreakdown(3);
+            assertSameAnalytics(expected, incremental);
+        }
+    }
+
+    /**
+     * Tests that the model keeps the same analytics manager until the day changes, and that
+     * the analytics are then calculated again for the new day.
+     */
+    @Test
+    public void test_recalculated_on_new_day() {
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 30);
+        SharedViewModel realModel = new SharedViewModel();
+        Category category = new Category(0, "Video Streaming");
+        ZeroTimeCalendar startDate = new ZeroTimeCalendar();
+        startDate.setTime(2021, 3, 30);
+        realModel.addSubscription(new Subscription(0, "sub1", 5.0, startDate.getCurrentDate(), "",
+                2, category, -1, today.copyCalendar()));
+
+        AnalyticsManager analytics = realModel.getAnalyticsManager(today);
+        assertEquals(5.0, analytics.getRestDueThisMonth(), 0.01);
+        assertEquals(analytics, realModel.getAnalyticsManager(today));
+
+        today.setTime(2021, 4, 1);
+        realModel.updateSubscriptionDates(today);
+        assertEquals(0, analytics.getTotalDueThisMonth(), 0.01);
+        assertEquals(0, analytics.getRestDueThisMonth(), 0.01);
+        assertEquals(5.0, analytics.getTotalDueNextMonth(), 0.01);
+        assertSameAnalytics(new AnalyticsManager(realModel, today), analytics);
+    }
+
+    /**
+     * Create a subscription with random values.
+     * @param random the random number generator to use
+     * @param categories the categories to pick from
+     * @param today a calendar set to the date considered today
+     * @return a new subscription
+     */
+    private Subscription randomSubscription(Random random, Category[] categories,
+                                            ZeroTimeCalendar today) {
+        ZeroTimeCalendar startDate = new ZeroTimeCalendar();
+        startDate.setTime(2019 + random.nextInt(4), random.nextInt(12), 1 + random.nextInt(28));
+        return new Subscription(0, "sub" + random.nextInt(1000), random.nextInt(6) * 2.5,
+                startDate.getCurrentDate(), "", 1 + random.nextInt(12),
+                categories[random.nextInt(categories.length)], -1, today.copyCalendar());
+    }
+
+    /**
+     * Check that two analytics managers have the same values.
+     * @param expected the analytics manager with the expected values
+     * @param actual the analytics manager to check
+     */
+    private void assertSameAnalytics(AnalyticsManager expected, AnalyticsManager actual) {
+        assertEquals(expected.getTotalDueThisMonth(), actual.getTotalDueThisMonth(), 0.01);
+        assertEquals(expected.getRestDueThisMonth(), actual.getRestDueThisMonth(), 0.01);
+        assertEquals(expected.getTotalDueNextMonth(), actual.getTotalDueNextMonth(), 0.01);
+        assertEquals(expected.getTotalDueYearly(), actual.getTotalDueYearly(), 0.01);
+        assertEquals(expected.getCostMostExpensive(), actual.getCostMostExpensive(), 0.01);
+        assertEquals(expected.getNameMostExpensive(), actual.getNameMostExpensive());
+        assertEquals(expected.getMostCommonRecharge(), actual.getMostCommonRecharge());
+        List<Map.Entry<Category, Double>> expectedBreakdown = expected.getBreakdownList();
+        List<Map.Entry<Category, Double>> actualBreakdown = actual.getBreakdownList();
+        assertEquals(expectedBreakdown.size(), actualBreakdown.size());
+        for (int i = 0; i < expectedBreakdown.size(); i++) {
+            assertEquals(expectedBreakdown.get(i).getKey(), actualBreakdown.get(i).getKey());
+            assertEquals(expectedBreakdown.get(i).getValue(), actualBreakdown.get(i).getValue(), 0.01);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unit tests for the AtomicFileWrite class.
+ */
+public class AtomicFileWriteTest {
+
+    private File file;
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+
+    /**
+     * Run before each test, write the original contents of the test file.
+     */
+    @Before
+    public void setup() throws IOException {
+        file = new File(filepath, "atomic_test.dat");
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("original".getBytes());
+        fos.close();
+    }
+
+    /**
+     * Run after each test, remove the test file and any temporary file left behind.
+     */
+    @After
+    public void cleanup() {
+        if (!file.delete()) {
+            System.out.println("[CLEANUP] Failure to delete test file");
+        }
+        if (AtomicFileWrite.tempFileFor(file).delete()) {
+            System.out.println("[CLEANUP] Temporary file was left behind");
+        }
+    }
+
+    /**
+     * Test that a finished write replaces the file and leaves no temporary file.
+     */
+    @Test
+    public void test_finish_replaces_file() throws IOException {
+        FileOutputStream fos = AtomicFileWrite.startWrite(file);
+        fos.write("replaced".getBytes());
+        assertEquals("original", readFile());
+        AtomicFileWrite.finishWrite(file, fos);
+        assertEquals("replaced", readFile());
+        assertFalse(AtomicFileWrite.tempFileFor(file).exists());
+    }
+
+    /**
+     * Test that an abandoned write leaves the original file untouched.
+     */
+    @Test
+    public void test_abort_keeps_original() throws IOException {
+        FileOutputStream fos = AtomicFileWrite.startWrite(file);
+        fos.write("half wri".getBytes());
+        AtomicFileWrite.abortWrite(file, fos);
+        assertEquals("original", readFile());
+        assertFalse(AtomicFileWrite.tempFileFor(file).exists());
+    }
+
+    /**
+     * Read the first line of the test file.
+     * @return the contents of the file
+     */
+    private String readFile() throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        String line = reader.readLine();
+        reader.close();
+        return line;
+    }
+}
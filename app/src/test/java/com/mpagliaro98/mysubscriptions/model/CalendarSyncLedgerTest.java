@@ -0,0 +1,350 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CalendarSyncLedger class.
+ */
+public class CalendarSyncLedgerTest {
+
+    // The component under test
+    private CalendarSyncLedger CuT;
+
+    private File dir;
+    private List<Subscription> subscriptions;
+    private PortfolioGenerator generator;
+    private RecordingWriter writer;
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+    private static final String timeZone = "UTC";
+
+    /**
+     * Records every change the ledger sends, giving each inserted event a new ID right away.
+     */
+    private static class RecordingWriter implements CalendarSyncLedger.EventWriter {
+        List<Long> insertedStarts = new ArrayList<>();
+        List<String> insertedRules = new ArrayList<>();
+        List<Long> updatedIds = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        long nextEventId = 1000;
+
+        @Override
+        public void insertEvent(String title, String timeZone, long startMillis, String recurrenceRule,
+                                long[] eventIds, int index) {
+            insertedStarts.add(startMillis);
+            insertedRules.add(recurrenceRule);
+            eventIds[index] = nextEventId++;
+        }
+
+        @Override
+        public void updateEvent(long eventId, String title, String timeZone, long startMillis,
+                                String recurrenceRule) {
+            updatedIds.add(eventId);
+        }
+
+        @Override
+        public void deleteEvent(long eventId) {
+            deletedIds.add(eventId);
+        }
+
+        int numChanges() {
+            return insertedStarts.size() + updatedIds.size() + deletedIds.size();
+        }
+
+        void clear() {
+            insertedStarts.clear();
+            insertedRules.clear();
+            updatedIds.clear();
+            deletedIds.clear();
+        }
+    }
+
+    /**
+     * Run before each test, sync a portfolio onto an empty calendar and make sure no ledger
+     * file exists yet.
+     */
+    @Before
+    public void setup() {
+        dir = new File(filepath);
+        CalendarSyncLedger.delete(dir);
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        generator = new PortfolioGenerator(23, today);
+        subscriptions = generator.generate(200);
+        CuT = new CalendarSyncLedger(7);
+        writer = new RecordingWriter();
+    }
+
+    /**
+     * Run after each test, remove the ledger file if one was created.
+     */
+    @After
+    public void cleanup() {
+        CalendarSyncLedger.delete(dir);
+    }
+
+    /**
+     * Test that the first sync inserts every payment date, and a sync with nothing changed
+     * sends nothing.
+     */
+    @Test
+    public void test_first_sync_then_no_changes() {
+        sync();
+        int numDates = 0;
+        for (Subscription sub : subscriptions) {
+            numDates += sub.getNextPaymentList().size();
+        }
+        assertEquals(numDates, writer.insertedStarts.size());
+        assertEquals(numDates, writer.numChanges());
+        assertEquals(subscriptions.size(), CuT.size());
+        writer.clear();
+        sync();
+        assertEquals(0, writer.numChanges());
+    }
+
+    /**
+     * Test that renaming, re-dating, adding, and deleting subscriptions only touches the
+     * events of the subscriptions that changed.
+     */
+    @Test
+    public void test_only_changed_subscriptions_touched() {
+        sync();
+        writer.clear();
+
+        // A rename updates each event in place
+        Subscription renamed = subscriptions.get(10);
+        long[] renamedIds = CuT.getEventIds(renamed.getId());
+        subscriptions.set(10, copyOf(renamed, renamed.getName() + " renamed", renamed.getRechargeFrequency()));
+        sync();
+        assertEquals(renamedIds.length, writer.updatedIds.size());
+        assertEquals(renamedIds.length, writer.numChanges());
+        for (int i = 0; i < renamedIds.length; i++) {
+            assertEquals(renamedIds[i], (long)writer.updatedIds.get(i));
+        }
+        assertArrayEquals(renamedIds, CuT.getEventIds(renamed.getId()));
+        writer.clear();
+
+        // Changing how often it's paid keeps the dates it still has and changes the rest
+        Subscription redated = subscriptions.get(20);
+        int oldCount = redated.getNextPaymentList().size();
+        int frequency = redated.getRechargeFrequency() == 1 ? 2 : 1;
+        Subscription newRedated = copyOf(redated, redated.getName(), frequency);
+        subscriptions.set(20, newRedated);
+        sync();
+        int newCount = newRedated.getNextPaymentList().size();
+        assertEquals(newCount - oldCount, writer.insertedStarts.size() - writer.deletedIds.size());
+        assertEquals(0, writer.updatedIds.size());
+        assertEquals(newCount, CuT.getEventIds(redated.getId()).length);
+        writer.clear();
+
+        // A new subscription inserts its events, and a deleted one deletes them
+        Subscription added = generator.subscriptionAt(500);
+        subscriptions.add(added);
+        Subscription deleted = subscriptions.remove(30);
+        long[] deletedIds = CuT.getEventIds(deleted.getId());
+        sync();
+        assertEquals(added.getNextPaymentList().size(), writer.insertedStarts.size());
+        assertEquals(deletedIds.length, writer.deletedIds.size());
+        assertEquals(0, writer.updatedIds.size());
+        assertNull(CuT.getEventIds(deleted.getId()));
+        assertNotNull(CuT.getEventIds(added.getId()));
+    }
+
+    /**
+     * Test that syncing repeating events gives each subscription one event with its rule,
+     * that changing how often it's paid updates that event in place, and that switching back
+     * replaces it with one event per payment date.
+     */
+    @Test
+    public void test_recurring_events() {
+        sync(true);
+        assertEquals(subscriptions.size(), writer.insertedStarts.size());
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription sub = subscriptions.get(i);
+            assertEquals(sub.getStartDate().getTime(), (long)writer.insertedStarts.get(i));
+            assertEquals(sub.getRecurrenceRule(), writer.insertedRules.get(i));
+            assertEquals(1, CuT.getEventIds(sub.getId()).length);
+        }
+        writer.clear();
+        sync(true);
+        assertEquals(0, writer.numChanges());
+
+        Subscription sub = subscriptions.get(10);
+        long[] eventIds = CuT.getEventIds(sub.getId());
+        int frequency = sub.getRechargeFrequency() == 1 ? 2 : 1;
+        subscriptions.set(10, copyOf(sub, sub.getName(), frequency));
+        sync(true);
+        assertEquals(1, writer.numChanges());
+        assertEquals(eventIds[0], (long)writer.updatedIds.get(0));
+        writer.clear();
+
+        sync(false);
+        int numDates = 0;
+        for (Subscription each : subscriptions) {
+            numDates += each.getNextPaymentList().size();
+        }
+        // A repeating event that starts on a payment date is kept as that date's event
+        assertEquals(numDates, writer.insertedStarts.size() + writer.updatedIds.size());
+        assertEquals(subscriptions.size(), writer.deletedIds.size() + writer.updatedIds.size());
+    }
+
+    /**
+     * Test that counting the changes before a sync gives the number of changes it then
+     * sends, both for a first sync and after adding, editing, and deleting subscriptions.
+     */
+    @Test
+    public void test_count_changes() {
+        int numCounted = countThenSync();
+        assertEquals(writer.numChanges(), numCounted);
+        writer.clear();
+        assertEquals(0, countThenSync());
+
+        Subscription renamed = subscriptions.get(10);
+        subscriptions.set(10, copyOf(renamed, renamed.getName() + " renamed", renamed.getRechargeFrequency()));
+        Subscription redated = subscriptions.get(20);
+        subscriptions.set(20, copyOf(redated, redated.getName(), redated.getRechargeFrequency() == 1 ? 2 : 1));
+        subscriptions.add(generator.subscriptionAt(500));
+        subscriptions.remove(30);
+        numCounted = countThenSync();
+        assertTrue(numCounted > 0);
+        assertEquals(writer.numChanges(), numCounted);
+    }
+
+    /**
+     * Test that a sync stopped between subscriptions leaves a ledger that matches what was
+     * sent, so the next sync only sends the changes the stopped one didn't get to.
+     */
+    @Test
+    public void test_stopped_sync() throws IOException {
+        sync();
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription sub = subscriptions.get(i);
+            subscriptions.set(i, copyOf(sub, sub.getName() + " renamed", sub.getRechargeFrequency()));
+        }
+        writer.clear();
+
+        // Stop halfway, without finishing the sync
+        int half = subscriptions.size() / 2;
+        int numFirstHalf = 0;
+        try {
+            CuT.startSync();
+            for (int i = 0; i < half; i++) {
+                Subscription sub = subscriptions.get(i);
+                numFirstHalf += CuT.syncSubscription(sub, sub.getName() + " payment", timeZone, false, writer);
+            }
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        assertEquals(writer.numChanges(), numFirstHalf);
+        CuT.write(dir);
+        CuT = CalendarSyncLedger.read(dir);
+        assertNotNull(CuT);
+
+        // Only the second half is left to update
+        writer.clear();
+        int numLeft = countThenSync();
+        assertEquals(writer.numChanges(), numLeft);
+        assertEquals(0, writer.insertedStarts.size() + writer.deletedIds.size());
+        int numSecondHalf = 0;
+        for (int i = half; i < subscriptions.size(); i++) {
+            numSecondHalf += subscriptions.get(i).getNextPaymentList().size();
+        }
+        assertEquals(numSecondHalf, numLeft);
+    }
+
+    /**
+     * Test that a written ledger reads back with the same events, so the next sync after it
+     * sends nothing, and that a missing or damaged file reads as no ledger.
+     */
+    @Test
+    public void test_write_and_read() throws IOException {
+        assertNull(CalendarSyncLedger.read(dir));
+        sync();
+        CuT.write(dir);
+        CalendarSyncLedger read = CalendarSyncLedger.read(dir);
+        assertNotNull(read);
+        assertEquals(7, read.getCalendarId());
+        assertEquals(CuT.size(), read.size());
+        for (Subscription sub : subscriptions) {
+            assertArrayEquals(CuT.getEventIds(sub.getId()), read.getEventIds(sub.getId()));
+        }
+        CuT = read;
+        writer.clear();
+        sync();
+        assertEquals(0, writer.numChanges());
+
+        File file = new File(dir, CalendarSyncLedger.LEDGER_FILENAME);
+        assertTrue(file.delete() && file.createNewFile());
+        assertNull(CalendarSyncLedger.read(dir));
+    }
+
+    /**
+     * Sync every subscription in the list with the ledger under test, with one event for
+     * each payment date.
+     */
+    private void sync() {
+        sync(false);
+    }
+
+    /**
+     * Sync every subscription in the list with the ledger under test.
+     * @param recurring true to give each subscription one repeating event
+     */
+    private void sync(boolean recurring) {
+        try {
+            CuT.startSync();
+            for (Subscription sub : subscriptions) {
+                CuT.syncSubscription(sub, sub.getName() + " payment", timeZone, recurring, writer);
+            }
+            CuT.finishSync(writer);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Count the changes a sync of every subscription in the list would send, then run that
+     * sync with the ledger under test.
+     * @return the number of changes counted
+     */
+    private int countThenSync() {
+        try {
+            CuT.startSync();
+            int numChanges = 0;
+            for (Subscription sub : subscriptions) {
+                numChanges += CuT.countChanges(sub, sub.getName() + " payment", timeZone, false);
+            }
+            numChanges += CuT.countRemovedEvents();
+            for (Subscription sub : subscriptions) {
+                CuT.syncSubscription(sub, sub.getName() + " payment", timeZone, false, writer);
+            }
+            CuT.finishSync(writer);
+            return numChanges;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Make a copy of a subscription with the same ID and a different name and frequency.
+     * @param sub the subscription to copy
+     * @param name the new name
+     * @param rechargeFrequency the new recharge frequency
+     * @return the copy
+     */
+    private static Subscription copyOf(Subscription sub, String name, int rechargeFrequency) {
+        return new Subscription(sub.getId(), name, sub.getCost(), sub.getStartDay(), sub.getNote(),
+                rechargeFrequency, sub.getCategory(), sub.getNotifDays(), sub.getNextPaymentDay(),
+                sub.getNextNotifDay());
+    }
+}
@@ -0,0 +1,142 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Date;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CivilDate class.
+ */
+public class CivilDateTest {
+
+    private ZeroTimeCalendar zeroTimeCalendar;
+
+    /**
+     * Run before each test, set the calendar to have zero time.
+     */
+    @Before
+    public void setup() {
+        zeroTimeCalendar = new ZeroTimeCalendar();
+    }
+
+    /**
+     * Test the number of days in each month, including leap years.
+     */
+    @Test
+    public void test_days_in_month() {
+        assertEquals(31, CivilDate.daysInMonth(2021, 0));
+        assertEquals(28, CivilDate.daysInMonth(2021, 1));
+        assertEquals(29, CivilDate.daysInMonth(2024, 1));
+        assertEquals(28, CivilDate.daysInMonth(2100, 1));
+        assertEquals(29, CivilDate.daysInMonth(2000, 1));
+        assertEquals(30, CivilDate.daysInMonth(2021, 3));
+        assertEquals(31, CivilDate.daysInMonth(2021, 11));
+        assertTrue(CivilDate.isLeapYear(2024));
+        assertFalse(CivilDate.isLeapYear(1900));
+    }
+
+    /**
+     * Test that the first payment on or after a date matches stepping a calendar forward one
+     * period at a time, for many random start dates, frequencies, and target dates. Start days
+     * are kept at 28 or below, since that is where the two methods are meant to agree.
+     */
+    @Test
+    public void test_payment_matches_iterative() {
+        Random random = new Random(20210405);
+        for (int i = 0; i < 5000; i++) {
+            zeroTimeCalendar.setTime(1990 + random.nextInt(40), random.nextInt(12), 1 + random.nextInt(28));
+            Date startDate = zeroTimeCalendar.getCurrentDate();
+            zeroTimeCalendar.setTime(1990 + random.nextInt(45), random.nextInt(12), 1 + random.nextInt(31));
+            Date targetDate = zeroTimeCalendar.getCurrentDate();
+            int frequency = 1 + random.nextInt(24);
+
+            Date expected = iterativePaymentOnOrAfter(startDate, frequency, targetDate);
+            int actual = CivilDate.paymentOnOrAfter(CivilDate.toEpochDay(startDate), frequency,
+                    CivilDate.toEpochDay(targetDate));
+            assertEquals(expected, CivilDate.toDate(actual));
+        }
+    }
+
+    /**
+     * Test that payments anchored near the end of the month fall on the last day of shorter
+     * months and go back to the original day afterwards.
+     */
+    @Test
+    public void test_end_of_month_anchoring() {
+        zeroTimeCalendar.setTime(2021, 0, 31);
+        int startDay = zeroTimeCalendar.getEpochDay();
+
+        zeroTimeCalendar.setTime(2021, 1, 2);
+        int payment = CivilDate.paymentOnOrAfter(startDay, 1, zeroTimeCalendar.getEpochDay());
+        zeroTimeCalendar.setTime(2021, 1, 28);
+        assertEquals(zeroTimeCalendar.getEpochDay(), payment);
+
+        zeroTimeCalendar.setTime(2021, 2, 1);
+        payment = CivilDate.paymentOnOrAfter(startDay, 1, zeroTimeCalendar.getEpochDay());
+        zeroTimeCalendar.setTime(2021, 2, 31);
+        assertEquals(zeroTimeCalendar.getEpochDay(), payment);
+
+        zeroTimeCalendar.setTime(2024, 1, 29);
+        startDay = zeroTimeCalendar.getEpochDay();
+        zeroTimeCalendar.setTime(2025, 0, 1);
+        payment = CivilDate.paymentOnOrAfter(startDay, 12, zeroTimeCalendar.getEpochDay());
+        zeroTimeCalendar.setTime(2025, 1, 28);
+        assertEquals(zeroTimeCalendar.getEpochDay(), payment);
+    }
+
+    /**
+     * Test that the start date is returned when the target is on or before it.
+     */
+    @Test
+    public void test_payment_before_start() {
+        zeroTimeCalendar.setTime(2021, 5, 15);
+        int startDay = zeroTimeCalendar.getEpochDay();
+        assertEquals(startDay, CivilDate.paymentOnOrAfter(startDay, 3, startDay));
+        zeroTimeCalendar.setTime(2020, 0, 1);
+        assertEquals(startDay, CivilDate.paymentOnOrAfter(startDay, 3, zeroTimeCalendar.getEpochDay()));
+    }
+
+    /**
+     * Test converting days to and from epoch days, compared to stepping a calendar forward
+     * one day at a time.
+     */
+    @Test
+    public void test_epoch_day_round_trip() {
+        zeroTimeCalendar.setTime(1899, 11, 25);
+        int epochDay = CivilDate.toEpochDay(1899, 11, 25);
+        for (int i = 0; i < 60000; i++) {
+            int year = zeroTimeCalendar.getYear();
+            int month = zeroTimeCalendar.getMonth();
+            int day = zeroTimeCalendar.getDayOfMonth();
+            assertEquals(epochDay, CivilDate.toEpochDay(year, month, day));
+            assertEquals(CivilDate.toMonthIndex(year, month), CivilDate.epochDayToMonthIndex(epochDay));
+            assertEquals(day, CivilDate.epochDayToDayOfMonth(epochDay));
+            zeroTimeCalendar.addDays(1);
+            epochDay++;
+        }
+        assertEquals(0, CivilDate.toEpochDay(1970, 0, 1));
+    }
+
+    /**
+     * Find the first payment on or after a date by stepping a calendar forward one period at
+     * a time, the way Subscription used to.
+     * @param startDate the date of the first payment
+     * @param frequency the number of months between payments
+     * @param date the date to find the next payment from
+     * @return the first payment date on or after the given date
+     */
+    private Date iterativePaymentOnOrAfter(Date startDate, int frequency, Date date) {
+        ZeroTimeCalendar calendar = new ZeroTimeCalendar();
+        calendar.setTimeToDate(startDate);
+        Date paymentDate = startDate;
+        while (!paymentDate.after(date) && !paymentDate.equals(date)) {
+            calendar.addMonths(frequency);
+            paymentDate = calendar.getCurrentDate();
+        }
+        return paymentDate;
+    }
+}
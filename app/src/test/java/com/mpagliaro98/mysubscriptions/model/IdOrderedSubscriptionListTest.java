@@ -0,0 +1,152 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the IdOrderedSubscriptionList class.
+ */
+public class IdOrderedSubscriptionListTest {
+
+    // The component under test
+    private IdOrderedSubscriptionList CuT;
+
+    private PortfolioGenerator generator;
+
+    /**
+     * Run before each test, start with an empty list.
+     */
+    @Before
+    public void setup() {
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        generator = new PortfolioGenerator(31, today);
+        CuT = new IdOrderedSubscriptionList();
+    }
+
+    /**
+     * Test that IDs are handed out in order and never reused, and that subscriptions keep
+     * their IDs and order through many adds, replaces, and deletes.
+     */
+    @Test
+    public void test_changes_match_reference() {
+        TreeMap<Integer, Subscription> expected = new TreeMap<>();
+        Random random = new Random(5);
+        int lastId = -1;
+        for (int i = 0; i < 5000; i++) {
+            int change = expected.isEmpty() ? 0 : random.nextInt(5);
+            if (change <= 1) {
+                Subscription sub = generator.subscriptionAt(i);
+                int id = CuT.insert(sub);
+                assertTrue(id > lastId);
+                assertEquals(id, sub.getId());
+                lastId = id;
+                expected.put(id, sub);
+            } else if (change == 2) {
+                int id = randomId(expected, random);
+                Subscription sub = generator.subscriptionAt(i);
+                assertSame(expected.put(id, sub), CuT.replace(id, sub));
+                assertEquals(id, sub.getId());
+            } else {
+                int id = randomId(expected, random);
+                assertSame(expected.remove(id), CuT.delete(id));
+                assertNull(CuT.getById(id));
+            }
+            if (i % 200 == 0) {
+                assertSameList(expected, CuT);
+            }
+        }
+        assertSameList(expected, CuT);
+        assertEquals(lastId + 1, CuT.getNextId());
+        for (Integer id : new ArrayList<>(expected.keySet())) {
+            CuT.delete(id);
+        }
+        assertEquals(0, CuT.size());
+        assertFalse(CuT.iterator().hasNext());
+        assertEquals(lastId + 1, CuT.insert(generator.subscriptionAt(0)));
+    }
+
+    /**
+     * Test creating a list from subscriptions that already have IDs, then adding more.
+     */
+    @Test
+    public void test_loaded_ids() {
+        List<Subscription> loaded = new ArrayList<>();
+        int[] ids = {2, 3, 9};
+        for (int id : ids) {
+            Subscription sub = generator.subscriptionAt(id);
+            loaded.add(sub);
+        }
+        CuT = new IdOrderedSubscriptionList(loaded, 12);
+        assertEquals(3, CuT.size());
+        assertSame(loaded.get(2), CuT.getById(9));
+        assertNull(CuT.getById(4));
+        assertTrue(CuT.contains(loaded.get(1)));
+        assertEquals(12, CuT.insert(generator.subscriptionAt(20)));
+
+        // A replayed add keeps its own ID, which must not have been used yet
+        Subscription replayed = generator.subscriptionAt(15);
+        CuT.put(replayed);
+        assertSame(replayed, CuT.getById(15));
+        assertEquals(16, CuT.getNextId());
+        try {
+            CuT.put(generator.subscriptionAt(14));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // IDs below the next ID may have been used already
+        }
+        try {
+            new IdOrderedSubscriptionList(loaded, 9);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // The next ID is already in use
+        }
+        try {
+            CuT.delete(4);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // There's no subscription with that ID
+        }
+    }
+
+    /**
+     * Pick the ID of a random subscription in the reference list.
+     * @param expected the reference list
+     * @param random the random values to use
+     * @return an ID in use
+     */
+    private static int randomId(TreeMap<Integer, Subscription> expected, Random random) {
+        Integer id = expected.ceilingKey(random.nextInt(expected.lastKey() + 1));
+        return id != null ? id : expected.lastKey();
+    }
+
+    /**
+     * Check that the list holds the same subscriptions as the reference, in ID order, by
+     * position, by iterating over it, and by ID.
+     * @param expected the reference list
+     * @param actual the list to check
+     */
+    private static void assertSameList(TreeMap<Integer, Subscription> expected, IdOrderedSubscriptionList actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<Subscription> iterator = actual.iterator();
+        int index = 0;
+        for (Map.Entry<Integer, Subscription> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), iterator.next());
+            assertSame(entry.getValue(), actual.get(index++));
+            assertSame(entry.getValue(), actual.getById(entry.getKey()));
+        }
+        assertFalse(iterator.hasNext());
+    }
+}
@@ -0,0 +1,143 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the NotificationIndex class.
+ */
+public class NotificationIndexTest {
+
+    // The component under test
+    private NotificationIndex CuT;
+
+    private File dir;
+    private List<Subscription> subscriptions;
+    private int today;
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+
+    /**
+     * Run before each test, index a generated portfolio and make sure no index file exists
+     * yet.
+     */
+    @Before
+    public void setup() {
+        dir = new File(filepath);
+        NotificationIndex.delete(dir);
+        ZeroTimeCalendar calendar = new ZeroTimeCalendar();
+        calendar.setTime(2021, 3, 5);
+        today = calendar.getEpochDay();
+        subscriptions = new PortfolioGenerator(31, calendar).generate(500);
+        CuT = new NotificationIndex(subscriptions, today);
+    }
+
+    /**
+     * Run after each test, remove the index file if one was created.
+     */
+    @After
+    public void cleanup() {
+        NotificationIndex.delete(dir);
+    }
+
+    /**
+     * Test that reading any day the index can be trusted for gives the same subscriptions
+     * as checking every subscription's notification date.
+     */
+    @Test
+    public void test_read_day() throws IOException {
+        CuT.write(dir);
+        int lastValidDay = Integer.MAX_VALUE;
+        for (Subscription sub : subscriptions) {
+            lastValidDay = Math.min(lastValidDay, sub.getNextPaymentDay());
+        }
+        assertTrue(lastValidDay >= today);
+
+        int numDue = 0;
+        for (int day = today; day <= lastValidDay; day++) {
+            List<Subscription> expected = new ArrayList<>();
+            for (Subscription sub : subscriptions) {
+                if (sub.getNextNotifDay() == day) {
+                    expected.add(sub);
+                }
+            }
+            List<Subscription> due = NotificationIndex.readDay(dir, day);
+            assertNotNull(due);
+            assertEquals(expected.size(), due.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Subscription sub = expected.get(i);
+                Subscription read = due.get(i);
+                assertEquals(sub.getId(), read.getId());
+                assertEquals(sub.getName(), read.getName());
+                assertEquals(sub.getCost(), read.getCost(), 0);
+                assertEquals(sub.getNote(), read.getNote());
+                assertEquals(sub.getCategory(), read.getCategory());
+                assertEquals(sub.getNotifDays(), read.getNotifDays());
+                assertEquals(sub.getNextPaymentDay(), read.getNextPaymentDay());
+                assertEquals(day, read.getNextNotifDay());
+            }
+            numDue += due.size();
+        }
+        assertTrue(numDue > 0);
+    }
+
+    /**
+     * Test that the index isn't trusted after the first next payment date has passed, since
+     * the dates have to be worked out again.
+     */
+    @Test
+    public void test_out_of_date() throws IOException {
+        CuT.write(dir);
+        int lastValidDay = Integer.MAX_VALUE;
+        for (Subscription sub : subscriptions) {
+            lastValidDay = Math.min(lastValidDay, sub.getNextPaymentDay());
+        }
+        assertNotNull(NotificationIndex.readDay(dir, lastValidDay));
+        assertNull(NotificationIndex.readDay(dir, lastValidDay + 1));
+    }
+
+    /**
+     * Test that the next days notifications are due are kept in the index, and can still be
+     * read once the index is out of date.
+     */
+    @Test
+    public void test_reminder_days() throws IOException {
+        assertNull(NotificationIndex.readReminderDays(dir));
+        CuT.write(dir);
+        int[] reminderDays = CuT.getReminderDays();
+        assertArrayEquals(ReminderScheduler.upcomingReminderDays(subscriptions, today), reminderDays);
+        assertTrue(reminderDays.length > 0);
+        assertArrayEquals(reminderDays, NotificationIndex.readReminderDays(dir));
+        assertNotNull(NotificationIndex.readDay(dir, reminderDays[0]));
+    }
+
+    /**
+     * Test that a missing or damaged index can't be read, and that an empty model gives an
+     * index with nothing due.
+     */
+    @Test
+    public void test_missing_and_empty() throws IOException {
+        assertFalse(NotificationIndex.exists(dir));
+        assertNull(NotificationIndex.readDay(dir, today));
+
+        File file = new File(dir, NotificationIndex.INDEX_FILENAME);
+        assertTrue(file.createNewFile());
+        assertNull(NotificationIndex.readDay(dir, today));
+
+        new NotificationIndex(new ArrayList<Subscription>()).write(dir);
+        assertTrue(NotificationIndex.exists(dir));
+        List<Subscription> due = NotificationIndex.readDay(dir, today);
+        assertNotNull(due);
+        assertTrue(due.isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the PaymentIndex class.
+ */
+public class PaymentIndexTest {
+
+    // The component under test
+    private PaymentIndex CuT;
+
+    private ZeroTimeCalendar zeroTimeCalendar;
+    private List<Subscription> subscriptions;
+
+    /**
+     * Run before each test, create a set of random subscriptions and index them.
+     */
+    @Before
+    public void setup() {
+        CuT = new PaymentIndex();
+        zeroTimeCalendar = new ZeroTimeCalendar();
+        zeroTimeCalendar.setTime(2021, 3, 5);
+        subscriptions = new ArrayList<>();
+        Random random = new Random(42);
+        Category category = new Category(0, "test");
+        for (int i = 0; i < 300; i++) {
+            ZeroTimeCalendar startCalendar = new ZeroTimeCalendar();
+            startCalendar.setTime(2015 + random.nextInt(8), random.nextInt(12), 1 + random.nextInt(31));
+            Subscription subscription = new Subscription(i, "sub" + i, 1.0,
+                    startCalendar.getCurrentDate(), "", 1 + random.nextInt(12), category, -1,
+                    zeroTimeCalendar.copyCalendar());
+            subscriptions.add(subscription);
+            CuT.add(subscription);
+        }
+    }
+
+    /**
+     * Test that the index finds exactly the subscriptions due on each day, compared to
+     * checking every subscription.
+     */
+    @Test
+    public void test_due_on_day_matches_full_scan() {
+        ZeroTimeCalendar day = zeroTimeCalendar.copyCalendar();
+        day.addMonths(-2);
+        for (int i = 0; i < 800; i++) {
+            List<Subscription> expected = new ArrayList<>();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.hasPaymentOn(day.getYear(), day.getMonth(), day.getDayOfMonth())) {
+                    expected.add(subscription);
+                }
+            }
+            assertEquals(expected, CuT.subsDueOnDay(day.getYear(), day.getMonth(), day.getDayOfMonth()));
+            assertEquals(expected.size(), CuT.numDueOnDay(day.getYear(), day.getMonth(), day.getDayOfMonth()));
+            day.addDays(3);
+        }
+    }
+
+    /**
+     * Test that removed subscriptions are no longer found.
+     */
+    @Test
+    public void test_remove() {
+        for (Subscription subscription : subscriptions) {
+            CuT.remove(subscription);
+        }
+        for (Subscription subscription : subscriptions) {
+            Date nextPaymentDate = subscription.getNextPaymentDate();
+            zeroTimeCalendar.setTimeToDate(nextPaymentDate);
+            assertEquals(0, CuT.subsDueOnDay(zeroTimeCalendar.getYear(),
+                    zeroTimeCalendar.getMonth(), zeroTimeCalendar.getDayOfMonth()).size());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates realistic portfolios of subscriptions for load and scale tests. Categories are
+ * skewed towards a few popular ones, every recharge frequency the app offers is used, start
+ * dates go back decades, some notes are as long as the app allows, and some subscriptions
+ * start on the last day of a month.
+ *
+ * Every subscription is generated from the seed and its own ID alone, so the same seed, day
+ * and size always give the same portfolio, and any one subscription can be generated without
+ * generating the ones before it. This lets data files of any size be written without holding
+ * the whole portfolio in memory.
+ */
+class PortfolioGenerator {
+
+    // The longest name and note the app allows to be entered
+    static final int MAX_NAME_LENGTH = 50;
+    static final int MAX_NOTE_LENGTH = 2000;
+    // The furthest back in years a start date can be
+    static final int MAX_YEARS_AGO = 40;
+
+    // The categories the app offers, with their colors
+    static final Category[] CATEGORIES = {new Category(0xFFFF5214, "Video Streaming"),
+            new Category(0xFFD8C952, "Audio Streaming"), new Category(0xFF6B68FF, "Gaming"),
+            new Category(0xFFADFF16, "Online Shopping"), new Category(0xFFC09BFF, "News"),
+            new Category(0xFFFF44CA, "Education"), new Category(0xFF7F6262, "Other")};
+    // How likely each category is relative to the others, so a few hold most subscriptions
+    private static final int[] CATEGORY_WEIGHTS = {40, 22, 14, 10, 7, 4, 3};
+    // The recharge frequencies the app offers, in months
+    static final int[] FREQUENCIES = {1, 2, 3, 6, 12};
+    // How likely each recharge frequency is relative to the others
+    private static final int[] FREQUENCY_WEIGHTS = {65, 4, 8, 6, 17};
+    // The notification options the app offers, in days before a payment
+    private static final int[] NOTIF_DAYS = {-1, 0, 1, 2, 3, 7};
+    // Names are picked from these, with the ID added so they are all different
+    private static final String[] NAMES = {"Netflix", "Spotify", "Hulu", "Disney+", "HBO Max",
+            "YouTube Premium", "Apple Music", "Xbox Game Pass", "PlayStation Plus", "Nintendo Online",
+            "Amazon Prime", "Newspaper", "Magazine", "Language Course", "Cloud Storage", "Gym",
+            "Phone Plan", "Internet", "Car Insurance", "Caf\u00e9 Club"};
+    // Words long notes are made from, including some that aren't ASCII
+    private static final String[] NOTE_WORDS = {"shared", "with", "family", "plan", "renews",
+            "automatically", "cancel", "before", "trial", "ends", "price", "went", "up", "na\u00efve",
+            "r\u00e9sum\u00e9", "\u00fcber", "account", "login", "on", "the", "laptop"};
+    // The percent of subscriptions that start on the last day of a month
+    private static final int MONTH_END_PERCENT = 15;
+    // The percent of subscriptions with a short note, and with a long note
+    private static final int SHORT_NOTE_PERCENT = 25;
+    private static final int LONG_NOTE_PERCENT = 5;
+    // Added to the seed for each ID, so neighbouring IDs get unrelated random values
+    private static final long ID_STEP = 0x9E3779B97F4A7C15L;
+
+    // The seed every subscription is generated from
+    private final long seed;
+    // The day the portfolio is generated on, used to calculate every payment date
+    private final ZeroTimeCalendar today;
+    // Reused to build each start date
+    private final ZeroTimeCalendar startCalendar = new ZeroTimeCalendar();
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create a generator for the portfolio given by a seed and a day.
+     * @param seed the seed to generate subscriptions from
+     * @param today a calendar of the day the portfolio is generated on, which is copied
+     */
+    PortfolioGenerator(long seed, ZeroTimeCalendar today) {
+        this.seed = seed;
+        this.today = today.copyCalendar();
+    }
+
+    /**
+     * Generate the subscription with a given ID. The same ID always gives the same
+     * subscription from this generator.
+     * @param id the ID of the subscription
+     * @return the generated subscription
+     */
+    Subscription subscriptionAt(int id) {
+        Random random = new Random(mix(seed + id * ID_STEP));
+
+        // Start dates go back decades, and some fall on the last day of their month
+        int year = today.getYear() - random.nextInt(MAX_YEARS_AGO + 1);
+        int month = random.nextInt(12);
+        int dayOfMonth = random.nextInt(100) < MONTH_END_PERCENT ? CivilDate.daysInMonth(year, month)
+                : 1 + random.nextInt(CivilDate.daysInMonth(year, month));
+        startCalendar.setTime(year, month, dayOfMonth);
+
+        String name = NAMES[random.nextInt(NAMES.length)] + " " + id;
+        if (name.length() > MAX_NAME_LENGTH) {
+            name = name.substring(0, MAX_NAME_LENGTH);
+        }
+        // Most subscriptions are cheap, with a few expensive ones
+        double cost = Math.round(Math.exp(random.nextDouble() * Math.log(1000)) * 100) / 100.0;
+        Category category = CATEGORIES[pickWeighted(random, CATEGORY_WEIGHTS)];
+        int rechargeFrequency = FREQUENCIES[pickWeighted(random, FREQUENCY_WEIGHTS)];
+        int notifDays = NOTIF_DAYS[random.nextInt(NOTIF_DAYS.length)];
+        return new Subscription(id, name, cost, startCalendar.getCurrentDate(), generateNote(random),
+                rechargeFrequency, category, notifDays, today);
+    }
+
+    /**
+     * Generate a portfolio, with IDs in order from 0.
+     * @param size the number of subscriptions
+     * @return a new list holding the generated subscriptions
+     */
+    List<Subscription> generate(int size) {
+        List<Subscription> subscriptions = new ArrayList<>(size);
+        for (int id = 0; id < size; id++) {
+            subscriptions.add(subscriptionAt(id));
+        }
+        return subscriptions;
+    }
+
+    /**
+     * Get a portfolio as a list that generates each subscription when it's asked for, rather
+     * than holding them all. Each call to get generates a new subscription.
+     * @param size the number of subscriptions
+     * @return a read-only list of the generated portfolio
+     */
+    List<Subscription> asList(final int size) {
+        return new AbstractList<Subscription>() {
+            @Override
+            public Subscription get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return subscriptionAt(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Write a portfolio to a data file in the given directory, in the same format the app
+     * saves in. Subscriptions are generated as they're written, so this works for any size.
+     * @param directory the directory to write subscriptions.dat in
+     * @param size the number of subscriptions
+     * @return the data file that was written
+     * @throws IOException thrown if something goes wrong writing the file
+     */
+    File writeDataFile(File directory, int size) throws IOException {
+        File file = new File(directory, SharedViewModel.SUBSCRIPTIONS_FILENAME);
+        SubscriptionSnapshot.write(file, asList(size), 0, size);
+        return file;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PRIVATE METHODS ///////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Generate a note, which is usually empty, sometimes a few words, and sometimes close to
+     * the longest the app allows.
+     * @param random the random values for the subscription being generated
+     * @return the note
+     */
+    private static String generateNote(Random random) {
+        int kind = random.nextInt(100);
+        int length;
+        if (kind < LONG_NOTE_PERCENT) {
+            length = MAX_NOTE_LENGTH / 2 + random.nextInt(MAX_NOTE_LENGTH / 2);
+        } else if (kind < LONG_NOTE_PERCENT + SHORT_NOTE_PERCENT) {
+            length = 10 + random.nextInt(40);
+        } else {
+            return "";
+        }
+        StringBuilder note = new StringBuilder(length + 20);
+        while (note.length() < length) {
+            if (note.length() > 0) {
+                note.append(' ');
+            }
+            note.append(NOTE_WORDS[random.nextInt(NOTE_WORDS.length)]);
+        }
+        note.setLength(Math.min(note.length(), MAX_NOTE_LENGTH));
+        return note.toString();
+    }
+
+    /**
+     * Pick an index at random, where each index is as likely as its weight.
+     * @param random the random values for the subscription being generated
+     * @param weights the weight of each index
+     * @return the picked index
+     */
+    private static int pickWeighted(Random random, int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Scramble the bits of a number, so seeds that are close together give unrelated
+     * random values.
+     * @param value the number to scramble
+     * @return the scrambled number
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
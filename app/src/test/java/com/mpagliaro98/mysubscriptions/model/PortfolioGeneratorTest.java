@@ -0,0 +1,153 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the PortfolioGenerator class.
+ */
+public class PortfolioGeneratorTest {
+
+    private ZeroTimeCalendar today;
+    private File file;
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+
+    /**
+     * Run before each test, set a fixed day and make sure no data file exists yet.
+     */
+    @Before
+    public void setup() {
+        today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        file = new File(filepath, SharedViewModel.SUBSCRIPTIONS_FILENAME);
+        if (file.exists() && !file.delete()) {
+            System.out.println("[SETUP] Failure to delete data file");
+        }
+    }
+
+    /**
+     * Run after each test, remove the data file if one was created.
+     */
+    @After
+    public void cleanup() {
+        if (file.exists() && !file.delete()) {
+            System.out.println("[CLEANUP] Failure to delete data file");
+        }
+    }
+
+    /**
+     * Test that the same seed always gives the same portfolio, and a different seed doesn't.
+     */
+    @Test
+    public void test_deterministic() {
+        List<Subscription> first = new PortfolioGenerator(11, today).generate(500);
+        List<Subscription> second = new PortfolioGenerator(11, today).generate(500);
+        List<Subscription> other = new PortfolioGenerator(12, today).generate(500);
+        int numDifferent = 0;
+        for (int i = 0; i < first.size(); i++) {
+            assertSameValues(first.get(i), second.get(i));
+            if (!first.get(i).getName().equals(other.get(i).getName())
+                    || first.get(i).getStartDay() != other.get(i).getStartDay()) {
+                numDifferent++;
+            }
+        }
+        assertTrue(numDifferent > 400);
+        assertSameValues(first.get(123), new PortfolioGenerator(11, today).subscriptionAt(123));
+        assertSameValues(first.get(456), new PortfolioGenerator(11, today).asList(500).get(456));
+    }
+
+    /**
+     * Test that a large portfolio has the mix of subscriptions it should, and that every
+     * subscription could have been entered in the app.
+     */
+    @Test
+    public void test_portfolio_mix() {
+        List<Subscription> subscriptions = new PortfolioGenerator(3, today).generate(10000);
+        int[] categoryCounts = new int[PortfolioGenerator.CATEGORIES.length];
+        int[] frequencyCounts = new int[13];
+        int numMonthEnd = 0;
+        int numOld = 0;
+        int numLongNotes = 0;
+        int oldestAllowed = CivilDate.toEpochDay(2021 - PortfolioGenerator.MAX_YEARS_AGO, 0, 1);
+        int decadesAgo = CivilDate.toEpochDay(1991, 3, 5);
+        for (Subscription sub : subscriptions) {
+            for (int i = 0; i < categoryCounts.length; i++) {
+                if (sub.getCategory() == PortfolioGenerator.CATEGORIES[i]) {
+                    categoryCounts[i]++;
+                }
+            }
+            frequencyCounts[sub.getRechargeFrequency()]++;
+            int startDay = sub.getStartDay();
+            assertTrue(startDay >= oldestAllowed);
+            if (startDay < decadesAgo) {
+                numOld++;
+            }
+            if (CivilDate.epochDayToDayOfMonth(startDay + 1) == 1) {
+                numMonthEnd++;
+            }
+            assertTrue(sub.getNote().length() <= PortfolioGenerator.MAX_NOTE_LENGTH);
+            if (sub.getNote().length() > PortfolioGenerator.MAX_NOTE_LENGTH / 2) {
+                numLongNotes++;
+            }
+            assertTrue(sub.getName().length() <= PortfolioGenerator.MAX_NAME_LENGTH);
+            assertTrue(sub.getNextPaymentDay() >= today.getEpochDay());
+        }
+
+        // Every category and frequency is used, and the first category is the most common
+        for (int i = 0; i < categoryCounts.length; i++) {
+            assertTrue(categoryCounts[i] > 0);
+            assertTrue(categoryCounts[0] >= categoryCounts[i]);
+        }
+        assertTrue(categoryCounts[0] > 3 * categoryCounts[categoryCounts.length - 1]);
+        for (int frequency : PortfolioGenerator.FREQUENCIES) {
+            assertTrue(frequencyCounts[frequency] > 0);
+        }
+        assertTrue(numMonthEnd > 1000);
+        assertTrue(numOld > 1000);
+        assertTrue(numLongNotes > 100);
+    }
+
+    /**
+     * Test that a written data file holds the same portfolio the generator gives.
+     */
+    @Test
+    public void test_write_data_file() throws IOException {
+        PortfolioGenerator generator = new PortfolioGenerator(5, today);
+        File written = generator.writeDataFile(new File(filepath), 2000);
+        assertEquals(file.getPath(), written.getPath());
+        assertTrue(SubscriptionSnapshot.isSnapshotFile(file));
+        assertFalse(AtomicFileWrite.tempFileFor(file).exists());
+        List<Subscription> loaded = SubscriptionSnapshot.read(file).getSubscriptions();
+        List<Subscription> expected = generator.generate(2000);
+        assertEquals(expected.size(), loaded.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameValues(expected.get(i), loaded.get(i));
+        }
+    }
+
+    /**
+     * Check that two subscriptions hold the same values.
+     * @param expected the subscription with the expected values
+     * @param actual the subscription to check
+     */
+    private static void assertSameValues(Subscription expected, Subscription actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCost(), actual.getCost(), 0);
+        assertEquals(expected.getStartDay(), actual.getStartDay());
+        assertEquals(expected.getNote(), actual.getNote());
+        assertEquals(expected.getRechargeFrequency(), actual.getRechargeFrequency());
+        assertEquals(expected.getCategory().getColor(), actual.getCategory().getColor());
+        assertEquals(expected.getCategory().getName(), actual.getCategory().getName());
+        assertEquals(expected.getNotifDays(), actual.getNotifDays());
+        assertEquals(expected.getNextPaymentDay(), actual.getNextPaymentDay());
+        assertEquals(expected.getNextNotifDay(), actual.getNextNotifDay());
+    }
+}
@@ -0,0 +1,151 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ReminderScheduler class.
+ */
+public class ReminderSchedulerTest {
+
+    private List<Subscription> subscriptions;
+    private int today;
+    private FakeAlarmScheduler scheduler;
+    private static final TimeZone timeZone = TimeZone.getTimeZone("UTC");
+    private static final long MILLIS_PER_HOUR = 60L * 60 * 1000;
+
+    /**
+     * Records the alarm set, in place of the AlarmManager.
+     */
+    private static class FakeAlarmScheduler implements ReminderScheduler.AlarmScheduler {
+        long triggerAtMillis = -1;
+        int numSet = 0;
+        int numCancelled = 0;
+
+        @Override
+        public void setAlarm(long triggerAtMillis) {
+            this.triggerAtMillis = triggerAtMillis;
+            numSet++;
+        }
+
+        @Override
+        public void cancelAlarm() {
+            triggerAtMillis = -1;
+            numCancelled++;
+        }
+    }
+
+    /**
+     * Run before each test, generate a portfolio and a scheduler with no alarm set.
+     */
+    @Before
+    public void setup() {
+        ZeroTimeCalendar calendar = new ZeroTimeCalendar();
+        calendar.setTime(2021, 3, 5);
+        today = calendar.getEpochDay();
+        subscriptions = new PortfolioGenerator(41, calendar).generate(300);
+        scheduler = new FakeAlarmScheduler();
+    }
+
+    /**
+     * Test that the days found with the heap are the same as checking every day for a
+     * notification from any subscription's payment dates.
+     */
+    @Test
+    public void test_upcoming_reminder_days() {
+        int[] days = ReminderScheduler.upcomingReminderDays(subscriptions, today);
+        assertEquals(ReminderScheduler.MAX_REMINDER_DAYS, days.length);
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (Subscription sub : subscriptions) {
+            if (sub.getNotifDays() == -1) {
+                continue;
+            }
+            for (Date date : sub.getNextPaymentList()) {
+                int day = CivilDate.toEpochDay(date) - sub.getNotifDays();
+                if (day >= today) {
+                    expected.add(day);
+                }
+            }
+        }
+        int i = 0;
+        for (int day : expected) {
+            if (i == days.length) {
+                break;
+            }
+            assertEquals(day, days[i++]);
+        }
+    }
+
+    /**
+     * Test that subscriptions with notifications off, or an empty model, have no days.
+     */
+    @Test
+    public void test_no_reminder_days() {
+        assertEquals(0, ReminderScheduler.upcomingReminderDays(new ArrayList<Subscription>(), today).length);
+        List<Subscription> noNotifications = new ArrayList<>();
+        for (Subscription sub : subscriptions) {
+            noNotifications.add(new Subscription(sub.getId(), sub.getName(), sub.getCost(),
+                    sub.getStartDay(), sub.getNote(), sub.getRechargeFrequency(), sub.getCategory(),
+                    -1, sub.getNextPaymentDay(), Subscription.NO_DATE));
+        }
+        assertEquals(0, ReminderScheduler.upcomingReminderDays(noNotifications, today).length);
+    }
+
+    /**
+     * Test that the alarm is set for the first day still to come at the notification time,
+     * skipping a day whose notification time has already passed.
+     */
+    @Test
+    public void test_schedule_next_reminder() {
+        int[] days = {today, today + 3, today + 10};
+        long startOfToday = ReminderScheduler.reminderMillis(today, 0, 0, timeZone);
+
+        assertTrue(ReminderScheduler.schedule(scheduler, days, true, 9, 30, startOfToday, timeZone));
+        assertEquals(startOfToday + 9 * MILLIS_PER_HOUR + 30 * 60 * 1000, scheduler.triggerAtMillis);
+
+        long afterToday = startOfToday + 10 * MILLIS_PER_HOUR;
+        assertTrue(ReminderScheduler.schedule(scheduler, days, true, 9, 30, afterToday, timeZone));
+        assertEquals(ReminderScheduler.reminderMillis(today + 3, 9, 30, timeZone), scheduler.triggerAtMillis);
+        assertEquals(2, scheduler.numSet);
+        assertEquals(0, scheduler.numCancelled);
+    }
+
+    /**
+     * Test that the alarm is cancelled when notifications are off or none are due.
+     */
+    @Test
+    public void test_schedule_cancel() {
+        long now = ReminderScheduler.reminderMillis(today, 0, 0, timeZone);
+        assertTrue(ReminderScheduler.schedule(scheduler, new int[]{today + 1}, false, 6, 0, now, timeZone));
+        assertTrue(ReminderScheduler.schedule(scheduler, new int[0], true, 6, 0, now, timeZone));
+        assertEquals(2, scheduler.numCancelled);
+        assertEquals(0, scheduler.numSet);
+    }
+
+    /**
+     * Test that the alarm falls back to the next notification time when the days aren't
+     * known or have all passed, and says so.
+     */
+    @Test
+    public void test_schedule_fallback() {
+        long now = ReminderScheduler.reminderMillis(today, 7, 0, timeZone);
+        assertFalse(ReminderScheduler.schedule(scheduler, null, true, 6, 0, now, timeZone));
+        assertEquals(ReminderScheduler.reminderMillis(today + 1, 6, 0, timeZone), scheduler.triggerAtMillis);
+
+        assertFalse(ReminderScheduler.schedule(scheduler, new int[]{today - 2, today}, true, 6, 0, now, timeZone));
+        assertEquals(ReminderScheduler.reminderMillis(today + 1, 6, 0, timeZone), scheduler.triggerAtMillis);
+
+        assertFalse(ReminderScheduler.schedule(scheduler, null, true, 8, 0, now, timeZone));
+        assertEquals(ReminderScheduler.reminderMillis(today, 8, 0, timeZone), scheduler.triggerAtMillis);
+        assertEquals(0, scheduler.numCancelled);
+    }
+}
@@ -2,19 +2,22 @@ package com.mpagliaro98.mysubscriptions.model;
 
 import android.content.Context;
 import com.mpagliaro98.mysubscriptions.R;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSettingsChangedListener;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Calendar;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -45,6 +48,7 @@ public class SettingsManagerTest {
             System.out.println("[SETUP] Failure to delete settings file, likely doesn't exist yet");
         }
         when(context.getFilesDir()).thenReturn(dir);
+        SettingsManager.clearInstance();
     }
 
     /**
@@ -52,6 +56,7 @@ public class SettingsManagerTest {
      */
     @After
     public void cleanup() {
+        SettingsManager.clearInstance();
         File file = new File(filepath + "\\" + filename);
         if (file.delete()) {
             System.out.println("[CLEANUP] Settings file deleted");
@@ -74,6 +79,7 @@ public class SettingsManagerTest {
         assertTrue(CuT.getNotificationsOn());
         assertEquals("$", CuT.getCurrencySymbol());
         assertEquals("MM/dd/yyyy", CuT.getDateFormat());
+        assertFalse(CuT.getRecurringCalendarEvents());
 
         Calendar calendar = Calendar.getInstance();
         calendar.set(Calendar.HOUR_OF_DAY, 6);
@@ -96,25 +102,11 @@ public class SettingsManagerTest {
             calendar.set(Calendar.SECOND, 0);
             calendar.set(Calendar.MILLISECOND, 0);
 
-            // Open the output stream
-            File file = new File(filepath + "\\" + filename);
-            FileOutputStream fos;
-            try {
-                fos = new FileOutputStream(file);
-                when(context.openFileOutput(filename, Context.MODE_PRIVATE)).thenReturn(fos);
-            } catch (FileNotFoundException e) {
-                fos = null;
-            }
-
             // Don't do anything on IOException since we aren't focused on saving settings
             try {
                 CuT.setSettings(false, calendar.getTime(), "£",
-                        "dd/MM/yyyy", context);
+                        "dd/MM/yyyy", true, context);
             } catch (IOException e) {}
-
-            // Close the output stream
-            assert fos != null;
-            fos.close();
         } catch (IOException e) {
             fail();
         }
@@ -122,6 +114,7 @@ public class SettingsManagerTest {
         assertFalse(CuT.getNotificationsOn());
         assertEquals("£", CuT.getCurrencySymbol());
         assertEquals("dd/MM/yyyy", CuT.getDateFormat());
+        assertTrue(CuT.getRecurringCalendarEvents());
 
         Calendar calendar = Calendar.getInstance();
         calendar.set(Calendar.HOUR_OF_DAY, 7);
@@ -130,4 +123,51 @@ public class SettingsManagerTest {
         calendar.set(Calendar.MILLISECOND, 0);
         assertEquals(calendar.getTime(), CuT.getNotificationTime());
     }
+
+    /**
+     * Test that the shared instance is only loaded once, and that listeners are told when
+     * the settings are changed until they are removed.
+     */
+    @Test
+    public void test_shared_instance_and_listeners() {
+        OnSettingsChangedListener listener = mock(OnSettingsChangedListener.class);
+        try {
+            CuT = SettingsManager.getInstance(context);
+            assertSame(CuT, SettingsManager.getInstance(context));
+            CuT.addOnSettingsChangedListener(listener);
+
+            CuT.setSettings(false, CuT.getNotificationTime(), "£", "dd/MM/yyyy", false, context);
+            verify(listener).onSettingsChanged(CuT);
+
+            CuT.removeOnSettingsChangedListener(listener);
+            CuT.resetToDefaults(context);
+        } catch (IOException e) {
+            fail();
+        }
+        verify(listener).onSettingsChanged(CuT);
+        assertEquals("$", CuT.getCurrencySymbol());
+    }
+
+    /**
+     * Test that deleting the subscription data also deletes the notification index, so no
+     * notifications are read for the deleted subscriptions.
+     */
+    @Test
+    public void test_delete_subscription_data() {
+        ZeroTimeCalendar calendar = new ZeroTimeCalendar();
+        calendar.setTime(2021, 3, 5);
+        int today = calendar.getEpochDay();
+        try {
+            CuT = new SettingsManager(context);
+            new NotificationIndex(new PortfolioGenerator(7, calendar).generate(50), today)
+                    .write(context.getFilesDir());
+            assertNotNull(SharedViewModel.loadNotificationsDue(context, today));
+
+            assertTrue(CuT.deleteSubscriptionData(context));
+            assertNull(SharedViewModel.loadNotificationsDue(context, today));
+            assertFalse(new File(filepath, SharedViewModel.SUBSCRIPTIONS_FILENAME).exists());
+        } catch (IOException e) {
+            fail();
+        }
+    }
 }
@@ -1,14 +1,20 @@
 package com.mpagliaro98.mysubscriptions.model;
 
+import android.content.Context;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -23,6 +29,8 @@ public class SharedViewModelTest {
     // Any objects needed by the component to be mocked
     private Subscription sub1, sub2, sub3;
     private Calendar zeroTimeCalendar = Calendar.getInstance();
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+    private File dir = new File(filepath);
 
     /**
      * Run before every test, initializes the component under test and the mock objects.
@@ -50,12 +58,13 @@ public class SharedViewModelTest {
         when(sub1.getName()).thenReturn("test sub1");
         when(sub1.getCost()).thenReturn(3.45);
         when(sub1.getNextPaymentDate()).thenReturn(date1);
+        when(sub1.getNextPaymentDay()).thenReturn(CivilDate.toEpochDay(2022, 3, 6));
         when(sub1.getCategory()).thenReturn(cat1);
-        ArrayList<Date> list1 = new ArrayList<>();
-        list1.add(date1);
-        calendar.add(Calendar.MONTH, 3);
-        list1.add(calendar.getTime());
-        when(sub1.getNextPaymentList()).thenReturn(list1);
+        when(sub1.getRechargeFrequency()).thenReturn(3);
+        when(sub1.getStartMonthIndex()).thenReturn(CivilDate.toMonthIndex(2022, 3));
+        when(sub1.getAnchorDay()).thenReturn(6);
+        when(sub1.hasPaymentOn(2022, 3, 6)).thenReturn(true);
+        when(sub1.hasPaymentOn(2022, 6, 6)).thenReturn(true);
 
         // Create the second subscription
         calendar.set(2022, 3, 6);
@@ -65,10 +74,12 @@ public class SharedViewModelTest {
         when(sub2.getName()).thenReturn("sub2 TEST");
         when(sub2.getCost()).thenReturn(3.44);
         when(sub2.getNextPaymentDate()).thenReturn(date2);
+        when(sub2.getNextPaymentDay()).thenReturn(CivilDate.toEpochDay(2022, 3, 6));
         when(sub2.getCategory()).thenReturn(cat1);
-        ArrayList<Date> list2 = new ArrayList<>();
-        list2.add(date2);
-        when(sub2.getNextPaymentList()).thenReturn(list2);
+        when(sub2.getRechargeFrequency()).thenReturn(1);
+        when(sub2.getStartMonthIndex()).thenReturn(CivilDate.toMonthIndex(2022, 3));
+        when(sub2.getAnchorDay()).thenReturn(6);
+        when(sub2.hasPaymentOn(2022, 3, 6)).thenReturn(true);
 
         // Create the third subscription
         calendar.set(2021, 3, 5);
@@ -78,10 +89,12 @@ public class SharedViewModelTest {
         when(sub3.getName()).thenReturn("don't filter sub3");
         when(sub3.getCost()).thenReturn(10.10101010101);
         when(sub3.getNextPaymentDate()).thenReturn(date3);
+        when(sub3.getNextPaymentDay()).thenReturn(CivilDate.toEpochDay(2021, 3, 5));
         when(sub3.getCategory()).thenReturn(cat2);
-        ArrayList<Date> list3 = new ArrayList<>();
-        list3.add(date3);
-        when(sub3.getNextPaymentList()).thenReturn(list3);
+        when(sub3.getRechargeFrequency()).thenReturn(12);
+        when(sub3.getStartMonthIndex()).thenReturn(CivilDate.toMonthIndex(2021, 3));
+        when(sub3.getAnchorDay()).thenReturn(5);
+        when(sub3.hasPaymentOn(2021, 3, 5)).thenReturn(true);
 
         // Set the calendar to have zero time
         zeroTimeCalendar.set(Calendar.HOUR_OF_DAY, 0);
@@ -90,6 +103,16 @@ public class SharedViewModelTest {
         zeroTimeCalendar.set(Calendar.MILLISECOND, 0);
     }
 
+    /**
+     * Run after every test, remove any data files a test saved.
+     */
+    @After
+    public void cleanup() {
+        new File(dir, SharedViewModel.SUBSCRIPTIONS_FILENAME).delete();
+        SubscriptionJournal.deleteJournal(dir);
+        NotificationIndex.delete(dir);
+    }
+
     /**
      * Test adding a subscription to the model.
      */
@@ -149,6 +172,30 @@ public class SharedViewModelTest {
         assertEquals(sub3, subList.get(1));
     }
 
+    /**
+     * Test that deleting a subscription doesn't change the IDs of the others, and that its
+     * ID isn't given to the next subscription added.
+     */
+    @Test
+    public void test_ids_kept_after_delete() {
+        CuT.addSubscription(sub1);
+        CuT.addSubscription(sub2);
+        CuT.addSubscription(sub3);
+        CuT.deleteSubscription(1);
+        assertEquals(sub1, CuT.getSubscriptionById(0));
+        assertNull(CuT.getSubscriptionById(1));
+        assertEquals(sub3, CuT.getSubscriptionById(2));
+        CuT.updateSubscription(sub2, 2);
+        assertEquals(sub2, CuT.getSubscriptionById(2));
+        CuT.addSubscription(sub3);
+        assertEquals(sub3, CuT.getSubscriptionById(3));
+        assertEquals(3, CuT.numSubscriptionsTotal());
+        List<Subscription> subList = CuT.getFullSubscriptionList();
+        assertEquals(sub1, subList.get(0));
+        assertEquals(sub2, subList.get(1));
+        assertEquals(sub3, subList.get(2));
+    }
+
     /**
      * Test filtering the subscriptions by name.
      */
@@ -197,15 +244,7 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                if (o1.getId() == o2.getId())
-                    return 0;
-                else
-                    return o1.getId() < o2.getId() ? -1 : 1;
-            }
-        }, "");
+        CuT.sortList(SharedViewModel.SORT_BY_ID, "");
         Subscription pos1 = CuT.getSubscription(0);
         Subscription pos2 = CuT.getSubscription(1);
         Subscription pos3 = CuT.getSubscription(2);
@@ -222,12 +261,7 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                return o1.getName().compareToIgnoreCase(o2.getName());
-            }
-        }, "");
+        CuT.sortList(SharedViewModel.SORT_BY_NAME, "");
         Subscription pos1 = CuT.getSubscription(0);
         Subscription pos2 = CuT.getSubscription(1);
         Subscription pos3 = CuT.getSubscription(2);
@@ -244,16 +278,7 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                if (o1.getCost() == o2.getCost()) {
-                    return o1.getName().compareToIgnoreCase(o2.getName());
-                } else {
-                    return o1.getCost() < o2.getCost() ? -1 : 1;
-                }
-            }
-        }, "");
+        CuT.sortList(SharedViewModel.SORT_BY_COST, "");
         Subscription pos1 = CuT.getSubscription(0);
         Subscription pos2 = CuT.getSubscription(1);
         Subscription pos3 = CuT.getSubscription(2);
@@ -270,16 +295,7 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                if (o1.getNextPaymentDate().equals(o2.getNextPaymentDate())) {
-                    return o1.getName().compareToIgnoreCase(o2.getName());
-                } else {
-                    return o1.getNextPaymentDate().compareTo(o2.getNextPaymentDate());
-                }
-            }
-        }, "");
+        CuT.sortList(SharedViewModel.SORT_BY_NEXT_PAYMENT, "");
         Subscription pos1 = CuT.getSubscription(0);
         Subscription pos2 = CuT.getSubscription(1);
         Subscription pos3 = CuT.getSubscription(2);
@@ -296,16 +312,7 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                if (o1.getCategory().getName().equals(o2.getCategory().getName())) {
-                    return o1.getName().compareToIgnoreCase(o2.getName());
-                } else {
-                    return o1.getCategory().getName().compareToIgnoreCase(o2.getCategory().getName());
-                }
-            }
-        }, "");
+        CuT.sortList(SharedViewModel.SORT_BY_CATEGORY, "");
         Subscription pos1 = CuT.getSubscription(0);
         Subscription pos2 = CuT.getSubscription(1);
         Subscription pos3 = CuT.getSubscription(2);
@@ -322,12 +329,7 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                return o1.getName().compareToIgnoreCase(o2.getName());
-            }
-        }, "");
+        CuT.sortList(SharedViewModel.SORT_BY_NAME, "");
         assertEquals(3, CuT.numSubscriptionsTotal());
         assertEquals(3, CuT.numSubscriptionsVisible());
         CuT.filterList("test");
@@ -349,16 +351,7 @@ public class SharedViewModelTest {
         assertEquals(1, CuT.numSubscriptionsVisible());
         pos1 = CuT.getSubscription(0);
         assertEquals(sub3, pos1);
-        CuT.sortList(new Comparator<Subscription>() {
-            @Override
-            public int compare(Subscription o1, Subscription o2) {
-                if (o1.getCost() == o2.getCost()) {
-                    return o1.getName().compareToIgnoreCase(o2.getName());
-                } else {
-                    return o1.getCost() < o2.getCost() ? -1 : 1;
-                }
-            }
-        }, "DON'T");
+        CuT.sortList(SharedViewModel.SORT_BY_COST, "DON'T");
         assertEquals(1, CuT.numSubscriptionsVisible());
         pos1 = CuT.getSubscription(0);
         assertEquals(sub3, pos1);
@@ -372,6 +365,66 @@ public class SharedViewModelTest {
         assertEquals(sub3, pos3);
     }
 
+    /**
+     * Test that a sorted list stays sorted as subscriptions are added and deleted, without
+     * changing the ID order of the full list.
+     */
+    @Test
+    public void test_sort_kept_up_to_date() {
+        CuT.addSubscription(sub1);
+        CuT.addSubscription(sub2);
+        CuT.sortList(SharedViewModel.SORT_BY_NAME, "");
+        CuT.addSubscription(sub3);
+        assertEquals(3, CuT.numSubscriptionsVisible());
+        assertEquals(sub3, CuT.getSubscription(0));
+        assertEquals(sub2, CuT.getSubscription(1));
+        assertEquals(sub1, CuT.getSubscription(2));
+        List<Subscription> subList = CuT.getFullSubscriptionList();
+        assertEquals(sub1, subList.get(0));
+        assertEquals(sub2, subList.get(1));
+        assertEquals(sub3, subList.get(2));
+        CuT.deleteSubscription(0);
+        assertEquals(2, CuT.numSubscriptionsVisible());
+        assertEquals(sub3, CuT.getSubscription(0));
+        assertEquals(sub2, CuT.getSubscription(1));
+        CuT.sortList(SharedViewModel.SORT_BY_ID, "");
+        assertEquals(sub2, CuT.getSubscription(0));
+        assertEquals(sub3, CuT.getSubscription(1));
+    }
+
+    /**
+     * Test that searching a list sorted by name, large enough for the search to use its
+     * index, still gives results in sorted order after subscriptions are added and renamed.
+     */
+    @Test
+    public void test_search_sorted_after_changes() {
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        PortfolioGenerator generator = new PortfolioGenerator(17, today);
+        for (Subscription sub : generator.generate(300)) {
+            CuT.addSubscription(sub);
+        }
+        CuT.sortList(SharedViewModel.SORT_BY_NAME, "");
+        assertSearchInOrder("net");
+
+        // Names that sort first, so they don't belong at the end or in their old place
+        Subscription added = generator.subscriptionAt(300);
+        CuT.addSubscription(new Subscription(added.getId(), "A Netflix", added.getCost(),
+                added.getStartDay(), added.getNote(), added.getRechargeFrequency(),
+                added.getCategory(), added.getNotifDays(), added.getNextPaymentDay(),
+                added.getNextNotifDay()));
+        assertSearchInOrder("net");
+        assertEquals("A Netflix", CuT.getSubscription(0).getName());
+
+        Subscription renamed = CuT.getSubscriptionById(150);
+        CuT.updateSubscription(new Subscription(renamed.getId(), "AA Internet", renamed.getCost(),
+                renamed.getStartDay(), renamed.getNote(), renamed.getRechargeFrequency(),
+                renamed.getCategory(), renamed.getNotifDays(), renamed.getNextPaymentDay(),
+                renamed.getNextNotifDay()), renamed.getId());
+        assertSearchInOrder("net");
+        assertEquals("AA Internet", CuT.getSubscription(1).getName());
+    }
+
     /**
      * Test iterating over the subscriptions and updating ones that are outdated.
      */
@@ -381,29 +434,52 @@ public class SharedViewModelTest {
         CuT.addSubscription(sub1);
         CuT.addSubscription(sub2);
         CuT.addSubscription(sub3);
-        zeroTimeCalendar.set(2020, 3, 5);
         ZeroTimeCalendar ztc = mock(ZeroTimeCalendar.class);
-        when(ztc.getCurrentDate()).thenReturn(zeroTimeCalendar.getTime());
+        when(sub1.regenerateSubInfo(ztc)).thenReturn(true);
+        when(sub2.regenerateSubInfo(ztc)).thenReturn(true);
+        when(sub3.regenerateSubInfo(ztc)).thenReturn(true);
+        when(ztc.getEpochDay()).thenReturn(CivilDate.toEpochDay(2020, 3, 5));
         int numUpdated = CuT.updateSubscriptionDates(ztc);
         assertEquals(0, numUpdated);
 
         // One next payment date is today, so don't update it
-        zeroTimeCalendar.set(2021, 3, 5);
-        when(ztc.getCurrentDate()).thenReturn(zeroTimeCalendar.getTime());
+        when(ztc.getEpochDay()).thenReturn(CivilDate.toEpochDay(2021, 3, 5));
         numUpdated = CuT.updateSubscriptionDates(ztc);
         assertEquals(0, numUpdated);
 
         // One date in the past, so update one
-        zeroTimeCalendar.set(2021, 3, 6);
-        when(ztc.getCurrentDate()).thenReturn(zeroTimeCalendar.getTime());
+        when(ztc.getEpochDay()).thenReturn(CivilDate.toEpochDay(2021, 3, 6));
         numUpdated = CuT.updateSubscriptionDates(ztc);
         assertEquals(1, numUpdated);
 
         // Update multiple
-        zeroTimeCalendar.set(2023, 3, 6);
-        when(ztc.getCurrentDate()).thenReturn(zeroTimeCalendar.getTime());
+        when(ztc.getEpochDay()).thenReturn(CivilDate.toEpochDay(2023, 3, 6));
         numUpdated = CuT.updateSubscriptionDates(ztc);
         assertEquals(3, numUpdated);
+
+        // The new dates are left for the next full save rather than put in the journal
+        assertEquals(3, CuT.getJournal().numPendingRecords());
+        assertTrue(CuT.hasUnsavedChanges());
+    }
+
+    /**
+     * Test that the list sorted by next payment date is still in order after the payment
+     * dates of some subscriptions move forward.
+     */
+    @Test
+    public void test_update_subscription_dates_kept_sorted() {
+        ZeroTimeCalendar then = new ZeroTimeCalendar();
+        then.setTime(2021, 3, 5);
+        for (Subscription sub : new PortfolioGenerator(11, then).generate(50)) {
+            CuT.addSubscription(sub);
+        }
+        CuT.sortList(SharedViewModel.SORT_BY_NEXT_PAYMENT, "");
+        ZeroTimeCalendar later = new ZeroTimeCalendar();
+        later.setTime(2021, 5, 20);
+        assertTrue(CuT.updateSubscriptionDates(later) > 0);
+        for (int i = 1; i < CuT.numSubscriptionsVisible(); i++) {
+            assertTrue(CuT.getSubscription(i - 1).getNextPaymentDay() <= CuT.getSubscription(i).getNextPaymentDay());
+        }
     }
 
     /**
@@ -439,4 +515,53 @@ public class SharedViewModelTest {
         assertEquals(1, subsDueList.size());
         assertEquals(sub1, subsDueList.get(0));
     }
+
+    /**
+     * Test that changes saved only to the journal, before the full list has ever been saved,
+     * are there when the data is loaded again.
+     */
+    @Test
+    public void test_load_journal_without_snapshot() throws IOException {
+        Context context = mock(Context.class);
+        when(context.getFilesDir()).thenReturn(dir);
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        List<Subscription> subscriptions = new PortfolioGenerator(3, today).generate(3);
+        for (Subscription sub : subscriptions) {
+            CuT.addSubscription(sub);
+        }
+        CuT.deleteSubscription(1);
+        // Write only the journal, as saving the changes does
+        CuT.getJournal().flush(dir);
+        assertFalse(new File(dir, SharedViewModel.SUBSCRIPTIONS_FILENAME).exists());
+
+        SharedViewModel loaded = new SharedViewModel();
+        loaded.loadFromFile(context);
+        assertEquals(2, loaded.numSubscriptionsTotal());
+        assertEquals(subscriptions.get(0).getName(), loaded.getSubscriptionById(0).getName());
+        assertNull(loaded.getSubscriptionById(1));
+        assertEquals(subscriptions.get(2).getName(), loaded.getSubscriptionById(2).getName());
+        assertEquals(3, loaded.getNextSubscriptionId());
+    }
+
+    /**
+     * Search the model, and check the results are every subscription in the current order
+     * whose name contains the text.
+     * @param searchText the text to search for
+     */
+    private void assertSearchInOrder(String searchText) {
+        CuT.filterList("");
+        List<Subscription> expected = new ArrayList<>();
+        for (int i = 0; i < CuT.numSubscriptionsVisible(); i++) {
+            Subscription sub = CuT.getSubscription(i);
+            if (sub.getName().toLowerCase().contains(searchText)) {
+                expected.add(sub);
+            }
+        }
+        CuT.filterList(searchText);
+        assertEquals(expected.size(), CuT.numSubscriptionsVisible());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), CuT.getSubscription(i));
+        }
+    }
 }
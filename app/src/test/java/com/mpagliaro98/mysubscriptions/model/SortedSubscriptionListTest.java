@@ -0,0 +1,140 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SortedSubscriptionList class.
+ */
+public class SortedSubscriptionListTest {
+
+    // Sorts by cost alone, so plenty of subscriptions tie and are put in ID order
+    private static final Comparator<Subscription> COST_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            return Double.compare(Math.floor(o1.getCost()), Math.floor(o2.getCost()));
+        }
+    };
+
+    // Sorts by cost, then by ID, the full order the list should keep
+    private static final Comparator<Subscription> COST_THEN_ID_ORDER = new Comparator<Subscription>() {
+        @Override
+        public int compare(Subscription o1, Subscription o2) {
+            int result = COST_ORDER.compare(o1, o2);
+            return result != 0 ? result : (o1.getId() < o2.getId() ? -1 : (o1.getId() == o2.getId() ? 0 : 1));
+        }
+    };
+
+    private ZeroTimeCalendar today;
+    private PortfolioGenerator generator;
+
+    /**
+     * Run before each test, set up a generator for a fixed day.
+     */
+    @Before
+    public void setup() {
+        today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        generator = new PortfolioGenerator(23, today);
+    }
+
+    /**
+     * Test that a new list holds the given subscriptions in order, with ties in ID order.
+     */
+    @Test
+    public void test_create_sorted() {
+        List<Subscription> subscriptions = generator.generate(1000);
+        SortedSubscriptionList CuT = new SortedSubscriptionList(COST_ORDER, subscriptions);
+        assertSorted(subscriptions, CuT);
+        assertEquals(0, new SortedSubscriptionList(COST_ORDER, new ArrayList<Subscription>()).size());
+    }
+
+    /**
+     * Test that the list stays sorted through many inserts and deletes, including deleting
+     * every subscription.
+     */
+    @Test
+    public void test_insert_and_delete() {
+        List<Subscription> subscriptions = generator.generate(200);
+        SortedSubscriptionList CuT = new SortedSubscriptionList(COST_ORDER, subscriptions);
+        Random random = new Random(9);
+        int nextId = 200;
+        for (int i = 0; i < 3000; i++) {
+            if (subscriptions.isEmpty() || random.nextInt(3) > 0) {
+                Subscription sub = generator.subscriptionAt(nextId++);
+                subscriptions.add(sub);
+                CuT.insert(sub);
+            } else {
+                Subscription sub = subscriptions.remove(random.nextInt(subscriptions.size()));
+                CuT.delete(sub);
+                assertFalse(CuT.contains(sub));
+            }
+            if (i % 250 == 0) {
+                assertSorted(subscriptions, CuT);
+            }
+        }
+        assertSorted(subscriptions, CuT);
+        for (Subscription sub : new ArrayList<>(subscriptions)) {
+            CuT.delete(sub);
+        }
+        assertEquals(0, CuT.size());
+        assertFalse(CuT.iterator().hasNext());
+    }
+
+    /**
+     * Test that a subscription can be deleted after the field it's sorted by was changed in
+     * place, as regenerating its payment dates does.
+     */
+    @Test
+    public void test_delete_after_change() {
+        Comparator<Subscription> nextPaymentOrder = new Comparator<Subscription>() {
+            @Override
+            public int compare(Subscription o1, Subscription o2) {
+                return o1.getNextPaymentDay() < o2.getNextPaymentDay() ? -1
+                        : (o1.getNextPaymentDay() == o2.getNextPaymentDay() ? 0 : 1);
+            }
+        };
+        List<Subscription> subscriptions = generator.generate(500);
+        SortedSubscriptionList CuT = new SortedSubscriptionList(nextPaymentOrder, subscriptions);
+        ZeroTimeCalendar later = today.copyCalendar();
+        later.addYears(2);
+        for (int i = 0; i < subscriptions.size(); i += 3) {
+            Subscription sub = subscriptions.get(i);
+            assertTrue(sub.regenerateSubInfo(later));
+            CuT.delete(sub);
+            CuT.insert(sub);
+        }
+        assertEquals(subscriptions.size(), CuT.size());
+        for (int i = 1; i < CuT.size(); i++) {
+            assertTrue(CuT.get(i - 1).getNextPaymentDay() <= CuT.get(i).getNextPaymentDay());
+        }
+    }
+
+    /**
+     * Check that a sorted list holds the expected subscriptions in order, by position and
+     * by iterating over it.
+     * @param subscriptions the subscriptions that should be in the list, in any order
+     * @param sortedList the list to check
+     */
+    private static void assertSorted(List<Subscription> subscriptions, SortedSubscriptionList sortedList) {
+        List<Subscription> expected = new ArrayList<>(subscriptions);
+        Collections.sort(expected, COST_THEN_ID_ORDER);
+        assertEquals(expected.size(), sortedList.size());
+        Iterator<Subscription> iterator = sortedList.iterator();
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), sortedList.get(i));
+            assertSame(expected.get(i), iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+}
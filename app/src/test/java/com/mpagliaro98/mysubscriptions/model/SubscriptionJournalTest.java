@@ -0,0 +1,208 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SubscriptionJournal class.
+ */
+public class SubscriptionJournalTest {
+
+    // The component under test
+    private SubscriptionJournal CuT;
+
+    private File dir;
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+
+    /**
+     * Run before each test, make sure no journal file exists yet.
+     */
+    @Before
+    public void setup() {
+        CuT = new SubscriptionJournal();
+        dir = new File(filepath);
+        SubscriptionJournal.deleteJournal(dir);
+    }
+
+    /**
+     * Run after each test, remove the journal file if one was created.
+     */
+    @After
+    public void cleanup() {
+        SubscriptionJournal.deleteJournal(dir);
+    }
+
+    /**
+     * Test that flushed records are applied in order when replayed onto an empty list, and
+     * that subscriptions keep their IDs after an earlier one is deleted.
+     */
+    @Test
+    public void testFlushAndReplay() throws IOException {
+        CuT.recordAdd(0, makeSub("first"));
+        CuT.recordAdd(1, makeSub("second"));
+        CuT.recordAdd(2, makeSub("third"));
+        CuT.recordUpdate(1, makeSub("second edited"));
+        CuT.recordDelete(0);
+        assertEquals(5, CuT.numPendingRecords());
+        CuT.flush(dir);
+        assertEquals(0, CuT.numPendingRecords());
+
+        SubscriptionJournal replayed = new SubscriptionJournal();
+        IdOrderedSubscriptionList list = new IdOrderedSubscriptionList();
+        replayed.replay(dir, 0, list);
+        assertEquals(2, list.size());
+        assertEquals("second edited", list.get(0).getName());
+        assertEquals(1, list.get(0).getId());
+        assertEquals("third", list.get(1).getName());
+        assertEquals(2, list.get(1).getId());
+        assertNull(list.getById(0));
+        assertEquals(3, list.getNextId());
+        assertEquals(5, replayed.getLastSequence());
+    }
+
+    /**
+     * Test that records already included in a snapshot are skipped during replay.
+     */
+    @Test
+    public void testReplaySkipsSnapshotRecords() throws IOException {
+        CuT.recordAdd(0, makeSub("first"));
+        CuT.recordAdd(1, makeSub("second"));
+        CuT.flush(dir);
+
+        IdOrderedSubscriptionList list = new IdOrderedSubscriptionList();
+        list.insert(makeSub("first"));
+        SubscriptionJournal replayed = new SubscriptionJournal();
+        replayed.replay(dir, 1, list);
+        assertEquals(2, list.size());
+        assertEquals("second", list.get(1).getName());
+    }
+
+    /**
+     * Test that a partially written record at the end of the file is ignored.
+     */
+    @Test
+    public void testReplayIgnoresTornRecord() throws IOException {
+        CuT.recordAdd(0, makeSub("first"));
+        CuT.flush(dir);
+        FileOutputStream fos = new FileOutputStream(new File(dir, SubscriptionJournal.JOURNAL_FILENAME), true);
+        fos.write("{\"sequence\":2,\"operation\":\"ADD\",\"ind".getBytes());
+        fos.close();
+
+        IdOrderedSubscriptionList list = new IdOrderedSubscriptionList();
+        SubscriptionJournal replayed = new SubscriptionJournal();
+        replayed.replay(dir, 0, list);
+        assertEquals(1, list.size());
+        assertEquals(1, replayed.getLastSequence());
+    }
+
+    /**
+     * Test that a partially written record is cut off the end of the file on replay, so
+     * records appended after it are still read back.
+     */
+    @Test
+    public void testAppendAfterTornRecord() throws IOException {
+        CuT.recordAdd(0, makeSub("first"));
+        CuT.flush(dir);
+        FileOutputStream fos = new FileOutputStream(new File(dir, SubscriptionJournal.JOURNAL_FILENAME), true);
+        fos.write("{\"sequence\":2,\"operation\":\"ADD\",\"id\":1,\"subscription\":{\"na".getBytes());
+        fos.close();
+
+        SubscriptionJournal reloaded = new SubscriptionJournal();
+        IdOrderedSubscriptionList list = new IdOrderedSubscriptionList();
+        reloaded.replay(dir, 0, list);
+        assertEquals(1, list.size());
+        reloaded.recordAdd(1, makeSub("second"));
+        reloaded.recordUpdate(0, makeSub("first edited"));
+        reloaded.flush(dir);
+
+        SubscriptionJournal replayed = new SubscriptionJournal();
+        list = new IdOrderedSubscriptionList();
+        replayed.replay(dir, 0, list);
+        assertEquals(2, list.size());
+        assertEquals("first edited", list.get(0).getName());
+        assertEquals("second", list.get(1).getName());
+        assertEquals(3, replayed.getLastSequence());
+    }
+
+    /**
+     * Test that truncating keeps only records newer than the snapshot, and removes the file
+     * once nothing is left.
+     */
+    @Test
+    public void testTruncate() throws IOException {
+        File file = new File(dir, SubscriptionJournal.JOURNAL_FILENAME);
+        CuT.recordAdd(0, makeSub("first"));
+        CuT.recordAdd(1, makeSub("second"));
+        CuT.flush(dir);
+        CuT.truncate(dir, 1);
+        assertTrue(file.exists());
+
+        IdOrderedSubscriptionList list = new IdOrderedSubscriptionList();
+        list.insert(makeSub("first"));
+        new SubscriptionJournal().replay(dir, 1, list);
+        assertEquals(2, list.size());
+
+        CuT.truncate(dir, 2);
+        assertFalse(file.exists());
+    }
+
+    /**
+     * Test that the journal asks to be compacted once enough records are on disk.
+     */
+    @Test
+    public void testNeedsCompaction() throws IOException {
+        for (int i = 0; i < SubscriptionJournal.COMPACTION_THRESHOLD - 1; i++) {
+            CuT.recordDelete(0);
+        }
+        CuT.flush(dir);
+        assertFalse(CuT.needsCompaction());
+        CuT.recordDelete(0);
+        CuT.flush(dir);
+        assertTrue(CuT.needsCompaction());
+        CuT.truncate(dir, CuT.getLastSequence());
+        assertFalse(CuT.needsCompaction());
+    }
+
+    /**
+     * Test that records taken out of the journal can be appended later, after more changes
+     * were recorded, and still replay in the order they were made.
+     */
+    @Test
+    public void testTakePendingThenAppend() throws IOException {
+        assertNull(CuT.takePending());
+        CuT.recordAdd(0, makeSub("first"));
+        CuT.recordAdd(1, makeSub("second"));
+        SubscriptionJournal.PendingWrite firstWrite = CuT.takePending();
+        assertEquals(0, CuT.numPendingRecords());
+        CuT.recordUpdate(0, makeSub("first edited"));
+        SubscriptionJournal.PendingWrite secondWrite = CuT.takePending();
+        CuT.append(dir, firstWrite);
+        CuT.append(dir, secondWrite);
+
+        SubscriptionJournal replayed = new SubscriptionJournal();
+        IdOrderedSubscriptionList list = new IdOrderedSubscriptionList();
+        replayed.replay(dir, 0, list);
+        assertEquals(2, list.size());
+        assertEquals("first edited", list.get(0).getName());
+        assertEquals("second", list.get(1).getName());
+        assertEquals(3, replayed.getLastSequence());
+    }
+
+    /**
+     * Create a simple subscription with the given name.
+     * @param name the name of the subscription
+     * @return the new subscription
+     */
+    private Subscription makeSub(String name) {
+        return new Subscription(0, name, 9.99, new Date(), "", 1, new Category(0, "test"), 0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SubscriptionSearch class.
+ */
+public class SubscriptionSearchTest {
+
+    private SubscriptionSearch CuT;
+    private List<Subscription> subscriptions;
+    private PortfolioGenerator generator;
+
+    /**
+     * Run before each test, index a portfolio large enough to use the trigram index.
+     */
+    @Before
+    public void setup() {
+        ZeroTimeCalendar today = new ZeroTimeCalendar();
+        today.setTime(2021, 3, 5);
+        generator = new PortfolioGenerator(17, today);
+        subscriptions = generator.generate(3000);
+        CuT = new SubscriptionSearch();
+        CuT.rebuild(subscriptions);
+    }
+
+    /**
+     * Test that searches give the same results as checking every name, in list order,
+     * for short, long, missing, and differently cased search text.
+     */
+    @Test
+    public void test_search_matches_scan() {
+        String[] searches = {"", "n", "ne", "net", "NETFLIX", "flix 1", "x 12", "e", "CAF\u00c9",
+                "zzz", "game pass 2", " ", "1", "99"};
+        for (String text : searches) {
+            assertResults(text);
+        }
+    }
+
+    /**
+     * Test typing a name one letter at a time, then deleting letters, gives the same results
+     * as checking every name each time.
+     */
+    @Test
+    public void test_incremental_typing() {
+        String word = "playstation plus 2";
+        for (int i = 0; i <= word.length(); i++) {
+            assertResults(word.substring(0, i));
+        }
+        for (int i = word.length(); i >= 0; i--) {
+            assertResults(word.substring(0, i));
+        }
+    }
+
+    /**
+     * Test that results stay correct as subscriptions are added, replaced, removed, and
+     * reordered between searches, including removing enough to rebuild the index.
+     */
+    @Test
+    public void test_changes_between_searches() {
+        assertResults("spot");
+        Random random = new Random(3);
+        for (int i = 0; i < 4000; i++) {
+            int change = random.nextInt(4);
+            if (change == 0) {
+                Subscription sub = generator.subscriptionAt(10000 + i);
+                subscriptions.add(sub);
+                CuT.add(sub);
+            } else if (change == 1) {
+                int index = random.nextInt(subscriptions.size());
+                Subscription sub = generator.subscriptionAt(20000 + i);
+                CuT.replace(subscriptions.set(index, sub), sub);
+            } else {
+                CuT.remove(subscriptions.remove(random.nextInt(subscriptions.size())));
+            }
+            if (i % 100 == 0) {
+                assertResults("spot");
+                assertResults("spotify 1");
+            }
+        }
+        Collections.sort(subscriptions, new Comparator<Subscription>() {
+            @Override
+            public int compare(Subscription o1, Subscription o2) {
+                return o1.getName().compareToIgnoreCase(o2.getName());
+            }
+        });
+        CuT.reorder();
+        assertResults("spot");
+        assertResults("spotify 1");
+        assertResults("");
+    }
+
+    /**
+     * Test that replacing a subscription with itself, as regenerating its dates does, leaves
+     * it in the results.
+     */
+    @Test
+    public void test_replace_with_itself() {
+        Subscription sub = subscriptions.get(5);
+        String name = sub.getName().toUpperCase();
+        assertTrue(CuT.search(name, subscriptions).contains(sub));
+        CuT.replace(sub, sub);
+        assertTrue(CuT.search(name, subscriptions).contains(sub));
+    }
+
+    /**
+     * Check the results of a search against checking the name of every subscription.
+     * @param text the search text
+     */
+    private void assertResults(String text) {
+        List<Subscription> expected = new ArrayList<>();
+        for (Subscription sub : subscriptions) {
+            if (sub.getName().toLowerCase().contains(text.toLowerCase())) {
+                expected.add(sub);
+            }
+        }
+        List<Subscription> actual = CuT.search(text, subscriptions);
+        assertEquals(text, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(text, expected.get(i), actual.get(i));
+        }
+    }
+}
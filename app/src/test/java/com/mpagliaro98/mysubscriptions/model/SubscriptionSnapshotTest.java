@@ -0,0 +1,162 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the SubscriptionSnapshot class.
+ */
+public class SubscriptionSnapshotTest {
+
+    private File file;
+    private static final String filepath = "src\\test\\java\\com\\mpagliaro98\\mysubscriptions";
+
+    /**
+     * Run before each test, make sure no snapshot file exists yet.
+     */
+    @Before
+    public void setup() {
+        file = new File(filepath, "snapshot_test.dat");
+        if (file.exists() && !file.delete()) {
+            System.out.println("[SETUP] Failure to delete snapshot file");
+        }
+    }
+
+    /**
+     * Run after each test, remove the snapshot file if one was created.
+     */
+    @After
+    public void cleanup() {
+        if (file.exists() && !file.delete()) {
+            System.out.println("[CLEANUP] Failure to delete snapshot file");
+        }
+    }
+
+    /**
+     * Test that every field of every subscription is the same after writing and reading it
+     * back, including long and non-ASCII strings, null notes, and notifications turned off.
+     */
+    @Test
+    public void test_round_trip() throws IOException {
+        ZeroTimeCalendar zeroTimeCalendar = new ZeroTimeCalendar();
+        zeroTimeCalendar.setTime(2021, 3, 5);
+        Random random = new Random(7);
+        Category[] categories = {new Category(0xFF0000, "Entertainment"),
+                new Category(0x00FF00, "Caf\u00e9"), new Category(0x0000FF, "Utilities")};
+        StringBuilder longNote = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longNote.append("note ");
+        }
+
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ZeroTimeCalendar startCalendar = new ZeroTimeCalendar();
+            startCalendar.setTime(1995 + random.nextInt(30), random.nextInt(12), 1 + random.nextInt(31));
+            String note = i % 10 == 0 ? null : (i % 25 == 1 ? longNote.toString() : "\u00fcn\u00efc\u00f6d\u00e9 " + i);
+            subscriptions.add(new Subscription(i, "sub" + i, random.nextInt(10000) / 100.0,
+                    startCalendar.getCurrentDate(), note, 1 + random.nextInt(12),
+                    categories[random.nextInt(categories.length)], random.nextInt(8) - 1,
+                    zeroTimeCalendar.copyCalendar()));
+        }
+
+        SubscriptionSnapshot.write(file, subscriptions, 42, 200);
+        assertTrue(SubscriptionSnapshot.isSnapshotFile(file));
+        SubscriptionSnapshot snapshot = SubscriptionSnapshot.read(file);
+        assertEquals(42, snapshot.getJournalSequence());
+        assertEquals(200, snapshot.getNextId());
+        List<Subscription> loaded = snapshot.getSubscriptions();
+        assertEquals(subscriptions.size(), loaded.size());
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription expected = subscriptions.get(i);
+            Subscription actual = loaded.get(i);
+            assertEquals(i, actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getCost(), actual.getCost(), 0);
+            assertEquals(expected.getStartDate(), actual.getStartDate());
+            assertEquals(expected.getNote(), actual.getNote());
+            assertEquals(expected.getRechargeFrequency(), actual.getRechargeFrequency());
+            assertEquals(expected.getNextPaymentDate(), actual.getNextPaymentDate());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getCategory().getName(), actual.getCategory().getName());
+            assertEquals(expected.getNotifDays(), actual.getNotifDays());
+            assertEquals(expected.getNextNotifDate(), actual.getNextNotifDate());
+        }
+        assertNull(loaded.get(0).getNote());
+    }
+
+    /**
+     * Test that subscriptions in the same category share one category object once loaded.
+     */
+    @Test
+    public void test_category_dictionary() throws IOException {
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            subscriptions.add(new Subscription(i, "sub" + i, 1.0, new ZeroTimeCalendar().getCurrentDate(),
+                    "", 1, new Category(5, "test"), -1));
+        }
+        SubscriptionSnapshot.write(file, subscriptions, 0, 3);
+        List<Subscription> loaded = SubscriptionSnapshot.read(file).getSubscriptions();
+        assertSame(loaded.get(0).getCategory(), loaded.get(2).getCategory());
+    }
+
+    /**
+     * Test that IDs are kept as they were, even with gaps left by deleted subscriptions, and
+     * that the next ID is kept even if the subscriptions with the highest IDs were deleted.
+     */
+    @Test
+    public void test_ids_kept() throws IOException {
+        int[] ids = {3, 7, 8, 20};
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int id : ids) {
+            subscriptions.add(new Subscription(id, "sub" + id, 1.0, new ZeroTimeCalendar().getCurrentDate(),
+                    "", 1, new Category(5, "test"), -1));
+        }
+        SubscriptionSnapshot.write(file, subscriptions, 0, 25);
+        SubscriptionSnapshot snapshot = SubscriptionSnapshot.read(file);
+        assertEquals(25, snapshot.getNextId());
+        List<Subscription> loaded = snapshot.getSubscriptions();
+        assertEquals(ids.length, loaded.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], loaded.get(i).getId());
+            assertEquals("sub" + ids[i], loaded.get(i).getName());
+        }
+    }
+
+    /**
+     * Test that json data files from older versions are not read as binary snapshots, and
+     * that files from a newer version of the format are refused.
+     */
+    @Test
+    public void test_format_detection() throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("#journal:3\n{\"name\":\"legacy\"}\n".getBytes());
+        fos.close();
+        assertFalse(SubscriptionSnapshot.isSnapshotFile(file));
+
+        byte[] header = {0x4D, 0x53, 0x55, 0x42, 0, 0, 0, (byte)(SubscriptionSnapshot.VERSION + 1),
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
+        fos = new FileOutputStream(file);
+        fos.write(header);
+        fos.close();
+        assertTrue(SubscriptionSnapshot.isSnapshotFile(file));
+        try {
+            SubscriptionSnapshot.read(file);
+            fail();
+        } catch (IOException e) {
+            // A newer format can't be read
+        }
+    }
+}
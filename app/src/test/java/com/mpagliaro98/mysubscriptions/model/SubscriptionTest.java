@@ -2,14 +2,19 @@ package com.mpagliaro98.mysubscriptions.model;
 
 import android.content.Context;
 import android.content.res.Resources;
+import com.google.gson.Gson;
 import com.mpagliaro98.mysubscriptions.R;
 import org.junit.Before;
 import org.junit.Test;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -37,7 +42,7 @@ public class SubscriptionTest {
      */
     @Test
     public void test_create_subscription() {
-        Date startDate = mock(Date.class);
+        Date startDate = zeroTimeCalendar.getCurrentDate();
         Category category = mock(Category.class);
         CuT = new Subscription(0, "test", 4.33, startDate, "test note",
                 6, category, 7, zeroTimeCalendar);
@@ -284,4 +289,112 @@ public class SubscriptionTest {
                 6, category, 7, zeroTimeCalendar);
         assertEquals("$4.04", CuT.getCostString(context));
     }
+
+    /**
+     * Test that the next payment list isn't saved with the subscription, and is generated
+     * again from the next payment date after it's loaded.
+     */
+    @Test
+    public void test_next_payment_list_not_saved() {
+        zeroTimeCalendar.setTime(2021, 5, 5);
+        Date startDate = zeroTimeCalendar.getCurrentDate();
+        CuT = new Subscription(0, "test", 4.33, startDate, "test note",
+                1, new Category(0, "test"), 7, zeroTimeCalendar.copyCalendar());
+        Gson gson = new Gson();
+        String json = gson.toJson(CuT);
+        assertFalse(json.contains("nextPaymentList"));
+
+        Subscription loaded = gson.fromJson(json, Subscription.class);
+        assertEquals(CuT.getNextPaymentDate(), loaded.getNextPaymentDate());
+        assertEquals(CuT.getNextPaymentList(), loaded.getNextPaymentList());
+        assertEquals(61, loaded.getNextPaymentList().size());
+    }
+
+    /**
+     * Test that json saved by older versions, which stored Date objects instead of epoch
+     * days, is read with the same dates.
+     */
+    @Test
+    public void test_legacy_json_dates() {
+        Gson gson = new Gson();
+        zeroTimeCalendar.setTime(2021, 3, 5);
+        Date startDate = zeroTimeCalendar.getCurrentDate();
+        zeroTimeCalendar.setTime(2022, 3, 5);
+        Date nextPaymentDate = zeroTimeCalendar.getCurrentDate();
+        String json = "{\"id\":3,\"name\":\"legacy\",\"cost\":1.5,\"startDate\":" + gson.toJson(startDate)
+                + ",\"note\":\"\",\"rechargeFrequency\":12,\"nextPaymentDate\":" + gson.toJson(nextPaymentDate)
+                + ",\"category\":{\"color\":0,\"name\":\"test\"},\"notifDays\":-1}";
+
+        Subscription loaded = gson.fromJson(json, Subscription.class);
+        assertEquals(startDate, loaded.getStartDate());
+        assertEquals(nextPaymentDate, loaded.getNextPaymentDate());
+        assertEquals(zeroTimeCalendar.getEpochDay(), loaded.getNextPaymentDay());
+        assertNull(loaded.getNextNotifDate());
+        assertEquals(Subscription.NO_DATE, loaded.getNextNotifDay());
+        assertTrue(loaded.hasPaymentOn(nextPaymentDate));
+    }
+
+    /**
+     * Test the lazy views of the payment schedule agree with the full payment list.
+     */
+    @Test
+    public void test_payment_schedule_queries() {
+        zeroTimeCalendar.setTime(2021, 0, 31);
+        Date startDate = zeroTimeCalendar.getCurrentDate();
+        zeroTimeCalendar.setTime(2021, 3, 5);
+        CuT = new Subscription(0, "test", 4.33, startDate, "test note",
+                1, new Category(0, "test"), 7, zeroTimeCalendar.copyCalendar());
+        List<Date> paymentList = CuT.getNextPaymentList();
+        assertEquals(61, paymentList.size());
+
+        // The iterator produces the same dates as the list
+        Iterator<Date> iterator = CuT.paymentIterator();
+        for (Date paymentDate : paymentList) {
+            assertTrue(iterator.hasNext());
+            assertEquals(paymentDate, iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+
+        // Every payment date is found, and the days around it aren't
+        for (Date paymentDate : paymentList) {
+            assertTrue(CuT.hasPaymentOn(paymentDate));
+            zeroTimeCalendar.setTimeToDate(paymentDate);
+            zeroTimeCalendar.addDays(-1);
+            assertFalse(CuT.hasPaymentOn(zeroTimeCalendar.getCurrentDate()));
+        }
+        zeroTimeCalendar.setTime(2021, 0, 31);
+        assertFalse(CuT.hasPaymentOn(zeroTimeCalendar.getCurrentDate()));
+
+        // A range query returns only the payments in that range
+        zeroTimeCalendar.setTime(2022, 0, 1);
+        Date from = zeroTimeCalendar.getCurrentDate();
+        zeroTimeCalendar.setTime(2022, 2, 31);
+        Date to = zeroTimeCalendar.getCurrentDate();
+        List<Date> payments = CuT.paymentsBetween(from, to);
+        assertEquals(3, payments.size());
+        zeroTimeCalendar.setTime(2022, 1, 28);
+        assertEquals(zeroTimeCalendar.getCurrentDate(), payments.get(1));
+        assertEquals(to, payments.get(2));
+    }
+
+    /**
+     * Test the recurrence rule repeats at the subscription's frequency, and only picks the
+     * last day of short months when payments are anchored past the 28th.
+     */
+    @Test
+    public void test_recurrence_rule() {
+        zeroTimeCalendar.setTime(2021, 0, 15);
+        Date startDate = zeroTimeCalendar.getCurrentDate();
+        zeroTimeCalendar.setTime(2021, 3, 5);
+        CuT = new Subscription(0, "test", 4.33, startDate, "test note",
+                3, new Category(0, "test"), 7, zeroTimeCalendar.copyCalendar());
+        assertEquals("FREQ=MONTHLY;INTERVAL=3", CuT.getRecurrenceRule());
+
+        zeroTimeCalendar.setTime(2021, 0, 30);
+        startDate = zeroTimeCalendar.getCurrentDate();
+        zeroTimeCalendar.setTime(2021, 3, 5);
+        CuT = new Subscription(0, "test", 4.33, startDate, "test note",
+                1, new Category(0, "test"), 7, zeroTimeCalendar.copyCalendar());
+        assertEquals("FREQ=MONTHLY;INTERVAL=1;BYMONTHDAY=28,29,30;BYSETPOS=-1", CuT.getRecurrenceRule());
+    }
 }
@@ -0,0 +1,90 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures calculating the analytics tab in full, and keeping it up to date when a single
+ * subscription is edited.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AnalyticsBenchmark {
+
+    // The number of subscriptions in the portfolio
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    // The context whose storage the portfolio is loaded from
+    private BenchmarkContext context;
+    // The model holding the portfolio, with its analytics already calculated
+    private SharedViewModel model;
+    // The fixed day used as today
+    private ZeroTimeCalendar today;
+    // Counts edits so each one changes a different subscription
+    private int counter = 0;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Load the portfolio into a model and calculate its analytics once.
+     * @throws IOException thrown if the data file can't be written or read
+     */
+    @Setup
+    public void setup() throws IOException {
+        context = new BenchmarkContext();
+        model = BenchmarkPortfolio.loadModel(context, size);
+        today = BenchmarkPortfolio.today();
+        model.updateSubscriptionDates(today);
+        model.getAnalyticsManager(today);
+    }
+
+    /**
+     * Remove the files made for the benchmark.
+     */
+    @TearDown
+    public void tearDown() {
+        context.delete();
+    }
+
+    /**
+     * Calculate the analytics for the whole portfolio from scratch.
+     * @return the yearly total, so the calculation isn't optimized away
+     */
+    @Benchmark
+    public double calculate() {
+        return new AnalyticsManager(model, today).getTotalDueYearly();
+    }
+
+    /**
+     * Edit the cost of one subscription, which updates the analytics already calculated.
+     * @return the yearly total after the edit
+     */
+    @Benchmark
+    public double editOneSubscription() {
+        int index = counter++ % size;
+        Subscription sub = model.getSubscription(index);
+        model.updateSubscription(new Subscription(index, sub.getName(), sub.getCost() + 1,
+                sub.getStartDate(), sub.getNote(), sub.getRechargeFrequency(), sub.getCategory(),
+                sub.getNotifDays(), today), index);
+        // Nothing is saved here, so don't let the journal keep every edit
+        model.getJournal().discardPending();
+        return model.getAnalyticsManager(today).getTotalDueYearly();
+    }
+}
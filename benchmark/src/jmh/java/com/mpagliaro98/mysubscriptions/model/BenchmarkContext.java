@@ -0,0 +1,88 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.Resources;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A context for the benchmarks whose internal storage is a temporary directory, so the
+ * model reads and writes real files without a device.
+ */
+class BenchmarkContext extends Context {
+
+    // The directory standing in for the app's internal storage
+    private final File filesDir;
+    // Every resource lookup gives an empty string
+    private final Resources resources = new Resources();
+    // Stands in for the device's content providers, or null if there are none
+    private final ContentResolver contentResolver;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create the context with a new, empty temporary directory.
+     * @throws IOException thrown if the directory can't be created
+     */
+    BenchmarkContext() throws IOException {
+        this(null);
+    }
+
+    /**
+     * Create the context with a new, empty temporary directory and a stand-in for the
+     * device's content providers.
+     * @param contentResolver the resolver to give out, or null if there are no providers
+     * @throws IOException thrown if the directory can't be created
+     */
+    BenchmarkContext(ContentResolver contentResolver) throws IOException {
+        filesDir = Files.createTempDirectory("mysubscriptions-benchmark").toFile();
+        this.contentResolver = contentResolver;
+    }
+
+    @Override
+    public File getFilesDir() {
+        return filesDir;
+    }
+
+    @Override
+    public FileInputStream openFileInput(String name) throws FileNotFoundException {
+        return new FileInputStream(new File(filesDir, name));
+    }
+
+    @Override
+    public Resources getResources() {
+        return resources;
+    }
+
+    @Override
+    public ContentResolver getContentResolver() {
+        if (contentResolver == null) {
+            throw new UnsupportedOperationException("No content providers outside of Android");
+        }
+        return contentResolver;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    /**
+     * Remove the temporary directory and everything in it.
+     */
+    void delete() {
+        File[] files = filesDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        filesDir.delete();
+    }
+}
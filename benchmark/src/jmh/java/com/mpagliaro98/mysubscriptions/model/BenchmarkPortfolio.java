@@ -0,0 +1,62 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Builds the portfolios the benchmarks run on. Every portfolio comes from the same seed and
+ * is measured against the same day, so results can be compared from one run to the next.
+ */
+final class BenchmarkPortfolio {
+
+    // The day every benchmark treats as today
+    private static final int TODAY_YEAR = 2021;
+    private static final int TODAY_MONTH = Calendar.MARCH;
+    private static final int TODAY_DAY = 5;
+    // The seed every portfolio is generated from
+    private static final long SEED = 20210405L;
+
+    /**
+     * This class only holds static methods and should not be created.
+     */
+    private BenchmarkPortfolio() {}
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Get a calendar set to the day the benchmarks treat as today.
+     * @return a new calendar set to the fixed day
+     */
+    static ZeroTimeCalendar today() {
+        ZeroTimeCalendar zeroTimeCalendar = new ZeroTimeCalendar();
+        zeroTimeCalendar.setTime(TODAY_YEAR, TODAY_MONTH, TODAY_DAY);
+        return zeroTimeCalendar;
+    }
+
+    /**
+     * Create a portfolio of subscriptions with dates generated from the fixed day.
+     * @param size the number of subscriptions
+     * @return the subscriptions, with IDs in order from 0
+     */
+    static List<Subscription> create(int size) {
+        return new PortfolioGenerator(SEED, today()).generate(size);
+    }
+
+    /**
+     * Write a portfolio to a context's storage and load it into a new model, the same way
+     * the app loads its data.
+     * @param context the context to write the data file in
+     * @param size the number of subscriptions
+     * @return a model holding the loaded portfolio
+     * @throws IOException thrown if the data file can't be written or read
+     */
+    static SharedViewModel loadModel(BenchmarkContext context, int size) throws IOException {
+        new PortfolioGenerator(SEED, today()).writeDataFile(context.getFilesDir(), size);
+        SharedViewModel model = new SharedViewModel();
+        model.loadFromFile(context);
+        return model;
+    }
+}
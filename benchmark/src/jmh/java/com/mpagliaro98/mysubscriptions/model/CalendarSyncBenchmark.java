@@ -0,0 +1,243 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import com.mpagliaro98.mysubscriptions.ui.interfaces.OnSyncCalendarListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures syncing the calendar, against a stand-in for the calendar provider that only
+ * counts the events it's sent. Every call to the provider waits for a fixed time first, the
+ * way each binder transaction to a real provider costs the same no matter how little it
+ * carries, so the results show how much sending events in batches saves. Both a sync from
+ * scratch and a sync after editing one subscription are measured, with one event per payment
+ * date or one repeating event per subscription. Along with whole syncs per second, the number
+ * of events added, updated, or deleted per second is reported.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CalendarSyncBenchmark {
+
+    // The number of subscriptions in the portfolio
+    @Param({"10", "1000"})
+    public int size;
+
+    // How long each call to the provider takes, in microseconds
+    @Param({"0", "100"})
+    public int transactionMicros;
+
+    // Whether each subscription gets one repeating event or one event per payment date
+    @Param({"false", "true"})
+    public boolean recurringEvents;
+
+    /**
+     * Counts the events sent to the provider during each iteration, which JMH reports as a
+     * rate next to the number of syncs.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class EventCounter {
+        // The number of events sent so far this iteration
+        public long events;
+
+        /**
+         * Start each iteration counting from zero.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            events = 0;
+        }
+    }
+
+    /**
+     * Stands in for the calendar provider. It answers the query for the sync calendar with a
+     * single calendar, gives every event added a new ID, and counts every event changed
+     * either alone or in a batch.
+     */
+    private class CalendarResolver extends ContentResolver {
+        // The counter of the thread running the benchmark
+        EventCounter counter;
+        // The ID the next event added is given
+        long nextEventId = 1;
+
+        @Override
+        public Uri insert(Uri url, ContentValues values) {
+            transact();
+            if (url.toString().startsWith(CalendarContract.Events.CONTENT_URI.toString())) {
+                counter.events++;
+            }
+            return ContentUris.withAppendedId(url, nextEventId++);
+        }
+
+        @Override
+        public int delete(Uri url, String where, String[] selectionArgs) {
+            transact();
+            return 1;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection,
+                            String[] selectionArgs, String sortOrder) {
+            transact();
+            return new Cursor() {
+                // True until the one calendar has been stepped to
+                private boolean beforeFirst = true;
+
+                @Override
+                public boolean moveToNext() {
+                    boolean moved = beforeFirst;
+                    beforeFirst = false;
+                    return moved;
+                }
+
+                @Override
+                public long getLong(int columnIndex) {
+                    return 1;
+                }
+
+                @Override
+                public int getCount() {
+                    return 1;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public ContentProviderResult[] applyBatch(String authority,
+                                                  ArrayList<ContentProviderOperation> operations) {
+            transact();
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            for (int i = 0; i < results.length; i++) {
+                ContentProviderOperation operation = operations.get(i);
+                if (operation.isInsert()) {
+                    results[i] = new ContentProviderResult(ContentUris.withAppendedId(operation.getUri(), nextEventId++));
+                } else {
+                    results[i] = new ContentProviderResult(1);
+                }
+            }
+            counter.events += operations.size();
+            return results;
+        }
+
+        /**
+         * Wait out the cost of one transaction with the provider. This spins rather than
+         * sleeps, since sleeping can't wait for times this short accurately.
+         */
+        private void transact() {
+            long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(transactionMicros);
+            while (System.nanoTime() < end) {
+                // Spin until the time is up
+            }
+        }
+    }
+
+    // The stand-in calendar provider
+    private final CalendarResolver resolver = new CalendarResolver();
+    // The context whose storage the portfolio is loaded from
+    private BenchmarkContext context;
+    // The model holding the portfolio
+    private SharedViewModel model;
+    // Counts edits so each one renames a different subscription
+    private int counter = 0;
+    // Fails the benchmark if a sync doesn't finish successfully
+    private final OnSyncCalendarListener listener = new OnSyncCalendarListener() {
+        @Override
+        public void syncCalendar() {
+        }
+
+        @Override
+        public void handleRequestResult(String[] permissions, int[] grantResults) {
+        }
+
+        @Override
+        public void handleSyncResult(int result) {
+            if (result != SYNC_THREAD_SUCCESS) {
+                throw new IllegalStateException("Calendar sync failed with code " + result);
+            }
+        }
+
+        @Override
+        public void handleSyncProgress(int numWritten, int numEvents) {
+        }
+    };
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Save the portfolio and load it into a model the same way the app does.
+     * @throws IOException thrown if the data file can't be written or read
+     */
+    @Setup
+    public void setup() throws IOException {
+        context = new BenchmarkContext(resolver);
+        model = BenchmarkPortfolio.loadModel(context, size);
+        model.updateSubscriptionDates(BenchmarkPortfolio.today());
+    }
+
+    /**
+     * Remove the files made for the benchmark.
+     */
+    @TearDown
+    public void tearDown() {
+        context.delete();
+    }
+
+    /**
+     * Sync every subscription to a new calendar, as the first sync does, running the sync on
+     * this thread rather than on the background sync thread so only the sync itself is measured.
+     * @param events counts the events sent
+     */
+    @Benchmark
+    public void syncFromScratch(EventCounter events) {
+        CalendarSyncLedger.delete(context.getFilesDir());
+        resolver.counter = events;
+        new CalendarSyncRunnable(context, model, listener, recurringEvents).run();
+    }
+
+    /**
+     * Rename one subscription, then sync the calendar, which only has to update that
+     * subscription's events.
+     * @param events counts the events sent
+     */
+    @Benchmark
+    public void syncAfterEdit(EventCounter events) {
+        List<Subscription> subscriptions = model.getFullSubscriptionList();
+        Subscription sub = subscriptions.get(counter++ % subscriptions.size());
+        model.updateSubscription(new Subscription(sub.getId(), "Renamed " + counter, sub.getCost(),
+                sub.getStartDate(), sub.getNote(), sub.getRechargeFrequency(), sub.getCategory(),
+                sub.getNotifDays()), sub.getId());
+        resolver.counter = events;
+        new CalendarSyncRunnable(context, model, listener, recurringEvents).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving a single edit, which appends one json record to the journal instead of
+ * writing the whole data file. This doesn't depend on the size of the portfolio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JournalBenchmark {
+
+    // The context whose storage holds the journal file
+    private BenchmarkContext context;
+    // The journal being appended to
+    private SubscriptionJournal journal;
+    // The subscriptions whose edits are recorded
+    private List<Subscription> subscriptions;
+    // Counts edits so each one records a different subscription
+    private int counter = 0;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Create the storage and the subscriptions to record.
+     * @throws IOException thrown if the storage can't be created
+     */
+    @Setup
+    public void setup() throws IOException {
+        context = new BenchmarkContext();
+        journal = new SubscriptionJournal();
+        subscriptions = BenchmarkPortfolio.create(1000);
+    }
+
+    /**
+     * Start each iteration with an empty journal file, so it doesn't keep growing.
+     */
+    @Setup(Level.Iteration)
+    public void clearJournal() {
+        SubscriptionJournal.deleteJournal(context.getFilesDir());
+    }
+
+    /**
+     * Remove the files made for the benchmark.
+     */
+    @TearDown
+    public void tearDown() {
+        context.delete();
+    }
+
+    /**
+     * Record one edit and append it to the journal file, the same way a save does.
+     * @throws IOException thrown if the journal file can't be written
+     */
+    @Benchmark
+    public void appendEdit() throws IOException {
+        int index = counter++ % subscriptions.size();
+        journal.recordUpdate(index, subscriptions.get(index));
+        journal.append(context.getFilesDir(), journal.takePending());
+    }
+}
@@ -0,0 +1,135 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading and writing the data file: saving and loading the binary snapshot, and
+ * loading a file in the json format written by older versions of the app. Reading the
+ * subscriptions due today from the notification index written with the snapshot is measured
+ * too, which is usually all the notification alarm reads when it goes off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark {
+
+    // The number of subscriptions in the portfolio
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    // The portfolio being saved
+    private List<Subscription> subscriptions;
+    // A context whose storage holds a binary snapshot of the portfolio
+    private BenchmarkContext snapshotContext;
+    // A context whose storage holds the portfolio in the older json format
+    private BenchmarkContext legacyContext;
+    // The day the portfolio was generated on, as an epoch day
+    private int today;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Write the portfolio in both formats.
+     * @throws IOException thrown if a data file can't be written
+     */
+    @Setup
+    public void setup() throws IOException {
+        subscriptions = BenchmarkPortfolio.create(size);
+        snapshotContext = new BenchmarkContext();
+        SharedViewModel.writeSnapshot(snapshotContext, subscriptions, 0, size);
+        today = BenchmarkPortfolio.today().getEpochDay();
+
+        // Older versions wrote one json subscription per line
+        legacyContext = new BenchmarkContext();
+        Gson gson = new Gson();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(
+                new File(legacyContext.getFilesDir(), SharedViewModel.SUBSCRIPTIONS_FILENAME)), StandardCharsets.UTF_8);
+        try {
+            for (Subscription sub : subscriptions) {
+                writer.write(gson.toJson(sub));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Remove the files made for the benchmark.
+     */
+    @TearDown
+    public void tearDown() {
+        snapshotContext.delete();
+        legacyContext.delete();
+    }
+
+    /**
+     * Write the whole portfolio as a binary snapshot, replacing the last one.
+     * @throws IOException thrown if the data file can't be written
+     */
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        SharedViewModel.writeSnapshot(snapshotContext, subscriptions, 0, size);
+    }
+
+    /**
+     * Load the binary snapshot into a new model.
+     * @return the loaded model
+     * @throws IOException thrown if the data file can't be read
+     */
+    @Benchmark
+    public SharedViewModel loadSnapshot() throws IOException {
+        SharedViewModel model = new SharedViewModel();
+        model.loadFromFile(snapshotContext);
+        return model;
+    }
+
+    /**
+     * Read the subscriptions with a notification due today from the notification index,
+     * without loading the rest of the portfolio.
+     * @return the subscriptions due today
+     */
+    @Benchmark
+    public List<Subscription> readNotificationsDue() {
+        List<Subscription> due = SharedViewModel.loadNotificationsDue(snapshotContext, today);
+        if (due == null) {
+            throw new IllegalStateException("The notification index couldn't be read");
+        }
+        return due;
+    }
+
+    /**
+     * Load a data file in the older json format into a new model.
+     * @return the loaded model
+     * @throws IOException thrown if the data file can't be read
+     */
+    @Benchmark
+    public SharedViewModel loadLegacyJson() throws IOException {
+        SharedViewModel model = new SharedViewModel();
+        model.loadFromFile(legacyContext);
+        return model;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the work the home and calendar tabs ask the model for: searching, sorting, looking
+ * up the payments on a day, and the check for passed payment dates done on every load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SharedViewModelBenchmark {
+
+    // Search text as it would be typed into the search bar, one key at a time
+    private static final String[] SEARCHES = {"n", "ne", "net", "netf", "netfl", "netfli", "netflix", "netflix 1", ""};
+
+    // The number of subscriptions in the portfolio
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    // The context whose storage the portfolio is loaded from
+    private BenchmarkContext context;
+    // The model holding the portfolio
+    private SharedViewModel model;
+    // The fixed day used as today
+    private ZeroTimeCalendar today;
+    // Every day of the fixed month, made ahead of time so creating Dates isn't measured
+    private Date[] daysOfMonth;
+    // Counts calls so each benchmark can move on to its next input
+    private int counter = 0;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Save the portfolio and load it into a model the same way the app does.
+     * @throws IOException thrown if the data file can't be written or read
+     */
+    @Setup
+    public void setup() throws IOException {
+        context = new BenchmarkContext();
+        model = BenchmarkPortfolio.loadModel(context, size);
+        today = BenchmarkPortfolio.today();
+        model.updateSubscriptionDates(today);
+        ZeroTimeCalendar day = BenchmarkPortfolio.today();
+        day.setTime(day.getYear(), day.getMonth(), 1);
+        daysOfMonth = new Date[31];
+        for (int i = 0; i < daysOfMonth.length; i++) {
+            daysOfMonth[i] = day.getCurrentDate();
+            day.addDays(1);
+        }
+    }
+
+    /**
+     * Remove the files made for the benchmark.
+     */
+    @TearDown
+    public void tearDown() {
+        context.delete();
+    }
+
+    /**
+     * Filter the list by the next search text, as if a key was typed in the search bar.
+     * @return the number of subscriptions left visible
+     */
+    @Benchmark
+    public int filterList() {
+        model.filterList(SEARCHES[counter++ % SEARCHES.length]);
+        return model.numSubscriptionsVisible();
+    }
+
+    /**
+     * Sort the list, switching between sorting by name and by cost as the sort dropdown on
+     * the home tab does.
+     * @return the number of subscriptions visible after sorting
+     */
+    @Benchmark
+    public int sortList() {
+        model.sortList(counter++ % 2 == 0 ? SharedViewModel.SORT_BY_NAME : SharedViewModel.SORT_BY_COST, "");
+        return model.numSubscriptionsVisible();
+    }
+
+    /**
+     * Get the subscriptions due on the next day of the month, as the calendar tab does when
+     * a day is picked.
+     * @return the subscriptions due on that day
+     */
+    @Benchmark
+    public List<Subscription> getSubsDueOnDate() {
+        return model.getSubsDueOnDate(daysOfMonth[counter++ % daysOfMonth.length]);
+    }
+
+    /**
+     * Check every subscription for passed payment dates on a day where none have passed,
+     * which is what happens on nearly every load of the app.
+     * @return the number of subscriptions updated
+     */
+    @Benchmark
+    public int updateSubscriptionDates() {
+        return model.updateSubscriptionDates(today);
+    }
+}
@@ -0,0 +1,91 @@
+package com.mpagliaro98.mysubscriptions.model;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures creating subscriptions and regenerating their payment dates, which is done for
+ * every subscription whenever the app opens on a new day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SubscriptionBenchmark {
+
+    // The number of subscriptions in the portfolio
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    // The subscriptions that are copied and regenerated
+    private List<Subscription> subscriptions;
+    // The start date of each subscription, made ahead of time so creating Dates isn't measured
+    private Date[] startDates;
+    // Two days a month apart, so every regeneration moves the payment dates
+    private ZeroTimeCalendar[] days;
+    // The index in days of the next day to regenerate for
+    private int nextDay = 0;
+
+    //////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLIC METHODS ////////////////////////////////////////////////////////////////////////
+    //////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Generate the portfolio and the days to regenerate it for.
+     */
+    @Setup
+    public void setup() {
+        subscriptions = BenchmarkPortfolio.create(size);
+        startDates = new Date[size];
+        for (int i = 0; i < size; i++) {
+            startDates[i] = subscriptions.get(i).getStartDate();
+        }
+        ZeroTimeCalendar nextMonth = BenchmarkPortfolio.today();
+        nextMonth.addMonths(1);
+        days = new ZeroTimeCalendar[] {BenchmarkPortfolio.today(), nextMonth};
+    }
+
+    /**
+     * Create a new copy of every subscription, which calculates each one's dates.
+     * @param blackhole consumes the new subscriptions
+     */
+    @Benchmark
+    public void construct(Blackhole blackhole) {
+        ZeroTimeCalendar today = days[0];
+        for (int i = 0; i < size; i++) {
+            Subscription sub = subscriptions.get(i);
+            blackhole.consume(new Subscription(i, sub.getName(), sub.getCost(), startDates[i],
+                    sub.getNote(), sub.getRechargeFrequency(), sub.getCategory(), sub.getNotifDays(), today));
+        }
+    }
+
+    /**
+     * Regenerate the dates of every subscription, switching between two days each time.
+     * @return the number of subscriptions whose dates changed
+     */
+    @Benchmark
+    public int regenerate() {
+        ZeroTimeCalendar day = days[nextDay];
+        nextDay = 1 - nextDay;
+        int numChanged = 0;
+        for (int i = 0; i < size; i++) {
+            if (subscriptions.get(i).regenerateSubInfo(day)) {
+                numChanged++;
+            }
+        }
+        return numChanged;
+    }
+}
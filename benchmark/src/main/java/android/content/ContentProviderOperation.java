@@ -0,0 +1,73 @@
+package android.content;
+
+import android.net.Uri;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public class ContentProviderOperation {
+
+    private static final int TYPE_INSERT = 1;
+    private static final int TYPE_UPDATE = 2;
+    private static final int TYPE_DELETE = 3;
+
+    private final int type;
+    private final Uri uri;
+    private final ContentValues values;
+
+    private ContentProviderOperation(Builder builder) {
+        type = builder.type;
+        uri = builder.uri;
+        values = builder.values;
+    }
+
+    public static Builder newInsert(Uri uri) {
+        return new Builder(TYPE_INSERT, uri);
+    }
+
+    public static Builder newUpdate(Uri uri) {
+        return new Builder(TYPE_UPDATE, uri);
+    }
+
+    public static Builder newDelete(Uri uri) {
+        return new Builder(TYPE_DELETE, uri);
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    public boolean isInsert() {
+        return type == TYPE_INSERT;
+    }
+
+    public boolean isUpdate() {
+        return type == TYPE_UPDATE;
+    }
+
+    public boolean isDelete() {
+        return type == TYPE_DELETE;
+    }
+
+    public static class Builder {
+
+        private final int type;
+        private final Uri uri;
+        private ContentValues values;
+
+        private Builder(int type, Uri uri) {
+            this.type = type;
+            this.uri = uri;
+        }
+
+        public Builder withValues(ContentValues values) {
+            this.values = values;
+            return this;
+        }
+
+        public ContentProviderOperation build() {
+            return new ContentProviderOperation(this);
+        }
+    }
+}
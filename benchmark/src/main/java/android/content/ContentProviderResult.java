@@ -0,0 +1,23 @@
+package android.content;
+
+import android.net.Uri;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public class ContentProviderResult {
+
+    public final Uri uri;
+    public final Integer count;
+
+    public ContentProviderResult(Uri uri) {
+        this.uri = uri;
+        this.count = null;
+    }
+
+    public ContentProviderResult(int count) {
+        this.uri = null;
+        this.count = count;
+    }
+}
@@ -0,0 +1,34 @@
+package android.content;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
+import java.util.ArrayList;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * The calendar provider isn't available, so every call fails unless a subclass stands in
+ * for the provider.
+ */
+public abstract class ContentResolver {
+
+    public Uri insert(Uri url, ContentValues values) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int delete(Uri url, String where, String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Cursor query(Uri uri, String[] projection, String selection,
+                        String[] selectionArgs, String sortOrder) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ContentProviderResult[] applyBatch(String authority,
+                                              ArrayList<ContentProviderOperation> operations)
+            throws RemoteException, OperationApplicationException {
+        throw new UnsupportedOperationException();
+    }
+}
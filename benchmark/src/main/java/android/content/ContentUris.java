@@ -0,0 +1,19 @@
+package android.content;
+
+import android.net.Uri;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public class ContentUris {
+
+    public static long parseId(Uri contentUri) {
+        String uriString = contentUri.toString();
+        return Long.parseLong(uriString.substring(uriString.lastIndexOf('/') + 1));
+    }
+
+    public static Uri withAppendedId(Uri contentUri, long id) {
+        return Uri.parse(contentUri.toString() + "/" + id);
+    }
+}
@@ -0,0 +1,27 @@
+package android.content;
+
+import android.content.res.Resources;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public abstract class Context {
+
+    public abstract File getFilesDir();
+
+    public abstract FileInputStream openFileInput(String name) throws FileNotFoundException;
+
+    public abstract Resources getResources();
+
+    public abstract ContentResolver getContentResolver();
+
+    public abstract Context getApplicationContext();
+
+    public final String getString(int resId) {
+        return getResources().getString(resId);
+    }
+}
@@ -0,0 +1,17 @@
+package android.content.res;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * Every string is empty and every color is 0.
+ */
+public class Resources {
+
+    public String getString(int id) {
+        return "";
+    }
+
+    public int getColor(int id) {
+        return 0;
+    }
+}
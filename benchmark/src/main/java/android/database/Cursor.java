@@ -0,0 +1,16 @@
+package android.database;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public interface Cursor {
+
+    boolean moveToNext();
+
+    long getLong(int columnIndex);
+
+    int getCount();
+
+    void close();
+}
@@ -0,0 +1,46 @@
+package android.net;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * Uris are kept as plain strings.
+ */
+public class Uri {
+
+    private final String uriString;
+
+    private Uri(String uriString) {
+        this.uriString = uriString;
+    }
+
+    public static Uri parse(String uriString) {
+        return new Uri(uriString);
+    }
+
+    public Builder buildUpon() {
+        return new Builder(uriString);
+    }
+
+    @Override
+    public String toString() {
+        return uriString;
+    }
+
+    public static final class Builder {
+
+        private final StringBuilder uriString;
+
+        private Builder(String uriString) {
+            this.uriString = new StringBuilder(uriString);
+        }
+
+        public Builder appendQueryParameter(String key, String value) {
+            uriString.append(uriString.indexOf("?") < 0 ? '?' : '&').append(key).append('=').append(value);
+            return this;
+        }
+
+        public Uri build() {
+            return new Uri(uriString.toString());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public class Build {
+
+    public static class VERSION {
+        public static final int SDK_INT = 29;
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN_MR2 = 18;
+    }
+}
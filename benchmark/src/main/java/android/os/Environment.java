@@ -0,0 +1,15 @@
+package android.os;
+
+import java.io.File;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * The data directory is the JVM's temporary directory.
+ */
+public class Environment {
+
+    public static File getDataDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+}
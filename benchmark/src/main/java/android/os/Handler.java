@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * Nothing can be posted without a main thread.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {}
+
+    public final boolean post(Runnable r) {
+        throw new UnsupportedOperationException();
+    }
+}
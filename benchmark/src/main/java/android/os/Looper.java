@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * There is no main thread to loop on.
+ */
+public class Looper {
+
+    public static Looper getMainLooper() {
+        return null;
+    }
+}
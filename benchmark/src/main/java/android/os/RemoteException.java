@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public class RemoteException extends Exception {
+
+    public RemoteException(String message) {
+        super(message);
+    }
+}
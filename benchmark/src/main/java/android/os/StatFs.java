@@ -0,0 +1,33 @@
+package android.os;
+
+import java.io.File;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * The free space is read from the file system, counted in blocks of one byte.
+ */
+public class StatFs {
+
+    private final File path;
+
+    public StatFs(String path) {
+        this.path = new File(path);
+    }
+
+    public long getBlockSizeLong() {
+        return 1;
+    }
+
+    public long getAvailableBlocksLong() {
+        return path.getUsableSpace();
+    }
+
+    public int getBlockSize() {
+        return 1;
+    }
+
+    public int getAvailableBlocks() {
+        return (int)Math.min(Integer.MAX_VALUE, path.getUsableSpace());
+    }
+}
@@ -0,0 +1,42 @@
+package android.provider;
+
+import android.net.Uri;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public final class CalendarContract {
+
+    public static final String AUTHORITY = "com.android.calendar";
+    public static final String CALLER_IS_SYNCADAPTER = "caller_is_syncadapter";
+
+    public static final class Calendars {
+        public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/calendars");
+        public static final String _ID = "_id";
+        public static final String ACCOUNT_NAME = "account_name";
+        public static final String ACCOUNT_TYPE = "account_type";
+        public static final String NAME = "name";
+        public static final String CALENDAR_DISPLAY_NAME = "calendar_displayName";
+        public static final String CALENDAR_COLOR = "calendar_color";
+        public static final String CALENDAR_ACCESS_LEVEL = "calendar_access_level";
+        public static final String OWNER_ACCOUNT = "ownerAccount";
+        public static final String VISIBLE = "visible";
+        public static final String SYNC_EVENTS = "sync_events";
+        public static final String CALENDAR_TIME_ZONE = "calendar_timezone";
+        public static final String CAN_PARTIALLY_UPDATE = "canPartiallyUpdate";
+        public static final int CAL_ACCESS_ROOT = 800;
+    }
+
+    public static final class Events {
+        public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/events");
+        public static final String TITLE = "title";
+        public static final String DTSTART = "dtstart";
+        public static final String DTEND = "dtend";
+        public static final String CALENDAR_ID = "calendar_id";
+        public static final String EVENT_TIMEZONE = "eventTimezone";
+        public static final String ALL_DAY = "allDay";
+        public static final String RRULE = "rrule";
+        public static final String DURATION = "duration";
+    }
+}
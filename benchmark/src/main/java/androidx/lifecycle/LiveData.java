@@ -0,0 +1,23 @@
+package androidx.lifecycle;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ * It only holds a value, there are no observers.
+ */
+public abstract class LiveData<T> {
+
+    private volatile T value;
+
+    public T getValue() {
+        return value;
+    }
+
+    protected void postValue(T value) {
+        this.value = value;
+    }
+
+    protected void setValue(T value) {
+        this.value = value;
+    }
+}
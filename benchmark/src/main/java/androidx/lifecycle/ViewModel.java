@@ -0,0 +1,10 @@
+package androidx.lifecycle;
+
+/**
+ * Stand-in for the Android class of the same name, so the model can be compiled and
+ * benchmarked on a plain JVM. Only the parts the model uses are here.
+ */
+public abstract class ViewModel {
+
+    protected void onCleared() {}
+}
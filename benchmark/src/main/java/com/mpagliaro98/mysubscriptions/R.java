@@ -0,0 +1,23 @@
+package com.mpagliaro98.mysubscriptions;
+
+/**
+ * Stand-in for the resource ids the Android build generates, so the model can be compiled
+ * and benchmarked on a plain JVM. Only the ids the model uses are here.
+ */
+public final class R {
+
+    public static final class color {
+        public static final int colorPrimary = 1;
+    }
+
+    public static final class string {
+        public static final int app_name = 1;
+        public static final int calendar_sync_name = 2;
+        public static final int calendar_sync_name_suffix = 3;
+        public static final int cost_format = 4;
+        public static final int currency_default = 5;
+        public static final int date_format_default = 6;
+        public static final int home_snackbar_ioexception = 7;
+        public static final int no_memory_exception = 8;
+    }
+}